@@ -0,0 +1,421 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Database tester which isolates the tests by rolling back their changes instead of
+ * cleaning and reloading the tables. The baseline dataset is loaded once with the
+ * setUp operation. Afterwards every test runs in a transaction of one shared
+ * connection which is rolled back in {@link #onTearDown()}; the tearDown operation
+ * is not executed. A rollback is orders of magnitude cheaper than deleting and
+ * inserting the dataset again for suites with thousands of tests.
+ * <p>
+ * By default the baseline is committed and each test runs in its own transaction.
+ * With {@link #setUseSavepoints(boolean)} the baseline itself stays uncommitted in
+ * the transaction of the shared connection and each test is rolled back to a
+ * savepoint, so that the database is never modified permanently. The locks of the
+ * baseline are then held until {@link #close()} is invoked.
+ * </p>
+ * <p>
+ * The tests must access the database through {@link #getConnection()}; their changes
+ * are only rolled back if they are done on this connection. Closing it is ignored. A
+ * commit of the test, i.e. a call to <code>commit()</code> or
+ * <code>setAutoCommit(true)</code> on the connection, is executed but detected: the
+ * baseline is loaded again before the next test and, if
+ * {@link #setFailOnCommit(boolean)} is enabled, {@link #onTearDown()} fails. Commits
+ * done on other connections or implicitly by DDL statements cannot be detected.
+ * </p>
+ * <p>
+ * The baseline is loaded again whenever the dataset is not the instance that has
+ * been loaded before. The tester must therefore be shared by the tests, e.g. in a
+ * static field returned by {@link DatabaseTestCase#newDatabaseTester()}, and the
+ * tests should return the same dataset instance:
+ * <pre>
+ * public class MyTest extends DBTestCase
+ * {
+ *     private static final RollbackDatabaseTester TESTER = new RollbackDatabaseTester(
+ *             new PropertiesBasedJdbcDatabaseTester());
+ *     private static IDataSet dataSet;
+ *
+ *     protected IDatabaseTester newDatabaseTester() { return TESTER; }
+ *
+ *     protected IDataSet getDataSet() throws Exception
+ *     {
+ *         if (dataSet == null) dataSet = new FlatXmlDataSetBuilder().build(new File("dataset.xml"));
+ *         return dataSet;
+ *     }
+ * }
+ * </pre>
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class RollbackDatabaseTester extends AbstractDatabaseTester
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(RollbackDatabaseTester.class);
+
+    /**
+     * Tester providing the shared connection
+     */
+    private final IDatabaseTester _connectionProvider;
+    private boolean _useSavepoints = false;
+    private boolean _failOnCommit = false;
+    private IOperationListener _operationListener;
+
+    private IDatabaseConnection _connection;
+    private Connection _jdbcConnection;
+    private ConnectionHandler _connectionHandler;
+    /**
+     * The dataset of the loaded baseline, <code>null</code> if no valid baseline is loaded
+     */
+    private IDataSet _baselineDataSet;
+    private Savepoint _savepoint;
+
+    /**
+     * Creates a new RollbackDatabaseTester.
+     * @param connectionProvider The tester whose {@link IDatabaseTester#getConnection()}
+     * is invoked once to open the shared connection
+     */
+    public RollbackDatabaseTester(IDatabaseTester connectionProvider)
+    {
+        if (connectionProvider == null)
+        {
+            throw new NullPointerException("The parameter 'connectionProvider' must not be null");
+        }
+        _connectionProvider = connectionProvider;
+    }
+
+    /**
+     * @param useSavepoints Whether the baseline stays uncommitted and each test is rolled
+     * back to a savepoint. Must be set before the first test.
+     */
+    public void setUseSavepoints(boolean useSavepoints)
+    {
+        _useSavepoints = useSavepoints;
+    }
+
+    /**
+     * @param failOnCommit Whether {@link #onTearDown()} throws an exception when the test
+     * has committed its transaction
+     */
+    public void setFailOnCommit(boolean failOnCommit)
+    {
+        _failOnCommit = failOnCommit;
+    }
+
+    /**
+     * Returns the shared connection. It is opened on the first invocation.
+     */
+    public synchronized IDatabaseConnection getConnection() throws Exception
+    {
+        logger.debug("getConnection() - start");
+
+        if (_connection == null)
+        {
+            IDatabaseConnection connection = _connectionProvider.getConnection();
+            _jdbcConnection = connection.getConnection();
+            _connectionHandler = new ConnectionHandler(_jdbcConnection);
+            Connection guardedConnection = (Connection)Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class[] {Connection.class},
+                    _connectionHandler);
+            _connection = new DatabaseConnection(guardedConnection, connection.getSchema());
+
+            // Keep the configuration of the provided connection
+            DatabaseConfig config = connection.getConfig();
+            for (int i = 0; i < DatabaseConfig.ALL_PROPERTIES.length; i++)
+            {
+                String name = DatabaseConfig.ALL_PROPERTIES[i].getProperty();
+                Object value = config.getProperty(name);
+                if (value != null)
+                {
+                    _connection.getConfig().setProperty(name, value);
+                }
+            }
+        }
+        return _connection;
+    }
+
+    /**
+     * Does not close the shared connection.
+     */
+    public void closeConnection(IDatabaseConnection connection) throws Exception
+    {
+        if (connection != _connection)
+        {
+            super.closeConnection(connection);
+        }
+    }
+
+    public void setOperationListener(IOperationListener operationListener)
+    {
+        super.setOperationListener(operationListener);
+        _operationListener = operationListener;
+    }
+
+    public void onSetup() throws Exception
+    {
+        logger.debug("onSetup() - start");
+
+        IDatabaseConnection connection = getConnection();
+        if (_operationListener != null)
+        {
+            _operationListener.connectionRetrieved(connection);
+        }
+
+        IDataSet dataSet = getDataSet();
+        if (_baselineDataSet == null || _baselineDataSet != dataSet)
+        {
+            loadBaseline(connection, dataSet);
+        }
+
+        // Begin the transaction of the test
+        if (_useSavepoints)
+        {
+            _savepoint = _jdbcConnection.setSavepoint();
+        }
+        else
+        {
+            _jdbcConnection.setAutoCommit(false);
+        }
+        _connectionHandler.begin();
+    }
+
+    private void loadBaseline(IDatabaseConnection connection, IDataSet dataSet) throws Exception
+    {
+        logger.debug("Loading the baseline dataset {}", dataSet);
+
+        _baselineDataSet = null;
+        if (_useSavepoints)
+        {
+            // Discards a previous baseline
+            if (!_jdbcConnection.getAutoCommit())
+            {
+                _jdbcConnection.rollback();
+            }
+            _jdbcConnection.setAutoCommit(false);
+        }
+        else
+        {
+            _jdbcConnection.setAutoCommit(true);
+        }
+
+        DatabaseOperation operation = getSetUpOperation();
+        operation.execute(connection, dataSet);
+        _baselineDataSet = dataSet;
+    }
+
+    public void onTearDown() throws Exception
+    {
+        logger.debug("onTearDown() - start");
+
+        if (_connectionHandler == null || !_connectionHandler.isActive())
+        {
+            logger.debug("No test transaction to roll back");
+            return;
+        }
+
+        boolean committed = _connectionHandler.isCommitted();
+        boolean rolledBack = _connectionHandler.isRolledBack();
+        _connectionHandler.end();
+        if (committed || (rolledBack && _useSavepoints))
+        {
+            // The baseline might have been changed permanently or rolled back already
+            logger.warn("The test has ended its transaction. The baseline will be loaded again.");
+            _baselineDataSet = null;
+            if (!_jdbcConnection.getAutoCommit())
+            {
+                _jdbcConnection.rollback();
+            }
+        }
+        else if (_useSavepoints)
+        {
+            _jdbcConnection.rollback(_savepoint);
+        }
+        else
+        {
+            _jdbcConnection.rollback();
+        }
+        _savepoint = null;
+
+        if (committed && _failOnCommit)
+        {
+            throw new DatabaseUnitException("The test has committed the transaction that "
+                    + "should have been rolled back in tearDown.");
+        }
+    }
+
+    /**
+     * Rolls back the open transaction and closes the shared connection. Must be invoked
+     * after the last test when savepoints are used.
+     */
+    public synchronized void close() throws SQLException
+    {
+        logger.debug("close() - start");
+
+        if (_connection == null)
+        {
+            return;
+        }
+        try
+        {
+            if (!_jdbcConnection.getAutoCommit())
+            {
+                _jdbcConnection.rollback();
+                _jdbcConnection.setAutoCommit(true);
+            }
+        }
+        finally
+        {
+            _jdbcConnection.close();
+            _connection = null;
+            _jdbcConnection = null;
+            _connectionHandler = null;
+            _baselineDataSet = null;
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_connectionProvider=").append(_connectionProvider);
+        sb.append(", _useSavepoints=").append(_useSavepoints);
+        sb.append(", _failOnCommit=").append(_failOnCommit);
+        sb.append(", super=").append(super.toString());
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Handler of the connection given to the tests. Ignores <code>close()</code> and
+     * records the commits and rollbacks done during a test.
+     */
+    private static class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection _target;
+        private boolean _active = false;
+        private boolean _committed = false;
+        private boolean _rolledBack = false;
+
+        public ConnectionHandler(Connection target)
+        {
+            _target = target;
+        }
+
+        public synchronized void begin()
+        {
+            _active = true;
+            _committed = false;
+            _rolledBack = false;
+        }
+
+        public synchronized void end()
+        {
+            _active = false;
+        }
+
+        /**
+         * @return <code>true</code> if the test has committed
+         */
+        public synchronized boolean isCommitted()
+        {
+            return _committed;
+        }
+
+        /**
+         * @return <code>true</code> if the test has rolled back the whole transaction
+         */
+        public synchronized boolean isRolledBack()
+        {
+            return _rolledBack;
+        }
+
+        public synchronized boolean isActive()
+        {
+            return _active;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if (name.equals("close"))
+            {
+                logger.debug("Ignoring close() of the shared connection");
+                return null;
+            }
+            if (name.equals("commit")
+                    || (name.equals("setAutoCommit") && Boolean.TRUE.equals(args[0])))
+            {
+                synchronized (this)
+                {
+                    if (_active)
+                    {
+                        logger.warn("Connection.{}() invoked during a rolled back test", name);
+                        _committed = true;
+                    }
+                }
+            }
+            else if (name.equals("rollback") && (args == null || args.length == 0))
+            {
+                synchronized (this)
+                {
+                    if (_active)
+                    {
+                        _rolledBack = true;
+                    }
+                }
+            }
+
+            try
+            {
+                return method.invoke(_target, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.ISnapshotDialect;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.filter.ITableFilterSimple;
+import org.dbunit.util.QualifiedTableName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Database tester for embedded databases like H2 or HSQLDB which loads the dataset
+ * only once. After the setUp operation the tables of the dataset are copied into
+ * snapshot tables inside of the database. Before every following test the tables
+ * are restored from these copies by the database itself, which is much faster than
+ * sending all rows over JDBC again.
+ * <p>
+ * The statements are generated by an {@link ISnapshotDialect}. If none is given to
+ * the constructor, the one configured on the connection using
+ * {@link DatabaseConfig#PROPERTY_SNAPSHOT_DIALECT} is used. This property is set by
+ * {@link org.dbunit.ext.h2.H2Connection} and {@link org.dbunit.ext.hsqldb.HsqldbConnection}.
+ * </p>
+ * <p>
+ * The snapshot is captured again whenever the dataset is not the instance that has
+ * been loaded before. Like the {@link RollbackDatabaseTester} the tester must therefore
+ * be shared by the tests and the tests should return the same dataset instance.
+ * Only the tables of the dataset are restored. The snapshot tables named
+ * {@link #SNAPSHOT_TABLE_PREFIX} followed by a number stay in the schema of the
+ * connection until {@link #close()} drops them. The tester hides them with the
+ * {@link DatabaseConfig#PROPERTY_TABLE_FILTER} property of the connections it returns,
+ * so they are not listed by {@link IDatabaseConnection#createDataSet()} and operations
+ * on the whole database like {@link org.dbunit.operation.DatabaseOperation#DELETE_ALL}
+ * leave them untouched.
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SnapshotDatabaseTester extends AbstractDatabaseTester
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotDatabaseTester.class);
+
+    /**
+     * Prefix of the snapshot tables which are numbered in the order of the dataset
+     */
+    public static final String SNAPSHOT_TABLE_PREFIX = "DBUNIT_SNAPSHOT_";
+
+    /**
+     * Tester providing the connections
+     */
+    private final IDatabaseTester _connectionProvider;
+    private final ISnapshotDialect _snapshotDialect;
+    private IOperationListener _operationListener = new DefaultOperationListener();
+
+    /**
+     * The dataset of the captured snapshot, <code>null</code> if no snapshot exists
+     */
+    private IDataSet _snapshotDataSet;
+    private String[] _tableNames;
+    private String[] _snapshotTableNames;
+
+    /**
+     * Creates a new SnapshotDatabaseTester using the snapshot dialect of the connection.
+     * @param connectionProvider The tester whose {@link IDatabaseTester#getConnection()}
+     * is invoked to retrieve the connections
+     */
+    public SnapshotDatabaseTester(IDatabaseTester connectionProvider)
+    {
+        this(connectionProvider, null);
+    }
+
+    /**
+     * Creates a new SnapshotDatabaseTester.
+     * @param connectionProvider The tester whose {@link IDatabaseTester#getConnection()}
+     * is invoked to retrieve the connections
+     * @param snapshotDialect The dialect generating the snapshot statements. If
+     * <code>null</code> the dialect configured on the connection is used.
+     */
+    public SnapshotDatabaseTester(IDatabaseTester connectionProvider, ISnapshotDialect snapshotDialect)
+    {
+        if (connectionProvider == null)
+        {
+            throw new NullPointerException("The parameter 'connectionProvider' must not be null");
+        }
+        _connectionProvider = connectionProvider;
+        _snapshotDialect = snapshotDialect;
+    }
+
+    public IDatabaseConnection getConnection() throws Exception
+    {
+        logger.debug("getConnection() - start");
+
+        IDatabaseConnection connection = _connectionProvider.getConnection();
+        DatabaseConfig config = connection.getConfig();
+        ITableFilterSimple tableFilter = (ITableFilterSimple)config.getProperty(
+                DatabaseConfig.PROPERTY_TABLE_FILTER);
+        if (!(tableFilter instanceof SnapshotTableFilter))
+        {
+            config.setProperty(DatabaseConfig.PROPERTY_TABLE_FILTER,
+                    new SnapshotTableFilter(tableFilter));
+        }
+        return connection;
+    }
+
+    public void closeConnection(IDatabaseConnection connection) throws Exception
+    {
+        logger.debug("closeConnection(connection={}) - start", connection);
+
+        _connectionProvider.closeConnection(connection);
+    }
+
+    public void setOperationListener(IOperationListener operationListener)
+    {
+        super.setOperationListener(operationListener);
+        _operationListener = operationListener;
+    }
+
+    public void onSetup() throws Exception
+    {
+        logger.debug("onSetup() - start");
+
+        IDataSet dataSet = getDataSet();
+        if (_snapshotDataSet != null && _snapshotDataSet == dataSet)
+        {
+            IDatabaseConnection connection = getConnection();
+            _operationListener.connectionRetrieved(connection);
+            try
+            {
+                restoreSnapshot(connection);
+            }
+            finally
+            {
+                _operationListener.operationSetUpFinished(connection);
+            }
+            return;
+        }
+
+        close();
+        super.onSetup();
+
+        IDatabaseConnection connection = getConnection();
+        _operationListener.connectionRetrieved(connection);
+        try
+        {
+            createSnapshot(connection, dataSet);
+        }
+        finally
+        {
+            _operationListener.operationSetUpFinished(connection);
+        }
+        _snapshotDataSet = dataSet;
+    }
+
+    /**
+     * Drops the snapshot tables. The dataset is loaded again by the next setUp.
+     */
+    public void close() throws Exception
+    {
+        logger.debug("close() - start");
+
+        if (_snapshotTableNames == null)
+        {
+            return;
+        }
+
+        IDatabaseConnection connection = getConnection();
+        _operationListener.connectionRetrieved(connection);
+        try
+        {
+            dropSnapshot(connection);
+        }
+        finally
+        {
+            _operationListener.operationTearDownFinished(connection);
+        }
+    }
+
+    private void createSnapshot(IDatabaseConnection connection, IDataSet dataSet)
+            throws Exception
+    {
+        ISnapshotDialect dialect = getSnapshotDialect(connection);
+        String escapePattern = (String)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+
+        // Every table is copied once, even if it occurs several times in the dataset
+        List tableNames = new ArrayList();
+        Set uniqueNames = new HashSet();
+        String[] names = dataSet.getTableNames();
+        for (int i = 0; i < names.length; i++)
+        {
+            if (uniqueNames.add(names[i].toUpperCase(Locale.ENGLISH)))
+            {
+                tableNames.add(new QualifiedTableName(
+                        names[i], connection.getSchema(), escapePattern).getQualifiedName());
+            }
+        }
+
+        String[] snapshotTableNames = new String[tableNames.size()];
+        for (int i = 0; i < snapshotTableNames.length; i++)
+        {
+            snapshotTableNames[i] = new QualifiedTableName(
+                    SNAPSHOT_TABLE_PREFIX + i, connection.getSchema()).getQualifiedName();
+        }
+
+        Statement statement = connection.getConnection().createStatement();
+        try
+        {
+            // Make sure that no leftover of a previous run exists
+            for (int i = 0; i < snapshotTableNames.length; i++)
+            {
+                statement.execute(dialect.getDropSnapshotSql(snapshotTableNames[i]));
+            }
+            for (int i = 0; i < snapshotTableNames.length; i++)
+            {
+                statement.execute(dialect.getCreateSnapshotSql(
+                        (String)tableNames.get(i), snapshotTableNames[i]));
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+        _tableNames = (String[])tableNames.toArray(new String[0]);
+        _snapshotTableNames = snapshotTableNames;
+
+        logger.debug("Captured the snapshot of {} tables", new Integer(snapshotTableNames.length));
+    }
+
+    private void restoreSnapshot(IDatabaseConnection connection) throws Exception
+    {
+        ISnapshotDialect dialect = getSnapshotDialect(connection);
+
+        Statement statement = connection.getConnection().createStatement();
+        try
+        {
+            statement.execute(dialect.getDisableConstraintsSql());
+            try
+            {
+                for (int i = 0; i < _tableNames.length; i++)
+                {
+                    statement.executeUpdate("delete from " + _tableNames[i]);
+                    statement.executeUpdate("insert into " + _tableNames[i]
+                            + " select * from " + _snapshotTableNames[i]);
+                }
+            }
+            finally
+            {
+                statement.execute(dialect.getEnableConstraintsSql());
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private void dropSnapshot(IDatabaseConnection connection) throws Exception
+    {
+        ISnapshotDialect dialect = getSnapshotDialect(connection);
+        String[] snapshotTableNames = _snapshotTableNames;
+        _snapshotDataSet = null;
+        _tableNames = null;
+        _snapshotTableNames = null;
+
+        Statement statement = connection.getConnection().createStatement();
+        try
+        {
+            for (int i = 0; i < snapshotTableNames.length; i++)
+            {
+                statement.execute(dialect.getDropSnapshotSql(snapshotTableNames[i]));
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private ISnapshotDialect getSnapshotDialect(IDatabaseConnection connection)
+            throws DatabaseUnitException
+    {
+        if (_snapshotDialect != null)
+        {
+            return _snapshotDialect;
+        }
+        ISnapshotDialect dialect = (ISnapshotDialect)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_SNAPSHOT_DIALECT);
+        if (dialect == null)
+        {
+            throw new DatabaseUnitException("No snapshot dialect is configured. Set the property '"
+                    + DatabaseConfig.PROPERTY_SNAPSHOT_DIALECT + "' on the connection.");
+        }
+        return dialect;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_connectionProvider=").append(_connectionProvider);
+        sb.append(", _snapshotDialect=").append(_snapshotDialect);
+        sb.append(", super=").append(super.toString());
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Hides the snapshot tables in addition to the tables rejected by the filter
+     * configured before
+     */
+    private static class SnapshotTableFilter implements ITableFilterSimple
+    {
+        private final ITableFilterSimple _tableFilter;
+
+        public SnapshotTableFilter(ITableFilterSimple tableFilter)
+        {
+            _tableFilter = tableFilter;
+        }
+
+        public boolean accept(String tableName) throws DataSetException
+        {
+            if (tableName.toUpperCase(Locale.ENGLISH).startsWith(SNAPSHOT_TABLE_PREFIX))
+            {
+                return false;
+            }
+            return _tableFilter == null || _tableFilter.accept(tableName);
+        }
+    }
+}
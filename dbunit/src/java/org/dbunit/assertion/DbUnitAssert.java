@@ -30,8 +30,10 @@ import org.dbunit.dataset.Column;
 import org.dbunit.dataset.Columns;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.IIndexedTable;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.IndexedTableAdapter;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.datatype.UnknownDataType;
 import org.dbunit.dataset.filter.DefaultColumnFilter;
@@ -482,8 +484,26 @@ public class DbUnitAssert
             "The parameter 'failureHandler' must not be null");
         }
 
+        int rowCount = expectedTable.getRowCount();
+        if (rowCount == 0) {
+            return;
+        }
+
+        // Resolve the column names only once and access the values by index
+        IIndexedTable expectedIndexedTable = IndexedTableAdapter.getIndexedTable(expectedTable);
+        IIndexedTable actualIndexedTable = IndexedTableAdapter.getIndexedTable(actualTable);
+        ITableMetaData expectedMetaData = expectedTable.getTableMetaData();
+        ITableMetaData actualMetaData = actualTable.getTableMetaData();
+        int[] expectedIndexes = new int[comparisonCols.length];
+        int[] actualIndexes = new int[comparisonCols.length];
+        for (int j = 0; j < comparisonCols.length; j++) {
+            String columnName = comparisonCols[j].getColumnName();
+            expectedIndexes[j] = expectedMetaData.getColumnIndex(columnName);
+            actualIndexes[j] = actualMetaData.getColumnIndex(columnName);
+        }
+
         // iterate over all rows
-        for (int i = 0; i < expectedTable.getRowCount(); i++) {
+        for (int i = 0; i < rowCount; i++) {
             // iterate over all columns of the current row
             for (int j = 0; j < comparisonCols.length; j++) {
                 ComparisonColumn compareColumn = comparisonCols[j];
@@ -491,8 +511,8 @@ public class DbUnitAssert
                 String columnName = compareColumn.getColumnName();
                 DataType dataType = compareColumn.getDataType();
 
-                Object expectedValue = expectedTable.getValue(i, columnName);
-                Object actualValue = actualTable.getValue(i, columnName);
+                Object expectedValue = expectedIndexedTable.getValue(i, expectedIndexes[j]);
+                Object actualValue = actualIndexedTable.getValue(i, actualIndexes[j]);
 
                 // Compare the values
                 if(skipCompare(columnName, expectedValue, actualValue)){
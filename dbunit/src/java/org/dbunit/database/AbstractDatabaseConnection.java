@@ -27,6 +27,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 import org.dbunit.DatabaseUnitRuntimeException;
+import org.dbunit.database.statement.CachedPreparedStatementFactory;
 import org.dbunit.database.statement.IStatementFactory;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.FilteredDataSet;
@@ -169,6 +170,20 @@ public abstract class AbstractDatabaseConnection implements IDatabaseConnection
         return (IStatementFactory)_databaseConfig.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
     }
 
+    /**
+     * Closes the statements cached for this connection by the configured
+     * statement factory. Must be invoked before the JDBC connection is closed.
+     * @throws SQLException
+     */
+    protected void closeCachedStatements() throws SQLException
+    {
+        Object factory = _databaseConfig.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+        if (factory instanceof CachedPreparedStatementFactory)
+        {
+            ((CachedPreparedStatementFactory)factory).invalidate(this);
+        }
+    }
+
     private IResultSetTableFactory getResultSetTableFactory()
     {
         return (IResultSetTableFactory)_databaseConfig.getProperty(DatabaseConfig.PROPERTY_RESULTSET_TABLE_FACTORY);
@@ -42,6 +42,26 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
      */
     private static final Logger logger = LoggerFactory.getLogger(CachedResultSetTableFactory.class);
 
+    /**
+     * Whether or not the rows are cached in {@link ColumnarResultSetTable}s
+     */
+    private final boolean _columnar;
+
+    public CachedResultSetTableFactory()
+    {
+        this(false);
+    }
+
+    /**
+     * @param columnar Whether or not the rows are cached in {@link ColumnarResultSetTable}s,
+     * which need less memory for large tables
+     * @since 2.4.8
+     */
+    public CachedResultSetTableFactory(boolean columnar)
+    {
+        _columnar = columnar;
+    }
+
     public IResultSetTable createTable(String tableName, String selectStatement,
             IDatabaseConnection connection) throws SQLException, DataSetException
     {
@@ -49,7 +69,7 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
     		logger.trace("createTable(tableName={}, selectStatement={}, connection={}) - start", 
     				new Object[] { tableName, selectStatement, connection });
 
-        return new CachedResultSetTable(new ForwardOnlyResultSetTable(
+        return createCachedTable(new ForwardOnlyResultSetTable(
                 tableName, selectStatement, connection));
     }
 
@@ -58,7 +78,7 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
     {
         logger.trace("createTable(metaData={}, connection={}) - start", metaData, connection);
         ForwardOnlyResultSetTable resultSetTable = new ForwardOnlyResultSetTable(metaData, connection);
-        return new CachedResultSetTable(resultSetTable);
+        return createCachedTable(resultSetTable);
     }
     
     public IResultSetTable createTable(String tableName,
@@ -72,6 +92,16 @@ public class CachedResultSetTableFactory implements IResultSetTableFactory
         // Reuse method from ForwardOnly factory
         ForwardOnlyResultSetTable table = new ForwardOnlyResultSetTableFactory()
                     .createForwardOnlyResultSetTable(tableName, preparedStatement, connection);
+        return createCachedTable(table);
+    }
+
+    private IResultSetTable createCachedTable(IResultSetTable table)
+            throws SQLException, DataSetException
+    {
+        if (_columnar)
+        {
+            return new ColumnarResultSetTable(table);
+        }
         return new CachedResultSetTable(table);
     }
 
@@ -33,6 +33,7 @@ import org.dbunit.database.statement.PreparedStatementFactory;
 import org.dbunit.dataset.datatype.DefaultDataTypeFactory;
 import org.dbunit.dataset.datatype.IDataTypeFactory;
 import org.dbunit.dataset.filter.IColumnFilter;
+import org.dbunit.dataset.filter.ITableFilterSimple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +72,38 @@ public class DatabaseConfig
 			"http://www.dbunit.org/properties/fetchSize";
 	public static final String PROPERTY_METADATA_HANDLER =
 	        "http://www.dbunit.org/properties/metadataHandler";
+    public static final String PROPERTY_MULTI_ROW_INSERT_SIZE =
+            "http://www.dbunit.org/properties/multiRowInsertSize";
+    public static final String PROPERTY_MAX_STATEMENT_PARAMETERS =
+            "http://www.dbunit.org/properties/maxStatementParameters";
+    public static final String PROPERTY_REFRESH_CHUNK_SIZE =
+            "http://www.dbunit.org/properties/refreshChunkSize";
+    public static final String PROPERTY_UPSERT_DIALECT =
+            "http://www.dbunit.org/properties/upsertDialect";
+    public static final String PROPERTY_STATEMENT_CACHE_SIZE =
+            "http://www.dbunit.org/properties/statementCacheSize";
+    public static final String PROPERTY_MAX_OPEN_STATEMENTS =
+            "http://www.dbunit.org/properties/maxOpenStatements";
+    public static final String PROPERTY_MIN_BATCH_SIZE =
+            "http://www.dbunit.org/properties/minBatchSize";
+    public static final String PROPERTY_MAX_BATCH_SIZE =
+            "http://www.dbunit.org/properties/maxBatchSize";
+    public static final String PROPERTY_METADATA_CACHE =
+            "http://www.dbunit.org/properties/metadataCache";
+    public static final String PROPERTY_SCHEMA_SNAPSHOT =
+            "http://www.dbunit.org/properties/schemaSnapshot";
+    public static final String PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE =
+            "http://www.dbunit.org/properties/primaryKeyScanChunkSize";
+    public static final String PROPERTY_TEMPORARY_TABLE_DIALECT =
+            "http://www.dbunit.org/properties/temporaryTableDialect";
+    public static final String PROPERTY_DIRTY_TABLE_REGISTRY =
+            "http://www.dbunit.org/properties/dirtyTableRegistry";
+    public static final String PROPERTY_SNAPSHOT_DIALECT =
+            "http://www.dbunit.org/properties/snapshotDialect";
+    public static final String PROPERTY_FIXTURE_REGISTRY =
+            "http://www.dbunit.org/properties/fixtureRegistry";
+    public static final String PROPERTY_TABLE_FILTER =
+            "http://www.dbunit.org/properties/tableFilter";
 
     public static final String FEATURE_CASE_SENSITIVE_TABLE_NAMES =
         "http://www.dbunit.org/features/caseSensitiveTableNames";
@@ -82,6 +115,10 @@ public class DatabaseConfig
         "http://www.dbunit.org/features/datatypeWarning";
     public static final String FEATURE_SKIP_ORACLE_RECYCLEBIN_TABLES =
         "http://www.dbunit.org/features/skipOracleRecycleBinTables";
+    public static final String FEATURE_ADAPTIVE_BATCH_SIZE =
+        "http://www.dbunit.org/features/adaptiveBatchSize";
+    public static final String FEATURE_BULK_METADATA_LOOKUP =
+        "http://www.dbunit.org/features/bulkMetadataLookup";
 
     /**
      * A list of all properties as {@link ConfigProperty} objects. 
@@ -97,11 +134,29 @@ public class DatabaseConfig
         new ConfigProperty(PROPERTY_BATCH_SIZE, Integer.class, false),
         new ConfigProperty(PROPERTY_FETCH_SIZE, Integer.class, false),
         new ConfigProperty(PROPERTY_METADATA_HANDLER, IMetadataHandler.class, false),
+        new ConfigProperty(PROPERTY_MULTI_ROW_INSERT_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_MAX_STATEMENT_PARAMETERS, Integer.class, false),
+        new ConfigProperty(PROPERTY_REFRESH_CHUNK_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_UPSERT_DIALECT, IUpsertDialect.class, true),
+        new ConfigProperty(PROPERTY_STATEMENT_CACHE_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_MAX_OPEN_STATEMENTS, Integer.class, false),
+        new ConfigProperty(PROPERTY_MIN_BATCH_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_MAX_BATCH_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_METADATA_CACHE, MetadataCache.class, true),
+        new ConfigProperty(PROPERTY_SCHEMA_SNAPSHOT, SchemaSnapshot.class, true),
+        new ConfigProperty(PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE, Integer.class, false),
+        new ConfigProperty(PROPERTY_TEMPORARY_TABLE_DIALECT, ITemporaryTableDialect.class, true),
+        new ConfigProperty(PROPERTY_DIRTY_TABLE_REGISTRY, DirtyTableRegistry.class, true),
+        new ConfigProperty(PROPERTY_SNAPSHOT_DIALECT, ISnapshotDialect.class, true),
+        new ConfigProperty(PROPERTY_FIXTURE_REGISTRY, FixtureRegistry.class, true),
+        new ConfigProperty(PROPERTY_TABLE_FILTER, ITableFilterSimple.class, true),
         new ConfigProperty(FEATURE_CASE_SENSITIVE_TABLE_NAMES, Boolean.class, false),
         new ConfigProperty(FEATURE_QUALIFIED_TABLE_NAMES, Boolean.class, false),
         new ConfigProperty(FEATURE_BATCHED_STATEMENTS, Boolean.class, false),
         new ConfigProperty(FEATURE_DATATYPE_WARNING, Boolean.class, false),
         new ConfigProperty(FEATURE_SKIP_ORACLE_RECYCLEBIN_TABLES, Boolean.class, false),
+        new ConfigProperty(FEATURE_ADAPTIVE_BATCH_SIZE, Boolean.class, false),
+        new ConfigProperty(FEATURE_BULK_METADATA_LOOKUP, Boolean.class, false),
     };
 
     /**
@@ -126,6 +181,14 @@ public class DatabaseConfig
     private static final String[] DEFAULT_TABLE_TYPE = {"TABLE"};
     private static final Integer DEFAULT_BATCH_SIZE = new Integer(100);
     private static final Integer DEFAULT_FETCH_SIZE = new Integer(100);
+    private static final Integer DEFAULT_MULTI_ROW_INSERT_SIZE = new Integer(1);
+    private static final Integer DEFAULT_MAX_STATEMENT_PARAMETERS = new Integer(2000);
+    private static final Integer DEFAULT_REFRESH_CHUNK_SIZE = new Integer(100);
+    private static final Integer DEFAULT_STATEMENT_CACHE_SIZE = new Integer(20);
+    private static final Integer DEFAULT_MAX_OPEN_STATEMENTS = new Integer(1);
+    private static final Integer DEFAULT_MIN_BATCH_SIZE = new Integer(10);
+    private static final Integer DEFAULT_MAX_BATCH_SIZE = new Integer(1000);
+    private static final Integer DEFAULT_PRIMARY_KEY_SCAN_CHUNK_SIZE = new Integer(100);
 
 
 
@@ -139,6 +202,8 @@ public class DatabaseConfig
         setFeature(FEATURE_QUALIFIED_TABLE_NAMES, false);
         setFeature(FEATURE_CASE_SENSITIVE_TABLE_NAMES, false);
         setFeature(FEATURE_DATATYPE_WARNING, true);
+        setFeature(FEATURE_ADAPTIVE_BATCH_SIZE, false);
+        setFeature(FEATURE_BULK_METADATA_LOOKUP, false);
 
         setProperty(PROPERTY_STATEMENT_FACTORY, PREPARED_STATEMENT_FACTORY);
         setProperty(PROPERTY_RESULTSET_TABLE_FACTORY, RESULT_SET_TABLE_FACTORY);
@@ -148,6 +213,14 @@ public class DatabaseConfig
         setProperty(PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
         setProperty(PROPERTY_FETCH_SIZE, DEFAULT_FETCH_SIZE);
         setProperty(PROPERTY_METADATA_HANDLER, new DefaultMetadataHandler());
+        setProperty(PROPERTY_MULTI_ROW_INSERT_SIZE, DEFAULT_MULTI_ROW_INSERT_SIZE);
+        setProperty(PROPERTY_MAX_STATEMENT_PARAMETERS, DEFAULT_MAX_STATEMENT_PARAMETERS);
+        setProperty(PROPERTY_REFRESH_CHUNK_SIZE, DEFAULT_REFRESH_CHUNK_SIZE);
+        setProperty(PROPERTY_STATEMENT_CACHE_SIZE, DEFAULT_STATEMENT_CACHE_SIZE);
+        setProperty(PROPERTY_MAX_OPEN_STATEMENTS, DEFAULT_MAX_OPEN_STATEMENTS);
+        setProperty(PROPERTY_MIN_BATCH_SIZE, DEFAULT_MIN_BATCH_SIZE);
+        setProperty(PROPERTY_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+        setProperty(PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE, DEFAULT_PRIMARY_KEY_SCAN_CHUNK_SIZE);
 
         this.configurator = new Configurator(this);
     }
@@ -25,6 +25,12 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.dbunit.DatabaseUnitRuntimeException;
 import org.dbunit.dataset.AbstractDataSet;
@@ -37,6 +43,7 @@ import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.NoSuchTableException;
 import org.dbunit.dataset.OrderedTableNameMap;
+import org.dbunit.dataset.datatype.IDataTypeFactory;
 import org.dbunit.dataset.filter.ITableFilterSimple;
 import org.dbunit.util.QualifiedTableName;
 import org.dbunit.util.SQLHelper;
@@ -61,18 +68,25 @@ public class DatabaseDataSet extends AbstractDataSet
 
     private final IDatabaseConnection _connection;
     private OrderedTableNameMap _tableMap = null;
+    /**
+     * The names of the tables as returned by the database, keyed by the name in the
+     * table map. Their case is already correct so that they need no further validation.
+     */
+    private Map _databaseTableNames = null;
     
     private final ITableFilterSimple _tableFilter;
     private final ITableFilterSimple _oracleRecycleBinTableFilter;
 
     /**
-     * Creates a new database data set
+     * Creates a new database data set using the table filter of the
+     * {@link DatabaseConfig#PROPERTY_TABLE_FILTER} property
      * @param connection
      * @throws SQLException
      */
     DatabaseDataSet(IDatabaseConnection connection) throws SQLException
     {
-    	this(connection, connection.getConfig().getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES));
+    	this(connection, connection.getConfig().getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES),
+    	        (ITableFilterSimple)connection.getConfig().getProperty(DatabaseConfig.PROPERTY_TABLE_FILTER));
     }
 
     
@@ -196,44 +210,98 @@ public class DatabaseDataSet extends AbstractDataSet
             String[] tableType = (String[])config.getProperty(DatabaseConfig.PROPERTY_TABLE_TYPE);
             IMetadataHandler metadataHandler = (IMetadataHandler) config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
 
-            ResultSet resultSet = metadataHandler.getTables(databaseMetaData, schema, tableType);
+            SchemaSnapshot schemaSnapshot = (SchemaSnapshot) config.getProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT);
+            MetadataCache metadataCache = (MetadataCache) config.getProperty(DatabaseConfig.PROPERTY_METADATA_CACHE);
+            List tables = null;
+            if (schemaSnapshot != null && schemaSnapshot.matchesTableTypes(tableType))
+            {
+                tables = schemaSnapshot.getTables();
+            }
+            else if (schemaSnapshot != null)
+            {
+                logger.debug("Schema snapshot was created for other table types than {}. " +
+                        "The tables are read from the database.", Arrays.asList(tableType));
+            }
+            if (tables == null && metadataCache != null)
+            {
+                tables = metadataCache.getTables(_connection, tableType);
+            }
+            if (tables == null)
+            {
+                tables = getTables(databaseMetaData, schema, tableType, metadataHandler);
+                if (metadataCache != null)
+                {
+                    metadataCache.putTables(_connection, tableType, tables);
+                }
+            }
             
             if(logger.isDebugEnabled())
                 logger.debug(SQLHelper.getDatabaseInfo(jdbcConnection.getMetaData()));
             
-            try
+            boolean bulkMetadataLookup = config.getFeature(DatabaseConfig.FEATURE_BULK_METADATA_LOOKUP);
+            List bulkMetaData = new ArrayList();
+            IDataTypeFactory dataTypeFactory = null;
+
+            OrderedTableNameMap tableMap = super.createTableNameMap();
+            Map databaseTableNames = new HashMap();
+            for (Iterator it = tables.iterator(); it.hasNext();)
             {
-            	OrderedTableNameMap tableMap = super.createTableNameMap();
-                while (resultSet.next())
+                String[] table = (String[])it.next();
+                String schemaName = table[0];
+                String tableName = table[1];
+
+                if(_tableFilter != null && !_tableFilter.accept(tableName))
+                {
+                    logger.debug("Skipping table '{}'", tableName);
+                    continue;
+                }
+                if(!_oracleRecycleBinTableFilter.accept(tableName))
                 {
-                    String schemaName = metadataHandler.getSchema(resultSet);
-                    String tableName = resultSet.getString(3);
+                    logger.debug("Skipping oracle recycle bin table '{}'", tableName);
+                    continue;
+                }
+                
+                
+                QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schemaName);
+                tableName = qualifiedTableName.getQualifiedNameIfEnabled(config);
 
-                    if(_tableFilter != null && !_tableFilter.accept(tableName))
-                    {
-                        logger.debug("Skipping table '{}'", tableName);
-                        continue;
-                    }
-                    if(!_oracleRecycleBinTableFilter.accept(tableName))
+                databaseTableNames.put(tableMap.getTableName(tableName), tableName);
+
+                // Put the table into the table map
+                if (schemaSnapshot != null)
+                {
+                    DatabaseTableMetaData metaData = new DatabaseTableMetaData(
+                            tableName, _connection, false, super.isCaseSensitiveTableNames(), false);
+                    if (dataTypeFactory == null)
                     {
-                        logger.debug("Skipping oracle recycle bin table '{}'", tableName);
-                        continue;
+                        dataTypeFactory = metaData.getDataTypeFactory(_connection);
                     }
-                    
-                    
-                    QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schemaName);
-                    tableName = qualifiedTableName.getQualifiedNameIfEnabled(config);
-
-                    // Put the table into the table map
+                    schemaSnapshot.initialize(metaData, schemaName, qualifiedTableName.getTable(),
+                            dataTypeFactory);
+                    tableMap.add(tableName, metaData);
+                }
+                else if (bulkMetadataLookup)
+                {
+                    DatabaseTableMetaData metaData = new DatabaseTableMetaData(
+                            tableName, _connection, false, super.isCaseSensitiveTableNames(), false);
+                    bulkMetaData.add(metaData);
+                    tableMap.add(tableName, metaData);
+                }
+                else
+                {
                     tableMap.add(tableName, null);
                 }
-
-                _tableMap = tableMap;
             }
-            finally
+
+            if (bulkMetadataLookup)
             {
-                resultSet.close();
+                // Retrieve the columns and primary keys of all tables with one lookup per schema
+                DatabaseTableMetaData.loadAll((DatabaseTableMetaData[])bulkMetaData.toArray(
+                        new DatabaseTableMetaData[0]), schema, _connection);
             }
+
+            _databaseTableNames = databaseTableNames;
+            _tableMap = tableMap;
         }
         catch (SQLException e)
         {
@@ -241,6 +309,30 @@ public class DatabaseDataSet extends AbstractDataSet
         }
     }
 
+    /**
+     * @return List of <code>String[]{schemaName, tableName}</code> of the tables in the database
+     */
+    static List getTables(DatabaseMetaData databaseMetaData, String schema,
+            String[] tableType, IMetadataHandler metadataHandler) throws SQLException
+    {
+        ResultSet resultSet = metadataHandler.getTables(databaseMetaData, schema, tableType);
+        try
+        {
+            List tables = new ArrayList();
+            while (resultSet.next())
+            {
+                String schemaName = metadataHandler.getSchema(resultSet);
+                String tableName = resultSet.getString(3);
+                tables.add(new String[] {schemaName, tableName});
+            }
+            return tables;
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // AbstractDataSet class
 
@@ -289,14 +381,71 @@ public class DatabaseDataSet extends AbstractDataSet
             return metaData;
         }
         
+        // The table was listed by the database in initialize(), so its name is used
+        // as returned there without correcting its case or validating that it exists
+        String databaseTableName = (String)_databaseTableNames.get(_tableMap.getTableName(tableName));
+
         // Create metadata and cache it
-        metaData = new DatabaseTableMetaData(tableName, _connection, true, super.isCaseSensitiveTableNames());
+        MetadataCache metadataCache = (MetadataCache) _connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_METADATA_CACHE);
+        if (metadataCache != null)
+        {
+            metaData = metadataCache.getTableMetaData(databaseTableName, _connection,
+                    super.isCaseSensitiveTableNames(), false);
+        }
+        else
+        {
+            metaData = new DatabaseTableMetaData(databaseTableName, _connection, false,
+                    super.isCaseSensitiveTableNames(), false);
+        }
         // Put the metadata object into the cache map
         _tableMap.update(tableName, metaData);
 
         return metaData;
     }
 
+    /**
+     * Returns the metadata of the given table if it has already been loaded. Does not access
+     * the database.
+     * @param schemaName The schema of the table. Can be <code>null</code>.
+     * @param tableName The plain table name
+     * @return The metadata or <code>null</code> if its columns have not been loaded yet
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    ITableMetaData getLoadedTableMetaData(String schemaName, String tableName) throws DataSetException
+    {
+        logger.debug("getLoadedTableMetaData(schemaName={}, tableName={}) - start", schemaName, tableName);
+
+        if (_tableMap == null)
+        {
+            return null;
+        }
+
+        DatabaseConfig config = _connection.getConfig();
+        if (!config.getFeature(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES))
+        {
+            // Unqualified names only denote tables of the connection's schema
+            String schema = _connection.getSchema();
+            if (schemaName != null && schema != null && !schemaName.equalsIgnoreCase(schema))
+            {
+                return null;
+            }
+        }
+        String name = new QualifiedTableName(tableName, schemaName).getQualifiedNameIfEnabled(config);
+        if (!_tableMap.containsTable(name))
+        {
+            return null;
+        }
+
+        ITableMetaData metaData = (ITableMetaData)_tableMap.get(name);
+        if (metaData instanceof DatabaseTableMetaData && !((DatabaseTableMetaData)metaData).isColumnsLoaded())
+        {
+            return null;
+        }
+        return metaData;
+    }
+
     public ITable getTable(String tableName) throws DataSetException
     {
         logger.debug("getTable(tableName={}) - start", tableName);
@@ -137,8 +137,15 @@ public class DatabaseDataSourceConnection extends AbstractDatabaseConnection
 
         if (_connection != null)
         {
-            _connection.close();
-            _connection = null;
+            try
+            {
+                closeCachedStatements();
+            }
+            finally
+            {
+                _connection.close();
+                _connection = null;
+            }
         }
     }
 }
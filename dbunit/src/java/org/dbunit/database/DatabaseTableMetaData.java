@@ -25,10 +25,15 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.dbunit.dataset.AbstractTableMetaData;
 import org.dbunit.dataset.Column;
@@ -69,6 +74,7 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
     private final IDatabaseConnection _connection;
     private Column[] _columns;
     private Column[] _primaryKeys;
+    private String[] _primaryKeyNames;
     private boolean _caseSensitiveMetaData;
 	//added by hzhan032
     private IColumnFilter lastKeyFilter;
@@ -105,6 +111,26 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
      * @since 2.4.1
      */
     DatabaseTableMetaData(final String tableName, IDatabaseConnection connection, boolean validate, boolean caseSensitiveMetaData) throws DataSetException
+    {
+        this(tableName, connection, validate, caseSensitiveMetaData, true);
+    }
+
+    /**
+     * Creates a new database table metadata
+     * @param tableName The name of the table - can be fully qualified
+     * @param connection The database connection
+     * @param validate Whether or not to validate the given input data. It is not recommended to
+     * set the validation to <code>false</code> because it is then possible to create an instance
+     * of this object for a db table that does not exist.
+     * @param caseSensitiveMetaData Whether or not the metadata looked up in a case sensitive way
+     * @param correctCase Whether or not the case of the table name must be corrected according to
+     * the database. Can be <code>false</code> for names taken from the database metadata which
+     * are already in the case in which the database stores them.
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    DatabaseTableMetaData(final String tableName, IDatabaseConnection connection, boolean validate,
+            boolean caseSensitiveMetaData, boolean correctCase) throws DataSetException
     {
     	if (tableName == null) {
 			throw new NullPointerException("The parameter 'tableName' must not be null");
@@ -119,7 +145,7 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
         try
         {
              Connection jdbcConnection = connection.getConnection();
-             if(!caseSensitiveMetaData)
+             if(!caseSensitiveMetaData && correctCase)
              {
                  _originalTableName = SQLHelper.correctCase(tableName, jdbcConnection);
                  SQLHelper.logDebugIfValueChanged(tableName, _originalTableName, "Corrected table name:", DatabaseTableMetaData.class);
@@ -208,10 +234,201 @@ public class DatabaseTableMetaData extends AbstractTableMetaData
     	return new ResultSetTableMetaData(tableName,resultSet,connection, false);
     }
 
-    private String[] getPrimaryKeyNames() throws SQLException
+    /**
+     * Retrieves the columns and primary keys of all given tables with one metadata lookup
+     * for the whole schema instead of one lookup per table. Tables for which the sweep does not
+     * return any column or primary key still look them up lazily on their own. Nothing is
+     * retrieved if the configured metadata handler is no {@link IBulkMetadataHandler}.
+     * @param metaData The table metadata objects to be populated
+     * @param schemaName The schema in which the tables reside
+     * @param connection The database connection
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    static void loadAll(DatabaseTableMetaData[] metaData, String schemaName,
+            IDatabaseConnection connection) throws DataSetException
+    {
+        logger.debug("loadAll(metaData={}, schemaName={}, connection={}) - start",
+                new Object[] { metaData, schemaName, connection });
+
+        IMetadataHandler metadataHandler = (IMetadataHandler)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_METADATA_HANDLER);
+        if (metaData.length == 0 || !(metadataHandler instanceof IBulkMetadataHandler))
+        {
+            return;
+        }
+        IBulkMetadataHandler bulkMetadataHandler = (IBulkMetadataHandler)metadataHandler;
+
+        // Index the tables by name since the sweep returns the rows of all tables in the schema
+        Map tablesByName = new HashMap();
+        for (int i = 0; i < metaData.length; i++)
+        {
+            String key = metaData[i]._qualifiedTableNameSupport.getTable().toUpperCase();
+            List tables = (List)tablesByName.get(key);
+            if (tables == null)
+            {
+                tables = new ArrayList();
+                tablesByName.put(key, tables);
+            }
+            tables.add(metaData[i]);
+        }
+
+        try
+        {
+            DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+            DatabaseConfig config = connection.getConfig();
+            IDataTypeFactory dataTypeFactory = metaData[0].getDataTypeFactory(connection);
+            boolean datatypeWarning = config.getFeature(DatabaseConfig.FEATURE_DATATYPE_WARNING);
+
+            Map columnsByTable = new HashMap();
+            ResultSet resultSet = bulkMetadataHandler.getAllColumns(databaseMetaData, schemaName);
+            try
+            {
+                while (resultSet.next())
+                {
+                    DatabaseTableMetaData table = findTable(tablesByName, resultSet, metadataHandler);
+                    if (table == null)
+                    {
+                        continue;
+                    }
+                    List columnList = (List)columnsByTable.get(table);
+                    if (columnList == null)
+                    {
+                        columnList = new ArrayList();
+                        columnsByTable.put(table, columnList);
+                    }
+                    Column column = SQLHelper.createColumn(resultSet, dataTypeFactory, datatypeWarning);
+                    if (column != null)
+                    {
+                        columnList.add(column);
+                    }
+                }
+            }
+            finally
+            {
+                resultSet.close();
+            }
+
+            Map primaryKeysByTable = new HashMap();
+            try
+            {
+                resultSet = bulkMetadataHandler.getAllPrimaryKeys(databaseMetaData, schemaName);
+                Statement statement = resultSet.getStatement();
+                try
+                {
+                    while (resultSet.next())
+                    {
+                        DatabaseTableMetaData table = findTable(tablesByName, resultSet, metadataHandler);
+                        if (table == null)
+                        {
+                            continue;
+                        }
+                        SortedMap keys = (SortedMap)primaryKeysByTable.get(table);
+                        if (keys == null)
+                        {
+                            keys = new TreeMap();
+                            primaryKeysByTable.put(table, keys);
+                        }
+                        keys.put(new Integer(resultSet.getInt(5)), resultSet.getString(4));
+                    }
+                }
+                finally
+                {
+                    SQLHelper.close(resultSet, statement);
+                }
+            }
+            catch (SQLException e)
+            {
+                logger.info("Could not retrieve the primary keys of all tables in schema '" + schemaName +
+                        "' at once. They will be looked up per table.", e);
+                primaryKeysByTable.clear();
+            }
+            if (primaryKeysByTable.isEmpty())
+            {
+                // A driver may take the null table name literally. The primary keys stay unset,
+                // so that every table looks them up on its own.
+                logger.debug("No primary keys found in schema '{}' at once", schemaName);
+            }
+
+            for (int i = 0; i < metaData.length; i++)
+            {
+                List columnList = (List)columnsByTable.get(metaData[i]);
+                if (columnList == null)
+                {
+                    continue;
+                }
+                metaData[i]._columns = (Column[])columnList.toArray(new Column[0]);
+
+                SortedMap keys = (SortedMap)primaryKeysByTable.get(metaData[i]);
+                if (keys != null)
+                {
+                    metaData[i]._primaryKeyNames = (String[])keys.values().toArray(new String[0]);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    private static DatabaseTableMetaData findTable(Map tablesByName, ResultSet resultSet,
+            IMetadataHandler metadataHandler) throws SQLException
+    {
+        List tables = (List)tablesByName.get(resultSet.getString(3).toUpperCase());
+        if (tables == null)
+        {
+            return null;
+        }
+        for (int i = 0; i < tables.size(); i++)
+        {
+            DatabaseTableMetaData table = (DatabaseTableMetaData)tables.get(i);
+            // Check for exact table/schema name match like the lookup for a single table does
+            if (metadataHandler.matches(resultSet, table._qualifiedTableNameSupport.getSchema(),
+                    table._qualifiedTableNameSupport.getTable(), table._caseSensitiveMetaData))
+            {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the columns and primary key names which were retrieved elsewhere, for example from
+     * a {@link SchemaSnapshot}, so that no metadata lookup is needed for this table.
+     * @param columns The columns of this table
+     * @param primaryKeyNames The primary key column names ordered by their key sequence
+     * @since 2.4.8
+     */
+    void setMetaData(Column[] columns, String[] primaryKeyNames)
+    {
+        _columns = columns;
+        _primaryKeyNames = primaryKeyNames;
+        _primaryKeys = null;
+    }
+
+    /**
+     * @return <code>true</code> if the columns have already been retrieved from the database
+     * @since 2.4.8
+     */
+    boolean isColumnsLoaded()
+    {
+        return _columns != null;
+    }
+
+    /**
+     * @return The primary key column names as defined in the database, ignoring the primary key filter
+     * @throws SQLException
+     */
+    String[] getPrimaryKeyNames() throws SQLException
     {
         logger.debug("getPrimaryKeyNames() - start");
 
+        if (_primaryKeyNames != null)
+        {
+            return _primaryKeyNames;
+        }
+
     	String schemaName = _qualifiedTableNameSupport.getSchema();
     	String tableName = _qualifiedTableNameSupport.getTable();
 
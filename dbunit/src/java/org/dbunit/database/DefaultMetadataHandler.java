@@ -30,12 +30,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Default implementation of {@link IMetadataHandler} which works for the most databases.
+ * The lookups of all tables of a schema at once pass a <code>null</code> table name, which
+ * the JDBC specification does not define. Drivers which reject it or return no rows for it
+ * get their metadata looked up per table.
  * @author gommma (gommma AT users.sourceforge.net)
  * @author Last changed by: $Author$
  * @version $Revision$ $Date$
  * @since 2.4.4
  */
-public class DefaultMetadataHandler implements IMetadataHandler {
+public class DefaultMetadataHandler implements IBulkMetadataHandler {
 
     /**
      * Logger for this class
@@ -149,4 +152,43 @@ public class DefaultMetadataHandler implements IMetadataHandler {
         return resultSet;
     }
 
+    public ResultSet getAllColumns(DatabaseMetaData databaseMetaData, String schemaName) 
+    throws SQLException 
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllColumns(databaseMetaData={}, schemaName={}) - start", 
+                    databaseMetaData, schemaName);
+
+        ResultSet resultSet = databaseMetaData.getColumns(
+                null, schemaName, "%", "%");
+        return resultSet;
+    }
+
+    public ResultSet getAllPrimaryKeys(DatabaseMetaData metaData, String schemaName) 
+    throws SQLException
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllPrimaryKeys(metaData={}, schemaName={}) - start", 
+                    metaData, schemaName);
+
+        // Many drivers treat a null table name as "all tables" although the JDBC spec does not demand it.
+        // The callers fall back to a lookup per table if the result set is empty.
+        ResultSet resultSet = metaData.getPrimaryKeys(
+                null, schemaName, null);
+        return resultSet;
+    }
+
+    public ResultSet getAllImportedKeys(DatabaseMetaData metaData, String schemaName) 
+    throws SQLException
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllImportedKeys(metaData={}, schemaName={}) - start", 
+                    metaData, schemaName);
+
+        // Like getAllPrimaryKeys() this relies on the driver treating a null table name as "all tables"
+        ResultSet resultSet = metaData.getImportedKeys(
+                null, schemaName, null);
+        return resultSet;
+    }
+
 }
@@ -0,0 +1,142 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the tables that are known to be empty. The clean operation created by
+ * {@link org.dbunit.operation.DatabaseOperation#FAST_CLEAN(org.dbunit.operation.DatabaseOperation, boolean)}
+ * registers the tables it has emptied and skips them the next time, while the dbunit
+ * operations that write rows, e.g. the insert, update and refresh operations, mark
+ * their tables dirty again.
+ * <p>
+ * The registry is used when it is configured with the property
+ * {@link DatabaseConfig#PROPERTY_DIRTY_TABLE_REGISTRY}. Since a new connection is
+ * usually created for every test the same instance must be set on all of them.
+ * Rows written by other means than dbunit operations are not tracked. The registry
+ * must therefore only be used when the tests do not write into the cleaned tables
+ * themselves, or {@link #markDirty(String)} respectively {@link #clear()} must be
+ * invoked after they did.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class DirtyTableRegistry
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DirtyTableRegistry.class);
+
+    private final boolean _caseSensitiveTableNames;
+    /**
+     * Names of the tables known to be empty
+     */
+    private final Set _cleanTables = new HashSet();
+
+    /**
+     * Creates a registry with case insensitive table names.
+     */
+    public DirtyTableRegistry()
+    {
+        this(false);
+    }
+
+    /**
+     * Creates a registry.
+     * @param caseSensitiveTableNames Whether or not the table names are case sensitive
+     */
+    public DirtyTableRegistry(boolean caseSensitiveTableNames)
+    {
+        _caseSensitiveTableNames = caseSensitiveTableNames;
+    }
+
+    /**
+     * Registers the given table as empty.
+     * @param tableName The table name
+     */
+    public synchronized void markClean(String tableName)
+    {
+        logger.debug("markClean(tableName={}) - start", tableName);
+
+        _cleanTables.add(getKey(tableName));
+    }
+
+    /**
+     * Registers that rows might have been written into the given table.
+     * @param tableName The table name
+     */
+    public synchronized void markDirty(String tableName)
+    {
+        logger.debug("markDirty(tableName={}) - start", tableName);
+
+        _cleanTables.remove(getKey(tableName));
+    }
+
+    /**
+     * @param tableName The table name
+     * @return <code>true</code> if the table is known to be empty
+     */
+    public synchronized boolean isClean(String tableName)
+    {
+        return _cleanTables.contains(getKey(tableName));
+    }
+
+    /**
+     * Forgets all tables so that no table is known to be empty anymore.
+     */
+    public synchronized void clear()
+    {
+        logger.debug("clear() - start");
+
+        _cleanTables.clear();
+    }
+
+    private String getKey(String tableName)
+    {
+        if (tableName == null)
+        {
+            throw new NullPointerException("The parameter 'tableName' must not be null");
+        }
+        // "Locale.ENGLISH" for the same reason as in the OrderedTableNameMap
+        return _caseSensitiveTableNames ? tableName : tableName.toUpperCase(Locale.ENGLISH);
+    }
+
+    public synchronized String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_caseSensitiveTableNames=").append(_caseSensitiveTableNames);
+        sb.append(", _cleanTables=").append(_cleanTables);
+        sb.append("]");
+        return sb.toString();
+    }
+}
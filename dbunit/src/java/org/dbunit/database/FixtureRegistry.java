@@ -0,0 +1,150 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the dataset content that is currently loaded into the tables. The
+ * operation created by
+ * {@link org.dbunit.operation.DatabaseOperation#FINGERPRINT(org.dbunit.operation.DatabaseOperation, boolean)}
+ * registers the fingerprint of the table content it has loaded together with the
+ * row count of the table afterwards, and skips the table the next time if both still
+ * match. The dbunit operations that write rows, e.g. the insert, update and delete
+ * operations, forget their tables.
+ * <p>
+ * The registry is used when it is configured with the property
+ * {@link DatabaseConfig#PROPERTY_FIXTURE_REGISTRY}. Since a new connection is
+ * usually created for every test the same instance must be set on all of them.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class FixtureRegistry
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FixtureRegistry.class);
+
+    private final boolean _caseSensitiveTableNames;
+    /**
+     * The fingerprint and the row count per loaded table
+     */
+    private final Map _loadedTables = new HashMap();
+
+    /**
+     * Creates a registry with case insensitive table names.
+     */
+    public FixtureRegistry()
+    {
+        this(false);
+    }
+
+    /**
+     * Creates a registry.
+     * @param caseSensitiveTableNames Whether or not the table names are case sensitive
+     */
+    public FixtureRegistry(boolean caseSensitiveTableNames)
+    {
+        _caseSensitiveTableNames = caseSensitiveTableNames;
+    }
+
+    /**
+     * Registers the content loaded into the given table.
+     * @param tableName The table name
+     * @param fingerprint The fingerprint of the loaded content
+     * @param rowCount The row count of the table after loading
+     */
+    public synchronized void markLoaded(String tableName, long fingerprint, int rowCount)
+    {
+        logger.debug("markLoaded(tableName={}, fingerprint={}, rowCount={}) - start",
+                new Object[] {tableName, new Long(fingerprint), new Integer(rowCount)});
+
+        _loadedTables.put(getKey(tableName), new long[] {fingerprint, rowCount});
+    }
+
+    /**
+     * Registers that the content of the given table might have been changed.
+     * @param tableName The table name
+     */
+    public synchronized void markChanged(String tableName)
+    {
+        logger.debug("markChanged(tableName={}) - start", tableName);
+
+        _loadedTables.remove(getKey(tableName));
+    }
+
+    /**
+     * @param tableName The table name
+     * @param fingerprint The fingerprint of the content to be loaded
+     * @return The row count registered when the content with the given fingerprint
+     * has been loaded into the table, or <code>-1</code> if the table holds other content
+     */
+    public synchronized int getLoadedRowCount(String tableName, long fingerprint)
+    {
+        long[] loaded = (long[])_loadedTables.get(getKey(tableName));
+        if (loaded == null || loaded[0] != fingerprint)
+        {
+            return -1;
+        }
+        return (int)loaded[1];
+    }
+
+    /**
+     * Forgets all tables so that every table is loaded again.
+     */
+    public synchronized void clear()
+    {
+        logger.debug("clear() - start");
+
+        _loadedTables.clear();
+    }
+
+    private String getKey(String tableName)
+    {
+        if (tableName == null)
+        {
+            throw new NullPointerException("The parameter 'tableName' must not be null");
+        }
+        // "Locale.ENGLISH" for the same reason as in the OrderedTableNameMap
+        return _caseSensitiveTableNames ? tableName : tableName.toUpperCase(Locale.ENGLISH);
+    }
+
+    public synchronized String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_caseSensitiveTableNames=").append(_caseSensitiveTableNames);
+        sb.append(", _loadedTables=").append(_loadedTables.keySet());
+        sb.append("]");
+        return sb.toString();
+    }
+}
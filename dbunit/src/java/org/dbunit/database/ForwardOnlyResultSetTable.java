@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ICursorTable;
+import org.dbunit.dataset.ITableCursor;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.RowOutOfBoundsException;
 
@@ -37,6 +39,7 @@ import java.sql.SQLException;
  * @version $Revision$
  */
 public class ForwardOnlyResultSetTable extends AbstractResultSetTable
+        implements ICursorTable
 {
 
     /**
@@ -78,6 +81,27 @@ public class ForwardOnlyResultSetTable extends AbstractResultSetTable
         if(logger.isDebugEnabled())
             logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), columnName);
 
+        return getValue(row, getColumnIndex(columnName));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int columnIndex) throws DataSetException
+    {
+        if (!moveTo(row))
+        {
+            throw new RowOutOfBoundsException(row + " > " + _lastRow);
+        }
+        return getCurrentValue(columnIndex);
+    }
+
+    /**
+     * Moves the result set forward up to the specified row.
+     * @return <code>false</code> if the specified row is after the last row
+     */
+    private boolean moveTo(int row) throws DataSetException
+    {
         try
         {
             // Move cursor forward up to specified row
@@ -96,10 +120,20 @@ public class ForwardOnlyResultSetTable extends AbstractResultSetTable
             {
                 // Proactively close the resultset
                 close();
-                throw new RowOutOfBoundsException(row + " > " + _lastRow);
+                return false;
             }
+            return true;
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
 
-            int columnIndex = getColumnIndex(columnName);
+    private Object getCurrentValue(int columnIndex) throws DataSetException
+    {
+        try
+        {
             Column column = _metaData.getColumns()[columnIndex];
             return column.getDataType().getSqlValue(columnIndex + 1, _resultSet);
         }
@@ -108,4 +142,45 @@ public class ForwardOnlyResultSetTable extends AbstractResultSetTable
             throw new DataSetException(e);
         }
     }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ICursorTable interface
+
+    public ITableCursor createCursor()
+    {
+        return new ResultSetCursor();
+    }
+
+    /**
+     * Cursor reading the result set directly. All cursors of this table share the
+     * position of the underlying result set.
+     */
+    private class ResultSetCursor implements ITableCursor
+    {
+        private int _row = -1;
+
+        public boolean next() throws DataSetException
+        {
+            if (!moveTo(_row + 1))
+            {
+                return false;
+            }
+            _row++;
+            return true;
+        }
+
+        public int getRow()
+        {
+            return _row;
+        }
+
+        public Object getValue(int column) throws DataSetException
+        {
+            if (_row != _lastRow || _eot)
+            {
+                throw new RowOutOfBoundsException(_row + " is not the current row");
+            }
+            return getCurrentValue(column);
+        }
+    }
 }
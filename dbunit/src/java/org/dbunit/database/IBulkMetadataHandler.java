@@ -0,0 +1,85 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Optional extension of the {@link IMetadataHandler} for databases that can return the
+ * metadata of all tables of a schema with one lookup. If the configured metadata handler
+ * does not implement this interface, or if one of the lookups fails or returns no rows,
+ * the metadata is looked up per table.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public interface IBulkMetadataHandler extends IMetadataHandler
+{
+
+    /**
+     * Returns the result set for an invocation of {@link DatabaseMetaData#getColumns(String, String, String, String)}
+     * that retrieves the columns of all tables in the given schema at once. The result set has
+     * the same layout as the one returned by {@link IMetadataHandler#getColumns(DatabaseMetaData, String, String)}.
+     * @param databaseMetaData The database metadata to be used for retrieving the columns
+     * @param schemaName The schema name
+     * @return The result set containing all columns of all tables in the schema
+     * @throws SQLException
+     * @since 2.4.8
+     */
+    ResultSet getAllColumns(DatabaseMetaData databaseMetaData, String schemaName)
+    throws SQLException;
+
+    /**
+     * Returns the primary keys of all tables in the given schema at once. The result set has
+     * the same layout as the one returned by {@link DatabaseMetaData#getPrimaryKeys(String, String, String)},
+     * i.e. the table name in column 3, the column name in column 4 and the key sequence in column 5.
+     * The caller closes the returned result set together with its statement.
+     * @param databaseMetaData The database meta data
+     * @param schemaName schema for which the primary keys should be retrieved
+     * @return The result set containing the primary key columns of all tables in the schema
+     * @throws SQLException if the database does not support retrieving the primary keys of
+     * several tables at once. An empty result set is treated the same way.
+     * @since 2.4.8
+     */
+    ResultSet getAllPrimaryKeys(DatabaseMetaData databaseMetaData, String schemaName)
+    throws SQLException;
+
+    /**
+     * Returns the foreign keys of all tables in the given schema at once. The result set has
+     * the same layout as the one returned by {@link DatabaseMetaData#getImportedKeys(String, String, String)},
+     * i.e. the referenced schema and table in columns 2 and 3, the referenced column in column 4,
+     * the referencing schema and table in columns 6 and 7 and the referencing column in column 8.
+     * The caller closes the returned result set together with its statement.
+     * @param databaseMetaData The database meta data
+     * @param schemaName schema for which the foreign keys should be retrieved
+     * @return The result set containing the foreign key columns of all tables in the schema
+     * @throws SQLException if the database does not support retrieving the foreign keys of
+     * several tables at once. An empty result set is treated the same way.
+     * @since 2.4.8
+     */
+    ResultSet getAllImportedKeys(DatabaseMetaData databaseMetaData, String schemaName)
+    throws SQLException;
+
+}
@@ -126,5 +126,4 @@ public interface IMetadataHandler
     public ResultSet getPrimaryKeys(DatabaseMetaData databaseMetaData, String schemaName, String tableName)
     throws SQLException;
 
-
 }
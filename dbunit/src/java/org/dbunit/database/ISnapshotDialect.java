@@ -0,0 +1,73 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+/**
+ * Generates the statements capturing a copy of a table inside of the database. If
+ * a dialect is configured using {@link DatabaseConfig#PROPERTY_SNAPSHOT_DIALECT}
+ * or passed to the {@link org.dbunit.SnapshotDatabaseTester} the tables of the
+ * dataset are copied once after the setUp and restored from the copies before
+ * every following test, without transferring any row over JDBC.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public interface ISnapshotDialect
+{
+
+    /**
+     * Returns the statement creating the snapshot table as a copy of the given
+     * table, including all of its rows. The snapshot table does not exist yet.
+     * All names are already qualified and escaped.
+     * @param tableName The name of the table to be copied
+     * @param snapshotTableName The name of the snapshot table to be created
+     * @return The SQL create statement
+     * @since 2.4.8
+     */
+    String getCreateSnapshotSql(String tableName, String snapshotTableName);
+
+    /**
+     * Returns the statement dropping the given snapshot table. The statement must
+     * not fail if the table does not exist.
+     * @param snapshotTableName The name of the snapshot table
+     * @return The SQL drop statement
+     * @since 2.4.8
+     */
+    String getDropSnapshotSql(String snapshotTableName);
+
+    /**
+     * Returns the statement disabling the foreign key checks so that the tables
+     * can be restored in any order.
+     * @return The SQL statement
+     * @since 2.4.8
+     */
+    String getDisableConstraintsSql();
+
+    /**
+     * Returns the statement enabling the foreign key checks again.
+     * @return The SQL statement
+     * @since 2.4.8
+     */
+    String getEnableConstraintsSql();
+
+}
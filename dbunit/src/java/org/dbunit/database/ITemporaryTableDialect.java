@@ -0,0 +1,57 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+/**
+ * Generates the statements for a temporary table of the database. If a dialect
+ * is configured using {@link DatabaseConfig#PROPERTY_TEMPORARY_TABLE_DIALECT} the
+ * {@link PrimaryKeyFilter} writes large sets of primary keys into a temporary
+ * table and joins it instead of sending the keys in several IN lists.
+ * The temporary table syntax differs between the databases, the implementations
+ * reside in the vendor packages, e.g. {@link org.dbunit.ext.h2.H2TemporaryTableDialect}.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public interface ITemporaryTableDialect
+{
+
+    /**
+     * Returns the statement creating a temporary table with the columns of
+     * the given query. The query does not return any row.
+     * @param tableName The name of the temporary table
+     * @param selectSql The query whose columns define the temporary table
+     * @return The SQL create statement
+     * @since 2.4.8
+     */
+    String getCreateTableSql(String tableName, String selectSql);
+
+    /**
+     * Returns the statement dropping the given temporary table.
+     * @param tableName The name of the temporary table
+     * @return The SQL drop statement
+     * @since 2.4.8
+     */
+    String getDropTableSql(String tableName);
+
+}
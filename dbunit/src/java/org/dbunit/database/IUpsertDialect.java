@@ -0,0 +1,55 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import org.dbunit.dataset.Column;
+
+/**
+ * Generates the native "insert or update" statement of a database. If a dialect
+ * is configured using {@link DatabaseConfig#PROPERTY_UPSERT_DIALECT} the
+ * REFRESH operation sends one batched upsert statement per table instead of
+ * looking up the existing rows first.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public interface IUpsertDialect
+{
+
+    /**
+     * Returns the upsert statement for a single row. The statement must have one
+     * parameter for each of the given columns, in the given order.
+     * All names are already qualified and escaped.
+     * @param tableName The name of the table
+     * @param columnNames The columns to be inserted or updated, in parameter order
+     * @param columns The columns of the parameters, in parameter order. Their data types
+     * can be used to declare the types of the parameters.
+     * @param primaryKeyNames The primary key columns identifying an existing row.
+     * They are always contained in <code>columnNames</code>.
+     * @return The SQL upsert statement
+     * @since 2.4.8
+     */
+    String getUpsertSql(String tableName, String[] columnNames, Column[] columns,
+            String[] primaryKeyNames);
+
+}
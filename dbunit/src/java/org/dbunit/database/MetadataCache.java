@@ -0,0 +1,426 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITableMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the database metadata that can be shared by all connections of a JVM.
+ * The entries are keyed by JDBC URL, user name and schema of the connection, and by
+ * the configuration that influences the metadata: the classes of the
+ * {@link DatabaseConfig#PROPERTY_DATATYPE_FACTORY} and the
+ * {@link DatabaseConfig#PROPERTY_METADATA_HANDLER}, the
+ * {@link DatabaseConfig#PROPERTY_PRIMARY_KEY_FILTER} and the
+ * {@link DatabaseConfig#FEATURE_CASE_SENSITIVE_TABLE_NAMES} feature. Connections
+ * configured differently therefore do not share their metadata. The cached
+ * {@link ITableMetaData} instances are snapshots which do not access the database
+ * anymore. They are shared by all callers, which must not modify the returned column arrays.
+ * <p>
+ * The cache is used by the {@link DatabaseDataSet} when it is configured with the
+ * property {@link DatabaseConfig#PROPERTY_METADATA_CACHE}, e.g. with the JVM wide
+ * instance returned by {@link #getInstance()}. The cache must be invalidated when
+ * the schema changes, unless a time to live is given.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class MetadataCache
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCache.class);
+
+    private static final MetadataCache INSTANCE = new MetadataCache();
+
+    /**
+     * Time to live in milliseconds, 0 for no expiration
+     */
+    private final long _timeToLive;
+    /**
+     * {@link SchemaEntry} by {@link SchemaKey}
+     */
+    private final Map _schemas = new HashMap();
+    private long _hitCount = 0;
+    private long _missCount = 0;
+
+    /**
+     * Creates a cache whose entries never expire.
+     */
+    public MetadataCache()
+    {
+        this(0);
+    }
+
+    /**
+     * @param timeToLive The time in milliseconds after which the metadata of a schema
+     * is read again from the database. 0 means that the entries never expire.
+     */
+    public MetadataCache(long timeToLive)
+    {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException(
+                    "The parameter 'timeToLive' must not be negative but is " + timeToLive);
+        }
+        _timeToLive = timeToLive;
+    }
+
+    /**
+     * @return The cache shared by the whole JVM. Its entries never expire.
+     */
+    public static MetadataCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the tables of the schema of the given connection as they have been
+     * returned by {@link IMetadataHandler#getTables(DatabaseMetaData, String, String[])}.
+     * @param connection The connection
+     * @param tableType The table types
+     * @return List of <code>String[]{schemaName, tableName}</code> or <code>null</code>
+     * if the tables are not cached
+     * @throws SQLException
+     */
+    public synchronized List getTables(IDatabaseConnection connection, String[] tableType)
+            throws SQLException
+    {
+        SchemaEntry schema = getSchema(connection);
+        List tables = (List)schema._tableLists.get(Arrays.asList(tableType));
+        count(tables != null);
+        return tables;
+    }
+
+    /**
+     * Caches the tables of the schema of the given connection.
+     * @param connection The connection
+     * @param tableType The table types
+     * @param tables List of <code>String[]{schemaName, tableName}</code>
+     * @throws SQLException
+     */
+    public synchronized void putTables(IDatabaseConnection connection, String[] tableType,
+            List tables) throws SQLException
+    {
+        getSchema(connection)._tableLists.put(Arrays.asList(tableType), tables);
+    }
+
+    /**
+     * Returns the metadata of the given table. It is read from the database if it is
+     * not cached yet.
+     * @param tableName The table name
+     * @param connection The connection
+     * @param caseSensitiveMetaData Whether the metadata lookup is case sensitive
+     * @return The shared snapshot of the table metadata
+     * @throws DataSetException
+     */
+    public ITableMetaData getTableMetaData(String tableName, IDatabaseConnection connection,
+            boolean caseSensitiveMetaData) throws DataSetException
+    {
+        return getTableMetaData(tableName, connection, caseSensitiveMetaData, true);
+    }
+
+    /**
+     * Returns the metadata of the given table. It is read from the database if it is
+     * not cached yet.
+     * @param tableName The table name
+     * @param connection The connection
+     * @param caseSensitiveMetaData Whether the metadata lookup is case sensitive
+     * @param validate Whether the case of the table name is corrected and its existence is
+     * checked before the metadata is read. Can be <code>false</code> for names taken from the
+     * database metadata.
+     * @return The shared snapshot of the table metadata
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    ITableMetaData getTableMetaData(String tableName, IDatabaseConnection connection,
+            boolean caseSensitiveMetaData, boolean validate) throws DataSetException
+    {
+        logger.debug("getTableMetaData(tableName={}, connection={}) - start", tableName, connection);
+
+        String key = (caseSensitiveMetaData ? "S:" : "I:") + tableName;
+
+        SchemaEntry schema;
+        try
+        {
+            synchronized (this)
+            {
+                schema = getSchema(connection);
+                ITableMetaData metaData = (ITableMetaData)schema._tableMetaData.get(key);
+                if (metaData != null)
+                {
+                    count(true);
+                    return metaData;
+                }
+                count(false);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+
+        // Read outside of the lock
+        ITableMetaData databaseMetaData = new DatabaseTableMetaData(
+                tableName, connection, validate, caseSensitiveMetaData, validate);
+        Column[] columns = databaseMetaData.getColumns();
+        ITableMetaData metaData = new DefaultTableMetaData(databaseMetaData.getTableName(),
+                columns, databaseMetaData.getPrimaryKeys());
+        if (columns.length > 0)
+        {
+            // Initializes the lazy column index of the snapshot before it is shared
+            metaData.getColumnIndex(columns[0].getColumnName());
+        }
+
+        synchronized (this)
+        {
+            schema._tableMetaData.put(key, metaData);
+        }
+        return metaData;
+    }
+
+    private SchemaEntry getSchema(IDatabaseConnection connection) throws SQLException
+    {
+        SchemaKey key = getKey(connection);
+        SchemaEntry schema = (SchemaEntry)_schemas.get(key);
+        long now = System.currentTimeMillis();
+        if (schema != null && _timeToLive > 0 && now - schema._created > _timeToLive)
+        {
+            logger.debug("Metadata of {} expired", key);
+            schema = null;
+        }
+        if (schema == null)
+        {
+            schema = new SchemaEntry(now);
+            _schemas.put(key, schema);
+        }
+        return schema;
+    }
+
+    private static String getLocation(IDatabaseConnection connection) throws SQLException
+    {
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        return databaseMetaData.getURL() + "|" + databaseMetaData.getUserName()
+                + "|" + connection.getSchema();
+    }
+
+    private static SchemaKey getKey(IDatabaseConnection connection) throws SQLException
+    {
+        DatabaseConfig config = connection.getConfig();
+        Object dataTypeFactory = config.getProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY);
+        Object metadataHandler = config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
+        List settings = Arrays.asList(new Object[] {
+                dataTypeFactory == null ? null : dataTypeFactory.getClass(),
+                metadataHandler == null ? null : metadataHandler.getClass(),
+                config.getProperty(DatabaseConfig.PROPERTY_PRIMARY_KEY_FILTER),
+                Boolean.valueOf(config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES))
+        });
+        return new SchemaKey(getLocation(connection), settings);
+    }
+
+    private void count(boolean hit)
+    {
+        if (hit)
+        {
+            _hitCount++;
+        }
+        else
+        {
+            _missCount++;
+        }
+    }
+
+    /**
+     * Removes all cached metadata.
+     */
+    public synchronized void invalidate()
+    {
+        logger.debug("invalidate() - start");
+
+        _schemas.clear();
+    }
+
+    /**
+     * Removes the cached metadata of the schema of the given connection, for all
+     * configurations the schema has been cached with.
+     * @param connection The connection
+     * @throws SQLException
+     */
+    public synchronized void invalidate(IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("invalidate(connection={}) - start", connection);
+
+        String location = getLocation(connection);
+        for (Iterator it = _schemas.keySet().iterator(); it.hasNext();)
+        {
+            if (((SchemaKey)it.next())._location.equals(location))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached metadata of the given table of the schema of the given
+     * connection, for example after the table has been altered.
+     * @param connection The connection
+     * @param tableName The table name
+     * @throws SQLException
+     */
+    public synchronized void invalidate(IDatabaseConnection connection, String tableName)
+            throws SQLException
+    {
+        logger.debug("invalidate(connection={}, tableName={}) - start", connection, tableName);
+
+        String location = getLocation(connection);
+        for (Iterator schemas = _schemas.entrySet().iterator(); schemas.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)schemas.next();
+            if (!((SchemaKey)entry.getKey())._location.equals(location))
+            {
+                continue;
+            }
+
+            SchemaEntry schema = (SchemaEntry)entry.getValue();
+            for (Iterator it = schema._tableMetaData.keySet().iterator(); it.hasNext();)
+            {
+                String key = (String)it.next();
+                if (key.substring(2).equalsIgnoreCase(tableName))
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups answered from the cache
+     */
+    public synchronized long getHitCount()
+    {
+        return _hitCount;
+    }
+
+    /**
+     * @return The number of lookups that had to query the database
+     */
+    public synchronized long getMissCount()
+    {
+        return _missCount;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public synchronized void resetStatistics()
+    {
+        _hitCount = 0;
+        _missCount = 0;
+    }
+
+    public synchronized String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_timeToLive=").append(_timeToLive);
+        sb.append(", _schemas=").append(_schemas.keySet());
+        sb.append(", _hitCount=").append(_hitCount);
+        sb.append(", _missCount=").append(_missCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Identifies the cached metadata of one schema read with one configuration.
+     */
+    private static class SchemaKey
+    {
+        /**
+         * JDBC URL, user name and schema
+         */
+        private final String _location;
+        private final List _settings;
+
+        public SchemaKey(String location, List settings)
+        {
+            _location = location;
+            _settings = settings;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof SchemaKey))
+            {
+                return false;
+            }
+            SchemaKey other = (SchemaKey)o;
+            return _location.equals(other._location) && _settings.equals(other._settings);
+        }
+
+        public int hashCode()
+        {
+            return _location.hashCode() * 31 + _settings.hashCode();
+        }
+
+        public String toString()
+        {
+            return _location + _settings;
+        }
+    }
+
+    /**
+     * Cached metadata of one schema.
+     */
+    private static class SchemaEntry
+    {
+        private final long _created;
+        /**
+         * Table lists by table types
+         */
+        private final Map _tableLists = new HashMap();
+        /**
+         * Shared {@link ITableMetaData} snapshots by table name
+         */
+        private final Map _tableMetaData = new HashMap();
+
+        public SchemaEntry(long created)
+        {
+            _created = created;
+        }
+    }
+}
@@ -20,10 +20,13 @@
  */
 package org.dbunit.database;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -50,8 +53,12 @@ import org.slf4j.LoggerFactory;
  * It uses a depth-first algorithm (although not recursive - it might be refactored
  * in the future) to define which rows are allowed, as well which rows are necessary
  * (and hence allowed) because of dependencies with the allowed rows.<br>
+ * The primary keys are scanned in chunks: every query restricts the rows with an
+ * <code>IN (?, ?, ...)</code> list of at most 
+ * {@link DatabaseConfig#PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE} keys. If a
+ * {@link DatabaseConfig#PROPERTY_TEMPORARY_TABLE_DIALECT} is configured, larger sets of
+ * keys are written into a temporary table which is joined by a sub query instead.<br>
  * <strong>NOTE:</strong> multi-column primary keys are not supported at the moment.
- * TODO: test cases
  * @author Felipe Leme (dbunit@felipeal.net)
  * @author Last changed by: $Author$
  * @version $Revision$ $Date$
@@ -59,6 +66,17 @@ import org.slf4j.LoggerFactory;
  */
 public class PrimaryKeyFilter extends AbstractTableFilter {
 
+    /**
+     * Prefix of the name of the temporary tables holding the primary keys being scanned
+     */
+    private static final String KEY_TABLE_PREFIX = "DBUNIT_PK_SCAN_";
+    /**
+     * Number of temporary key tables created so far in this JVM, used to give every
+     * scan its own table
+     */
+    private static int keyTableCount = 0;
+    private static final String KEY_COLUMN_NAME = "PK_VALUE";
+
     private final IDatabaseConnection connection;
 
     private final PkTableMap allowedPKsPerTable;
@@ -179,8 +197,18 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
                     if ( this.logger.isDebugEnabled() ) {
                         this.logger.debug(  "before search: "+ tableName + "=>" + pksToScan );
                     }
-                    scanPKs( tableName, pkColumn, pksToScan );
-                    scanReversePKs( tableName, pksToScan );
+                    String keyTable = createKeyTable( tableName, pkColumn, pksToScan );
+                    try {
+                        if ( keyTable != null ) {
+                            insertKeys( keyTable, pksToScan );
+                        }
+                        scanPKs( tableName, pkColumn, pksToScan, keyTable );
+                        scanReversePKs( tableName, pksToScan, keyTable );
+                    } finally {
+                        if ( keyTable != null ) {
+                            dropKeyTable( keyTable );
+                        }
+                    }
                     allowPKs( tableName, pksToScan );
                     removePKsToScan( tableName, pksToScan );
                 } // if
@@ -221,7 +249,7 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         }
     }
 
-    private void scanPKs( String table, String pkColumn, Set allowedIds ) throws SQLException {
+    private void scanPKs( String table, String pkColumn, Set allowedIds, String keyTable ) throws SQLException {
         if (logger.isDebugEnabled())
         {
             logger.debug("scanPKs(table={}, pkColumn={}, allowedIds={}) - start",
@@ -245,54 +273,16 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         }
         // NOTE: make sure the query below is compatible standard SQL
         String sql = "SELECT " + colsBuffer + " FROM " + table + 
-        " WHERE " + pkColumn + " = ? ";
-        if ( this.logger.isDebugEnabled() ) {
-            this.logger.debug( "SQL: " + sql );
-        }
+        " WHERE " + pkColumn;
 
-        scanPKs(table, sql, allowedIds, fkTables);
-    }
-
-    private void scanPKs(String table, String sql, Set allowedIds, List fkTables) throws SQLException
-    {
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
         try {
-            pstmt = this.connection.getConnection().prepareStatement( sql );
-            for(Iterator iterator = allowedIds.iterator(); iterator.hasNext(); ) {
-                Object pk = iterator.next(); // id being scanned
-                if( this.logger.isDebugEnabled() ) {
-                    this.logger.debug("Executing sql for ? = " + pk );
-                }
-                pstmt.setObject( 1, pk );
-                rs = pstmt.executeQuery();
-                while( rs.next() ) {
-                    for( int i=0; i<fkTables.size(); i++ ) {
-                        String newTable = (String) fkTables.get(i);
-                        Object fk = rs.getObject(i+1);
-                        if( fk != null ) {
-                            if( this.logger.isDebugEnabled() ) {
-                                this.logger.debug("New ID: " + newTable + "->" + fk);
-                            }
-                            addPKToScan( newTable, fk );
-                        } 
-                        else {
-                            this.logger.warn( "Found null FK for relationship  " + 
-                                    table + "=>" + newTable );
-                        }
-                    }
-                }
-            }
+            scanRows(table, sql, allowedIds, fkTables, keyTable);
         } catch (SQLException e) {
             logger.error("scanPKs()", e);
         }
-        finally {
-            // new in the finally block. has been in the catch only before
-            SQLHelper.close( rs, pstmt );
-        }
     }
 
-    private void scanReversePKs(String table, Set pksToScan) throws SQLException {
+    private void scanReversePKs(String table, Set pksToScan, String keyTable) throws SQLException {
         logger.debug("scanReversePKs(table={}, pksToScan={}) - start", table, pksToScan);
 
         if ( ! this.reverseScan ) {
@@ -305,40 +295,198 @@ public class PrimaryKeyFilter extends AbstractTableFilter {
         Iterator iterator = fkReverseEdges.iterator();
         while ( iterator.hasNext() ) {
             ForeignKeyRelationshipEdge edge = (ForeignKeyRelationshipEdge) iterator.next();
-            addReverseEdge( edge, pksToScan );
+            addReverseEdge( edge, pksToScan, keyTable );
         }
     }
 
-    private void addReverseEdge(ForeignKeyRelationshipEdge edge, Set idsToScan) throws SQLException {
-        logger.debug("addReverseEdge(edge={}, idsToScan=) - start", edge, idsToScan);
+    private void addReverseEdge(ForeignKeyRelationshipEdge edge, Set idsToScan, String keyTable) throws SQLException {
+        logger.debug("addReverseEdge(edge={}, idsToScan={}) - start", edge, idsToScan);
 
         String fkTable = (String) edge.getFrom();
         String fkColumn = edge.getFKColumn();
         String pkColumn = getPKColumn( fkTable );
         // NOTE: make sure the query below is compatible standard SQL
-        String sql = "SELECT " + pkColumn + " FROM " + fkTable + " WHERE " + fkColumn + " = ? ";
+        String sql = "SELECT " + pkColumn + " FROM " + fkTable + " WHERE " + fkColumn;
 
+        scanRows((String) edge.getTo(), sql, idsToScan, Collections.singletonList(fkTable), keyTable);
+    }
+
+    /**
+     * Executes the given query restricted to the given ids and adds the values of its
+     * columns to the primary keys to scan of the corresponding tables. The ids are either
+     * sent in IN lists of at most {@link #getChunkSize()} parameters or, if the key table
+     * was created, read by a sub query.
+     * @param table The table whose ids are scanned
+     * @param sql The query without the IN condition, ending with the restricted column
+     * @param ids The ids to scan
+     * @param newTables The tables whose primary keys are selected by the query, one per column
+     * @param keyTable The name of the key table the ids have been written into or
+     * <code>null</code> if they are sent in IN lists
+     */
+    private void scanRows(String table, String sql, Set ids, List newTables, String keyTable) 
+    throws SQLException
+    {
+        Connection jdbcConnection = this.connection.getConnection();
         PreparedStatement pstmt = null;
-        ResultSet rs = null;
+        PreparedStatement lastPstmt = null;
         try {
-            if ( this.logger.isDebugEnabled() ) {
-                this.logger.debug( "Preparing SQL query '" + sql + "'" );
-            }
-            pstmt = this.connection.getConnection().prepareStatement( sql );
-            for(Iterator iterator = idsToScan.iterator(); iterator.hasNext(); ) {
-                Object pk = iterator.next();
+            if ( keyTable != null ) {
+                String keySql = sql + " IN (SELECT " + KEY_COLUMN_NAME + " FROM " + keyTable + ")";
                 if ( this.logger.isDebugEnabled() ) {
-                    this.logger.debug( "executing query '" + sql + "' for ? = " + pk );
+                    this.logger.debug( "SQL: " + keySql );
                 }
-                pstmt.setObject( 1, pk );
-                rs = pstmt.executeQuery();
-                while( rs.next() ) {
-                    Object fk = rs.getObject(1);
-                    addPKToScan( fkTable, fk );
+                pstmt = jdbcConnection.prepareStatement( keySql );
+                executeScan( pstmt, Collections.EMPTY_LIST, table, newTables );
+                return;
+            }
+
+            int chunkSize = getChunkSize();
+            List chunk = new ArrayList( Math.min( chunkSize, ids.size() ) );
+            for(Iterator iterator = ids.iterator(); iterator.hasNext(); ) {
+                chunk.add( iterator.next() );
+                if ( chunk.size() == chunkSize ) {
+                    // all full chunks share the same statement
+                    if ( pstmt == null ) {
+                        pstmt = prepareInStatement( jdbcConnection, sql, chunkSize );
+                    }
+                    executeScan( pstmt, chunk, table, newTables );
+                    chunk.clear();
                 }
-            } 
+            }
+            if ( ! chunk.isEmpty() ) {
+                lastPstmt = prepareInStatement( jdbcConnection, sql, chunk.size() );
+                executeScan( lastPstmt, chunk, table, newTables );
+            }
+        } finally {
+            SQLHelper.close( lastPstmt );
+            SQLHelper.close( pstmt );
+        }
+    }
+
+    private PreparedStatement prepareInStatement(Connection jdbcConnection, String sql, int parameterCount) 
+    throws SQLException
+    {
+        StringBuffer sqlBuffer = new StringBuffer( sql.length() + 6 + parameterCount * 3 );
+        sqlBuffer.append( sql ).append( " IN (" );
+        for( int i=0; i<parameterCount; i++ ) {
+            if ( i > 0 ) {
+                sqlBuffer.append( ", " );
+            }
+            sqlBuffer.append( '?' );
+        }
+        sqlBuffer.append( ')' );
+        if ( this.logger.isDebugEnabled() ) {
+            this.logger.debug( "SQL: " + sqlBuffer );
+        }
+        return jdbcConnection.prepareStatement( sqlBuffer.toString() );
+    }
+
+    private void executeScan(PreparedStatement pstmt, List ids, String table, List newTables) throws SQLException
+    {
+        if( this.logger.isDebugEnabled() ) {
+            this.logger.debug("Executing sql for ? = " + ids );
+        }
+        for( int i=0; i<ids.size(); i++ ) {
+            pstmt.setObject( i+1, ids.get(i) );
+        }
+        ResultSet rs = pstmt.executeQuery();
+        try {
+            while( rs.next() ) {
+                for( int i=0; i<newTables.size(); i++ ) {
+                    String newTable = (String) newTables.get(i);
+                    Object fk = rs.getObject(i+1);
+                    if( fk != null ) {
+                        if( this.logger.isDebugEnabled() ) {
+                            this.logger.debug("New ID: " + newTable + "->" + fk);
+                        }
+                        addPKToScan( newTable, fk );
+                    } 
+                    else {
+                        this.logger.warn( "Found null FK for relationship  " + 
+                                table + "=>" + newTable );
+                    }
+                }
+            }
+        } finally {
+            SQLHelper.close( rs );
+        }
+    }
+
+    /**
+     * Returns the maximum number of ids sent in one IN list, as configured by
+     * {@link DatabaseConfig#PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE} and bounded by 
+     * {@link DatabaseConfig#PROPERTY_MAX_STATEMENT_PARAMETERS}.
+     */
+    private int getChunkSize() {
+        DatabaseConfig config = this.connection.getConfig();
+        int chunkSize = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE)).intValue();
+        int maxParameters = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_MAX_STATEMENT_PARAMETERS)).intValue();
+        return Math.max(1, Math.min(chunkSize, maxParameters));
+    }
+
+    /**
+     * Creates the temporary key table if a {@link ITemporaryTableDialect} is configured
+     * and the ids do not fit into a single IN list. Every scan gets a table with a new name,
+     * so that scans of other filters using the same connection do not interfere with it.
+     * @return The name of the key table or <code>null</code> if it has not been created
+     */
+    private String createKeyTable(String table, String pkColumn, Set ids) throws SQLException {
+        ITemporaryTableDialect dialect = (ITemporaryTableDialect) this.connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_TEMPORARY_TABLE_DIALECT);
+        if ( dialect == null || ids.size() <= getChunkSize() ) {
+            return null;
+        }
+        String keyTable = nextKeyTableName();
+        // the key column gets the type of the primary key
+        String selectSql = "SELECT " + pkColumn + " AS " + KEY_COLUMN_NAME + " FROM " + table + " WHERE 1 = 0";
+        executeUpdate( dialect.getCreateTableSql( keyTable, selectSql ) );
+        return keyTable;
+    }
+
+    private static synchronized String nextKeyTableName() {
+        return KEY_TABLE_PREFIX + (++keyTableCount);
+    }
+
+    private void insertKeys(String keyTable, Set ids) throws SQLException {
+        logger.debug("insertKeys(keyTable={}, ids={}) - start", keyTable, ids);
+
+        int chunkSize = getChunkSize();
+        String sql = "INSERT INTO " + keyTable + " (" + KEY_COLUMN_NAME + ") VALUES (?)";
+        PreparedStatement pstmt = this.connection.getConnection().prepareStatement( sql );
+        try {
+            int count = 0;
+            for(Iterator iterator = ids.iterator(); iterator.hasNext(); ) {
+                pstmt.setObject( 1, iterator.next() );
+                pstmt.addBatch();
+                if ( ++count % chunkSize == 0 ) {
+                    pstmt.executeBatch();
+                }
+            }
+            if ( count % chunkSize != 0 ) {
+                pstmt.executeBatch();
+            }
+        } finally {
+            SQLHelper.close( pstmt );
+        }
+    }
+
+    private void dropKeyTable(String keyTable) throws SQLException {
+        ITemporaryTableDialect dialect = (ITemporaryTableDialect) this.connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_TEMPORARY_TABLE_DIALECT);
+        executeUpdate( dialect.getDropTableSql( keyTable ) );
+    }
+
+    private void executeUpdate(String sql) throws SQLException {
+        if ( this.logger.isDebugEnabled() ) {
+            this.logger.debug( "SQL: " + sql );
+        }
+        Statement stmt = this.connection.getConnection().createStatement();
+        try {
+            stmt.executeUpdate( sql );
         } finally {
-            SQLHelper.close( rs, pstmt );
+            SQLHelper.close( stmt );
         }
     }
 
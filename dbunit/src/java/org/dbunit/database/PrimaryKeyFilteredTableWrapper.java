@@ -28,8 +28,10 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IIndexedTable;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.IndexedTableAdapter;
 import org.dbunit.dataset.RowOutOfBoundsException;
 
 /**
@@ -41,7 +43,7 @@ import org.dbunit.dataset.RowOutOfBoundsException;
  * @version $Revision$
  * @since Sep 9, 2005
  */
-public class PrimaryKeyFilteredTableWrapper implements ITable {
+public class PrimaryKeyFilteredTableWrapper implements IIndexedTable {
   
   /** reference to the original table being wrapped */
   private final ITable originalTable;
@@ -144,4 +146,17 @@ public class PrimaryKeyFilteredTableWrapper implements ITable {
     }
   }
 
+  // IIndexedTable methods
+  public Object getValue(int row, int column) throws DataSetException 
+  {
+    int max = this.filteredRowsMapping.size();
+    if ( row < max ) {
+      int realRow = ((Integer) this.filteredRowsMapping.get( row )).intValue();
+      return IndexedTableAdapter.getIndexedTable(this.originalTable).getValue(realRow, column);
+    } else {
+      throw new RowOutOfBoundsException( "tried to access row " + row + 
+          " but rowCount is " + max );
+    }
+  }
+
 }
@@ -25,11 +25,20 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.dbunit.dataset.AbstractTableMetaData;
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchColumnException;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.datatype.DataTypeException;
 import org.dbunit.dataset.datatype.IDataTypeFactory;
@@ -51,6 +60,8 @@ import org.slf4j.LoggerFactory;
  * than the {@link ResultSetMetaData} does. Another reason is that some JDBC drivers (currently known
  * from MYSQL driver) provide an inconsistent implementation of those two MetaData objects
  * and the {@link DatabaseMetaData} is hence considered to be the master by dbunit.
+ * The columns of one table are looked up with one single call, and not at all if the
+ * {@link DatabaseDataSet} of the connection has already loaded the metadata of the table.
  * </li>
  * <li>
  * Since some JDBC drivers (one of them being Oracle) cannot (or just do not) provide the 
@@ -113,7 +124,7 @@ public class ResultSetTableMetaData extends AbstractTableMetaData
 	{
 		super();
 		_caseSensitiveMetaData = caseSensitiveMetaData;
-		this.wrappedTableMetaData = createMetaData(tableName, resultSet, dataTypeFactory, new DefaultMetadataHandler());
+		this.wrappedTableMetaData = createMetaData(tableName, resultSet, dataTypeFactory, new DefaultMetadataHandler(), null);
 	}
 
 	
@@ -128,36 +139,36 @@ public class ResultSetTableMetaData extends AbstractTableMetaData
     	DatabaseConfig dbConfig = connection.getConfig();
     	IMetadataHandler columnFactory = (IMetadataHandler)dbConfig.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
         IDataTypeFactory typeFactory = super.getDataTypeFactory(connection);
-        return createMetaData(tableName, resultSet, typeFactory, columnFactory);
+        return createMetaData(tableName, resultSet, typeFactory, columnFactory, connection);
     }
 
     private DefaultTableMetaData createMetaData(String tableName,
-            ResultSet resultSet, IDataTypeFactory dataTypeFactory, IMetadataHandler columnFactory)
+            ResultSet resultSet, IDataTypeFactory dataTypeFactory, IMetadataHandler columnFactory,
+            IDatabaseConnection dbunitConnection)
             throws DataSetException, SQLException
     {
     	if (logger.isTraceEnabled())
-    		logger.trace("createMetaData(tableName={}, resultSet={}, dataTypeFactory={}, columnFactory={}) - start",
-    				new Object[]{ tableName, resultSet, dataTypeFactory, columnFactory });
+    		logger.trace("createMetaData(tableName={}, resultSet={}, dataTypeFactory={}, columnFactory={}, dbunitConnection={}) - start",
+    				new Object[]{ tableName, resultSet, dataTypeFactory, columnFactory, dbunitConnection });
 
     	Connection connection = resultSet.getStatement().getConnection();
     	DatabaseMetaData databaseMetaData = connection.getMetaData();
     	
         ResultSetMetaData metaData = resultSet.getMetaData();
-        Column[] columns = new Column[metaData.getColumnCount()];
+
+        // 1. try to create the columns from the DatabaseMetaData object. The DatabaseMetaData
+        // provides more information and is more precise so that it should always be used in
+        // preference to the ResultSetMetaData object.
+        Column[] columns = createColumnsFromDbMetaData(metaData, databaseMetaData, dataTypeFactory,
+                columnFactory, dbunitConnection);
+
         for (int i = 0; i < columns.length; i++)
         {
-            int rsIndex = i+1;
-            
-            // 1. try to create the column from the DatabaseMetaData object. The DatabaseMetaData
-            // provides more information and is more precise so that it should always be used in
-            // preference to the ResultSetMetaData object.
-            columns[i] = createColumnFromDbMetaData(metaData, rsIndex, databaseMetaData, dataTypeFactory, columnFactory);
-            
             // 2. If we could not create the Column from a DatabaseMetaData object, try to create it
             // from the ResultSetMetaData object directly
             if(columns[i] == null)
             {
-                columns[i] = createColumnFromRsMetaData(metaData, rsIndex, tableName, dataTypeFactory);
+                columns[i] = createColumnFromRsMetaData(metaData, i+1, tableName, dataTypeFactory);
             }
         }
 
@@ -192,37 +203,148 @@ public class ResultSetTableMetaData extends AbstractTableMetaData
     }
 
     /**
-     * Try to create the Column using information from the given {@link ResultSetMetaData}
-     * to search the column via the given {@link DatabaseMetaData}. If the
-     * {@link ResultSetMetaData} does not provide the required information 
-     * (one of catalog/schema/table is "")
-     * the search for the Column via {@link DatabaseMetaData} is not executed and <code>null</code>
-     * is returned immediately.
+     * Try to create the Columns using information from the given {@link ResultSetMetaData}
+     * to search the columns via the given {@link DatabaseMetaData}. The columns that belong
+     * to the same table are looked up with one single
+     * {@link IMetadataHandler#getColumns(DatabaseMetaData, String, String)} call. If the
+     * {@link DatabaseDataSet} of the given connection has already loaded the metadata of a 
+     * table its columns are used without any lookup. If the {@link ResultSetMetaData} does 
+     * not provide the required information for a column (one of catalog/schema/table is "")
+     * the search for this column via {@link DatabaseMetaData} is not executed.
      * @param rsMetaData The {@link ResultSetMetaData} from which to retrieve the {@link DatabaseMetaData}
-     * @param rsIndex The current index in the {@link ResultSetMetaData}
      * @param databaseMetaData The {@link DatabaseMetaData} which is used to lookup detailed
-     * information about the column if possible
+     * information about the columns if possible
      * @param dataTypeFactory dbunit {@link IDataTypeFactory} needed to create the Column
      * @param metadataHandler the handler to be used for {@link DatabaseMetaData} handling
-     * @return The column or <code>null</code> if it can be not created using a 
-     * {@link DatabaseMetaData} object because of missing information in the 
-     * {@link ResultSetMetaData} object
+     * @param connection The dbunit connection whose dataset may provide the metadata.
+     * Can be <code>null</code>.
+     * @return The columns. An entry is <code>null</code> if the column can be not created 
+     * using a {@link DatabaseMetaData} object, for example because of missing information
+     * in the {@link ResultSetMetaData} object
      * @throws SQLException
-     * @throws DataTypeException 
+     * @throws DataSetException 
      */
-    private Column createColumnFromDbMetaData(ResultSetMetaData rsMetaData, int rsIndex, 
+    private Column[] createColumnsFromDbMetaData(ResultSetMetaData rsMetaData, 
             DatabaseMetaData databaseMetaData, IDataTypeFactory dataTypeFactory,
-            IMetadataHandler metadataHandler) 
-    throws SQLException, DataTypeException 
+            IMetadataHandler metadataHandler, IDatabaseConnection connection) 
+    throws SQLException, DataSetException 
     {
         if(logger.isTraceEnabled()){
-            logger.trace("createColumnFromMetaData(rsMetaData={}, rsIndex={}," + 
-                    " databaseMetaData={}, dataTypeFactory={}, columnFactory={}) - start",
-                new Object[]{rsMetaData, String.valueOf(rsIndex), 
-                            databaseMetaData, dataTypeFactory, metadataHandler});
+            logger.trace("createColumnsFromDbMetaData(rsMetaData={}, databaseMetaData={}," + 
+                    " dataTypeFactory={}, columnFactory={}, connection={}) - start",
+                new Object[]{rsMetaData, databaseMetaData, dataTypeFactory, metadataHandler, connection});
         }
-        
-        // use DatabaseMetaData to retrieve the actual column definition
+
+        Column[] columns = new Column[rsMetaData.getColumnCount()];
+
+        // Group the result set columns by their table
+        String[][] locations = new String[columns.length][];
+        Map indexesByTable = new LinkedHashMap();
+        for (int i = 0; i < columns.length; i++)
+        {
+            locations[i] = getColumnLocation(rsMetaData, i+1);
+            if (locations[i] == null)
+            {
+                continue;
+            }
+            List key = Arrays.asList(new String[] {locations[i][0], locations[i][1], locations[i][2]});
+            List indexes = (List)indexesByTable.get(key);
+            if (indexes == null)
+            {
+                indexes = new LinkedList();
+                indexesByTable.put(key, indexes);
+            }
+            indexes.add(new Integer(i));
+        }
+
+        for (Iterator it = indexesByTable.values().iterator(); it.hasNext();)
+        {
+            List indexes = (List)it.next();
+            String[] tableLocation = locations[((Integer)indexes.get(0)).intValue()];
+            String catalogName = tableLocation[0];
+            String schemaName = tableLocation[1];
+            String tableName = tableLocation[2];
+
+            // Use the metadata of the database dataset if it is already available
+            ITableMetaData loadedMetaData = getLoadedTableMetaData(connection, schemaName, tableName);
+            if (loadedMetaData != null)
+            {
+                Column[] loadedColumns = loadedMetaData.getColumns();
+                for (Iterator indexIt = indexes.iterator(); indexIt.hasNext();)
+                {
+                    int index = ((Integer)indexIt.next()).intValue();
+                    try
+                    {
+                        columns[index] = loadedColumns[loadedMetaData.getColumnIndex(locations[index][3])];
+                        indexIt.remove();
+                    }
+                    catch (NoSuchColumnException e)
+                    {
+                        logger.debug("Column '{}' not found in loaded metadata of table '{}'", 
+                                locations[index][3], tableName);
+                    }
+                }
+                if (indexes.isEmpty())
+                {
+                    continue;
+                }
+            }
+
+            if(logger.isDebugEnabled())
+                logger.debug("All attributes from the ResultSetMetaData are valid, " +
+                        "trying to lookup values in DatabaseMetaData. catalog={}, schema={}, table={}",
+                        new Object[]{catalogName, schemaName, tableName} );
+
+            // All of the retrieved attributes are valid, 
+            // so lookup the columns of the table via DatabaseMetaData
+            ResultSet columnsResultSet = metadataHandler.getColumns(databaseMetaData, schemaName, tableName);
+            try
+            {
+                while(!indexes.isEmpty() && columnsResultSet.next())
+                {
+                    for (Iterator indexIt = indexes.iterator(); indexIt.hasNext();)
+                    {
+                        int index = ((Integer)indexIt.next()).intValue();
+                        boolean match = metadataHandler.matches(columnsResultSet, catalogName, 
+                                schemaName, tableName, locations[index][3], _caseSensitiveMetaData);
+                        if(match)
+                        {
+                            columns[index] = SQLHelper.createColumn(columnsResultSet, dataTypeFactory, true);
+                            indexIt.remove();
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                SQLHelper.close(columnsResultSet);
+            }
+
+            for (Iterator indexIt = indexes.iterator(); indexIt.hasNext();)
+            {
+                int index = ((Integer)indexIt.next()).intValue();
+                logger.warn("Cannot find column from ResultSetMetaData info via DatabaseMetaData. Using ResultSetMetaData." +
+                        " Even if this is expected to never happen it probably happened due to a JDBC driver bug." +
+                        " To get around this you may want to configure a user defined " + IMetadataHandler.class +
+                        ". Did not find column '" + locations[index][3] + 
+                        "' for <schema.table> '" + schemaName + "." + tableName + 
+                        "' in catalog '" + catalogName + "' because names do not exactly match.");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the catalog, schema, table and column names of the given result set column.
+     * @param rsMetaData The {@link ResultSetMetaData} 
+     * @param rsIndex The current index in the {@link ResultSetMetaData}
+     * @return <code>String[]{catalog, schema, table, column}</code> or <code>null</code> if
+     * the column can not be looked up via {@link DatabaseMetaData} because of missing information
+     * @throws SQLException
+     */
+    private String[] getColumnLocation(ResultSetMetaData rsMetaData, int rsIndex) 
+    throws SQLException 
+    {
         String catalogName = rsMetaData.getCatalogName(rsIndex);
         String schemaName = rsMetaData.getSchemaName(rsIndex);
         String tableName = rsMetaData.getTableName(rsIndex);
@@ -252,35 +374,26 @@ public class ResultSetTableMetaData extends AbstractTableMetaData
             "Will not try to lookup column properties via DatabaseMetaData.getColumns.");
             return null;
         }
-        
-        if(logger.isDebugEnabled())
-            logger.debug("All attributes from the ResultSetMetaData are valid, " +
-                    "trying to lookup values in DatabaseMetaData. catalog={}, schema={}, table={}, column={}",
-                    new Object[]{catalogName, schemaName, tableName, columnName} );
-        
-        // All of the retrieved attributes are valid, 
-        // so lookup the column via DatabaseMetaData
-        ResultSet columnsResultSet = metadataHandler.getColumns(databaseMetaData, schemaName, tableName);
-
-        try
-        {
-            // Scroll resultset forward - must have one result which exactly matches the required parameters
-            scrollTo(columnsResultSet, metadataHandler, catalogName, schemaName, tableName, columnName);
+        return new String[] {catalogName, schemaName, tableName, columnName};
+    }
 
-            Column column = SQLHelper.createColumn(columnsResultSet, dataTypeFactory, true);
-            return column;
-        }
-        catch(IllegalStateException e)
+    /**
+     * @return The metadata of the given table if the database dataset of the given connection has 
+     * already loaded it, else <code>null</code>
+     */
+    private ITableMetaData getLoadedTableMetaData(IDatabaseConnection connection,
+            String schemaName, String tableName) throws SQLException, DataSetException
+    {
+        if (connection == null || tableName == null)
         {
-            logger.warn("Cannot find column from ResultSetMetaData info via DatabaseMetaData. Returning null." +
-                    " Even if this is expected to never happen it probably happened due to a JDBC driver bug." +
-                    " To get around this you may want to configure a user defined " + IMetadataHandler.class, e);
             return null;
         }
-        finally
+        IDataSet dataSet = connection.createDataSet();
+        if (!(dataSet instanceof DatabaseDataSet))
         {
-            SQLHelper.close(columnsResultSet);
+            return null;
         }
+        return ((DatabaseDataSet)dataSet).getLoadedTableMetaData(schemaName, tableName);
     }
 
 
@@ -295,29 +408,6 @@ public class ResultSetTableMetaData extends AbstractTableMetaData
         return (value==null ? null : value.trim());
     }
 
-    private void scrollTo(ResultSet columnsResultSet, IMetadataHandler metadataHandler,
-            String catalog, String schema, String table, String column) 
-    throws SQLException 
-    {
-        while(columnsResultSet.next())
-        {
-            boolean match = metadataHandler.matches(columnsResultSet, catalog, schema, table, column, _caseSensitiveMetaData);
-            if(match)
-            {
-                // All right. Return immediately because the resultSet is positioned on the correct row
-                return;
-            }
-        }
-
-        // If we get here the column could not be found
-        String msg = 
-                "Did not find column '" + column + 
-                "' for <schema.table> '" + schema + "." + table + 
-                "' in catalog '" + catalog + "' because names do not exactly match.";
-
-        throw new IllegalStateException(msg);
-    }
-
 	public Column[] getColumns() throws DataSetException {
 		return this.wrappedTableMetaData.getColumns();
 	}
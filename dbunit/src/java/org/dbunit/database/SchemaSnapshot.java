@@ -0,0 +1,660 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.DataTypeException;
+import org.dbunit.dataset.datatype.IDataTypeFactory;
+import org.dbunit.dataset.filter.ITableFilterSimple;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializable snapshot of the structure of a database schema: its tables with their
+ * columns, SQL types, nullability, primary keys and foreign key edges. A snapshot can be
+ * written to a file once and then be loaded by every new JVM so that the schema does not
+ * have to be introspected again.
+ * <p>
+ * A snapshot is used by the {@link DatabaseDataSet} when it is configured with the
+ * property {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT}. The snapshot carries a
+ * fingerprint of the schema which is cheap to compute: the names of the tables and the
+ * names, types, sizes and nullability of their columns, read with one column lookup for the
+ * whole schema if the metadata handler is an {@link IBulkMetadataHandler}, plus the result of an optional fingerprint query, for example one that
+ * returns the timestamp of the last DDL statement. {@link #load(File, IDatabaseConnection, String)}
+ * compares it with the current fingerprint and rebuilds the snapshot when they differ.
+ * Changes to primary keys and foreign keys are only detected via the fingerprint query.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SchemaSnapshot implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshot.class);
+
+    private final String _fingerprint;
+    /**
+     * The {@link DatabaseConfig#PROPERTY_TABLE_TYPE} the tables were selected with
+     */
+    private final String[] _tableTypes;
+    /**
+     * List of {@link TableSnapshot} in the order returned by the database
+     */
+    private final List _tables;
+    /**
+     * {@link TableSnapshot} by table key, not serialized
+     */
+    private transient Map _tablesByKey;
+
+    private SchemaSnapshot(String fingerprint, String[] tableTypes, List tables)
+    {
+        _fingerprint = fingerprint;
+        _tableTypes = tableTypes;
+        _tables = tables;
+    }
+
+    /**
+     * Loads the snapshot from the given file if it exists and matches the current schema
+     * of the given connection. Otherwise the snapshot is created from the database and
+     * written to the file.
+     * @param file The snapshot file
+     * @param connection The database connection
+     * @param fingerprintQuery Optional query whose first row is added to the fingerprint
+     * of the schema. Can be <code>null</code>.
+     * @return The snapshot matching the current schema
+     * @throws DataSetException
+     */
+    public static SchemaSnapshot load(File file, IDatabaseConnection connection,
+            String fingerprintQuery) throws DataSetException
+    {
+        logger.debug("load(file={}, connection={}, fingerprintQuery={}) - start",
+                new Object[] { file, connection, fingerprintQuery });
+
+        String fingerprint = computeFingerprint(connection, fingerprintQuery);
+        if (file.exists())
+        {
+            try
+            {
+                SchemaSnapshot snapshot = read(file);
+                if (fingerprint.equals(snapshot.getFingerprint()))
+                {
+                    return snapshot;
+                }
+                logger.info("Schema snapshot '{}' is stale and will be rebuilt", file);
+            }
+            catch (IOException e)
+            {
+                logger.info("Schema snapshot '" + file + "' could not be read and will be rebuilt", e);
+            }
+        }
+
+        SchemaSnapshot snapshot = createSnapshot(connection, fingerprint);
+        try
+        {
+            snapshot.write(file);
+        }
+        catch (IOException e)
+        {
+            logger.warn("Schema snapshot '" + file + "' could not be written", e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads the snapshot like {@link #load(File, IDatabaseConnection, String)} without
+     * a fingerprint query.
+     * @param file The snapshot file
+     * @param connection The database connection
+     * @return The snapshot matching the current schema
+     * @throws DataSetException
+     */
+    public static SchemaSnapshot load(File file, IDatabaseConnection connection)
+            throws DataSetException
+    {
+        return load(file, connection, null);
+    }
+
+    /**
+     * Creates a snapshot of the schema of the given connection. The columns and primary keys
+     * are retrieved with one lookup for the whole schema, the foreign keys with one lookup
+     * per table.
+     * @param connection The database connection
+     * @param fingerprintQuery Optional query whose first row is added to the fingerprint
+     * of the schema. Can be <code>null</code>.
+     * @return The new snapshot
+     * @throws DataSetException
+     */
+    public static SchemaSnapshot create(IDatabaseConnection connection, String fingerprintQuery)
+            throws DataSetException
+    {
+        return createSnapshot(connection, computeFingerprint(connection, fingerprintQuery));
+    }
+
+    private static SchemaSnapshot createSnapshot(IDatabaseConnection connection, String fingerprint)
+            throws DataSetException
+    {
+        logger.debug("createSnapshot(connection={}, fingerprint={}) - start", connection, fingerprint);
+
+        try
+        {
+            DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+            String schema = connection.getSchema();
+            List tables = getTables(connection);
+
+            // Table names are passed qualified so that every table is looked up in its own schema
+            DatabaseTableMetaData[] metaData = new DatabaseTableMetaData[tables.size()];
+            for (int i = 0; i < metaData.length; i++)
+            {
+                String[] table = (String[])tables.get(i);
+                String tableName = table[0] == null ? table[1] : table[0] + "." + table[1];
+                metaData[i] = new DatabaseTableMetaData(tableName, connection, false, true);
+            }
+            DatabaseTableMetaData.loadAll(metaData, schema, connection);
+
+            List tableSnapshots = new ArrayList();
+            for (int i = 0; i < metaData.length; i++)
+            {
+                String[] table = (String[])tables.get(i);
+                tableSnapshots.add(new TableSnapshot(table[0], table[1], metaData[i].getColumns(),
+                        metaData[i].getPrimaryKeyNames(),
+                        getImportedKeys(databaseMetaData, table[0], table[1])));
+            }
+            String[] tableTypes = (String[])connection.getConfig().getProperty(DatabaseConfig.PROPERTY_TABLE_TYPE);
+            return new SchemaSnapshot(fingerprint, (String[])tableTypes.clone(),
+                    Collections.unmodifiableList(tableSnapshots));
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    /**
+     * Returns the tables of the schema which are accepted by the table filter of the
+     * {@link DatabaseConfig#PROPERTY_TABLE_FILTER} property, so that the fingerprint does
+     * not change with the filtered tables.
+     */
+    private static List getTables(IDatabaseConnection connection)
+            throws DataSetException, SQLException
+    {
+        DatabaseConfig config = connection.getConfig();
+        String[] tableType = (String[])config.getProperty(DatabaseConfig.PROPERTY_TABLE_TYPE);
+        IMetadataHandler metadataHandler = (IMetadataHandler)config.getProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER);
+        ITableFilterSimple tableFilter = (ITableFilterSimple)config.getProperty(DatabaseConfig.PROPERTY_TABLE_FILTER);
+        DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+        List tables = DatabaseDataSet.getTables(databaseMetaData, connection.getSchema(), tableType, metadataHandler);
+        if (tableFilter != null)
+        {
+            for (Iterator it = tables.iterator(); it.hasNext();)
+            {
+                String[] table = (String[])it.next();
+                if (!tableFilter.accept(table[1]))
+                {
+                    it.remove();
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @return Array of <code>String[]{pkSchemaName, pkTableName, pkColumnName, fkColumnName}</code>
+     */
+    private static String[][] getImportedKeys(DatabaseMetaData databaseMetaData,
+            String schemaName, String tableName) throws SQLException
+    {
+        ResultSet resultSet = databaseMetaData.getImportedKeys(null, schemaName, tableName);
+        try
+        {
+            List keys = new ArrayList();
+            while (resultSet.next())
+            {
+                keys.add(new String[] {resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getString(8)});
+            }
+            return (String[][])keys.toArray(new String[0][]);
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * Adds the hash of every column of the given tables in the given result set and closes it.
+     * @param columns Result set of {@link DatabaseMetaData#getColumns(String, String, String, String)}
+     * @param tableKeys The keys of the tables whose columns are hashed
+     * @param columnHashes The list to which the hashes are added as {@link Integer}
+     */
+    private static void addColumnHashes(ResultSet columns, Set tableKeys, List columnHashes)
+            throws SQLException
+    {
+        try
+        {
+            while (columns.next())
+            {
+                String key = getKey(columns.getString(2), columns.getString(3));
+                if (!tableKeys.contains(key))
+                {
+                    continue;
+                }
+                int columnHash = key.hashCode();
+                columnHash = 31 * columnHash + columns.getString(4).hashCode();
+                columnHash = 31 * columnHash + columns.getInt(5);
+                String typeName = columns.getString(6);
+                columnHash = 31 * columnHash + (typeName == null ? 0 : typeName.hashCode());
+                columnHash = 31 * columnHash + columns.getInt(7);
+                columnHash = 31 * columnHash + columns.getInt(9);
+                columnHash = 31 * columnHash + columns.getInt(11);
+                columnHashes.add(new Integer(columnHash));
+            }
+        }
+        finally
+        {
+            columns.close();
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the schema of the given connection with one table lookup,
+     * one column lookup for the whole schema (or one per table if the metadata handler is no
+     * {@link IBulkMetadataHandler}) and the optional fingerprint query.
+     * @param connection The database connection
+     * @param fingerprintQuery Optional query whose first row is added to the fingerprint.
+     * Can be <code>null</code>.
+     * @return The fingerprint of the current schema
+     * @throws DataSetException
+     */
+    public static String computeFingerprint(IDatabaseConnection connection, String fingerprintQuery)
+            throws DataSetException
+    {
+        logger.debug("computeFingerprint(connection={}, fingerprintQuery={}) - start",
+                connection, fingerprintQuery);
+
+        try
+        {
+            List tables = getTables(connection);
+            Set tableKeys = new HashSet();
+            int hash = 0;
+            for (Iterator it = tables.iterator(); it.hasNext();)
+            {
+                String[] table = (String[])it.next();
+                tableKeys.add(getKey(table[0], table[1]));
+                hash = 31 * hash + (table[0] == null ? 0 : table[0].hashCode());
+                hash = 31 * hash + table[1].hashCode();
+            }
+
+            // The columns are read with one lookup for the whole schema if the metadata handler
+            // supports it. Their order depends on the driver but is stable for an unchanged schema.
+            IMetadataHandler metadataHandler = (IMetadataHandler)connection.getConfig().getProperty(
+                    DatabaseConfig.PROPERTY_METADATA_HANDLER);
+            DatabaseMetaData databaseMetaData = connection.getConnection().getMetaData();
+            List columnHashes = new ArrayList();
+            if (metadataHandler instanceof IBulkMetadataHandler)
+            {
+                addColumnHashes(((IBulkMetadataHandler)metadataHandler).getAllColumns(
+                        databaseMetaData, connection.getSchema()), tableKeys, columnHashes);
+            }
+            else
+            {
+                for (Iterator it = tables.iterator(); it.hasNext();)
+                {
+                    String[] table = (String[])it.next();
+                    addColumnHashes(metadataHandler.getColumns(databaseMetaData, table[0], table[1]),
+                            tableKeys, columnHashes);
+                }
+            }
+            int columnCount = columnHashes.size();
+            int columnHash = 0;
+            for (Iterator it = columnHashes.iterator(); it.hasNext();)
+            {
+                columnHash = 31 * columnHash + ((Integer)it.next()).intValue();
+            }
+
+            StringBuffer fingerprint = new StringBuffer();
+            String[] tableTypes = (String[])connection.getConfig().getProperty(DatabaseConfig.PROPERTY_TABLE_TYPE);
+            fingerprint.append("tableTypes=").append(toSortedList(tableTypes));
+            fingerprint.append(", tables=").append(tables.size());
+            fingerprint.append(", hash=").append(Integer.toHexString(hash));
+            fingerprint.append(", columns=").append(columnCount);
+            fingerprint.append(", columnHash=").append(Integer.toHexString(columnHash));
+            if (fingerprintQuery != null)
+            {
+                Statement statement = connection.getConnection().createStatement();
+                ResultSet resultSet = null;
+                try
+                {
+                    resultSet = statement.executeQuery(fingerprintQuery);
+                    if (resultSet.next())
+                    {
+                        ResultSetMetaData metaData = resultSet.getMetaData();
+                        for (int i = 1; i <= metaData.getColumnCount(); i++)
+                        {
+                            fingerprint.append(", ").append(resultSet.getString(i));
+                        }
+                    }
+                }
+                finally
+                {
+                    SQLHelper.close(resultSet, statement);
+                }
+            }
+            return fingerprint.toString();
+        }
+        catch (SQLException e)
+        {
+            throw new DataSetException(e);
+        }
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     * @param file The snapshot file
+     * @return The snapshot
+     * @throws IOException
+     */
+    public static SchemaSnapshot read(File file) throws IOException
+    {
+        logger.debug("read(file={}) - start", file);
+
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            return (SchemaSnapshot)in.readObject();
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new InvalidClassException(e.getMessage());
+        }
+        catch (ClassCastException e)
+        {
+            throw new InvalidClassException(e.getMessage());
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes this snapshot to the given file.
+     * @param file The snapshot file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException
+    {
+        logger.debug("write(file={}) - start", file);
+
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            out.writeObject(this);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @return The fingerprint of the schema at the time the snapshot was created
+     */
+    public String getFingerprint()
+    {
+        return _fingerprint;
+    }
+
+    /**
+     * @return The {@link DatabaseConfig#PROPERTY_TABLE_TYPE} the tables of the snapshot were
+     * selected with
+     */
+    public String[] getTableTypes()
+    {
+        return (String[])_tableTypes.clone();
+    }
+
+    /**
+     * @param tableTypes The table types configured for a connection
+     * @return <code>true</code> if the tables of the snapshot were selected with the same
+     * table types, regardless of their order
+     */
+    boolean matchesTableTypes(String[] tableTypes)
+    {
+        return toSortedList(_tableTypes).equals(toSortedList(tableTypes));
+    }
+
+    private static List toSortedList(String[] values)
+    {
+        List list = new ArrayList(Arrays.asList(values));
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * @return List of <code>String[]{schemaName, tableName}</code> of the tables in the snapshot,
+     * in the same form as {@link IMetadataHandler#getTables(DatabaseMetaData, String, String[])}
+     * returns them.
+     */
+    public List getTables()
+    {
+        List tables = new ArrayList(_tables.size());
+        for (Iterator it = _tables.iterator(); it.hasNext();)
+        {
+            TableSnapshot table = (TableSnapshot)it.next();
+            tables.add(new String[] {table._schemaName, table._tableName});
+        }
+        return tables;
+    }
+
+    /**
+     * Returns the foreign keys of the given table.
+     * @param schemaName The schema name as returned by {@link #getTables()}
+     * @param tableName The table name as returned by {@link #getTables()}
+     * @return Array of <code>String[]{pkSchemaName, pkTableName, pkColumnName, fkColumnName}</code>,
+     * one entry per foreign key column, or <code>null</code> if the table is not in the snapshot
+     */
+    public String[][] getImportedKeys(String schemaName, String tableName)
+    {
+        TableSnapshot table = getTable(schemaName, tableName);
+        return table == null ? null : (String[][])table._importedKeys.clone();
+    }
+
+    /**
+     * Sets the columns and primary keys of the given table metadata from this snapshot.
+     * @param metaData The table metadata to be initialized
+     * @param schemaName The schema name as returned by {@link #getTables()}
+     * @param tableName The table name as returned by {@link #getTables()}
+     * @param dataTypeFactory The data type factory converting the SQL types
+     * @return <code>true</code> if the table is in the snapshot
+     * @throws DataTypeException
+     */
+    boolean initialize(DatabaseTableMetaData metaData, String schemaName, String tableName,
+            IDataTypeFactory dataTypeFactory) throws DataTypeException
+    {
+        TableSnapshot table = getTable(schemaName, tableName);
+        if (table == null)
+        {
+            return false;
+        }
+
+        List columns = new ArrayList(table._columns.length);
+        for (int i = 0; i < table._columns.length; i++)
+        {
+            Column column = table._columns[i].createColumn(tableName, dataTypeFactory);
+            if (column != null)
+            {
+                columns.add(column);
+            }
+        }
+        metaData.setMetaData((Column[])columns.toArray(new Column[0]),
+                (String[])table._primaryKeyNames.clone());
+        return true;
+    }
+
+    private synchronized TableSnapshot getTable(String schemaName, String tableName)
+    {
+        if (_tablesByKey == null)
+        {
+            _tablesByKey = new HashMap();
+            for (Iterator it = _tables.iterator(); it.hasNext();)
+            {
+                TableSnapshot table = (TableSnapshot)it.next();
+                _tablesByKey.put(getKey(table._schemaName, table._tableName), table);
+            }
+        }
+        return (TableSnapshot)_tablesByKey.get(getKey(schemaName, tableName));
+    }
+
+    private static String getKey(String schemaName, String tableName)
+    {
+        return schemaName == null ? tableName : schemaName + "." + tableName;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_fingerprint=").append(_fingerprint);
+        sb.append(", _tableTypes=").append(Arrays.asList(_tableTypes));
+        sb.append(", tables=").append(_tables.size());
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * The structure of one table.
+     */
+    private static class TableSnapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _schemaName;
+        private final String _tableName;
+        private final ColumnSnapshot[] _columns;
+        private final String[] _primaryKeyNames;
+        private final String[][] _importedKeys;
+
+        public TableSnapshot(String schemaName, String tableName, Column[] columns,
+                String[] primaryKeyNames, String[][] importedKeys)
+        {
+            _schemaName = schemaName;
+            _tableName = tableName;
+            _columns = new ColumnSnapshot[columns.length];
+            for (int i = 0; i < columns.length; i++)
+            {
+                _columns[i] = new ColumnSnapshot(columns[i]);
+            }
+            _primaryKeyNames = primaryKeyNames;
+            _importedKeys = importedKeys;
+        }
+    }
+
+    /**
+     * The definition of one column, stored with its SQL type so that the data type can be
+     * created again by the configured {@link IDataTypeFactory}.
+     */
+    private static class ColumnSnapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String _columnName;
+        private final int _sqlType;
+        private final String _sqlTypeName;
+        private final int _nullable;
+        private final String _defaultValue;
+        private final String _remarks;
+        private final String _autoIncrement;
+
+        public ColumnSnapshot(Column column)
+        {
+            _columnName = column.getColumnName();
+            _sqlType = column.getDataType().getSqlType();
+            _sqlTypeName = column.getSqlTypeName();
+            _nullable = toInt(column.getNullable());
+            _defaultValue = column.getDefaultValue();
+            _remarks = column.getRemarks();
+            _autoIncrement = column.getAutoIncrement().getKey();
+        }
+
+        public Column createColumn(String tableName, IDataTypeFactory dataTypeFactory)
+                throws DataTypeException
+        {
+            DataType dataType = dataTypeFactory.createDataType(_sqlType, _sqlTypeName,
+                    tableName, _columnName);
+            if (dataType == DataType.UNKNOWN)
+            {
+                return null;
+            }
+            return new Column(_columnName, dataType, _sqlTypeName, Column.nullableValue(_nullable),
+                    _defaultValue, _remarks, Column.AutoIncrement.autoIncrementValue(_autoIncrement));
+        }
+
+        private static int toInt(Column.Nullable nullable)
+        {
+            if (nullable == Column.NO_NULLS)
+            {
+                return DatabaseMetaData.columnNoNulls;
+            }
+            if (nullable == Column.NULLABLE)
+            {
+                return DatabaseMetaData.columnNullable;
+            }
+            return DatabaseMetaData.columnNullableUnknown;
+        }
+    }
+}
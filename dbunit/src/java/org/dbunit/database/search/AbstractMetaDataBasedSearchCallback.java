@@ -57,12 +57,26 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
 
     private final IDatabaseConnection connection;
 
+    private final ForeignKeyGraph graph;
+
     /**
      * Default constructor.
      * @param connection connection where the edges will be calculated from
      */
     public AbstractMetaDataBasedSearchCallback(IDatabaseConnection connection) {
+        this(connection, null);
+    }
+
+    /**
+     * Creates a callback that calculates the edges from the given in-memory graph.
+     * Tables unknown to the graph are still looked up in the database meta-data.
+     * @param connection connection where the edges will be calculated from
+     * @param graph the foreign key graph of the connection, may be <code>null</code>
+     * @since 2.4.8
+     */
+    public AbstractMetaDataBasedSearchCallback(IDatabaseConnection connection, ForeignKeyGraph graph) {
         this.connection = connection;
+        this.graph = graph;
     }
 
     /**
@@ -173,6 +187,9 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
         String tableName = (String) node;
 
     	QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, schema);
+    	if (getNodesFromGraph(type, qualifiedTableName, edges)) {
+    	    return;
+    	}
     	schema = qualifiedTableName.getSchema();
     	tableName = qualifiedTableName.getTable();
         
@@ -231,6 +248,48 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
     }
 
 
+    /**
+     * Adds the edges of the given table from the in-memory graph, if any.
+     * @return <code>false</code> if the graph cannot answer for the given table and
+     * the database meta-data needs to be queried instead
+     */
+    private boolean getNodesFromGraph(int type, QualifiedTableName qualifiedTableName, SortedSet edges)
+    throws SearchException
+    {
+        if (this.graph == null) {
+            return false;
+        }
+
+        DatabaseConfig dbConfig = this.connection.getConfig();
+        String schema = this.connection.getSchema();
+        // Without qualified table names the graph only knows the tables of the connection's schema
+        if (!dbConfig.getFeature(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES)
+                && !(schema == null ? qualifiedTableName.getSchema() == null 
+                        : schema.equals(qualifiedTableName.getSchema()))) {
+            return false;
+        }
+
+        String tableName = qualifiedTableName.getQualifiedNameIfEnabled(dbConfig);
+        int index = this.graph.indexOf(tableName);
+        if (index < 0 || !this.graph.isLoaded(index)) {
+            return false;
+        }
+
+        int[] nodes = type == IMPORT ? this.graph.getDependsOn(index) : this.graph.getDependents(index);
+        for (int i = 0; i < nodes.length; i++) {
+            String dependentTableName = this.graph.getTableName(nodes[i]);
+            String[] columns = type == IMPORT ? this.graph.getColumns(index, nodes[i]) 
+                    : this.graph.getColumns(nodes[i], index);
+            IEdge edge = newEdge(null, type, tableName, dependentTableName, columns[0], columns[1]);
+            if ( logger.isDebugEnabled() ) {
+                logger.debug("Adding edge " + edge);
+            }
+            edges.add(edge);
+        }
+        return true;
+    }
+
+
     /**
      * Creates an edge representing a foreign key relationship between 2 tables.<br>
      * @param rs database meta-data result set
@@ -261,7 +320,8 @@ public abstract class AbstractMetaDataBasedSearchCallback extends AbstractNodesF
      * This method can be overwritten by the sub-classes if they need to decorate
      * the edge (for instance, providing an Edge that contains the primary and 
      * foreign keys used).
-     * @param rs database meta-data result set
+     * @param rs database meta-data result set, <code>null</code> if the edge is
+     * read from the {@link ForeignKeyGraph}
      * @param type type of relationship (IMPORT or EXPORT)
      * @param from name of the table representing the 'from' node
      * @param to name of the table representing the 'to' node
@@ -48,6 +48,16 @@ public class ExportedKeysSearchCallback extends
         super(connection);
     }
 
+    /**
+     * Creates a callback that reads the edges from the given foreign key graph.
+     * @param connection connection where the edges will be calculated from
+     * @param graph the foreign key graph of the connection
+     * @since 2.4.8
+     */
+    public ExportedKeysSearchCallback(IDatabaseConnection connection, ForeignKeyGraph graph) {
+        super(connection, graph);
+    }
+
     public SortedSet getEdges(Object node) throws SearchException {
         logger.debug("getEdges(node={}) - start", node);
 
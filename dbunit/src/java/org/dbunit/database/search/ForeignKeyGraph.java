@@ -0,0 +1,870 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.search;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import org.dbunit.database.CyclicTablesDependencyException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IBulkMetadataHandler;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.IMetadataHandler;
+import org.dbunit.database.SchemaSnapshot;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.util.QualifiedTableName;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory graph of the foreign key dependencies between all tables of a schema.
+ * The graph is built with a single sweep over the imported keys of all tables of the
+ * schema via {@link IBulkMetadataHandler#getAllImportedKeys(DatabaseMetaData, String)}
+ * (or from the {@link DatabaseConfig#PROPERTY_SCHEMA_SNAPSHOT} if one is configured).
+ * If the metadata handler or the driver cannot return the imported keys of several
+ * tables at once they are looked up per table instead. The graph is cached per connection, so that ordering
+ * several sets of tables does not
+ * query the database metadata again.
+ * <p>
+ * Tables are addressed internally by their index, the dependencies of a table are
+ * kept as an <code>int</code> array of the indexes of the tables it references
+ * and another one of the indexes of the tables referencing it.
+ * The strongly connected components of the graph are computed once when it is built,
+ * so that cyclic dependencies can be reported with all tables involved.
+ * </p>
+ * <p>
+ * The graph also backs the searches of the {@link TablesDependencyHelper}, which are
+ * answered in memory instead of querying the database metadata for every visited table.
+ * Use {@link #refresh(IDatabaseConnection)} after the schema has been altered.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ForeignKeyGraph
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ForeignKeyGraph.class);
+
+    /**
+     * The graphs built so far, keyed by the {@link IDatabaseConnection} they were read from
+     */
+    private static final Map graphs = new WeakHashMap();
+
+    private final boolean _caseSensitive;
+    private final boolean _qualifiedTableNames;
+    private final String _schema;
+
+    private final String[] _tableNames;
+    /**
+     * Maps the (possibly upper-cased) table name to its index
+     */
+    private final Map _indexes;
+    /**
+     * Whether or not the imported keys of the table have been read. Tables that are
+     * only known as the target of a foreign key have not been read.
+     */
+    private final boolean[] _loaded;
+    /**
+     * For each table the indexes of the tables it references via a foreign key
+     */
+    private final int[][] _dependsOn;
+    /**
+     * For each table and referenced table the foreign key and primary key column
+     * of the first column pair of the foreign key
+     */
+    private final String[][] _fkColumns;
+    private final String[][] _pkColumns;
+    /**
+     * For each table the indexes of the tables that reference it via a foreign key
+     */
+    private final int[][] _dependents;
+    /**
+     * For each table the index of its strongly connected component
+     */
+    private final int[] _components;
+    private final int[] _componentSizes;
+
+    /**
+     * The orders computed so far, keyed by the list of requested table names
+     */
+    private final Map _sortedTableNames = new HashMap();
+
+    /**
+     * Creates a graph from the given dependencies.
+     * @param dependsOn Map of table name to the {@link Set} of table names it directly
+     * depends on. The iteration order of the map determines the indexes of the tables.
+     * @param caseSensitive Whether or not table names are case sensitive
+     */
+    ForeignKeyGraph(Map dependsOn, boolean caseSensitive)
+    {
+        this(toImportedKeys(dependsOn), caseSensitive, false, null);
+    }
+
+    /**
+     * @param importedKeys Map of table name to a {@link Map} of the referenced table names
+     * to their <code>{fkColumn, pkColumn}</code> pair
+     */
+    private ForeignKeyGraph(Map importedKeys, boolean caseSensitive,
+            boolean qualifiedTableNames, String schema)
+    {
+        _caseSensitive = caseSensitive;
+        _qualifiedTableNames = qualifiedTableNames;
+        _schema = schema;
+
+        List tableNames = new ArrayList();
+        _indexes = new HashMap();
+        for (Iterator it = importedKeys.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            addTable((String)entry.getKey(), tableNames);
+            for (Iterator it2 = ((Map)entry.getValue()).keySet().iterator(); it2.hasNext();)
+            {
+                addTable((String)it2.next(), tableNames);
+            }
+        }
+        _tableNames = (String[])tableNames.toArray(new String[0]);
+
+        int tableCount = _tableNames.length;
+        _loaded = new boolean[tableCount];
+        _dependsOn = new int[tableCount][];
+        _fkColumns = new String[tableCount][];
+        _pkColumns = new String[tableCount][];
+        for (Iterator it = importedKeys.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            int index = indexOf((String)entry.getKey());
+            if (!_loaded[index])
+            {
+                _loaded[index] = true;
+                setDependsOn(index, (Map)entry.getValue());
+            }
+        }
+
+        int[] dependentCounts = new int[tableCount];
+        for (int i = 0; i < tableCount; i++)
+        {
+            if (_dependsOn[i] == null)
+            {
+                _dependsOn[i] = new int[0];
+                _fkColumns[i] = new String[0];
+                _pkColumns[i] = new String[0];
+            }
+            for (int j = 0; j < _dependsOn[i].length; j++)
+            {
+                dependentCounts[_dependsOn[i][j]]++;
+            }
+        }
+        _dependents = new int[tableCount][];
+        for (int i = 0; i < tableCount; i++)
+        {
+            _dependents[i] = new int[dependentCounts[i]];
+            dependentCounts[i] = 0;
+        }
+        for (int i = 0; i < tableCount; i++)
+        {
+            for (int j = 0; j < _dependsOn[i].length; j++)
+            {
+                int parent = _dependsOn[i][j];
+                _dependents[parent][dependentCounts[parent]++] = i;
+            }
+        }
+
+        _components = computeComponents(_dependsOn);
+        _componentSizes = new int[tableCount];
+        for (int i = 0; i < _components.length; i++)
+        {
+            _componentSizes[_components[i]]++;
+        }
+    }
+
+    private static Map toImportedKeys(Map dependsOn)
+    {
+        Map importedKeys = new LinkedHashMap();
+        for (Iterator it = dependsOn.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            Map parents = new LinkedHashMap();
+            for (Iterator it2 = ((Set)entry.getValue()).iterator(); it2.hasNext();)
+            {
+                parents.put(it2.next(), new String[2]);
+            }
+            importedKeys.put(entry.getKey(), parents);
+        }
+        return importedKeys;
+    }
+
+    /**
+     * Returns the graph of the given connection, building it on the first call.
+     * The graph is rebuilt if the schema or the table name related features of
+     * the connection have changed since.
+     * @param connection The connection to read the foreign keys from
+     * @return The foreign key graph of the connection's schema
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public static ForeignKeyGraph getGraph(IDatabaseConnection connection)
+    throws DataSetException, SQLException
+    {
+        logger.debug("getGraph(connection={}) - start", connection);
+
+        DatabaseConfig config = connection.getConfig();
+        boolean caseSensitive = config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES);
+        boolean qualifiedTableNames = config.getFeature(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES);
+        String schema = connection.getSchema();
+
+        synchronized (graphs)
+        {
+            ForeignKeyGraph graph = (ForeignKeyGraph)graphs.get(connection);
+            if (graph != null && graph.matches(caseSensitive, qualifiedTableNames, schema))
+            {
+                return graph;
+            }
+        }
+
+        ForeignKeyGraph graph = new ForeignKeyGraph(readImportedKeys(connection),
+                caseSensitive, qualifiedTableNames, schema);
+        synchronized (graphs)
+        {
+            graphs.put(connection, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Discards the cached graph of the given connection, for example after the
+     * schema has been altered. The next call to {@link #getGraph(IDatabaseConnection)}
+     * reads the foreign keys again.
+     * @param connection The connection whose graph is discarded
+     */
+    public static void invalidate(IDatabaseConnection connection)
+    {
+        logger.debug("invalidate(connection={}) - start", connection);
+
+        synchronized (graphs)
+        {
+            graphs.remove(connection);
+        }
+    }
+
+    /**
+     * Reads the foreign keys of the given connection again and replaces its cached graph.
+     * @param connection The connection whose graph is rebuilt
+     * @return The new foreign key graph of the connection's schema
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public static ForeignKeyGraph refresh(IDatabaseConnection connection)
+    throws DataSetException, SQLException
+    {
+        logger.debug("refresh(connection={}) - start", connection);
+
+        invalidate(connection);
+        return getGraph(connection);
+    }
+
+    /**
+     * Reads the imported keys of all tables of the connection's schema.
+     * @return Map of table name to the ordered {@link Map} of the table names it references
+     * to the <code>{fkColumn, pkColumn}</code> pair of the first column of the foreign key
+     */
+    private static Map readImportedKeys(IDatabaseConnection connection)
+    throws DataSetException, SQLException
+    {
+        DatabaseConfig config = connection.getConfig();
+        SchemaSnapshot snapshot = (SchemaSnapshot)config.getProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT);
+        String schema = connection.getSchema();
+        DatabaseMetaData metaData = connection.getConnection().getMetaData();
+        boolean caseSensitive = config.getFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES);
+
+        String[] tableNames = connection.createDataSet().getTableNames();
+        Map allImportedKeys = null;
+        if (snapshot == null)
+        {
+            allImportedKeys = readAllImportedKeys(connection, schema);
+        }
+
+        Map result = new LinkedHashMap();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            QualifiedTableName qualifiedTableName = new QualifiedTableName(tableNames[i], schema);
+            Map parents = new LinkedHashMap();
+
+            String[][] importedKeys = null;
+            if (snapshot != null)
+            {
+                importedKeys = snapshot.getImportedKeys(
+                        qualifiedTableName.getSchema(), qualifiedTableName.getTable());
+            }
+
+            else if (allImportedKeys != null)
+            {
+                importedKeys = getImportedKeys(allImportedKeys, qualifiedTableName.getSchema(),
+                        qualifiedTableName.getTable(), caseSensitive);
+            }
+
+            if (importedKeys != null)
+            {
+                for (int j = 0; j < importedKeys.length; j++)
+                {
+                    String parent = new QualifiedTableName(importedKeys[j][1], importedKeys[j][0])
+                            .getQualifiedNameIfEnabled(config);
+                    if (!parents.containsKey(parent))
+                    {
+                        parents.put(parent, new String[] {importedKeys[j][3], importedKeys[j][2]});
+                    }
+                }
+            }
+            else
+            {
+                ResultSet resultSet = metaData.getImportedKeys(null,
+                        qualifiedTableName.getSchema(), qualifiedTableName.getTable());
+                try
+                {
+                    while (resultSet.next())
+                    {
+                        String pkSchema = resultSet.getString(2);
+                        String pkTable = resultSet.getString(3);
+                        String parent = new QualifiedTableName(pkTable, pkSchema)
+                                .getQualifiedNameIfEnabled(config);
+                        if (!parents.containsKey(parent))
+                        {
+                            parents.put(parent, new String[] {
+                                    resultSet.getString(8), resultSet.getString(4)});
+                        }
+                    }
+                }
+                finally
+                {
+                    SQLHelper.close(resultSet);
+                }
+            }
+            result.put(tableNames[i], parents);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the imported keys of all tables of the given schema with one lookup.
+     * @return Map of the upper-cased table name to the {@link List} of
+     * <code>String[]{fkSchemaName, fkTableName, pkSchemaName, pkTableName, pkColumnName, fkColumnName}</code>,
+     * or <code>null</code> if the keys have to be looked up per table
+     */
+    private static Map readAllImportedKeys(IDatabaseConnection connection, String schema)
+    {
+        IMetadataHandler metadataHandler = (IMetadataHandler)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_METADATA_HANDLER);
+        if (!(metadataHandler instanceof IBulkMetadataHandler))
+        {
+            return null;
+        }
+        try
+        {
+            Map importedKeys = new HashMap();
+            ResultSet resultSet = ((IBulkMetadataHandler)metadataHandler).getAllImportedKeys(
+                    connection.getConnection().getMetaData(), schema);
+            Statement statement = resultSet.getStatement();
+            try
+            {
+                while (resultSet.next())
+                {
+                    String fkTable = resultSet.getString(7);
+                    List keys = (List)importedKeys.get(fkTable.toUpperCase());
+                    if (keys == null)
+                    {
+                        keys = new ArrayList();
+                        importedKeys.put(fkTable.toUpperCase(), keys);
+                    }
+                    keys.add(new String[] {resultSet.getString(6), fkTable,
+                            resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getString(8)});
+                }
+            }
+            finally
+            {
+                SQLHelper.close(resultSet, statement);
+            }
+
+            // A driver may take the null table name literally, so an empty result
+            // cannot be told apart from a schema without foreign keys
+            return importedKeys.isEmpty() ? null : importedKeys;
+        }
+        catch (SQLException e)
+        {
+            logger.info("Could not retrieve the imported keys of all tables in schema '" + schema +
+                    "' at once. They will be looked up per table.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Array of <code>String[]{pkSchemaName, pkTableName, pkColumnName, fkColumnName}</code>
+     * of the given table taken from the result of {@link #readAllImportedKeys(IDatabaseConnection, String)}
+     */
+    private static String[][] getImportedKeys(Map allImportedKeys, String schemaName,
+            String tableName, boolean caseSensitive)
+    {
+        List keys = (List)allImportedKeys.get(tableName.toUpperCase());
+        if (keys == null)
+        {
+            return new String[0][];
+        }
+
+        List importedKeys = new ArrayList();
+        for (Iterator it = keys.iterator(); it.hasNext();)
+        {
+            String[] key = (String[])it.next();
+            if (SQLHelper.areEqualIgnoreNull(schemaName, key[0], caseSensitive)
+                    && SQLHelper.areEqualIgnoreNull(tableName, key[1], caseSensitive))
+            {
+                importedKeys.add(new String[] {key[2], key[3], key[4], key[5]});
+            }
+        }
+        return (String[][])importedKeys.toArray(new String[0][]);
+    }
+
+    private boolean matches(boolean caseSensitive, boolean qualifiedTableNames, String schema)
+    {
+        return _caseSensitive == caseSensitive
+                && _qualifiedTableNames == qualifiedTableNames
+                && (_schema == null ? schema == null : _schema.equals(schema));
+    }
+
+    private String getKey(String tableName)
+    {
+        return _caseSensitive ? tableName : tableName.toUpperCase();
+    }
+
+    private void addTable(String tableName, List tableNames)
+    {
+        String key = getKey(tableName);
+        if (!_indexes.containsKey(key))
+        {
+            _indexes.put(key, new Integer(tableNames.size()));
+            tableNames.add(tableName);
+        }
+    }
+
+    private void setDependsOn(int tableIndex, Map parents)
+    {
+        int[] indexes = new int[parents.size()];
+        String[] fkColumns = new String[parents.size()];
+        String[] pkColumns = new String[parents.size()];
+        int count = 0;
+        for (Iterator it = parents.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            int index = indexOf((String)entry.getKey());
+            // Self references do not affect the order
+            if (index != tableIndex && !contains(indexes, count, index))
+            {
+                String[] columns = (String[])entry.getValue();
+                fkColumns[count] = columns[0];
+                pkColumns[count] = columns[1];
+                indexes[count++] = index;
+            }
+        }
+
+        _dependsOn[tableIndex] = new int[count];
+        _fkColumns[tableIndex] = new String[count];
+        _pkColumns[tableIndex] = new String[count];
+        System.arraycopy(indexes, 0, _dependsOn[tableIndex], 0, count);
+        System.arraycopy(fkColumns, 0, _fkColumns[tableIndex], 0, count);
+        System.arraycopy(pkColumns, 0, _pkColumns[tableIndex], 0, count);
+    }
+
+    private static boolean contains(int[] values, int count, int value)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (values[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param tableName The table name
+     * @return The index of the given table or <code>-1</code> if it is not part of this graph
+     */
+    int indexOf(String tableName)
+    {
+        Integer index = (Integer)_indexes.get(getKey(tableName));
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * @param tableIndex The index of a table
+     * @return The name of the table
+     */
+    String getTableName(int tableIndex)
+    {
+        return _tableNames[tableIndex];
+    }
+
+    /**
+     * @param tableIndex The index of a table
+     * @return Whether or not the foreign keys of the table are known to this graph
+     */
+    boolean isLoaded(int tableIndex)
+    {
+        return _loaded[tableIndex];
+    }
+
+    /**
+     * @param tableIndex The index of a table
+     * @return The indexes of the tables the given table references. Must not be modified.
+     */
+    int[] getDependsOn(int tableIndex)
+    {
+        return _dependsOn[tableIndex];
+    }
+
+    /**
+     * @param tableIndex The index of a table
+     * @return The indexes of the tables referencing the given table. Must not be modified.
+     */
+    int[] getDependents(int tableIndex)
+    {
+        return _dependents[tableIndex];
+    }
+
+    /**
+     * @param tableIndex The index of the referencing table
+     * @param parentIndex The index of the referenced table
+     * @return The <code>{fkColumn, pkColumn}</code> pair of the first column of the
+     * foreign key between the two tables
+     */
+    String[] getColumns(int tableIndex, int parentIndex)
+    {
+        int[] parents = _dependsOn[tableIndex];
+        for (int i = 0; i < parents.length; i++)
+        {
+            if (parents[i] == parentIndex)
+            {
+                return new String[] {_fkColumns[tableIndex][i], _pkColumns[tableIndex][i]};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the tables directly referenced by the foreign keys of the given table.
+     * @param tableName The table name
+     * @return The names of the referenced tables, empty if the table is unknown
+     * to this graph
+     */
+    public String[] getReferencedTables(String tableName)
+    {
+        int index = indexOf(tableName);
+        if (index < 0)
+        {
+            return new String[0];
+        }
+
+        int[] parents = _dependsOn[index];
+        String[] tableNames = new String[parents.length];
+        for (int i = 0; i < parents.length; i++)
+        {
+            tableNames[i] = _tableNames[parents[i]];
+        }
+        return tableNames;
+    }
+
+    /**
+     * @return The names of all tables known to this graph
+     */
+    public String[] getTableNames()
+    {
+        return (String[])_tableNames.clone();
+    }
+
+    /**
+     * Returns the given table names in an order in which every table comes after
+     * the tables it references. Dependencies via tables that are not part of the given
+     * names are respected as well. Among independent tables the given order is kept.
+     * Tables unknown to this graph are treated as not having any dependency.
+     * @param tableNames The table names to be ordered
+     * @return The ordered table names
+     * @throws CyclicTablesDependencyException if one of the given tables is part of
+     * a dependency cycle. The message contains all tables of the cycle.
+     */
+    public String[] sort(String[] tableNames) throws CyclicTablesDependencyException
+    {
+        logger.debug("sort(tableNames={}) - start", tableNames);
+
+        List key = Arrays.asList(tableNames);
+        synchronized (_sortedTableNames)
+        {
+            String[] sortedTableNames = (String[])_sortedTableNames.get(key);
+            if (sortedTableNames != null)
+            {
+                return (String[])sortedTableNames.clone();
+            }
+        }
+
+        int count = tableNames.length;
+        int[] nodes = new int[count];
+        int[] positions = new int[_tableNames.length];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < count; i++)
+        {
+            nodes[i] = indexOf(tableNames[i]);
+            if (nodes[i] >= 0)
+            {
+                if (positions[nodes[i]] >= 0)
+                {
+                    // The same table requested twice is only ordered once
+                    nodes[i] = -1;
+                    continue;
+                }
+                positions[nodes[i]] = i;
+                if (_componentSizes[_components[nodes[i]]] > 1)
+                {
+                    throw new CyclicTablesDependencyException(tableNames[i], getCycle(nodes[i]));
+                }
+            }
+            else if (logger.isDebugEnabled())
+            {
+                logger.debug("Table '" + tableNames[i] + "' is not part of the graph");
+            }
+        }
+
+        // Count for every requested table the requested tables it (transitively) depends on
+        int[] inDegrees = new int[count];
+        List[] dependents = new List[count];
+        int[] visited = new int[_tableNames.length];
+        int[] stack = new int[_tableNames.length];
+        for (int i = 0; i < count; i++)
+        {
+            if (nodes[i] < 0)
+            {
+                continue;
+            }
+
+            int stackSize = 0;
+            stack[stackSize++] = nodes[i];
+            visited[nodes[i]] = i + 1;
+            while (stackSize > 0)
+            {
+                int[] parents = _dependsOn[stack[--stackSize]];
+                for (int j = 0; j < parents.length; j++)
+                {
+                    int parent = parents[j];
+                    if (visited[parent] == i + 1)
+                    {
+                        continue;
+                    }
+                    visited[parent] = i + 1;
+
+                    int position = positions[parent];
+                    if (position >= 0)
+                    {
+                        if (dependents[position] == null)
+                        {
+                            dependents[position] = new ArrayList();
+                        }
+                        dependents[position].add(new Integer(i));
+                        inDegrees[i]++;
+                    }
+                    else
+                    {
+                        // Not requested, follow its dependencies instead
+                        stack[stackSize++] = parent;
+                    }
+                }
+            }
+        }
+
+        // Kahn's algorithm, always taking the first available table in the given order
+        TreeSet available = new TreeSet();
+        for (int i = 0; i < count; i++)
+        {
+            if (inDegrees[i] == 0)
+            {
+                available.add(new Integer(i));
+            }
+        }
+
+        String[] sortedTableNames = new String[count];
+        int sortedCount = 0;
+        while (!available.isEmpty())
+        {
+            Integer position = (Integer)available.first();
+            available.remove(position);
+            sortedTableNames[sortedCount++] = tableNames[position.intValue()];
+
+            List children = dependents[position.intValue()];
+            if (children != null)
+            {
+                for (Iterator it = children.iterator(); it.hasNext();)
+                {
+                    Integer child = (Integer)it.next();
+                    if (--inDegrees[child.intValue()] == 0)
+                    {
+                        available.add(child);
+                    }
+                }
+            }
+        }
+
+        if (sortedCount != count)
+        {
+            throw new IllegalStateException("Only " + sortedCount + " of " + count
+                    + " tables could be ordered although no cycle was found");
+        }
+
+        synchronized (_sortedTableNames)
+        {
+            _sortedTableNames.put(key, sortedTableNames.clone());
+        }
+        return sortedTableNames;
+    }
+
+    /**
+     * @return The names of the other tables in the same strongly connected component
+     */
+    private Set getCycle(int tableIndex)
+    {
+        Set cycle = new HashSet();
+        for (int i = 0; i < _components.length; i++)
+        {
+            if (i != tableIndex && _components[i] == _components[tableIndex])
+            {
+                cycle.add(_tableNames[i]);
+            }
+        }
+        return cycle;
+    }
+
+    /**
+     * Computes the strongly connected components of the given graph using an
+     * iterative version of Tarjan's algorithm.
+     * @param edges The adjacency lists of the graph
+     * @return For each node the index of its component
+     */
+    static int[] computeComponents(int[][] edges)
+    {
+        int nodeCount = edges.length;
+        int[] indexes = new int[nodeCount];
+        int[] lowLinks = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] callStack = new int[nodeCount];
+        int[] edgePositions = new int[nodeCount];
+        int[] components = new int[nodeCount];
+        Arrays.fill(indexes, -1);
+
+        int stackSize = 0;
+        int counter = 0;
+        int componentCount = 0;
+        for (int root = 0; root < nodeCount; root++)
+        {
+            if (indexes[root] >= 0)
+            {
+                continue;
+            }
+
+            int callSize = 0;
+            indexes[root] = lowLinks[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            callStack[callSize] = root;
+            edgePositions[callSize++] = 0;
+
+            while (callSize > 0)
+            {
+                int node = callStack[callSize - 1];
+                if (edgePositions[callSize - 1] < edges[node].length)
+                {
+                    int next = edges[node][edgePositions[callSize - 1]++];
+                    if (indexes[next] < 0)
+                    {
+                        indexes[next] = lowLinks[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callStack[callSize] = next;
+                        edgePositions[callSize++] = 0;
+                    }
+                    else if (onStack[next])
+                    {
+                        lowLinks[node] = Math.min(lowLinks[node], indexes[next]);
+                    }
+                    continue;
+                }
+
+                if (lowLinks[node] == indexes[node])
+                {
+                    int member;
+                    do
+                    {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        components[member] = componentCount;
+                    }
+                    while (member != node);
+                    componentCount++;
+                }
+
+                callSize--;
+                if (callSize > 0)
+                {
+                    int parent = callStack[callSize - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+                }
+            }
+        }
+        return components;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("tableCount=").append(_tableNames.length);
+        sb.append(", caseSensitive=").append(_caseSensitive);
+        sb.append(", qualifiedTableNames=").append(_qualifiedTableNames);
+        sb.append(", schema=").append(_schema);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -39,7 +39,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Helper for the graph-search based classes used to calculate dependency
- * among tables.  
+ * among tables.<br>
+ * The dependency searches are answered from the {@link ForeignKeyGraph} of the
+ * connection, which is read from the database only once. Call 
+ * {@link ForeignKeyGraph#refresh(IDatabaseConnection)} after the schema has been altered.
  * 
  * @author Felipe Leme (dbunit@felipeal.net)
  * @author Last changed by: $Author$
@@ -87,7 +90,7 @@ public class TablesDependencyHelper {
     {
         logger.debug("getDependentTables(connection={}, rootTables={}) - start", connection, rootTables);
 
-        ImportedKeysSearchCallback callback = new ImportedKeysSearchCallback(connection);
+        ImportedKeysSearchCallback callback = new ImportedKeysSearchCallback(connection, getGraph(connection));
         DepthFirstSearch search = new DepthFirstSearch();
         Set tables = search.search( rootTables, callback );
         return CollectionsHelper.setToStrings( tables );
@@ -107,7 +110,7 @@ public class TablesDependencyHelper {
     {
         logger.debug("getDependsOnTables(connection={}, rootTable={}) - start", connection, rootTable);
 
-        ExportedKeysSearchCallback callback = new ExportedKeysSearchCallback(connection);
+        ExportedKeysSearchCallback callback = new ExportedKeysSearchCallback(connection, getGraph(connection));
         DepthFirstSearch search = new DepthFirstSearch();
         Set tables = search.search( new String[]{rootTable}, callback );
         return CollectionsHelper.setToStrings( tables );
@@ -145,7 +148,7 @@ public class TablesDependencyHelper {
     {
         logger.debug("getAllDependentTables(connection={}, rootTables={}) - start",connection, rootTables);
 
-        ImportedAndExportedKeysSearchCallback callback = new ImportedAndExportedKeysSearchCallback(connection);
+        ImportedAndExportedKeysSearchCallback callback = new ImportedAndExportedKeysSearchCallback(connection, getGraph(connection));
         DepthFirstSearch search = new DepthFirstSearch();
         Set tables = search.search(rootTables, callback);
         return CollectionsHelper.setToStrings(tables);
@@ -227,7 +230,7 @@ public class TablesDependencyHelper {
         logger.debug("getDirectDependsOnTables(connection={}, tableName={}) - start", 
                     connection, tableName);
         
-        ExportedKeysSearchCallback callback = new ExportedKeysSearchCallback(connection);
+        ExportedKeysSearchCallback callback = new ExportedKeysSearchCallback(connection, getGraph(connection));
         // Do a depthFirstSearch with a recursion depth of 1
         DepthFirstSearch search = new DepthFirstSearch(1);
         Set tables = search.search( new String[]{tableName}, callback );
@@ -248,11 +251,33 @@ public class TablesDependencyHelper {
         logger.debug("getDirectDependentTables(connection={}, tableName={}) - start", 
                     connection, tableName);
 
-        ImportedKeysSearchCallback callback = new ImportedKeysSearchCallback(connection);
+        ImportedKeysSearchCallback callback = new ImportedKeysSearchCallback(connection, getGraph(connection));
         // Do a depthFirstSearch with a recursion depth of 1
         DepthFirstSearch search = new DepthFirstSearch(1);
         Set tables = search.search( new String[]{tableName}, callback );
         return tables;
     }
 
+    /**
+     * Returns the cached foreign key graph of the given connection.
+     * @param connection The connection to be used for the database lookup.
+     * @return The foreign key graph of the connection
+     * @throws SearchException if the graph could not be read
+     */
+    private static ForeignKeyGraph getGraph(IDatabaseConnection connection) throws SearchException
+    {
+        try
+        {
+            return ForeignKeyGraph.getGraph(connection);
+        }
+        catch (SQLException e)
+        {
+            throw new SearchException(e);
+        }
+        catch (DataSetException e)
+        {
+            throw new SearchException(e);
+        }
+    }
+
 }
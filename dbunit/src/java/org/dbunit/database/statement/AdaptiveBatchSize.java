@@ -0,0 +1,173 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.statement;
+
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batch size of one prepared statement that adapts itself to the measured
+ * throughput. After each executed batch the size is increased by a constant step
+ * as long as the number of rows per nanosecond does not drop. When the throughput
+ * drops by more than {@link #TOLERANCE} the size is halved (additive increase,
+ * multiplicative decrease). The size always stays within the configured bounds.
+ * <p>
+ * Batches usually complete within a few milliseconds, so the elapsed time is
+ * measured with {@link #nanoTime()}.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class AdaptiveBatchSize
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatchSize.class);
+
+    /**
+     * Relative throughput loss that is still considered as noise
+     */
+    public static final double TOLERANCE = 0.1;
+
+    /**
+     * <code>System.nanoTime()</code>, which is looked up by reflection since it
+     * is not available before Java 5
+     */
+    private static final Method NANO_TIME = getNanoTimeMethod();
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+    private final int _increment;
+    private int _batchSize;
+    private double _throughput = 0;
+
+    /**
+     * @param initialBatchSize The size to start with
+     * @param minBatchSize The minimum size
+     * @param maxBatchSize The maximum size
+     */
+    public AdaptiveBatchSize(int initialBatchSize, int minBatchSize, int maxBatchSize)
+    {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize)
+        {
+            throw new IllegalArgumentException("Invalid batch size bounds: min=" + minBatchSize
+                    + ", max=" + maxBatchSize);
+        }
+        _minBatchSize = minBatchSize;
+        _maxBatchSize = maxBatchSize;
+        _batchSize = bound(initialBatchSize);
+        _increment = Math.max(1, _batchSize / 10);
+    }
+
+    private int bound(int batchSize)
+    {
+        return Math.min(_maxBatchSize, Math.max(_minBatchSize, batchSize));
+    }
+
+    /**
+     * @return The number of rows to send with the next batch
+     */
+    public synchronized int getBatchSize()
+    {
+        return _batchSize;
+    }
+
+    private static Method getNanoTimeMethod()
+    {
+        try
+        {
+            return System.class.getMethod("nanoTime", new Class[0]);
+        }
+        catch (NoSuchMethodException e)
+        {
+            logger.debug("System.nanoTime() not available, using System.currentTimeMillis()");
+            return null;
+        }
+    }
+
+    /**
+     * @return The current value of the most precise available timer in nanoseconds.
+     * Only meaningful to compute elapsed time.
+     */
+    public static long nanoTime()
+    {
+        if (NANO_TIME != null)
+        {
+            try
+            {
+                return ((Long)NANO_TIME.invoke(null, new Object[0])).longValue();
+            }
+            catch (Exception e)
+            {
+                // Cannot happen for a public static method without arguments
+                logger.debug("Invoking System.nanoTime() failed", e);
+            }
+        }
+        return System.currentTimeMillis() * 1000000;
+    }
+
+    /**
+     * Adjusts the batch size after a batch has been executed.
+     * @param rowCount The number of rows of the executed batch
+     * @param elapsedNanos The time the execution took in nanoseconds, as measured
+     * with {@link #nanoTime()}
+     */
+    public synchronized void batchExecuted(int rowCount, long elapsedNanos)
+    {
+        double throughput = rowCount / (double)Math.max(elapsedNanos, 1);
+        int previousBatchSize = _batchSize;
+        if (throughput < _throughput * (1 - TOLERANCE))
+        {
+            _batchSize = bound(_batchSize / 2);
+        }
+        else
+        {
+            _batchSize = bound(_batchSize + _increment);
+        }
+        _throughput = throughput;
+
+        if (logger.isDebugEnabled() && previousBatchSize != _batchSize)
+        {
+            logger.debug("Batch size changed from " + previousBatchSize + " to " + _batchSize
+                    + " (" + rowCount + " rows in " + elapsedNanos + " ns)");
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_batchSize=").append(_batchSize);
+        sb.append(", _minBatchSize=").append(_minBatchSize);
+        sb.append(", _maxBatchSize=").append(_maxBatchSize);
+        sb.append(", _increment=").append(_increment);
+        sb.append(", _throughput=").append(_throughput);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -42,6 +42,7 @@ public class AutomaticPreparedBatchStatement implements IPreparedBatchStatement
     private static final Logger logger = LoggerFactory.getLogger(AutomaticPreparedBatchStatement.class);
 
     private final IPreparedBatchStatement _statement;
+    private final AdaptiveBatchSize _adaptiveBatchSize;
     private int _batchCount = 0;
     private int _threshold;
     private int _result = 0;
@@ -50,6 +51,21 @@ public class AutomaticPreparedBatchStatement implements IPreparedBatchStatement
     {
         _statement = statement;
         _threshold = threshold;
+        _adaptiveBatchSize = null;
+    }
+
+    /**
+     * Creates a statement whose threshold follows the given adaptive batch size.
+     * @param statement The statement to decorate
+     * @param adaptiveBatchSize Batch size which is adjusted after each executed batch
+     * @since 2.4.8
+     */
+    public AutomaticPreparedBatchStatement(IPreparedBatchStatement statement,
+            AdaptiveBatchSize adaptiveBatchSize)
+    {
+        _statement = statement;
+        _threshold = adaptiveBatchSize.getBatchSize();
+        _adaptiveBatchSize = adaptiveBatchSize;
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -70,9 +86,20 @@ public class AutomaticPreparedBatchStatement implements IPreparedBatchStatement
         _statement.addBatch();
         _batchCount++;
 
-        if (_batchCount % _threshold == 0)
+        if (_batchCount >= _threshold)
         {
-            _result += _statement.executeBatch();
+            if (_adaptiveBatchSize == null)
+            {
+                _result += _statement.executeBatch();
+            }
+            else
+            {
+                long start = AdaptiveBatchSize.nanoTime();
+                _result += _statement.executeBatch();
+                _adaptiveBatchSize.batchExecuted(_batchCount, AdaptiveBatchSize.nanoTime() - start);
+                _threshold = _adaptiveBatchSize.getBatchSize();
+            }
+            _batchCount = 0;
         }
     }
 
@@ -81,6 +108,7 @@ public class AutomaticPreparedBatchStatement implements IPreparedBatchStatement
         logger.debug("executeBatch() - start");
 
         _result += _statement.executeBatch();
+        _batchCount = 0;
         return _result;
     }
 
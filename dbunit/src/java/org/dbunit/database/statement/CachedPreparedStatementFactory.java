@@ -0,0 +1,327 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.statement;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statement factory which keeps the prepared statements of each
+ * {@link IDatabaseConnection} open and reuses them for the same SQL. This avoids
+ * preparing the same statements again when the same operation is executed many
+ * times on one connection.
+ * <p>
+ * Closing a statement returned by {@link #createPreparedBatchStatement(String, IDatabaseConnection)}
+ * gives it back to the cache. The cache of a connection holds at most
+ * {@link DatabaseConfig#PROPERTY_STATEMENT_CACHE_SIZE} statements, the least recently
+ * used one is closed when this size is exceeded. All statements of a connection are
+ * closed by {@link #invalidate(IDatabaseConnection)} which is invoked when the
+ * connection is closed. A cache is dropped as well when its JDBC connection has been
+ * closed or replaced.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class CachedPreparedStatementFactory extends PreparedStatementFactory
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CachedPreparedStatementFactory.class);
+
+    /**
+     * Caches by {@link IDatabaseConnection}
+     */
+    private final Map _caches = new WeakHashMap();
+    private long _hitCount = 0;
+    private long _missCount = 0;
+
+    public IPreparedBatchStatement createPreparedBatchStatement(String sql,
+            IDatabaseConnection connection) throws SQLException
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("createPreparedBatchStatement(sql={}, connection={}) - start", sql, connection);
+        }
+
+        DatabaseConfig config = connection.getConfig();
+        int cacheSize = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_STATEMENT_CACHE_SIZE)).intValue();
+        if (cacheSize <= 0)
+        {
+            return super.createPreparedBatchStatement(sql, connection);
+        }
+
+        IPreparedBatchStatement statement = getStatement(sql, connection, cacheSize);
+        return createAutomaticStatement(statement, sql, connection);
+    }
+
+    private synchronized IPreparedBatchStatement getStatement(String sql,
+            IDatabaseConnection connection, int cacheSize) throws SQLException
+    {
+        Connection jdbcConnection = connection.getConnection();
+        StatementCache cache = (StatementCache)_caches.get(connection);
+        if (cache != null && (cache._connection != jdbcConnection || jdbcConnection.isClosed()))
+        {
+            logger.debug("JDBC connection closed or replaced. Dropping statement cache of {}",
+                    connection);
+            cache.closeAll();
+            cache = null;
+        }
+        if (cache == null)
+        {
+            cache = new StatementCache(jdbcConnection);
+            _caches.put(connection, cache);
+        }
+        cache._maxSize = cacheSize;
+
+        CachedStatement statement = (CachedStatement)cache.get(sql);
+        if (statement != null && !statement._inUse)
+        {
+            _hitCount++;
+            statement._inUse = true;
+            return statement;
+        }
+
+        _missCount++;
+        IPreparedBatchStatement newStatement;
+        if (supportBatchStatement(connection))
+        {
+            newStatement = new PreparedBatchStatement(sql, jdbcConnection);
+        }
+        else
+        {
+            newStatement = new SimplePreparedStatement(sql, jdbcConnection);
+        }
+
+        if (statement != null)
+        {
+            // The cached statement is in use, e.g. by a concurrent operation
+            return newStatement;
+        }
+
+        statement = new CachedStatement(newStatement);
+        statement._inUse = true;
+        cache.put(sql, statement);
+        return statement;
+    }
+
+    private synchronized void release(CachedStatement statement) throws SQLException
+    {
+        if (!statement._inUse)
+        {
+            // Already released
+            return;
+        }
+        statement._inUse = false;
+        if (statement._evicted)
+        {
+            statement._statement.close();
+        }
+        else
+        {
+            statement._statement.clearBatch();
+        }
+    }
+
+    /**
+     * Closes all cached statements of the given connection.
+     * @param connection The connection
+     * @throws SQLException
+     */
+    public synchronized void invalidate(IDatabaseConnection connection) throws SQLException
+    {
+        logger.debug("invalidate(connection={}) - start", connection);
+
+        StatementCache cache = (StatementCache)_caches.remove(connection);
+        if (cache != null)
+        {
+            cache.closeAll();
+        }
+    }
+
+    /**
+     * @param connection The connection
+     * @return The number of statements currently cached for the given connection
+     */
+    public synchronized int getCachedStatementCount(IDatabaseConnection connection)
+    {
+        StatementCache cache = (StatementCache)_caches.get(connection);
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * @return The number of prepared statements that have been reused
+     */
+    public synchronized long getHitCount()
+    {
+        return _hitCount;
+    }
+
+    /**
+     * @return The number of prepared statements that had to be prepared
+     */
+    public synchronized long getMissCount()
+    {
+        return _missCount;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_hitCount=").append(_hitCount);
+        sb.append(", _missCount=").append(_missCount);
+        sb.append(", _caches.size()=").append(_caches.size());
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * LRU map of {@link CachedStatement}s by SQL for one JDBC connection.
+     */
+    private static class StatementCache extends LinkedHashMap
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Connection _connection;
+        private int _maxSize;
+
+        public StatementCache(Connection connection)
+        {
+            super(16, 0.75f, true);
+            _connection = connection;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest)
+        {
+            if (size() <= _maxSize)
+            {
+                return false;
+            }
+
+            CachedStatement statement = (CachedStatement)eldest.getValue();
+            statement._evicted = true;
+            if (!statement._inUse)
+            {
+                try
+                {
+                    statement._statement.close();
+                }
+                catch (SQLException e)
+                {
+                    logger.warn("Failed to close evicted statement " + eldest.getKey(), e);
+                }
+            }
+            return true;
+        }
+
+        public void closeAll() throws SQLException
+        {
+            List statements = new ArrayList(values());
+            clear();
+
+            SQLException exception = null;
+            for (Iterator it = statements.iterator(); it.hasNext();)
+            {
+                CachedStatement statement = (CachedStatement)it.next();
+                statement._evicted = true;
+                if (statement._inUse)
+                {
+                    // Closed when released
+                    continue;
+                }
+                try
+                {
+                    statement._statement.close();
+                }
+                catch (SQLException e)
+                {
+                    exception = e;
+                }
+            }
+            if (exception != null)
+            {
+                throw exception;
+            }
+        }
+    }
+
+
+    /**
+     * Statement whose {@link #close()} gives it back to the cache.
+     */
+    private class CachedStatement implements IPreparedBatchStatement
+    {
+        private final IPreparedBatchStatement _statement;
+        private boolean _inUse;
+        private boolean _evicted;
+
+        public CachedStatement(IPreparedBatchStatement statement)
+        {
+            _statement = statement;
+        }
+
+        public void addValue(Object value, DataType dataType)
+                throws TypeCastException, SQLException
+        {
+            _statement.addValue(value, dataType);
+        }
+
+        public void addBatch() throws SQLException
+        {
+            _statement.addBatch();
+        }
+
+        public int executeBatch() throws SQLException
+        {
+            return _statement.executeBatch();
+        }
+
+        public void clearBatch() throws SQLException
+        {
+            _statement.clearBatch();
+        }
+
+        public void close() throws SQLException
+        {
+            release(this);
+        }
+    }
+}
@@ -96,6 +96,7 @@ public class PreparedBatchStatement extends AbstractPreparedBatchStatement
     {
         logger.debug("clearBatch() - start");
         _statement.clearBatch();
+        _index = 0;
     }
 }
 
@@ -28,6 +28,9 @@ import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * @author Manuel Laflamme
@@ -42,6 +45,11 @@ public class PreparedStatementFactory extends AbstractStatementFactory
      */
     private static final Logger logger = LoggerFactory.getLogger(PreparedStatementFactory.class);
 
+    /**
+     * Maps of {@link AdaptiveBatchSize} by statement key, by {@link IDatabaseConnection}
+     */
+    private final Map _adaptiveBatchSizes = new WeakHashMap();
+
     public IBatchStatement createBatchStatement(IDatabaseConnection connection)
             throws SQLException
     {
@@ -66,8 +74,6 @@ public class PreparedStatementFactory extends AbstractStatementFactory
     		logger.debug("createPreparedBatchStatement(sql={}, connection={}) - start", sql, connection);
     	}
     	
-    	Integer batchSize = (Integer)connection.getConfig().getProperty(DatabaseConfig.PROPERTY_BATCH_SIZE);
-
         IPreparedBatchStatement statement = null;
         if (supportBatchStatement(connection))
         {
@@ -77,8 +83,116 @@ public class PreparedStatementFactory extends AbstractStatementFactory
         {
             statement = new SimplePreparedStatement(sql, connection.getConnection());
         }
+        return createAutomaticStatement(statement, sql, connection);
+    }
+
+    /**
+     * Decorates the given statement to execute its batch automatically each time
+     * the batch size is reached. The batch size is adapted per table and operation when
+     * {@link DatabaseConfig#FEATURE_ADAPTIVE_BATCH_SIZE} is enabled.
+     * @param statement The statement to decorate
+     * @param sql The SQL of the statement
+     * @param connection The connection the statement belongs to
+     * @return The decorated statement
+     * @since 2.4.8
+     */
+    protected IPreparedBatchStatement createAutomaticStatement(IPreparedBatchStatement statement,
+            String sql, IDatabaseConnection connection)
+    {
+        DatabaseConfig config = connection.getConfig();
+        if (config.getFeature(DatabaseConfig.FEATURE_ADAPTIVE_BATCH_SIZE))
+        {
+            return new AutomaticPreparedBatchStatement(statement,
+                    getAdaptiveBatchSize(sql, connection));
+        }
+
+        Integer batchSize = (Integer)config.getProperty(DatabaseConfig.PROPERTY_BATCH_SIZE);
         return new AutomaticPreparedBatchStatement(statement, batchSize.intValue());
     }
+
+    /**
+     * Returns the batch size learned so far for the table and operation of the given
+     * SQL statement on the given connection. Statements that only differ in their
+     * column lists, like inserts with different ignored columns, share the same
+     * batch size. It is kept as long as the connection is referenced.
+     * @param sql The SQL of the statement
+     * @param connection The connection
+     * @return The adaptive batch size
+     * @since 2.4.8
+     */
+    public synchronized AdaptiveBatchSize getAdaptiveBatchSize(String sql,
+            IDatabaseConnection connection)
+    {
+        Map batchSizes = (Map)_adaptiveBatchSizes.get(connection);
+        if (batchSizes == null)
+        {
+            batchSizes = new HashMap();
+            _adaptiveBatchSizes.put(connection, batchSizes);
+        }
+
+        String key = getStatementKey(sql);
+        AdaptiveBatchSize batchSize = (AdaptiveBatchSize)batchSizes.get(key);
+        if (batchSize == null)
+        {
+            DatabaseConfig config = connection.getConfig();
+            batchSize = new AdaptiveBatchSize(
+                    ((Integer)config.getProperty(DatabaseConfig.PROPERTY_BATCH_SIZE)).intValue(),
+                    ((Integer)config.getProperty(DatabaseConfig.PROPERTY_MIN_BATCH_SIZE)).intValue(),
+                    ((Integer)config.getProperty(DatabaseConfig.PROPERTY_MAX_BATCH_SIZE)).intValue());
+            batchSizes.put(key, batchSize);
+        }
+        return batchSize;
+    }
+
+    /**
+     * Returns the operation and table of the given SQL statement, for example
+     * <code>insert into SCHEMA.TABLE</code> for an insert statement. These are the
+     * leading words up to the table name, lower cased except for the table name.
+     * @param sql The SQL of the statement
+     * @return The key identifying the table and operation of the statement
+     */
+    static String getStatementKey(String sql)
+    {
+        StringBuffer key = new StringBuffer();
+        int index = 0;
+        int length = sql.length();
+        while (index < length)
+        {
+            while (index < length && Character.isWhitespace(sql.charAt(index)))
+            {
+                index++;
+            }
+            int start = index;
+            while (index < length && !Character.isWhitespace(sql.charAt(index))
+                    && sql.charAt(index) != '(')
+            {
+                index++;
+            }
+            if (start == index)
+            {
+                break;
+            }
+
+            String word = sql.substring(start, index);
+            String lowerWord = word.toLowerCase();
+            if (key.length() == 0)
+            {
+                // The operation
+                key.append(lowerWord);
+            }
+            else if (lowerWord.equals("into") || lowerWord.equals("from"))
+            {
+                key.append(' ').append(lowerWord);
+            }
+            else
+            {
+                // The table name
+                key.append(' ').append(word);
+                return key.toString();
+            }
+        }
+        return sql;
+    }
 }
 
 
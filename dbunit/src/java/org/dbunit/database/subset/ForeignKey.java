@@ -0,0 +1,224 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.util.QualifiedTableName;
+import org.dbunit.util.SQLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A foreign key with all its columns, as read from the imported or exported keys
+ * of the database metadata.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+class ForeignKey
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ForeignKey.class);
+
+    private final String _tableName;
+    private final String[] _columnNames;
+    private final String _referencedTableName;
+    private final String[] _referencedColumnNames;
+
+    /**
+     * @param tableName The referencing table
+     * @param columnNames The foreign key columns of the referencing table
+     * @param referencedTableName The referenced table
+     * @param referencedColumnNames The columns of the referenced table, in the same
+     * order as the foreign key columns
+     */
+    ForeignKey(String tableName, String[] columnNames, String referencedTableName,
+            String[] referencedColumnNames)
+    {
+        _tableName = tableName;
+        _columnNames = columnNames;
+        _referencedTableName = referencedTableName;
+        _referencedColumnNames = referencedColumnNames;
+    }
+
+    /**
+     * Reads the foreign keys of the given table.
+     * @return List of {@link ForeignKey}
+     */
+    static List getImportedKeys(IDatabaseConnection connection, String tableName)
+    throws SQLException
+    {
+        logger.debug("getImportedKeys(connection={}, tableName={}) - start", connection, tableName);
+
+        QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, connection.getSchema());
+        DatabaseMetaData metaData = connection.getConnection().getMetaData();
+        ResultSet resultSet = metaData.getImportedKeys(null, 
+                qualifiedTableName.getSchema(), qualifiedTableName.getTable());
+        return read(resultSet, connection.getConfig());
+    }
+
+    /**
+     * Reads the foreign keys referencing the given table.
+     * @return List of {@link ForeignKey}
+     */
+    static List getExportedKeys(IDatabaseConnection connection, String tableName)
+    throws SQLException
+    {
+        logger.debug("getExportedKeys(connection={}, tableName={}) - start", connection, tableName);
+
+        QualifiedTableName qualifiedTableName = new QualifiedTableName(tableName, connection.getSchema());
+        DatabaseMetaData metaData = connection.getConnection().getMetaData();
+        ResultSet resultSet = metaData.getExportedKeys(null, 
+                qualifiedTableName.getSchema(), qualifiedTableName.getTable());
+        return read(resultSet, connection.getConfig());
+    }
+
+    /**
+     * Groups the rows of an imported or exported keys result set by foreign key.
+     * The columns of a foreign key are ordered by their sequence number.
+     */
+    private static List read(ResultSet resultSet, DatabaseConfig config) throws SQLException
+    {
+        // Maps the foreign key to the TreeMap of its sequence number to column pair
+        Map columnsByKey = new LinkedHashMap();
+        Map tablesByKey = new LinkedHashMap();
+        try
+        {
+            while (resultSet.next())
+            {
+                String pkTable = new QualifiedTableName(resultSet.getString(3), resultSet.getString(2))
+                        .getQualifiedNameIfEnabled(config);
+                String fkTable = new QualifiedTableName(resultSet.getString(7), resultSet.getString(6))
+                        .getQualifiedNameIfEnabled(config);
+                String fkName = resultSet.getString(12);
+                // Without a name all columns referencing the same table form one key
+                List key = new ArrayList(3);
+                key.add(fkTable);
+                key.add(pkTable);
+                key.add(fkName);
+
+                TreeMap columns = (TreeMap)columnsByKey.get(key);
+                if (columns == null)
+                {
+                    columns = new TreeMap();
+                    columnsByKey.put(key, columns);
+                    tablesByKey.put(key, new String[] {fkTable, pkTable});
+                }
+                columns.put(new Integer(resultSet.getInt(9)), 
+                        new String[] {resultSet.getString(8), resultSet.getString(4)});
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet);
+        }
+
+        List foreignKeys = new ArrayList(columnsByKey.size());
+        for (Iterator it = columnsByKey.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            TreeMap columns = (TreeMap)entry.getValue();
+            String[] tables = (String[])tablesByKey.get(entry.getKey());
+
+            String[] columnNames = new String[columns.size()];
+            String[] referencedColumnNames = new String[columns.size()];
+            int i = 0;
+            for (Iterator it2 = columns.values().iterator(); it2.hasNext(); i++)
+            {
+                String[] pair = (String[])it2.next();
+                columnNames[i] = pair[0];
+                referencedColumnNames[i] = pair[1];
+            }
+            foreignKeys.add(new ForeignKey(tables[0], columnNames, tables[1], referencedColumnNames));
+        }
+        return foreignKeys;
+    }
+
+    String getTableName()
+    {
+        return _tableName;
+    }
+
+    String getReferencedTableName()
+    {
+        return _referencedTableName;
+    }
+
+    /**
+     * Returns the foreign key columns in the order of the given columns of the 
+     * referenced table.
+     * @param referencedColumnNames Column names of the referenced table, usually its
+     * primary key
+     * @return The foreign key columns or <code>null</code> if this foreign key does
+     * not reference exactly the given columns
+     */
+    String[] getColumnNames(String[] referencedColumnNames)
+    {
+        if (referencedColumnNames.length != _referencedColumnNames.length)
+        {
+            return null;
+        }
+
+        String[] columnNames = new String[referencedColumnNames.length];
+        for (int i = 0; i < referencedColumnNames.length; i++)
+        {
+            for (int j = 0; j < _referencedColumnNames.length; j++)
+            {
+                if (_referencedColumnNames[j].equalsIgnoreCase(referencedColumnNames[i]))
+                {
+                    columnNames[i] = _columnNames[j];
+                    break;
+                }
+            }
+            if (columnNames[i] == null)
+            {
+                return null;
+            }
+        }
+        return columnNames;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(_tableName).append(Arrays.asList(_columnNames));
+        sb.append("->");
+        sb.append(_referencedTableName).append(Arrays.asList(_referencedColumnNames));
+        return sb.toString();
+    }
+}
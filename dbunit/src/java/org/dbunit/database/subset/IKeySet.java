@@ -0,0 +1,74 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Insertion ordered set of the primary keys of one table, used by the
+ * {@link SubsetExtractor} to remember the rows that belong to a subset.
+ * The key of a table with a single primary key column is the value of that
+ * column, the key of a table with a composite primary key is an <code>Object[]</code>
+ * holding the values in the order of the primary key columns.
+ * <p>
+ * Keys are converted to the type of the primary key columns when they are added,
+ * so that values read from a foreign key column match the values of the primary key.
+ * Because the keys are never removed, the keys added since a given index can be
+ * retrieved using {@link #get(int)}.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public interface IKeySet
+{
+    /**
+     * Adds the given key to this set.
+     * @param key The key to be added
+     * @return <code>true</code> if the key was not yet contained in this set
+     * @throws TypeCastException if the key cannot be converted to the type of the
+     * primary key
+     */
+    public boolean add(Object key) throws TypeCastException;
+
+    /**
+     * @param key The key to be checked
+     * @return <code>true</code> if the given key is contained in this set
+     * @throws TypeCastException if the key cannot be converted to the type of the
+     * primary key
+     */
+    public boolean contains(Object key) throws TypeCastException;
+
+    /**
+     * @return The number of keys in this set
+     */
+    public int size();
+
+    /**
+     * Returns the key that has been added at the given position.
+     * @param index The position of the key, between <code>0</code> and 
+     * <code>size() - 1</code>
+     * @return The key. The arrays of composite keys must not be modified.
+     */
+    public Object get(int index);
+}
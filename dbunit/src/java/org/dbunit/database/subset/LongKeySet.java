@@ -0,0 +1,257 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Key set for tables with a single integral primary key column. The keys are kept
+ * as primitive <code>long</code> values in an array and are indexed by an open 
+ * addressing hash table, which takes about 16 bytes per key instead of the more than 
+ * 50 bytes of a <code>java.util.HashSet</code> holding <code>Long</code> objects.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class LongKeySet implements IKeySet
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys in insertion order
+     */
+    private long[] _values;
+    /**
+     * Hash table of the position of the keys in {@link #_values} plus one, 
+     * <code>0</code> marks a free slot. Its length is a power of two.
+     */
+    private int[] _slots;
+    private int _size;
+
+    public LongKeySet()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity The number of keys that can be added before the 
+     * internal arrays have to grow
+     */
+    public LongKeySet(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("The parameter 'initialCapacity' must not be negative but is " 
+                    + initialCapacity);
+        }
+
+        int slotCount = DEFAULT_CAPACITY;
+        while (slotCount < initialCapacity * 2)
+        {
+            slotCount <<= 1;
+        }
+        _values = new long[Math.max(initialCapacity, 1)];
+        _slots = new int[slotCount];
+    }
+
+    /**
+     * Adds the given key to this set.
+     * @param value The key to be added
+     * @return <code>true</code> if the key was not yet contained in this set
+     */
+    public boolean add(long value)
+    {
+        int slot = findSlot(value);
+        if (_slots[slot] != 0)
+        {
+            return false;
+        }
+
+        if (_size == _values.length)
+        {
+            long[] values = new long[_size + (_size >> 1) + 1];
+            System.arraycopy(_values, 0, values, 0, _size);
+            _values = values;
+        }
+        _values[_size++] = value;
+        _slots[slot] = _size;
+
+        if (_size * 2 > _slots.length)
+        {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param value The key to be checked
+     * @return <code>true</code> if the given key is contained in this set
+     */
+    public boolean contains(long value)
+    {
+        return _slots[findSlot(value)] != 0;
+    }
+
+    /**
+     * @param index The position of the key, between <code>0</code> and 
+     * <code>size() - 1</code>
+     * @return The key that has been added at the given position
+     */
+    public long getLong(int index)
+    {
+        if (index < 0 || index >= _size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " but size is " + _size);
+        }
+        return _values[index];
+    }
+
+    /**
+     * @return The position of the slot holding the given value or of the free slot
+     * where it has to be inserted
+     */
+    private int findSlot(long value)
+    {
+        int mask = _slots.length - 1;
+        int slot = hash(value) & mask;
+        while (_slots[slot] != 0 && _values[_slots[slot] - 1] != value)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash()
+    {
+        int[] slots = new int[_slots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < _size; i++)
+        {
+            int slot = hash(_values[i]) & mask;
+            while (slots[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+        _slots = slots;
+    }
+
+    private static int hash(long value)
+    {
+        // Fibonacci hashing spreads sequential keys over the whole table
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Converts the given key to a <code>long</code>. Keys with a fraction or outside of
+     * the range of a <code>long</code> are rejected instead of being truncated, since
+     * they would otherwise be mistaken for another key.
+     */
+    private static long toLong(Object key) throws TypeCastException
+    {
+        if (key instanceof Long || key instanceof Integer 
+                || key instanceof Short || key instanceof Byte)
+        {
+            return ((Number)key).longValue();
+        }
+        if (key == null)
+        {
+            throw new TypeCastException(key, DataType.BIGINT_AUX_LONG);
+        }
+
+        BigDecimal value;
+        try
+        {
+            if (key instanceof BigDecimal)
+            {
+                value = (BigDecimal)key;
+            }
+            else if (key instanceof BigInteger)
+            {
+                value = new BigDecimal((BigInteger)key);
+            }
+            else
+            {
+                value = new BigDecimal(key.toString());
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new TypeCastException(key, DataType.BIGINT_AUX_LONG, e);
+        }
+
+        BigInteger integralValue;
+        try
+        {
+            integralValue = value.setScale(0, BigDecimal.ROUND_UNNECESSARY).toBigInteger();
+        }
+        catch (ArithmeticException e)
+        {
+            throw new TypeCastException(key, DataType.BIGINT_AUX_LONG, e);
+        }
+        if (integralValue.bitLength() > 63)
+        {
+            throw new TypeCastException(key, DataType.BIGINT_AUX_LONG);
+        }
+        return integralValue.longValue();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IKeySet interface
+
+    public boolean add(Object key) throws TypeCastException
+    {
+        return add(toLong(key));
+    }
+
+    public boolean contains(Object key) throws TypeCastException
+    {
+        return contains(toLong(key));
+    }
+
+    public int size()
+    {
+        return _size;
+    }
+
+    public Object get(int index)
+    {
+        return new Long(getLong(index));
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("size=").append(_size);
+        sb.append(", capacity=").append(_values.length);
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Key set for tables with a composite or non integral primary key. Every key is 
+ * converted using the {@link DataType} of the corresponding primary key column.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ObjectKeySet implements IKeySet
+{
+    private final DataType[] _dataTypes;
+    /**
+     * The normalized keys in insertion order
+     */
+    private final List _keys = new ArrayList();
+    private final Set _keySet = new HashSet();
+
+    /**
+     * @param dataTypes The data types of the primary key columns
+     */
+    public ObjectKeySet(DataType[] dataTypes)
+    {
+        if (dataTypes == null || dataTypes.length == 0)
+        {
+            throw new IllegalArgumentException("The parameter 'dataTypes' must not be null or empty");
+        }
+        _dataTypes = dataTypes;
+    }
+
+    /**
+     * Converts the given key to the types of the primary key columns. Composite keys
+     * are wrapped into a {@link CompositeKey}.
+     */
+    private Object normalize(Object key) throws TypeCastException
+    {
+        if (_dataTypes.length == 1)
+        {
+            return normalize(_dataTypes[0], key);
+        }
+
+        if (!(key instanceof Object[]) || ((Object[])key).length != _dataTypes.length)
+        {
+            throw new IllegalArgumentException("Expected a key of " + _dataTypes.length 
+                    + " values but got " + key);
+        }
+        Object[] values = (Object[])key;
+        Object[] normalized = new Object[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            normalized[i] = normalize(_dataTypes[i], values[i]);
+        }
+        return new CompositeKey(normalized);
+    }
+
+    private static Object normalize(DataType dataType, Object value) throws TypeCastException
+    {
+        Object result = dataType.typeCast(value);
+        if (result instanceof BigDecimal)
+        {
+            // BigDecimal.equals() respects the scale, 1 and 1.0 must be the same key
+            BigDecimal decimal = (BigDecimal)result;
+            BigDecimal integral = decimal.setScale(0, BigDecimal.ROUND_DOWN);
+            if (integral.compareTo(decimal) == 0)
+            {
+                return integral;
+            }
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IKeySet interface
+
+    public boolean add(Object key) throws TypeCastException
+    {
+        Object normalized = normalize(key);
+        if (_keySet.add(normalized))
+        {
+            _keys.add(normalized);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(Object key) throws TypeCastException
+    {
+        return _keySet.contains(normalize(key));
+    }
+
+    public int size()
+    {
+        return _keys.size();
+    }
+
+    public Object get(int index)
+    {
+        Object key = _keys.get(index);
+        if (key instanceof CompositeKey)
+        {
+            return ((CompositeKey)key)._values;
+        }
+        return key;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("size=").append(_keys.size());
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+
+    /**
+     * Value object for the values of a composite primary key
+     */
+    private static class CompositeKey
+    {
+        private final Object[] _values;
+        private final int _hashCode;
+
+        public CompositeKey(Object[] values)
+        {
+            _values = values;
+            int hashCode = 1;
+            for (int i = 0; i < values.length; i++)
+            {
+                hashCode = 31 * hashCode + (values[i] == null ? 0 : values[i].hashCode());
+            }
+            _hashCode = hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof CompositeKey))
+            {
+                return false;
+            }
+            Object[] values = ((CompositeKey)o)._values;
+            for (int i = 0; i < _values.length; i++)
+            {
+                if (_values[i] == null ? values[i] != null : !_values[i].equals(values[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int hashCode()
+        {
+            return _hashCode;
+        }
+    }
+}
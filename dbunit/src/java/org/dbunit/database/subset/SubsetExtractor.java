@@ -0,0 +1,1052 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.database.CyclicTablesDependencyException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.search.ForeignKeyGraph;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.util.QualifiedTableName;
+import org.dbunit.util.SQLHelper;
+import org.dbunit.util.concurrent.LinkedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts a referentially complete subset of the database and streams it into an
+ * {@link IDataSetConsumer}, for example a {@link org.dbunit.dataset.xml.FlatXmlWriter}.
+ * <p>
+ * The subset starts with the rows of one or more root tables, given either by their
+ * primary keys or by a condition with an optional row limit. All rows referenced by
+ * the selected rows via foreign keys are added as well and, if reverse dependencies
+ * are enabled, all rows referencing the selected rows, until no new row is found.
+ * Composite primary and foreign keys are supported. Every table reached by the search
+ * must have a primary key, otherwise the search fails with a {@link NoPrimaryKeyException}
+ * since the subset could not be complete. Unlike the {@link 
+ * org.dbunit.database.PrimaryKeyFilter} the rows are never loaded into an 
+ * {@link org.dbunit.dataset.ITable}.
+ * </p>
+ * <p>
+ * Only the primary keys of the selected rows are kept in memory: tables with a single
+ * integral primary key column use a {@link LongKeySet}, all others an {@link ObjectKeySet}.
+ * The rows are queried with <code>IN</code> lists of at most
+ * {@link DatabaseConfig#PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE} keys, both while searching
+ * and while writing, and are passed to the consumer one by one. The tables are written
+ * in the order of their dependencies.
+ * </p>
+ * <p>
+ * The search proceeds in rounds. In every round the foreign keys of all tables that
+ * received new keys in the previous round are followed. These scans are independent
+ * of each other and are distributed over the connections given by
+ * {@link #setConnections(IDatabaseConnection[])}, each one used by a single thread.
+ * </p>
+ * <pre>
+ * SubsetExtractor extractor = new SubsetExtractor(connection);
+ * extractor.addRoot("ORDERS", "ORDER_DATE &gt; '2009-01-01'", 1000);
+ * extractor.addRoot("CUSTOMER", new Object[] {new Integer(42)});
+ * extractor.extract(new FlatXmlWriter(new FileWriter("subset.xml")));
+ * </pre>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SubsetExtractor
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SubsetExtractor.class);
+
+    private final IDatabaseConnection _connection;
+    private IDatabaseConnection[] _connections;
+    private boolean _reverseDependency = false;
+
+    /**
+     * List of {@link Root}
+     */
+    private final List _roots = new ArrayList();
+
+    /**
+     * The {@link TableState} of the tables visited by the last search, keyed by 
+     * the (possibly upper-cased) table name
+     */
+    private final Map _tables = new LinkedHashMap();
+
+    /**
+     * @param connection The connection used to read the database metadata, to select
+     * the root rows and to write the subset. It is also used to search the subset 
+     * unless other connections are given.
+     */
+    public SubsetExtractor(IDatabaseConnection connection)
+    {
+        if (connection == null)
+        {
+            throw new NullPointerException("The parameter 'connection' must not be null");
+        }
+        _connection = connection;
+        _connections = new IDatabaseConnection[] {connection};
+    }
+
+    /**
+     * Sets the connections over which the scans of one search round are distributed.
+     * Every connection is used by one single thread at a time and is neither closed
+     * nor reconfigured.
+     * @param connections The connections, must see the same data as the connection
+     * given in the constructor
+     */
+    public void setConnections(IDatabaseConnection[] connections)
+    {
+        if (connections == null || connections.length == 0)
+        {
+            throw new IllegalArgumentException(
+                    "The parameter 'connections' must not be null or empty");
+        }
+        _connections = connections;
+    }
+
+    /**
+     * @param reverseDependency Whether or not the rows referencing a selected row 
+     * should be added to the subset as well. Defaults to <code>false</code>.
+     */
+    public void setReverseDependency(boolean reverseDependency)
+    {
+        _reverseDependency = reverseDependency;
+    }
+
+    /**
+     * Adds the rows with the given primary keys to the subset.
+     * @param tableName The root table
+     * @param keys The primary key values. A key of a composite primary key is an 
+     * <code>Object[]</code> holding the values in the order of the primary key columns.
+     */
+    public void addRoot(String tableName, Object[] keys)
+    {
+        if (tableName == null)
+        {
+            throw new NullPointerException("The parameter 'tableName' must not be null");
+        }
+        if (keys == null)
+        {
+            throw new NullPointerException("The parameter 'keys' must not be null");
+        }
+        _roots.add(new Root(tableName, keys, null, 0));
+    }
+
+    /**
+     * Adds the rows matching the given condition to the subset.
+     * @param tableName The root table
+     * @param whereClause The SQL condition selecting the rows, without the 
+     * <code>WHERE</code> keyword. <code>null</code> selects all rows.
+     * @param rowLimit The maximum number of rows selected from the root table, 
+     * <code>0</code> for no limit
+     */
+    public void addRoot(String tableName, String whereClause, int rowLimit)
+    {
+        if (tableName == null)
+        {
+            throw new NullPointerException("The parameter 'tableName' must not be null");
+        }
+        if (rowLimit < 0)
+        {
+            throw new IllegalArgumentException("The parameter 'rowLimit' must not be negative but is " 
+                    + rowLimit);
+        }
+        _roots.add(new Root(tableName, null, whereClause, rowLimit));
+    }
+
+    /**
+     * Searches the subset and writes it to the given consumer.
+     * @param consumer The consumer receiving the rows of the subset
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public void extract(IDataSetConsumer consumer) throws DataSetException, SQLException
+    {
+        logger.debug("extract(consumer={}) - start", consumer);
+
+        search();
+        write(consumer);
+    }
+
+    /**
+     * Searches the primary keys of all rows of the subset, starting from the roots.
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public void search() throws DataSetException, SQLException
+    {
+        logger.debug("search() - start");
+
+        _tables.clear();
+        for (Iterator it = _roots.iterator(); it.hasNext();)
+        {
+            Root root = (Root)it.next();
+            TableState state = getTableState(root._tableName);
+            if (state == null)
+            {
+                // Reports the missing table
+                _connection.createDataSet().getTableMetaData(root._tableName);
+                throw new NoSuchTableException(root._tableName);
+            }
+            if (root._keys != null)
+            {
+                for (int i = 0; i < root._keys.length; i++)
+                {
+                    state.add(root._keys[i]);
+                }
+            }
+            else
+            {
+                selectRootKeys(state, root);
+            }
+        }
+
+        int round = 0;
+        while (true)
+        {
+            List tasks = new ArrayList();
+            // Copy the states as following the foreign keys discovers new tables
+            List states = new ArrayList(_tables.values());
+            for (Iterator it = states.iterator(); it.hasNext();)
+            {
+                TableState state = (TableState)it.next();
+                int from = state._scannedCount;
+                int to = state.size();
+                if (from == to)
+                {
+                    continue;
+                }
+                state._scannedCount = to;
+
+                List edges = getEdges(state);
+                for (Iterator it2 = edges.iterator(); it2.hasNext();)
+                {
+                    addTasks(tasks, (Edge)it2.next(), from, to);
+                }
+            }
+
+            if (tasks.isEmpty())
+            {
+                break;
+            }
+            round++;
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Search round " + round + " with " + tasks.size() + " scans");
+            }
+            executeTasks(tasks);
+        }
+    }
+
+    /**
+     * Writes the rows of the subset found by the last {@link #search()} to the given
+     * consumer, one table after the other in the order of their dependencies.
+     * @param consumer The consumer receiving the rows of the subset
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public void write(final IDataSetConsumer consumer) throws DataSetException, SQLException
+    {
+        logger.debug("write(consumer={}) - start", consumer);
+
+        String[] tableNames = getTableNames();
+        consumer.startDataSet();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            TableState state = (TableState)_tables.get(getKey(tableNames[i]));
+            final Column[] columns = state._metaData.getColumns();
+            String[] columnNames = new String[columns.length];
+            for (int j = 0; j < columns.length; j++)
+            {
+                columnNames[j] = columns[j].getColumnName();
+            }
+
+            consumer.startTable(state._metaData);
+            scan(_connection, state._tableName, columnNames, state._primaryKeyNames, 
+                    state, 0, state.size(), new RowHandler()
+            {
+                public void handle(ResultSet resultSet) throws SQLException, DataSetException
+                {
+                    Object[] values = new Object[columns.length];
+                    for (int j = 0; j < columns.length; j++)
+                    {
+                        values[j] = columns[j].getDataType().getSqlValue(j + 1, resultSet);
+                    }
+                    consumer.row(values);
+                }
+            });
+            consumer.endTable();
+        }
+        consumer.endDataSet();
+    }
+
+    /**
+     * @return The names of the tables with at least one row in the subset found by
+     * the last {@link #search()}, in the order of their dependencies if they do not
+     * contain a cycle
+     * @throws DataSetException
+     * @throws SQLException
+     */
+    public String[] getTableNames() throws DataSetException, SQLException
+    {
+        List tableNames = new ArrayList(_tables.size());
+        for (Iterator it = _tables.values().iterator(); it.hasNext();)
+        {
+            TableState state = (TableState)it.next();
+            if (state.size() > 0)
+            {
+                tableNames.add(state._tableName);
+            }
+        }
+
+        String[] result = (String[])tableNames.toArray(new String[0]);
+        try
+        {
+            return ForeignKeyGraph.getGraph(_connection).sort(result);
+        }
+        catch (CyclicTablesDependencyException e)
+        {
+            logger.warn("The tables of the subset are written in the order they have been found: " 
+                    + e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * @param tableName The table name
+     * @return The primary keys of the rows of the given table in the subset found by the
+     * last {@link #search()} or <code>null</code> if the table has not been visited
+     */
+    public IKeySet getKeys(String tableName)
+    {
+        TableState state = (TableState)_tables.get(getKey(tableName));
+        return state == null ? null : state._keys;
+    }
+
+    private String getKey(String tableName)
+    {
+        boolean caseSensitive = _connection.getConfig().getFeature(
+                DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES);
+        return caseSensitive ? tableName : tableName.toUpperCase();
+    }
+
+    /**
+     * Returns the state of the given table, creating it on the first call.
+     * @return The state or <code>null</code> if the table does not exist in the
+     * connection's schema
+     * @throws NoPrimaryKeyException if the table does not have a primary key. Its rows
+     * could neither be tracked nor be left out without breaking the subset.
+     */
+    private TableState getTableState(String tableName) throws DataSetException, SQLException
+    {
+        String key = getKey(tableName);
+        if (_tables.containsKey(key))
+        {
+            return (TableState)_tables.get(key);
+        }
+
+        TableState state = null;
+        try
+        {
+            ITableMetaData metaData = _connection.createDataSet().getTableMetaData(tableName);
+            if (metaData.getPrimaryKeys().length == 0)
+            {
+                throw new NoPrimaryKeyException("The rows of table '" + tableName 
+                        + "' cannot be part of the subset since it has no primary key");
+            }
+            state = new TableState(metaData);
+        }
+        catch (NoSuchTableException e)
+        {
+            logger.warn("The table '" + tableName + "' is not part of the schema '" 
+                    + _connection.getSchema() + "' and is ignored");
+        }
+        _tables.put(key, state);
+        return state;
+    }
+
+    /**
+     * Returns the foreign keys to follow from the given table, reading them on the first call.
+     * @return List of {@link Edge}
+     */
+    private List getEdges(TableState state) throws DataSetException, SQLException
+    {
+        if (state._edges != null)
+        {
+            return state._edges;
+        }
+
+        List edges = new ArrayList();
+        List importedKeys = ForeignKey.getImportedKeys(_connection, state._tableName);
+        for (Iterator it = importedKeys.iterator(); it.hasNext();)
+        {
+            ForeignKey foreignKey = (ForeignKey)it.next();
+            TableState target = getTableState(foreignKey.getReferencedTableName());
+            if (target == null)
+            {
+                continue;
+            }
+            String[] columnNames = foreignKey.getColumnNames(target._primaryKeyNames);
+            if (columnNames == null)
+            {
+                logger.warn("The foreign key " + foreignKey 
+                        + " does not reference the primary key and is ignored");
+                continue;
+            }
+            edges.add(new Edge(state._tableName, columnNames, state._primaryKeyNames, 
+                    state, target));
+        }
+
+        if (_reverseDependency)
+        {
+            List exportedKeys = ForeignKey.getExportedKeys(_connection, state._tableName);
+            for (Iterator it = exportedKeys.iterator(); it.hasNext();)
+            {
+                ForeignKey foreignKey = (ForeignKey)it.next();
+                TableState target = getTableState(foreignKey.getTableName());
+                if (target == null)
+                {
+                    continue;
+                }
+                String[] columnNames = foreignKey.getColumnNames(state._primaryKeyNames);
+                if (columnNames == null)
+                {
+                    logger.warn("The foreign key " + foreignKey 
+                            + " does not reference the primary key and is ignored");
+                    continue;
+                }
+                edges.add(new Edge(target._tableName, target._primaryKeyNames, columnNames, 
+                        state, target));
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Following " + edges.size() + " foreign keys from table " + state._tableName);
+        }
+        state._edges = edges;
+        return edges;
+    }
+
+    private void selectRootKeys(TableState state, Root root) throws DataSetException, SQLException
+    {
+        logger.debug("selectRootKeys(state={}, root={}) - start", state, root);
+
+        StringBuffer sqlBuffer = new StringBuffer(128);
+        sqlBuffer.append("select ");
+        appendColumnNames(sqlBuffer, state._primaryKeyNames);
+        sqlBuffer.append(" from ").append(getQualifiedName(state._tableName));
+        if (root._whereClause != null)
+        {
+            sqlBuffer.append(" where ").append(root._whereClause);
+        }
+        String sql = sqlBuffer.toString();
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("SQL: " + sql);
+        }
+
+        Statement statement = _connection.getConnection().createStatement();
+        ResultSet resultSet = null;
+        try
+        {
+            if (root._rowLimit > 0)
+            {
+                statement.setMaxRows(root._rowLimit);
+            }
+            resultSet = statement.executeQuery(sql);
+            int count = 0;
+            while ((root._rowLimit == 0 || count < root._rowLimit) && resultSet.next())
+            {
+                Object key = readKey(resultSet, state._primaryKeyNames.length);
+                if (key != null)
+                {
+                    state.add(key);
+                    count++;
+                }
+            }
+        }
+        finally
+        {
+            SQLHelper.close(resultSet, statement);
+        }
+    }
+
+    /**
+     * Splits the scan of the given keys along the given edge into at most one task per
+     * connection.
+     */
+    private void addTasks(List tasks, Edge edge, int from, int to)
+    {
+        int chunkSize = getChunkSize(edge._whereColumnNames.length);
+        int chunkCount = (to - from + chunkSize - 1) / chunkSize;
+        int taskCount = Math.min(_connections.length, chunkCount);
+        int chunksPerTask = (chunkCount + taskCount - 1) / taskCount;
+        for (int start = from; start < to; start += chunksPerTask * chunkSize)
+        {
+            tasks.add(new Task(edge, start, Math.min(to, start + chunksPerTask * chunkSize)));
+        }
+    }
+
+    private void executeTasks(List tasks) throws DataSetException, SQLException
+    {
+        LinkedQueue queue = new LinkedQueue();
+        for (Iterator it = tasks.iterator(); it.hasNext();)
+        {
+            // LinkedQueue is unbounded and therefore never blocks on put
+            try
+            {
+                queue.put(it.next());
+            }
+            catch (InterruptedException e)
+            {
+                throw new IllegalStateException("Unexpected interruption on unbounded queue: " + e);
+            }
+        }
+
+        int workerCount = Math.min(_connections.length, tasks.size());
+        Worker[] workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers[i] = new Worker(queue, _connections[i]);
+        }
+
+        if (workerCount == 1)
+        {
+            // No need to pay for a thread
+            workers[0].run();
+        }
+        else
+        {
+            Thread[] threads = new Thread[workerCount];
+            for (int i = 0; i < workerCount; i++)
+            {
+                threads[i] = new Thread(workers[i], "SubsetExtractor-" + i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+            for (int i = 0; i < workerCount; i++)
+            {
+                try
+                {
+                    threads[i].join();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new DataSetException("Interrupted while waiting for the worker thread " 
+                            + threads[i], e);
+                }
+            }
+        }
+
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers[i].rethrow();
+        }
+    }
+
+    /**
+     * Selects the given columns of the rows whose <code>whereColumnNames</code> match the
+     * keys of <code>source</code> between <code>from</code> and <code>to</code>, using 
+     * one <code>IN</code> list per chunk of keys.
+     */
+    private void scan(IDatabaseConnection connection, String tableName, String[] selectColumnNames,
+            String[] whereColumnNames, TableState source, int from, int to, RowHandler handler)
+    throws DataSetException, SQLException
+    {
+        int chunkSize = getChunkSize(whereColumnNames.length);
+        DataType[] dataTypes = source._dataTypes;
+
+        StringBuffer sqlBuffer = new StringBuffer(128);
+        sqlBuffer.append("select ");
+        appendColumnNames(sqlBuffer, selectColumnNames);
+        sqlBuffer.append(" from ").append(getQualifiedName(tableName));
+        sqlBuffer.append(" where ");
+        String sql = sqlBuffer.toString();
+
+        Connection jdbcConnection = connection.getConnection();
+        PreparedStatement statement = null;
+        PreparedStatement lastStatement = null;
+        try
+        {
+            for (int start = from; start < to; start += chunkSize)
+            {
+                Object[] keys = source.getKeys(start, Math.min(to, start + chunkSize));
+                PreparedStatement currentStatement;
+                if (keys.length == chunkSize)
+                {
+                    // all full chunks share the same statement
+                    if (statement == null)
+                    {
+                        statement = prepareStatement(jdbcConnection, sql, whereColumnNames, chunkSize);
+                    }
+                    currentStatement = statement;
+                }
+                else
+                {
+                    lastStatement = prepareStatement(jdbcConnection, sql, whereColumnNames, keys.length);
+                    currentStatement = lastStatement;
+                }
+
+                int index = 1;
+                for (int i = 0; i < keys.length; i++)
+                {
+                    if (dataTypes.length == 1)
+                    {
+                        dataTypes[0].setSqlValue(keys[i], index++, currentStatement);
+                    }
+                    else
+                    {
+                        Object[] values = (Object[])keys[i];
+                        for (int j = 0; j < dataTypes.length; j++)
+                        {
+                            dataTypes[j].setSqlValue(values[j], index++, currentStatement);
+                        }
+                    }
+                }
+
+                ResultSet resultSet = currentStatement.executeQuery();
+                try
+                {
+                    while (resultSet.next())
+                    {
+                        handler.handle(resultSet);
+                    }
+                }
+                finally
+                {
+                    SQLHelper.close(resultSet);
+                }
+            }
+        }
+        finally
+        {
+            SQLHelper.close(lastStatement);
+            SQLHelper.close(statement);
+        }
+    }
+
+    /**
+     * Prepares the given query restricted by a condition matching <code>keyCount</code> keys,
+     * i.e. <code>c IN (?, ?, ...)</code> for a single column or 
+     * <code>(c1 = ? AND c2 = ?) OR ...</code> for several columns.
+     */
+    private PreparedStatement prepareStatement(Connection jdbcConnection, String sql, 
+            String[] columnNames, int keyCount) throws SQLException
+    {
+        String[] qualifiedColumnNames = new String[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            qualifiedColumnNames[i] = getQualifiedColumnName(columnNames[i]);
+        }
+
+        StringBuffer sqlBuffer = new StringBuffer(sql.length() + keyCount * 4 * columnNames.length + 16);
+        sqlBuffer.append(sql);
+        if (columnNames.length == 1)
+        {
+            sqlBuffer.append(qualifiedColumnNames[0]).append(" in (");
+            for (int i = 0; i < keyCount; i++)
+            {
+                if (i > 0)
+                {
+                    sqlBuffer.append(", ");
+                }
+                sqlBuffer.append('?');
+            }
+            sqlBuffer.append(')');
+        }
+        else
+        {
+            for (int i = 0; i < keyCount; i++)
+            {
+                sqlBuffer.append(i > 0 ? " or (" : "(");
+                for (int j = 0; j < columnNames.length; j++)
+                {
+                    if (j > 0)
+                    {
+                        sqlBuffer.append(" and ");
+                    }
+                    sqlBuffer.append(qualifiedColumnNames[j]).append(" = ?");
+                }
+                sqlBuffer.append(')');
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("SQL: " + sqlBuffer);
+        }
+        return jdbcConnection.prepareStatement(sqlBuffer.toString());
+    }
+
+    /**
+     * @return The key of the current row, read from the first <code>columnCount</code>
+     * columns, or <code>null</code> if one of them is <code>null</code>
+     */
+    private static Object readKey(ResultSet resultSet, int columnCount) throws SQLException
+    {
+        if (columnCount == 1)
+        {
+            return resultSet.getObject(1);
+        }
+
+        Object[] values = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++)
+        {
+            values[i] = resultSet.getObject(i + 1);
+            if (values[i] == null)
+            {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the maximum number of keys in one query, as configured by
+     * {@link DatabaseConfig#PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE} and bounded by
+     * {@link DatabaseConfig#PROPERTY_MAX_STATEMENT_PARAMETERS}.
+     */
+    private int getChunkSize(int columnCount)
+    {
+        DatabaseConfig config = _connection.getConfig();
+        int chunkSize = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE)).intValue();
+        int maxParameters = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_MAX_STATEMENT_PARAMETERS)).intValue();
+        return Math.max(1, Math.min(chunkSize, maxParameters / columnCount));
+    }
+
+    private void appendColumnNames(StringBuffer sqlBuffer, String[] columnNames)
+    {
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            if (i > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            sqlBuffer.append(getQualifiedColumnName(columnNames[i]));
+        }
+    }
+
+    private String getQualifiedName(String tableName)
+    {
+        String escapePattern = (String)_connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+        return new QualifiedTableName(tableName, _connection.getSchema(), escapePattern)
+                .getQualifiedName();
+    }
+
+    private String getQualifiedColumnName(String columnName)
+    {
+        String escapePattern = (String)_connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+        return new QualifiedTableName(columnName, null, escapePattern).getQualifiedName();
+    }
+
+    /**
+     * Creates the key set for the given primary key columns
+     */
+    static IKeySet createKeySet(Column[] primaryKeys)
+    {
+        if (primaryKeys.length == 1)
+        {
+            int sqlType = primaryKeys[0].getDataType().getSqlType();
+            if (sqlType == Types.TINYINT || sqlType == Types.SMALLINT 
+                    || sqlType == Types.INTEGER || sqlType == Types.BIGINT)
+            {
+                return new LongKeySet();
+            }
+        }
+
+        DataType[] dataTypes = new DataType[primaryKeys.length];
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            dataTypes[i] = primaryKeys[i].getDataType();
+        }
+        return new ObjectKeySet(dataTypes);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_connection=").append(_connection);
+        sb.append(", _connectionCount=").append(_connections.length);
+        sb.append(", _reverseDependency=").append(_reverseDependency);
+        sb.append(", _roots=").append(_roots);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+
+    /**
+     * Callback receiving the rows of a scan
+     */
+    private interface RowHandler
+    {
+        public void handle(ResultSet resultSet) throws SQLException, DataSetException;
+    }
+
+    private static class Root
+    {
+        private final String _tableName;
+        private final Object[] _keys;
+        private final String _whereClause;
+        private final int _rowLimit;
+
+        public Root(String tableName, Object[] keys, String whereClause, int rowLimit)
+        {
+            _tableName = tableName;
+            _keys = keys;
+            _whereClause = whereClause;
+            _rowLimit = rowLimit;
+        }
+
+        public String toString()
+        {
+            StringBuffer sb = new StringBuffer();
+            sb.append(_tableName);
+            if (_keys != null)
+            {
+                sb.append("[").append(_keys.length).append(" keys]");
+            }
+            else
+            {
+                sb.append("[where=").append(_whereClause);
+                sb.append(", rowLimit=").append(_rowLimit).append("]");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The keys found so far for one table. The keys are added by the worker threads 
+     * and are therefore only accessed while holding the lock of the state.
+     */
+    private static class TableState
+    {
+        private final String _tableName;
+        private final ITableMetaData _metaData;
+        private final String[] _primaryKeyNames;
+        private final DataType[] _dataTypes;
+        private final IKeySet _keys;
+        /**
+         * The number of keys whose foreign keys have already been followed
+         */
+        private int _scannedCount = 0;
+        /**
+         * List of {@link Edge}, read on demand
+         */
+        private List _edges;
+
+        public TableState(ITableMetaData metaData) throws DataSetException
+        {
+            _metaData = metaData;
+            _tableName = metaData.getTableName();
+            Column[] primaryKeys = metaData.getPrimaryKeys();
+            _primaryKeyNames = new String[primaryKeys.length];
+            _dataTypes = new DataType[primaryKeys.length];
+            for (int i = 0; i < primaryKeys.length; i++)
+            {
+                _primaryKeyNames[i] = primaryKeys[i].getColumnName();
+                _dataTypes[i] = primaryKeys[i].getDataType();
+            }
+            _keys = createKeySet(primaryKeys);
+        }
+
+        public synchronized boolean add(Object key) throws DataSetException
+        {
+            return _keys.add(key);
+        }
+
+        public synchronized int size()
+        {
+            return _keys.size();
+        }
+
+        public synchronized Object[] getKeys(int from, int to)
+        {
+            Object[] keys = new Object[to - from];
+            for (int i = from; i < to; i++)
+            {
+                keys[i - from] = _keys.get(i);
+            }
+            return keys;
+        }
+
+        public String toString()
+        {
+            return _tableName + "[" + _keys + "]";
+        }
+    }
+
+    /**
+     * A foreign key to follow: the keys of the source table select the rows of 
+     * <code>_tableName</code> whose <code>_whereColumnNames</code> match, and their
+     * <code>_selectColumnNames</code> are the new keys of the target table.
+     */
+    private static class Edge
+    {
+        private final String _tableName;
+        private final String[] _selectColumnNames;
+        private final String[] _whereColumnNames;
+        private final TableState _source;
+        private final TableState _target;
+
+        public Edge(String tableName, String[] selectColumnNames, String[] whereColumnNames,
+                TableState source, TableState target)
+        {
+            _tableName = tableName;
+            _selectColumnNames = selectColumnNames;
+            _whereColumnNames = whereColumnNames;
+            _source = source;
+            _target = target;
+        }
+    }
+
+    /**
+     * The scan of a range of the source keys of one edge
+     */
+    private static class Task
+    {
+        private final Edge _edge;
+        private final int _from;
+        private final int _to;
+
+        public Task(Edge edge, int from, int to)
+        {
+            _edge = edge;
+            _from = from;
+            _to = to;
+        }
+    }
+
+    /**
+     * Takes tasks from the shared queue and executes them using one single
+     * connection until the queue is empty.
+     */
+    private class Worker implements Runnable
+    {
+        private final LinkedQueue _queue;
+        private final IDatabaseConnection _workerConnection;
+        private Throwable _failure;
+
+        public Worker(LinkedQueue queue, IDatabaseConnection connection)
+        {
+            _queue = queue;
+            _workerConnection = connection;
+        }
+
+        public void run()
+        {
+            try
+            {
+                Task task;
+                while ((task = (Task)_queue.poll(0)) != null)
+                {
+                    final Edge edge = task._edge;
+                    final int columnCount = edge._selectColumnNames.length;
+                    scan(_workerConnection, edge._tableName, edge._selectColumnNames, 
+                            edge._whereColumnNames, edge._source, task._from, task._to, 
+                            new RowHandler()
+                    {
+                        public void handle(ResultSet resultSet) throws SQLException, DataSetException
+                        {
+                            Object key = readKey(resultSet, columnCount);
+                            if (key != null)
+                            {
+                                edge._target.add(key);
+                            }
+                        }
+                    });
+                }
+            }
+            catch (Throwable e)
+            {
+                _failure = e;
+                // Stop the other workers as soon as possible
+                drain();
+            }
+        }
+
+        private void drain()
+        {
+            try
+            {
+                while (_queue.poll(0) != null)
+                    ;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void rethrow() throws DataSetException, SQLException
+        {
+            if (_failure == null)
+            {
+                return;
+            }
+            if (_failure instanceof DataSetException)
+            {
+                throw (DataSetException)_failure;
+            }
+            if (_failure instanceof SQLException)
+            {
+                throw (SQLException)_failure;
+            }
+            if (_failure instanceof RuntimeException)
+            {
+                throw (RuntimeException)_failure;
+            }
+            if (_failure instanceof Error)
+            {
+                throw (Error)_failure;
+            }
+            throw new DataSetException(_failure);
+        }
+    }
+}
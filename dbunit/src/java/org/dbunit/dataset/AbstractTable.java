@@ -29,7 +29,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$
  * @since Feb 17, 2002
  */
-public abstract class AbstractTable implements ITable
+public abstract class AbstractTable implements IIndexedTable
 {
 
     /**
@@ -72,6 +72,18 @@ public abstract class AbstractTable implements ITable
         Columns.getColumnValidated(columnName, metaData.getColumns(), metaData.getTableName());
     }
 
+    /**
+     * Returns the value of the given column index by resolving the column name. Subclasses
+     * should override this with a more efficient direct access if possible.
+     * @see org.dbunit.dataset.IIndexedTable#getValue(int, int)
+     * @since 2.4.8
+     */
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        Column[] columns = getTableMetaData().getColumns();
+        return getValue(row, columns[column].getColumnName());
+    }
+
     protected int getColumnIndex(String columnName) throws DataSetException
     {
         logger.debug("getColumnIndex(columnName={}) - start", columnName);
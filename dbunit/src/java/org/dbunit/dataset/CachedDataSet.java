@@ -44,7 +44,12 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
 
     private OrderedTableNameMap _tables;
 
-    private DefaultTable _activeTable;
+    private ITable _activeTable;
+
+    /**
+     * Whether or not the tables are stored in {@link ColumnarTable}s
+     */
+    private boolean _columnar;
     
 
     /**
@@ -60,16 +65,31 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
      * Creates a copy of the specified dataset.
      */
     public CachedDataSet(IDataSet dataSet) throws DataSetException
+    {
+        this(dataSet, false);
+    }
+
+    /**
+     * Creates a copy of the specified dataset.
+     * @param dataSet The dataset to be copied
+     * @param columnar Whether or not the tables are stored in {@link ColumnarTable}s,
+     * which need less memory for large tables
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    public CachedDataSet(IDataSet dataSet, boolean columnar) throws DataSetException
     {
         super(dataSet.isCaseSensitiveTableNames());
 
         initialize();
+        _columnar = columnar;
 
         ITableIterator iterator = dataSet.iterator();
         while (iterator.next())
         {
             ITable table = iterator.getTable();
-            _tables.add(table.getTableMetaData().getTableName(), new CachedTable(table));
+            _tables.add(table.getTableMetaData().getTableName(),
+                    columnar ? (ITable)new ColumnarTable(table) : new CachedTable(table));
         }
     }
 
@@ -88,10 +108,26 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
      * @throws DataSetException
      */
     public CachedDataSet(IDataSetProducer producer, boolean caseSensitiveTableNames) throws DataSetException
+    {
+        this(producer, caseSensitiveTableNames, false);
+    }
+
+    /**
+     * Creates a CachedDataSet that synchronously consume the specified producer.
+     * @param producer
+     * @param caseSensitiveTableNames Whether or not case sensitive table names should be used
+     * @param columnar Whether or not the tables are stored in {@link ColumnarTable}s,
+     * which need less memory for large tables
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    public CachedDataSet(IDataSetProducer producer, boolean caseSensitiveTableNames,
+            boolean columnar) throws DataSetException
     {
         super(caseSensitiveTableNames);
         
         initialize();
+        _columnar = columnar;
 
         producer.setConsumer(this);
         producer.produce();
@@ -133,7 +169,7 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
     public void startTable(ITableMetaData metaData) throws DataSetException
     {
         logger.debug("startTable(metaData={}) - start", metaData);
-        _activeTable = new DefaultTable(metaData);
+        _activeTable = _columnar ? (ITable)new ColumnarTable(metaData) : new DefaultTable(metaData);
     }
 
     public void endTable() throws DataSetException
@@ -143,9 +179,16 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
         // Check whether the table appeared once before
         if(_tables.containsTable(tableName))
         {
-            DefaultTable existingTable = (DefaultTable)_tables.get(tableName);
+            ITable existingTable = (ITable)_tables.get(tableName);
             // Add all newly collected rows to the existing table
-            existingTable.addTableRows(_activeTable);
+            if (existingTable instanceof ColumnarTable)
+            {
+                ((ColumnarTable)existingTable).addTableRows(_activeTable);
+            }
+            else
+            {
+                ((DefaultTable)existingTable).addTableRows(_activeTable);
+            }
         }
         else
         {
@@ -157,6 +200,13 @@ public class CachedDataSet extends AbstractDataSet implements IDataSetConsumer
     public void row(Object[] values) throws DataSetException
     {
         logger.debug("row(values={}) - start", values);
-        _activeTable.addRow(values);
+        if (_activeTable instanceof ColumnarTable)
+        {
+            ((ColumnarTable)_activeTable).addRow(values);
+        }
+        else
+        {
+            ((DefaultTable)_activeTable).addRow(values);
+        }
     }
 }
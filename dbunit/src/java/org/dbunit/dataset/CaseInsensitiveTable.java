@@ -30,7 +30,7 @@ import org.slf4j.LoggerFactory;
  * @since Mar 27, 2002
  * @deprecated All IDataSet implementations are case insensitive since DbUnit 1.5
  */
-public class CaseInsensitiveTable implements ITable
+public class CaseInsensitiveTable implements IIndexedTable
 {
 
     /**
@@ -84,6 +84,14 @@ public class CaseInsensitiveTable implements ITable
 
         return _table.getValue(row, getInternalColumnName(column));
     }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        return IndexedTableAdapter.getIndexedTable(_table).getValue(row, column);
+    }
 }
 
 
@@ -32,7 +32,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$ $Date$
  * @since 2.4.0
  */
-public class ColumnFilterTable implements ITable 
+public class ColumnFilterTable implements IIndexedTable 
 {
     /** 
      * logger 
@@ -48,6 +48,7 @@ public class ColumnFilterTable implements ITable
      * The filtered table metadata
      */
     private final ITableMetaData tableMetaData;
+    private int[] originalColumnIndexes;
 
     
     /**
@@ -93,6 +94,18 @@ public class ColumnFilterTable implements ITable
         return this.originalTable.getValue(row, column);
     }
 
+    public Object getValue(int row, int column) throws DataSetException 
+    {
+        // Map the index of the filtered columns to the index of the original columns
+        if (this.originalColumnIndexes == null)
+        {
+            this.originalColumnIndexes = Columns.getColumnIndexes(
+                    this.originalTable.getTableMetaData(), this.tableMetaData.getColumns());
+        }
+        return IndexedTableAdapter.getIndexedTable(this.originalTable).getValue(
+                row, this.originalColumnIndexes[column]);
+    }
+
     public ITableMetaData getOriginalMetaData() 
     {
         logger.debug("getOriginalMetaData() - start");
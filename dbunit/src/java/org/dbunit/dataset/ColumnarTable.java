@@ -0,0 +1,741 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory table which stores its values per column instead of per row. Depending
+ * on the type class of the column {@link DataType} the values are held in primitive
+ * arrays, e.g. <code>int[]</code> for integers, unscaled <code>long</code> values
+ * for decimals, milliseconds and nanoseconds for timestamps and dictionary codes for
+ * strings, with a bitmap for the <code>null</code> values. Compared to the
+ * {@link DefaultTable}, which keeps an <code>Object[]</code> per row and a boxed
+ * object per value, this needs several times less memory for large tables.
+ * <p>
+ * The values are returned as objects of the same class and with the same value they
+ * have been added with, but not as the same instances. A column falls back to plain
+ * object storage as soon as a value is added that its primitive storage cannot
+ * represent exactly, e.g. a string in a numeric column or {@link ITable#NO_VALUE}.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ColumnarTable extends AbstractTable implements ICursorTable
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarTable.class);
+
+    private final ITableMetaData _metaData;
+    private final ColumnStore[] _stores;
+    private int _rowCount;
+
+    /**
+     * Creates a new empty table with specified metadata.
+     */
+    public ColumnarTable(ITableMetaData metaData) throws DataSetException
+    {
+        _metaData = metaData;
+        Column[] columns = metaData.getColumns();
+        _stores = new ColumnStore[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            _stores[i] = createStore(columns[i].getDataType());
+        }
+    }
+
+    /**
+     * Creates a copy of the specified table.
+     */
+    public ColumnarTable(ITable table) throws DataSetException
+    {
+        this(table.getTableMetaData());
+        addTableRows(table);
+    }
+
+    private static ColumnStore createStore(DataType dataType)
+    {
+        Class typeClass = dataType.getTypeClass();
+        if (typeClass == Integer.class)
+        {
+            return new IntStore();
+        }
+        if (typeClass == Long.class)
+        {
+            return new LongStore();
+        }
+        if (typeClass == BigInteger.class)
+        {
+            return new BigIntegerStore();
+        }
+        if (typeClass == Double.class)
+        {
+            return new DoubleStore();
+        }
+        if (typeClass == BigDecimal.class)
+        {
+            return new DecimalStore();
+        }
+        if (typeClass == Timestamp.class)
+        {
+            return new TimestampStore();
+        }
+        if (typeClass == java.sql.Date.class || typeClass == Time.class)
+        {
+            return new DateStore(typeClass);
+        }
+        // Values of unknown columns are usually strings read from a file
+        if (typeClass == String.class || typeClass == Object.class)
+        {
+            return new StringStore();
+        }
+        return new ObjectStore();
+    }
+
+    /**
+     * Inserts a new row initialized with specified array of values.
+     * @param values The array of values. Each value correspond to the column at the
+     * same index from {@link ITableMetaData#getColumns}.
+     * @see #getTableMetaData
+     */
+    public void addRow(Object[] values) throws DataSetException
+    {
+        logger.debug("addRow(values={}) - start", values);
+
+        if (values.length < _stores.length)
+        {
+            throw new IllegalArgumentException("The row has " + values.length
+                    + " values but the table '" + _metaData.getTableName() + "' has "
+                    + _stores.length + " columns");
+        }
+        for (int i = 0; i < _stores.length; i++)
+        {
+            if (!_stores[i].add(values[i]))
+            {
+                _stores[i] = new ObjectStore(_stores[i]);
+                _stores[i].add(values[i]);
+            }
+        }
+        _rowCount++;
+    }
+
+    /**
+     * Inserts all rows from the specified table.
+     * @param table The source table.
+     */
+    public void addTableRows(ITable table) throws DataSetException
+    {
+        logger.debug("addTableRows(table={}) - start", table);
+
+        Column[] columns = _metaData.getColumns();
+        if (columns.length <= 0)
+        {
+            logger.warn("The table '" + table + "' does not have any columns. Cannot add table rows. This should never happen...");
+            return;
+        }
+
+        int[] columnIndexes = Columns.getColumnIndexes(table.getTableMetaData(), columns);
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        Object[] rowValues = new Object[columns.length];
+        while (cursor.next())
+        {
+            for (int j = 0; j < columns.length; j++)
+            {
+                rowValues[j] = cursor.getValue(columnIndexes[j]);
+            }
+            addRow(rowValues);
+        }
+    }
+
+    /**
+     * Replaces the value at the specified position in this table with the specified value.
+     * @param row The row index
+     * @param column The column name
+     * @param value The value to store at the specified location
+     * @return the value previously at the specified location
+     * @throws RowOutOfBoundsException if the row index is out of range
+     * @throws NoSuchColumnException if the column does not exist
+     * @throws DataSetException if an unexpected error occurs
+     */
+    public Object setValue(int row, String column, Object value)
+            throws RowOutOfBoundsException, NoSuchColumnException, DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("setValue(row={}, column={}, value={}) - start", new Object[] {Integer.toString(row), column, value});
+
+        assertValidRowIndex(row);
+        int columnIndex = getColumnIndex(column);
+        Object oldValue = _stores[columnIndex].get(row);
+        if (!_stores[columnIndex].set(row, value))
+        {
+            _stores[columnIndex] = new ObjectStore(_stores[columnIndex]);
+            _stores[columnIndex].set(row, value);
+        }
+        return oldValue;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ITable interface
+
+    public ITableMetaData getTableMetaData()
+    {
+        return _metaData;
+    }
+
+    public int getRowCount()
+    {
+        return _rowCount;
+    }
+
+    public Object getValue(int row, String column) throws DataSetException
+    {
+        if(logger.isDebugEnabled())
+            logger.debug("getValue(row={}, column={}) - start", Integer.toString(row), column);
+
+        assertValidRowIndex(row);
+        return _stores[getColumnIndex(column)].get(row);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+        return _stores[column].get(row);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ICursorTable interface
+
+    public ITableCursor createCursor()
+    {
+        return new ColumnCursor();
+    }
+
+    /**
+     * Cursor directly accessing the column stores of this table.
+     */
+    private class ColumnCursor implements ITableCursor
+    {
+        private int _row = -1;
+
+        public boolean next()
+        {
+            if (_row + 1 >= _rowCount)
+            {
+                _row = _rowCount;
+                return false;
+            }
+            _row++;
+            return true;
+        }
+
+        public int getRow()
+        {
+            return _row;
+        }
+
+        public Object getValue(int column) throws DataSetException
+        {
+            if (_row < 0 || _row >= _rowCount)
+            {
+                throw new RowOutOfBoundsException(_row + " is not a valid row");
+            }
+            return _stores[column].get(_row);
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_metaData=").append(this._metaData == null ? "null" : this._metaData.toString());
+        sb.append(", _rowCount=").append(_rowCount);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Column stores
+
+    /**
+     * The values of one column.
+     */
+    private static abstract class ColumnStore
+    {
+        /**
+         * Appends the given value.
+         * @return <code>false</code> if the value cannot be stored, in which case
+         * nothing has been changed
+         */
+        abstract boolean add(Object value);
+
+        /**
+         * Replaces the value of the given row.
+         * @return <code>false</code> if the value cannot be stored, in which case
+         * nothing has been changed
+         */
+        abstract boolean set(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract int size();
+    }
+
+    /**
+     * Column of plain objects, used for all values which cannot be stored in a more
+     * compact way.
+     */
+    private static class ObjectStore extends ColumnStore
+    {
+        private final List _values;
+
+        ObjectStore()
+        {
+            _values = new ArrayList();
+        }
+
+        /**
+         * Creates a copy of the given store.
+         */
+        ObjectStore(ColumnStore store)
+        {
+            int size = store.size();
+            _values = new ArrayList(size + 1);
+            for (int i = 0; i < size; i++)
+            {
+                _values.add(store.get(i));
+            }
+        }
+
+        boolean add(Object value)
+        {
+            _values.add(value);
+            return true;
+        }
+
+        boolean set(int row, Object value)
+        {
+            _values.set(row, value);
+            return true;
+        }
+
+        Object get(int row)
+        {
+            return _values.get(row);
+        }
+
+        int size()
+        {
+            return _values.size();
+        }
+    }
+
+    /**
+     * Column of primitive values with a bitmap for the <code>null</code> values.
+     */
+    private static abstract class PrimitiveStore extends ColumnStore
+    {
+        private final BitSet _nulls = new BitSet();
+        private int _size;
+
+        boolean add(Object value)
+        {
+            if (value != null && !accepts(value))
+            {
+                return false;
+            }
+            if (_size == capacity())
+            {
+                grow(Math.max(16, _size + (_size >> 1)));
+            }
+            if (value == null)
+            {
+                _nulls.set(_size);
+            }
+            else
+            {
+                store(_size, value);
+            }
+            _size++;
+            return true;
+        }
+
+        boolean set(int row, Object value)
+        {
+            if (value == null)
+            {
+                _nulls.set(row);
+                return true;
+            }
+            if (!accepts(value))
+            {
+                return false;
+            }
+            _nulls.clear(row);
+            store(row, value);
+            return true;
+        }
+
+        Object get(int row)
+        {
+            return _nulls.get(row) ? null : load(row);
+        }
+
+        int size()
+        {
+            return _size;
+        }
+
+        /**
+         * @return <code>true</code> if the given non-null value can be stored without
+         * changing its class or value
+         */
+        abstract boolean accepts(Object value);
+
+        abstract void store(int row, Object value);
+
+        abstract Object load(int row);
+
+        abstract int capacity();
+
+        /**
+         * Resizes the arrays to the given capacity, keeping their content.
+         */
+        abstract void grow(int capacity);
+    }
+
+    private static class IntStore extends PrimitiveStore
+    {
+        private int[] _values = new int[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Integer.class;
+        }
+
+        void store(int row, Object value)
+        {
+            _values[row] = ((Integer)value).intValue();
+        }
+
+        Object load(int row)
+        {
+            return new Integer(_values[row]);
+        }
+
+        final void storeInt(int row, int value)
+        {
+            _values[row] = value;
+        }
+
+        final int loadInt(int row)
+        {
+            return _values[row];
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void grow(int capacity)
+        {
+            int[] values = new int[capacity];
+            System.arraycopy(_values, 0, values, 0, _values.length);
+            _values = values;
+        }
+    }
+
+    private static class LongStore extends PrimitiveStore
+    {
+        private long[] _values = new long[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Long.class;
+        }
+
+        void store(int row, Object value)
+        {
+            _values[row] = ((Long)value).longValue();
+        }
+
+        Object load(int row)
+        {
+            return new Long(_values[row]);
+        }
+
+        final void storeLong(int row, long value)
+        {
+            _values[row] = value;
+        }
+
+        final long loadLong(int row)
+        {
+            return _values[row];
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void grow(int capacity)
+        {
+            long[] values = new long[capacity];
+            System.arraycopy(_values, 0, values, 0, _values.length);
+            _values = values;
+        }
+    }
+
+    /**
+     * Stores big integers which fit into a <code>long</code>.
+     */
+    private static class BigIntegerStore extends LongStore
+    {
+        boolean accepts(Object value)
+        {
+            return value.getClass() == BigInteger.class
+                    && ((BigInteger)value).bitLength() < 64;
+        }
+
+        void store(int row, Object value)
+        {
+            storeLong(row, ((BigInteger)value).longValue());
+        }
+
+        Object load(int row)
+        {
+            return BigInteger.valueOf(loadLong(row));
+        }
+    }
+
+    private static class DoubleStore extends PrimitiveStore
+    {
+        private double[] _values = new double[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Double.class;
+        }
+
+        void store(int row, Object value)
+        {
+            _values[row] = ((Double)value).doubleValue();
+        }
+
+        Object load(int row)
+        {
+            return new Double(_values[row]);
+        }
+
+        int capacity()
+        {
+            return _values.length;
+        }
+
+        void grow(int capacity)
+        {
+            double[] values = new double[capacity];
+            System.arraycopy(_values, 0, values, 0, _values.length);
+            _values = values;
+        }
+    }
+
+    /**
+     * Stores decimals as unscaled <code>long</code> value and scale.
+     */
+    private static class DecimalStore extends PrimitiveStore
+    {
+        private long[] _unscaledValues = new long[0];
+        private byte[] _scales = new byte[0];
+
+        boolean accepts(Object value)
+        {
+            if (value.getClass() != BigDecimal.class)
+            {
+                return false;
+            }
+            BigDecimal decimal = (BigDecimal)value;
+            return decimal.unscaledValue().bitLength() < 64
+                    && decimal.scale() >= Byte.MIN_VALUE && decimal.scale() <= Byte.MAX_VALUE;
+        }
+
+        void store(int row, Object value)
+        {
+            BigDecimal decimal = (BigDecimal)value;
+            _unscaledValues[row] = decimal.unscaledValue().longValue();
+            _scales[row] = (byte)decimal.scale();
+        }
+
+        Object load(int row)
+        {
+            return BigDecimal.valueOf(_unscaledValues[row], _scales[row]);
+        }
+
+        int capacity()
+        {
+            return _scales.length;
+        }
+
+        void grow(int capacity)
+        {
+            long[] unscaledValues = new long[capacity];
+            System.arraycopy(_unscaledValues, 0, unscaledValues, 0, _unscaledValues.length);
+            _unscaledValues = unscaledValues;
+            byte[] scales = new byte[capacity];
+            System.arraycopy(_scales, 0, scales, 0, _scales.length);
+            _scales = scales;
+        }
+    }
+
+    /**
+     * Stores timestamps as milliseconds and nanoseconds.
+     */
+    private static class TimestampStore extends LongStore
+    {
+        private int[] _nanos = new int[0];
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == Timestamp.class;
+        }
+
+        void store(int row, Object value)
+        {
+            Timestamp timestamp = (Timestamp)value;
+            storeLong(row, timestamp.getTime());
+            _nanos[row] = timestamp.getNanos();
+        }
+
+        Object load(int row)
+        {
+            Timestamp timestamp = new Timestamp(loadLong(row));
+            timestamp.setNanos(_nanos[row]);
+            return timestamp;
+        }
+
+        void grow(int capacity)
+        {
+            super.grow(capacity);
+            int[] nanos = new int[capacity];
+            System.arraycopy(_nanos, 0, nanos, 0, _nanos.length);
+            _nanos = nanos;
+        }
+    }
+
+    /**
+     * Stores dates and times as milliseconds.
+     */
+    private static class DateStore extends LongStore
+    {
+        private final Class _typeClass;
+
+        DateStore(Class typeClass)
+        {
+            _typeClass = typeClass;
+        }
+
+        boolean accepts(Object value)
+        {
+            return value.getClass() == _typeClass;
+        }
+
+        void store(int row, Object value)
+        {
+            storeLong(row, ((java.util.Date)value).getTime());
+        }
+
+        Object load(int row)
+        {
+            long time = loadLong(row);
+            if (_typeClass == Time.class)
+            {
+                return new Time(time);
+            }
+            return new java.sql.Date(time);
+        }
+    }
+
+    /**
+     * Stores strings as codes of a dictionary holding every distinct string once.
+     * Columns with mostly distinct strings fall back to the object storage since the
+     * dictionary would then need more memory than it saves.
+     */
+    private static class StringStore extends IntStore
+    {
+        /**
+         * The dictionary size from which on the ratio of distinct strings is checked
+         */
+        private static final int DICTIONARY_CHECK_SIZE = 4096;
+
+        private final Map _codes = new HashMap();
+        private final List _dictionary = new ArrayList();
+
+        boolean accepts(Object value)
+        {
+            if (value.getClass() != String.class)
+            {
+                return false;
+            }
+            int dictionarySize = _dictionary.size();
+            return dictionarySize < DICTIONARY_CHECK_SIZE || dictionarySize * 2 <= size()
+                    || _codes.containsKey(value);
+        }
+
+        void store(int row, Object value)
+        {
+            Integer code = (Integer)_codes.get(value);
+            if (code == null)
+            {
+                code = new Integer(_dictionary.size());
+                _codes.put(value, code);
+                _dictionary.add(value);
+            }
+            storeInt(row, code.intValue());
+        }
+
+        Object load(int row)
+        {
+            return _dictionary.get(loadInt(row));
+        }
+    }
+}
@@ -253,6 +253,26 @@ public class Columns
         return result;
     }
 
+    /**
+     * Returns the index of each of the given columns in the given table metadata.
+     * Useful to access the values of a table using {@link IIndexedTable#getValue(int, int)}.
+     * @param metaData The metadata in which the columns are looked up
+     * @param columns The columns whose indexes are resolved
+     * @return The column indexes, in the order of the given columns
+     * @throws NoSuchColumnException if one of the columns does not exist in the metadata
+     * @throws DataSetException
+     * @since 2.4.8
+     */
+    public static int[] getColumnIndexes(ITableMetaData metaData, Column[] columns)
+    throws DataSetException
+    {
+        int[] result = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            result[i] = metaData.getColumnIndex(columns[i].getColumnName());
+        }
+        return result;
+    }
+
     /**
      * Creates a pretty string representation of the given column names
      * @param columns The columns to be formatted
@@ -34,7 +34,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$
  * @since Feb 17, 2002
  */
-public class DefaultTable extends AbstractTable
+public class DefaultTable extends AbstractTable implements ICursorTable
 {
 
     /**
@@ -121,30 +121,23 @@ public class DefaultTable extends AbstractTable
     {
         logger.debug("addTableRows(table={}) - start", table);
 
-        try
+        Column[] columns = _metaData.getColumns();
+        if (columns.length <= 0)
         {
-            Column[] columns = _metaData.getColumns();
-            if (columns.length <= 0)
-            {
-            	logger.warn("The table '" + table + "' does not have any columns. Cannot add table rows. This should never happen...");
-            	return;
-            }
-            
-            for (int i = 0; ; i++)
-            {
-                Object[] rowValues = new Object[columns.length];
-                for (int j = 0; j < columns.length; j++)
-                {
-                    Column column = columns[j];
-                    rowValues[j] = table.getValue(i, column.getColumnName());
-                }
-                _rowList.add(rowValues);
-            }
+        	logger.warn("The table '" + table + "' does not have any columns. Cannot add table rows. This should never happen...");
+        	return;
         }
-        catch(RowOutOfBoundsException e)
+
+        int[] columnIndexes = Columns.getColumnIndexes(table.getTableMetaData(), columns);
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        while (cursor.next())
         {
-            // end of table
-        	// ignore error.
+            Object[] rowValues = new Object[columns.length];
+            for (int j = 0; j < columns.length; j++)
+            {
+                rowValues[j] = cursor.getValue(columnIndexes[j]);
+            }
+            _rowList.add(rowValues);
         }
     }
 
@@ -197,6 +190,60 @@ public class DefaultTable extends AbstractTable
         return rowValues[getColumnIndex(column)];
     }
 
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+
+        Object[] rowValues = (Object[])_rowList.get(row);
+        return rowValues[column];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ICursorTable interface
+
+    public ITableCursor createCursor()
+    {
+        return new RowListCursor();
+    }
+
+    /**
+     * Cursor directly accessing the row list of this table.
+     */
+    private class RowListCursor implements ITableCursor
+    {
+        private int _row = -1;
+        private Object[] _rowValues;
+
+        public boolean next()
+        {
+            if (_row + 1 >= _rowList.size())
+            {
+                _rowValues = null;
+                return false;
+            }
+            _row++;
+            _rowValues = (Object[])_rowList.get(_row);
+            return true;
+        }
+
+        public int getRow()
+        {
+            return _row;
+        }
+
+        public Object getValue(int column) throws DataSetException
+        {
+            if (_rowValues == null)
+            {
+                throw new RowOutOfBoundsException(_row + " is not a valid row");
+            }
+            return _rowValues[column];
+        }
+    }
+
     public String toString()
     {
     	StringBuffer sb = new StringBuffer();
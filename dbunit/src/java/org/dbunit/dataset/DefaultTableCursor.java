@@ -0,0 +1,179 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+/**
+ * Cursor for an arbitrary {@link ITable}. If the table knows its row count the
+ * cursor stops at the last row. Otherwise (forward only tables) it checks for the
+ * existence of the next row by accessing its first value.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class DefaultTableCursor implements ITableCursor
+{
+
+    private static final int UNKNOWN_ROW_COUNT = -1;
+
+    private final IIndexedTable _table;
+    private final int _rowCount;
+    private final boolean _reverse;
+    private int _row;
+
+    /**
+     * Creates a cursor moving from the first to the last row of the given table.
+     * @param table The table to iterate
+     */
+    public DefaultTableCursor(ITable table)
+    {
+        _table = IndexedTableAdapter.getIndexedTable(table);
+        _rowCount = getRowCount(table);
+        _reverse = false;
+        _row = -1;
+    }
+
+    /**
+     * Creates a cursor moving from the last to the first row of the given table.
+     * The table must support {@link ITable#getRowCount()}.
+     * @param table The table to iterate
+     * @param reverse Whether the rows are iterated in reverse order
+     */
+    public DefaultTableCursor(ITable table, boolean reverse)
+    {
+        _table = IndexedTableAdapter.getIndexedTable(table);
+        _reverse = reverse;
+        if (reverse)
+        {
+            _rowCount = table.getRowCount();
+            _row = _rowCount;
+        }
+        else
+        {
+            _rowCount = getRowCount(table);
+            _row = -1;
+        }
+    }
+
+    /**
+     * Returns the native cursor of the given table if it provides one, else
+     * a {@link DefaultTableCursor}.
+     * @param table The table to iterate
+     * @return The cursor positioned before the first row of the table
+     * @throws DataSetException
+     */
+    public static ITableCursor getCursor(ITable table) throws DataSetException
+    {
+        if (table instanceof ICursorTable)
+        {
+            return ((ICursorTable)table).createCursor();
+        }
+        return new DefaultTableCursor(table);
+    }
+
+    private static int getRowCount(ITable table)
+    {
+        try
+        {
+            return table.getRowCount();
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // Forward only table
+            return UNKNOWN_ROW_COUNT;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ITableCursor interface
+
+    public boolean next() throws DataSetException
+    {
+        if (_reverse)
+        {
+            if (_row <= 0)
+            {
+                _row = -1;
+                return false;
+            }
+            _row--;
+            return true;
+        }
+
+        int nextRow = _row + 1;
+        if (_rowCount == UNKNOWN_ROW_COUNT)
+        {
+            if (!exists(nextRow))
+            {
+                return false;
+            }
+        }
+        else if (nextRow >= _rowCount)
+        {
+            return false;
+        }
+        _row = nextRow;
+        return true;
+    }
+
+    private boolean exists(int row) throws DataSetException
+    {
+        // A table without columns is empty
+        if (_table.getTableMetaData().getColumns().length == 0)
+        {
+            return false;
+        }
+
+        try
+        {
+            _table.getValue(row, 0);
+            return true;
+        }
+        catch (RowOutOfBoundsException e)
+        {
+            return false;
+        }
+    }
+
+    public int getRow()
+    {
+        return _row;
+    }
+
+    public Object getValue(int column) throws DataSetException
+    {
+        return _table.getValue(_row, column);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_row=").append(_row);
+        sb.append(", _rowCount=").append(_rowCount);
+        sb.append(", _reverse=").append(_reverse);
+        sb.append(", _table=").append(_table);
+        sb.append("]");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+/**
+ * A table whose values can be accessed by column index. This avoids the column
+ * name lookup of {@link ITable#getValue(int, String)} for every single value
+ * when whole rows are processed.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ * @see IndexedTableAdapter#getIndexedTable(ITable)
+ */
+public interface IIndexedTable extends ITable
+{
+
+    /**
+     * Returns this table value for the specified row and column.
+     * @param row The row index, starting with 0
+     * @param column The index of the column in the columns of {@link #getTableMetaData()},
+     * starting with 0
+     * @return The value
+     *
+     * @throws RowOutOfBoundsException if specified row is less than zero or
+     * equals or greater than <code>getRowCount</code>
+     * @since 2.4.8
+     */
+    public Object getValue(int row, int column) throws DataSetException;
+
+}
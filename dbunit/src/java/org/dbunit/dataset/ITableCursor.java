@@ -0,0 +1,67 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+/**
+ * Forward only cursor over the rows of a table. Unlike iterating with
+ * {@link ITable#getValue(int, String)} until a {@link RowOutOfBoundsException}
+ * is thrown, the end of the table is reported by {@link #next()}.
+ * <pre>
+ * ITableCursor cursor = DefaultTableCursor.getCursor(table);
+ * while (cursor.next())
+ * {
+ *     Object value = cursor.getValue(0);
+ * }
+ * </pre>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ * @see DefaultTableCursor#getCursor(ITable)
+ */
+public interface ITableCursor
+{
+
+    /**
+     * Moves the cursor to the next row. The cursor initially is positioned
+     * before the first row.
+     * @return <code>true</code> if the new current row is valid,
+     * <code>false</code> if there are no more rows
+     * @throws DataSetException
+     */
+    public boolean next() throws DataSetException;
+
+    /**
+     * @return The index of the current row, starting with 0
+     */
+    public int getRow();
+
+    /**
+     * Returns the value of the current row for the specified column.
+     * @param column The index of the column in the columns of the table metadata,
+     * starting with 0
+     * @return The value
+     * @throws DataSetException
+     */
+    public Object getValue(int column) throws DataSetException;
+
+}
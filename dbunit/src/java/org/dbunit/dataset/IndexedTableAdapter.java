@@ -0,0 +1,96 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+/**
+ * Gives index based access to the values of an arbitrary {@link ITable}.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class IndexedTableAdapter implements IIndexedTable
+{
+
+    private final ITable _table;
+    private Column[] _columns;
+
+    public IndexedTableAdapter(ITable table)
+    {
+        _table = table;
+    }
+
+    /**
+     * Returns the given table itself if it already is an {@link IIndexedTable}, otherwise
+     * an adapter resolving the column indexes to column names.
+     * @param table The table to be accessed by column index
+     * @return The given table as {@link IIndexedTable}
+     */
+    public static IIndexedTable getIndexedTable(ITable table)
+    {
+        if (table instanceof IIndexedTable)
+        {
+            return (IIndexedTable)table;
+        }
+        return new IndexedTableAdapter(table);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        if (_columns == null)
+        {
+            _columns = _table.getTableMetaData().getColumns();
+        }
+        return _table.getValue(row, _columns[column].getColumnName());
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // ITable interface
+
+    public ITableMetaData getTableMetaData()
+    {
+        return _table.getTableMetaData();
+    }
+
+    public int getRowCount()
+    {
+        return _table.getRowCount();
+    }
+
+    public Object getValue(int row, String column) throws DataSetException
+    {
+        return _table.getValue(row, column);
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_table=").append(_table);
+        sb.append("]");
+        return sb.toString();
+    }
+
+}
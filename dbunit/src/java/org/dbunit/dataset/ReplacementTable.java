@@ -35,7 +35,7 @@ import java.util.Map;
  * @since Mar 17, 2003
  * @version $Revision$
  */
-public class ReplacementTable implements ITable
+public class ReplacementTable implements IIndexedTable
 {
 
     /**
@@ -244,8 +244,19 @@ public class ReplacementTable implements ITable
         if(logger.isDebugEnabled())
             logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), column);
 
-        Object value = _table.getValue(row, column);
+        return getReplacedValue(_table.getValue(row, column));
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
 
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        return getReplacedValue(IndexedTableAdapter.getIndexedTable(_table).getValue(row, column));
+    }
+
+    private Object getReplacedValue(Object value) throws DataSetException
+    {
         // Object replacement
         if (_objectMap.containsKey(value))
         {
@@ -252,6 +252,17 @@ public class SortedTable extends AbstractTable
         return _table.getValue(getOriginalRowIndex(row), columnName);
     }
 
+    ////////////////////////////////////////////////////////////////////////////
+    // IIndexedTable interface
+
+    public Object getValue(int row, int column) throws DataSetException
+    {
+        assertValidRowIndex(row);
+
+        IIndexedTable indexedTable = IndexedTableAdapter.getIndexedTable(_table);
+        return indexedTable.getValue(getOriginalRowIndex(row), column);
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Comparator interface
 
@@ -264,8 +275,9 @@ public class SortedTable extends AbstractTable
          * Logger for this class
          */
         private final Logger logger = LoggerFactory.getLogger(AbstractRowComparator.class);
-        private ITable _table;
+        private IIndexedTable _table;
         private Column[] _sortColumns;
+        private int[] _sortColumnIndexes;
 
 		/**
 		 * @param table The wrapped table to be sorted
@@ -273,7 +285,7 @@ public class SortedTable extends AbstractTable
 		 */
 		public AbstractRowComparator(ITable table, Column[] sortColumns)
 		{
-			this._table = table;
+			this._table = IndexedTableAdapter.getIndexedTable(table);
 			this._sortColumns = sortColumns;
 		}
 
@@ -286,12 +298,16 @@ public class SortedTable extends AbstractTable
 
             try
             {
+                if (_sortColumnIndexes == null)
+                {
+                    _sortColumnIndexes = Columns.getColumnIndexes(
+                            _table.getTableMetaData(), _sortColumns);
+                }
+
                 for (int i = 0; i < _sortColumns.length; i++)
                 {
-                    String columnName = _sortColumns[i].getColumnName();
-                    
-                    Object value1 = _table.getValue(i1.intValue(), columnName);
-                    Object value2 = _table.getValue(i2.intValue(), columnName);
+                    Object value1 = _table.getValue(i1.intValue(), _sortColumnIndexes[i]);
+                    Object value2 = _table.getValue(i2.intValue(), _sortColumnIndexes[i]);
 
                     if (value1 == null && value2 == null)
                     {
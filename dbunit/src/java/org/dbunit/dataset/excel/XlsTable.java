@@ -136,9 +136,13 @@ class XlsTable extends AbstractTable
         if(logger.isDebugEnabled())
             logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), column);
 
+        return getValue(row, getColumnIndex(column));
+    }
+
+    public Object getValue(int row, int columnIndex) throws DataSetException
+    {
         assertValidRowIndex(row);
 
-        int columnIndex = getColumnIndex(column);
         HSSFCell cell = _sheet.getRow(row + 1).getCell(columnIndex);
         if (cell == null)
         {
@@ -169,7 +173,7 @@ class XlsTable extends AbstractTable
 
             case HSSFCell.CELL_TYPE_FORMULA:
                 throw new DataTypeException("Formula not supported at row=" +
-                        row + ", column=" + column);
+                        row + ", column=" + _metaData.getColumns()[columnIndex].getColumnName());
 
             case HSSFCell.CELL_TYPE_BLANK:
                 return null;
@@ -179,11 +183,11 @@ class XlsTable extends AbstractTable
 
             case HSSFCell.CELL_TYPE_ERROR:
                 throw new DataTypeException("Error at row=" + row +
-                        ", column=" + column);
+                        ", column=" + _metaData.getColumns()[columnIndex].getColumnName());
 
             default:
                 throw new DataTypeException("Unsupported type at row=" + row +
-                        ", column=" + column);
+                        ", column=" + _metaData.getColumns()[columnIndex].getColumnName());
         }
     }
     
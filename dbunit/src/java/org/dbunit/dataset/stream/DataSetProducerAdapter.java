@@ -22,11 +22,12 @@ package org.dbunit.dataset.stream;
 
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableCursor;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
 import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
-import org.dbunit.dataset.RowOutOfBoundsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,35 +85,24 @@ public class DataSetProducerAdapter implements IDataSetProducer
             ITableMetaData metaData = table.getTableMetaData();
 
             _consumer.startTable(metaData);
-            try
+            Column[] columns = metaData.getColumns();
+            if (columns.length == 0)
             {
-                Column[] columns = metaData.getColumns();
-                if (columns.length == 0)
-                {
-                    _consumer.endTable();
-                    continue;
-                }
+                _consumer.endTable();
+                continue;
+            }
 
-                for (int i = 0; ; i++)
+            ITableCursor cursor = DefaultTableCursor.getCursor(table);
+            while (cursor.next())
+            {
+                Object[] values = new Object[columns.length];
+                for (int j = 0; j < columns.length; j++)
                 {
-                    Object[] values = new Object[columns.length];
-                    for (int j = 0; j < columns.length; j++)
-                    {
-                        Column column = columns[j];
-                        values[j] = table.getValue(i, column.getColumnName());
-                    }
-                    _consumer.row(values);
+                    values[j] = cursor.getValue(j);
                 }
+                _consumer.row(values);
             }
-            catch (RowOutOfBoundsException e)
-            {
-            	// This exception occurs when records are exhausted
-            	// and we reach the end of the table.  Ignore this error
-            	// and close table.
-
-                // end of table
-                _consumer.endTable();
-            }
+            _consumer.endTable();
         }
         _consumer.endDataSet();
     }
@@ -22,7 +22,9 @@ package org.dbunit.dataset.stream;
 
 import org.dbunit.dataset.AbstractTable;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ICursorTable;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
 import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.RowOutOfBoundsException;
@@ -164,7 +166,7 @@ public class StreamingIterator implements ITableIterator
     ////////////////////////////////////////////////////////////////////////////
     // StreamingTable class
 
-    private class StreamingTable extends AbstractTable
+    private class StreamingTable extends AbstractTable implements ICursorTable
     {
 
         /**
@@ -233,6 +235,28 @@ public class StreamingIterator implements ITableIterator
             if(logger.isDebugEnabled())
                 logger.debug("getValue(row={}, columnName={}) - start", Integer.toString(row), columnName);
 
+            return getValue(row, getColumnIndex(columnName));
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // IIndexedTable interface
+
+        public Object getValue(int row, int columnIndex) throws DataSetException
+        {
+            if (!moveTo(row))
+            {
+                throw new RowOutOfBoundsException(row + " > " + _lastRow);
+            }
+
+            return _rowValues[columnIndex];
+        }
+
+        /**
+         * Takes rows from the channel up to the specified row.
+         * @return <code>false</code> if the specified row is after the last row
+         */
+        private boolean moveTo(int row) throws DataSetException
+        {
             // Iterate up to specified row
             while (!_eot && row > _lastRow)
             {
@@ -244,12 +268,48 @@ public class StreamingIterator implements ITableIterator
                 throw new UnsupportedOperationException("Cannot go backward!");
             }
 
-            if (_eot || row > _lastRow)
+            return !_eot && row <= _lastRow;
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // ICursorTable interface
+
+        public ITableCursor createCursor()
+        {
+            return new StreamingCursor();
+        }
+
+        /**
+         * Cursor reading the rows taken from the channel. All cursors of this
+         * table share the position of the table.
+         */
+        private class StreamingCursor implements ITableCursor
+        {
+            private int _row = -1;
+
+            public boolean next() throws DataSetException
             {
-                throw new RowOutOfBoundsException(row + " > " + _lastRow);
+                if (!moveTo(_row + 1))
+                {
+                    return false;
+                }
+                _row++;
+                return true;
+            }
+
+            public int getRow()
+            {
+                return _row;
             }
 
-            return _rowValues[getColumnIndex(columnName)];
+            public Object getValue(int column) throws DataSetException
+            {
+                if (_row != _lastRow || _eot)
+                {
+                    throw new RowOutOfBoundsException(_row + " is not the current row");
+                }
+                return _rowValues[column];
+            }
         }
 
     }
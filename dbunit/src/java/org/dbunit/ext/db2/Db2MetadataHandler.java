@@ -21,6 +21,7 @@
 package org.dbunit.ext.db2;
 
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -42,6 +43,14 @@ public class Db2MetadataHandler extends DefaultMetadataHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(Db2MetadataHandler.class);
 
+    private static final String ALL_PRIMARY_KEYS_QUERY = 
+        "select cast(null as varchar(128)) as TABLE_CAT, k.TABSCHEMA as TABLE_SCHEM, " +
+        "k.TABNAME as TABLE_NAME, k.COLNAME as COLUMN_NAME, k.COLSEQ as KEY_SEQ, k.CONSTNAME as PK_NAME " +
+        "from SYSCAT.KEYCOLUSE k join SYSCAT.TABCONST c " +
+        "on c.TABSCHEMA = k.TABSCHEMA and c.TABNAME = k.TABNAME and c.CONSTNAME = k.CONSTNAME " +
+        "where c.TYPE = 'P' and k.TABSCHEMA = coalesce(cast(? as varchar(128)), current schema) " +
+        "order by k.TABNAME, k.COLSEQ";
+
     public Db2MetadataHandler() {
         super();
     }
@@ -110,4 +119,33 @@ public class Db2MetadataHandler extends DefaultMetadataHandler {
         return SQLHelper.areEqualIgnoreNull(value1, value2, caseSensitive);
     }
 
+    /**
+     * Reads the primary keys of all tables from the DB2 catalog views since the DB2 driver
+     * requires a table name for {@link DatabaseMetaData#getPrimaryKeys(String, String, String)}.
+     * The columns are aliased like the JDBC result set.
+     * 
+     * {@inheritDoc}
+     * @see org.dbunit.database.DefaultMetadataHandler#getAllPrimaryKeys(java.sql.DatabaseMetaData, java.lang.String)
+     */
+    public ResultSet getAllPrimaryKeys(DatabaseMetaData metaData, String schemaName) 
+    throws SQLException
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllPrimaryKeys(metaData={}, schemaName={}) - start", 
+                    metaData, schemaName);
+
+        PreparedStatement statement = metaData.getConnection().prepareStatement(
+                ALL_PRIMARY_KEYS_QUERY);
+        try
+        {
+            statement.setString(1, schemaName);
+            return statement.executeQuery();
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+            throw e;
+        }
+    }
+
 }
@@ -40,5 +40,7 @@ public class H2Connection extends DatabaseConnection
         super(connection, schema);
         getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
                 new H2DataTypeFactory());
+        getConfig().setProperty(DatabaseConfig.PROPERTY_SNAPSHOT_DIALECT,
+                new H2SnapshotDialect());
     }
 }
\ No newline at end of file
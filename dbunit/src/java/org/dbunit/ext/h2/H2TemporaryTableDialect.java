@@ -0,0 +1,46 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.h2;
+
+import org.dbunit.database.ITemporaryTableDialect;
+
+/**
+ * Temporary table dialect for H2 using <code>create local temporary table ... as select</code>.
+ * The table is only visible to the connection that created it.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class H2TemporaryTableDialect implements ITemporaryTableDialect
+{
+
+    public String getCreateTableSql(String tableName, String selectSql)
+    {
+        return "create local temporary table " + tableName + " as " + selectSql;
+    }
+
+    public String getDropTableSql(String tableName)
+    {
+        return "drop table " + tableName;
+    }
+}
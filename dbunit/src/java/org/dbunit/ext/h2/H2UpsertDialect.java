@@ -0,0 +1,63 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.h2;
+
+import org.dbunit.database.IUpsertDialect;
+import org.dbunit.dataset.Column;
+
+/**
+ * Upsert dialect for H2 using <code>merge into ... key (...) values (...)</code>.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class H2UpsertDialect implements IUpsertDialect
+{
+
+    public String getUpsertSql(String tableName, String[] columnNames, Column[] columns,
+            String[] primaryKeyNames)
+    {
+        StringBuffer sqlBuffer = new StringBuffer(128);
+        sqlBuffer.append("merge into ").append(tableName);
+        sqlBuffer.append(" (");
+        appendList(sqlBuffer, columnNames, null);
+        sqlBuffer.append(") key (");
+        appendList(sqlBuffer, primaryKeyNames, null);
+        sqlBuffer.append(") values (");
+        appendList(sqlBuffer, columnNames, "?");
+        sqlBuffer.append(")");
+        return sqlBuffer.toString();
+    }
+
+    private static void appendList(StringBuffer sqlBuffer, String[] names, String placeholder)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (i > 0)
+            {
+                sqlBuffer.append(", ");
+            }
+            sqlBuffer.append(placeholder != null ? placeholder : names[i]);
+        }
+    }
+}
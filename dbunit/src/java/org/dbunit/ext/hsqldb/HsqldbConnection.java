@@ -25,6 +25,7 @@ import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.DatabaseConnection;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * @author Klas Axell
@@ -39,5 +40,16 @@ public class HsqldbConnection extends DatabaseConnection
         super(connection, schema);
         getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
                 new HsqldbDataTypeFactory());
+
+        try
+        {
+            int majorVersion = connection.getMetaData().getDatabaseMajorVersion();
+            getConfig().setProperty(DatabaseConfig.PROPERTY_SNAPSHOT_DIALECT,
+                    new HsqldbSnapshotDialect(majorVersion));
+        }
+        catch (SQLException e)
+        {
+            throw new DatabaseUnitException(e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.hsqldb;
+
+import org.dbunit.database.ISnapshotDialect;
+
+/**
+ * Snapshot dialect for HSQLDB. Uses <code>select ... into</code> for HSQLDB 1.8
+ * and <code>create table ... as (select ...) with data</code> for HSQLDB 2.0 and
+ * later.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class HsqldbSnapshotDialect implements ISnapshotDialect
+{
+    private final int _majorVersion;
+
+    /**
+     * Creates a dialect for HSQLDB 1.8.
+     */
+    public HsqldbSnapshotDialect()
+    {
+        this(1);
+    }
+
+    /**
+     * @param majorVersion The major version of the database, as returned by
+     * {@link java.sql.DatabaseMetaData#getDatabaseMajorVersion()}
+     */
+    public HsqldbSnapshotDialect(int majorVersion)
+    {
+        _majorVersion = majorVersion;
+    }
+
+    public String getCreateSnapshotSql(String tableName, String snapshotTableName)
+    {
+        if (_majorVersion >= 2)
+        {
+            return "create table " + snapshotTableName + " as (select * from "
+                    + tableName + ") with data";
+        }
+        return "select * into " + snapshotTableName + " from " + tableName;
+    }
+
+    public String getDropSnapshotSql(String snapshotTableName)
+    {
+        return "drop table " + snapshotTableName + " if exists";
+    }
+
+    public String getDisableConstraintsSql()
+    {
+        return _majorVersion >= 2 ? "set database referential integrity false"
+                : "set referential_integrity false";
+    }
+
+    public String getEnableConstraintsSql()
+    {
+        return _majorVersion >= 2 ? "set database referential integrity true"
+                : "set referential_integrity true";
+    }
+}
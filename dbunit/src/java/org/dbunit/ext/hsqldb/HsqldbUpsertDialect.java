@@ -0,0 +1,180 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.hsqldb;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbunit.database.IUpsertDialect;
+import org.dbunit.dataset.Column;
+
+/**
+ * Upsert dialect for HSQLDB 2.0 and later using
+ * <code>merge into ... using (values (...)) ... when matched ... when not matched ...</code>.
+ * HSQLDB 1.8 does not support the merge statement.
+ * <p>
+ * HSQLDB cannot resolve the types of parameters in a values list, so every parameter
+ * is cast to a type derived from the data type of its column. The casts use the widest
+ * length and scale of the type and the values are then checked by the target columns.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class HsqldbUpsertDialect implements IUpsertDialect
+{
+
+    private static final String TARGET_ALIAS = "dbunit_target";
+    private static final String SOURCE_ALIAS = "dbunit_vals";
+    /**
+     * Length of the character and binary types, the HSQLDB default of longvarchar
+     */
+    private static final int MAX_LENGTH = 16777216;
+    private static final int MAX_PRECISION = 128;
+    private static final int MAX_SCALE = 32;
+
+    public String getUpsertSql(String tableName, String[] columnNames, Column[] columns,
+            String[] primaryKeyNames)
+    {
+        List primaryKeys = Arrays.asList(primaryKeyNames);
+
+        StringBuffer sqlBuffer = new StringBuffer(256);
+        sqlBuffer.append("merge into ").append(tableName).append(" as ").append(TARGET_ALIAS);
+
+        // using (values (cast(? as integer), cast(? as varchar(...)))) as vals (a, b)
+        sqlBuffer.append(" using (values (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "");
+            String castType = getCastType(columns[i]);
+            if (castType == null)
+            {
+                sqlBuffer.append("?");
+            }
+            else
+            {
+                sqlBuffer.append("cast(? as ").append(castType).append(")");
+            }
+        }
+        sqlBuffer.append(")) as ").append(SOURCE_ALIAS).append(" (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "").append(columnNames[i]);
+        }
+        sqlBuffer.append(")");
+
+        // on target.pk = vals.pk
+        sqlBuffer.append(" on ");
+        for (int i = 0; i < primaryKeyNames.length; i++)
+        {
+            if (i > 0)
+            {
+                sqlBuffer.append(" and ");
+            }
+            sqlBuffer.append(TARGET_ALIAS).append(".").append(primaryKeyNames[i]);
+            sqlBuffer.append(" = ").append(SOURCE_ALIAS).append(".").append(primaryKeyNames[i]);
+        }
+
+        // when matched then update set c = vals.c
+        if (columnNames.length > primaryKeyNames.length)
+        {
+            sqlBuffer.append(" when matched then update set ");
+            boolean first = true;
+            for (int i = 0; i < columnNames.length; i++)
+            {
+                if (primaryKeys.contains(columnNames[i]))
+                {
+                    continue;
+                }
+                if (!first)
+                {
+                    sqlBuffer.append(", ");
+                }
+                first = false;
+                sqlBuffer.append(columnNames[i]);
+                sqlBuffer.append(" = ").append(SOURCE_ALIAS).append(".").append(columnNames[i]);
+            }
+        }
+
+        // when not matched then insert (a, b) values vals.a, vals.b
+        sqlBuffer.append(" when not matched then insert (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "").append(columnNames[i]);
+        }
+        sqlBuffer.append(") values ");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "");
+            sqlBuffer.append(SOURCE_ALIAS).append(".").append(columnNames[i]);
+        }
+        return sqlBuffer.toString();
+    }
+
+    /**
+     * Returns the HSQLDB type the parameter of the given column is cast to, or
+     * <code>null</code> if the type is unknown and the parameter is not cast.
+     */
+    static String getCastType(Column column)
+    {
+        switch (column.getDataType().getSqlType())
+        {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+                return "varchar(" + MAX_LENGTH + ")";
+            case Types.CLOB:
+                return "clob";
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return "varbinary(" + MAX_LENGTH + ")";
+            case Types.BLOB:
+                return "blob";
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return "boolean";
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return "bigint";
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return "decimal(" + MAX_PRECISION + ", " + MAX_SCALE + ")";
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return "double";
+            case Types.DATE:
+                return "date";
+            case Types.TIME:
+                return "time";
+            case Types.TIMESTAMP:
+                return "timestamp(9)";
+            default:
+                return null;
+        }
+    }
+}
@@ -21,10 +21,11 @@
 package org.dbunit.ext.mysql;
 
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-import org.dbunit.database.IMetadataHandler;
+import org.dbunit.database.IBulkMetadataHandler;
 import org.dbunit.util.SQLHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,13 +39,29 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$ $Date$
  * @since 2.4.4
  */
-public class MySqlMetadataHandler implements IMetadataHandler {
+public class MySqlMetadataHandler implements IBulkMetadataHandler {
 
     /**
      * Logger for this class
      */
     private static final Logger logger = LoggerFactory.getLogger(MySqlMetadataHandler.class);
 
+    private static final String ALL_PRIMARY_KEYS_QUERY = 
+        "select TABLE_SCHEMA as TABLE_CAT, null as TABLE_SCHEM, TABLE_NAME, COLUMN_NAME, " +
+        "ORDINAL_POSITION as KEY_SEQ, CONSTRAINT_NAME as PK_NAME " +
+        "from INFORMATION_SCHEMA.KEY_COLUMN_USAGE " +
+        "where CONSTRAINT_NAME = 'PRIMARY' and TABLE_SCHEMA = coalesce(?, database()) " +
+        "order by TABLE_NAME, ORDINAL_POSITION";
+
+    private static final String ALL_IMPORTED_KEYS_QUERY = 
+        "select REFERENCED_TABLE_SCHEMA as PKTABLE_CAT, null as PKTABLE_SCHEM, " +
+        "REFERENCED_TABLE_NAME as PKTABLE_NAME, REFERENCED_COLUMN_NAME as PKCOLUMN_NAME, " +
+        "TABLE_SCHEMA as FKTABLE_CAT, null as FKTABLE_SCHEM, TABLE_NAME as FKTABLE_NAME, " +
+        "COLUMN_NAME as FKCOLUMN_NAME, ORDINAL_POSITION as KEY_SEQ " +
+        "from INFORMATION_SCHEMA.KEY_COLUMN_USAGE " +
+        "where REFERENCED_TABLE_NAME is not null and TABLE_SCHEMA = coalesce(?, database()) " +
+        "order by TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION";
+
     public ResultSet getColumns(DatabaseMetaData databaseMetaData, String schemaName, String tableName) 
     throws SQLException {
         // Note that MySQL uses the catalogName instead of the schemaName, so
@@ -138,4 +155,56 @@ public class MySqlMetadataHandler implements IMetadataHandler {
         return resultSet;
     }
 
+    public ResultSet getAllColumns(DatabaseMetaData databaseMetaData, String schemaName) 
+    throws SQLException {
+        ResultSet resultSet = databaseMetaData.getColumns(
+                schemaName, null, "%", "%");
+        return resultSet;
+    }
+
+    public ResultSet getAllPrimaryKeys(DatabaseMetaData metaData, String schemaName) 
+    throws SQLException
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllPrimaryKeys(metaData={}, schemaName={}) - start", 
+                    metaData, schemaName);
+
+        // The MySQL driver requires a table name for getPrimaryKeys(), so query the
+        // information schema directly. The columns are aliased like the JDBC result set.
+        PreparedStatement statement = metaData.getConnection().prepareStatement(
+                ALL_PRIMARY_KEYS_QUERY);
+        try
+        {
+            statement.setString(1, schemaName);
+            return statement.executeQuery();
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+            throw e;
+        }
+    }
+
+    public ResultSet getAllImportedKeys(DatabaseMetaData metaData, String schemaName) 
+    throws SQLException
+    {
+        if(logger.isTraceEnabled())
+            logger.trace("getAllImportedKeys(metaData={}, schemaName={}) - start", 
+                    metaData, schemaName);
+
+        // The MySQL driver requires a table name for getImportedKeys() as well
+        PreparedStatement statement = metaData.getConnection().prepareStatement(
+                ALL_IMPORTED_KEYS_QUERY);
+        try
+        {
+            statement.setString(1, schemaName);
+            return statement.executeQuery();
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+            throw e;
+        }
+    }
+
 }
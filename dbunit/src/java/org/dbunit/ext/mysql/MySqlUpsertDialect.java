@@ -0,0 +1,86 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.mysql;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbunit.database.IUpsertDialect;
+import org.dbunit.dataset.Column;
+
+/**
+ * Upsert dialect for MySQL using
+ * <code>insert into ... values (...) on duplicate key update ...</code>.
+ * <p>
+ * Note that MySQL takes the update branch on a duplicate value of any unique
+ * key, not only of the primary key. A dataset row that collides with another
+ * row on a secondary unique key therefore overwrites that row.
+ * </p>
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class MySqlUpsertDialect implements IUpsertDialect
+{
+
+    public String getUpsertSql(String tableName, String[] columnNames, Column[] columns,
+            String[] primaryKeyNames)
+    {
+        List primaryKeys = Arrays.asList(primaryKeyNames);
+
+        StringBuffer sqlBuffer = new StringBuffer(256);
+        sqlBuffer.append("insert into ").append(tableName).append(" (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "").append(columnNames[i]);
+        }
+        sqlBuffer.append(") values (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", ?" : "?");
+        }
+        sqlBuffer.append(") on duplicate key update ");
+
+        boolean first = true;
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            if (primaryKeys.contains(columnNames[i]))
+            {
+                continue;
+            }
+            if (!first)
+            {
+                sqlBuffer.append(", ");
+            }
+            first = false;
+            sqlBuffer.append(columnNames[i]).append(" = values(").append(columnNames[i]).append(")");
+        }
+
+        // Only primary key columns: a no-op assignment keeps the existing row
+        if (first)
+        {
+            sqlBuffer.append(primaryKeyNames[0]).append(" = ").append(primaryKeyNames[0]);
+        }
+        return sqlBuffer.toString();
+    }
+}
@@ -24,7 +24,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-import org.dbunit.database.IMetadataHandler;
+import org.dbunit.database.IBulkMetadataHandler;
 import org.dbunit.util.SQLHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +37,7 @@ import org.slf4j.LoggerFactory;
  * @version $Revision$ $Date$
  * @since 2.4.6
  */
-public class NetezzaMetadataHandler implements IMetadataHandler
+public class NetezzaMetadataHandler implements IBulkMetadataHandler
 {
 
 	/**
@@ -133,6 +133,28 @@ public class NetezzaMetadataHandler implements IMetadataHandler
 		ResultSet resultSet = metaData.getPrimaryKeys(schemaName, null, tableName);
 		return resultSet;
 	}
+
+	public ResultSet getAllColumns(DatabaseMetaData databaseMetaData, String schemaName) throws SQLException
+	{
+		ResultSet resultSet = databaseMetaData.getColumns(schemaName, null, "%", "%");
+		return resultSet;
+	}
+
+	public ResultSet getAllPrimaryKeys(DatabaseMetaData metaData, String schemaName) throws SQLException
+	{
+		if (logger.isTraceEnabled())
+			logger.trace("getAllPrimaryKeys(metaData={}, schemaName={}) - start", metaData, schemaName);
+		ResultSet resultSet = metaData.getPrimaryKeys(schemaName, null, null);
+		return resultSet;
+	}
+
+	public ResultSet getAllImportedKeys(DatabaseMetaData metaData, String schemaName) throws SQLException
+	{
+		if (logger.isTraceEnabled())
+			logger.trace("getAllImportedKeys(metaData={}, schemaName={}) - start", metaData, schemaName);
+		ResultSet resultSet = metaData.getImportedKeys(schemaName, null, null);
+		return resultSet;
+	}
 }
 
  	  	 
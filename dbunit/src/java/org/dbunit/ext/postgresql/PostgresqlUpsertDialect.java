@@ -0,0 +1,87 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.postgresql;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbunit.database.IUpsertDialect;
+import org.dbunit.dataset.Column;
+
+/**
+ * Upsert dialect for PostgreSQL 9.5 and later using
+ * <code>insert into ... values (...) on conflict (...) do update set ...</code>.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class PostgresqlUpsertDialect implements IUpsertDialect
+{
+
+    public String getUpsertSql(String tableName, String[] columnNames, Column[] columns,
+            String[] primaryKeyNames)
+    {
+        List primaryKeys = Arrays.asList(primaryKeyNames);
+
+        StringBuffer sqlBuffer = new StringBuffer(256);
+        sqlBuffer.append("insert into ").append(tableName).append(" (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "").append(columnNames[i]);
+        }
+        sqlBuffer.append(") values (");
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", ?" : "?");
+        }
+        sqlBuffer.append(") on conflict (");
+        for (int i = 0; i < primaryKeyNames.length; i++)
+        {
+            sqlBuffer.append(i > 0 ? ", " : "").append(primaryKeyNames[i]);
+        }
+        sqlBuffer.append(")");
+
+        if (columnNames.length == primaryKeyNames.length)
+        {
+            sqlBuffer.append(" do nothing");
+            return sqlBuffer.toString();
+        }
+
+        sqlBuffer.append(" do update set ");
+        boolean first = true;
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            if (primaryKeys.contains(columnNames[i]))
+            {
+                continue;
+            }
+            if (!first)
+            {
+                sqlBuffer.append(", ");
+            }
+            first = false;
+            sqlBuffer.append(columnNames[i]).append(" = excluded.").append(columnNames[i]);
+        }
+        return sqlBuffer.toString();
+    }
+}
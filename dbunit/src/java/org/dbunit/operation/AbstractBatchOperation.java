@@ -30,16 +30,21 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.statement.IPreparedBatchStatement;
 import org.dbunit.database.statement.IStatementFactory;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableCursor;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
 import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
-import org.dbunit.dataset.RowOutOfBoundsException;
 import org.dbunit.dataset.datatype.TypeCastException;
 
 import java.sql.SQLException;
 import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Base implementation for database operation that are executed in batch.
@@ -71,17 +76,9 @@ public abstract class AbstractBatchOperation extends AbstractOperation
             return true;
         }
 
-        // Try to fetch first table value
-        try
-        {
-            table.getValue(0, columns[0].getColumnName());
-            return false;
-        }
-        catch (RowOutOfBoundsException e)
-        {
-            // Not able to access first row thus empty
-            return true;
-        }
+        // Try to move to the first row
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        return !cursor.next();
     }
 
     /**
@@ -124,6 +121,8 @@ public abstract class AbstractBatchOperation extends AbstractOperation
 
         DatabaseConfig databaseConfig = connection.getConfig();
         IStatementFactory factory = (IStatementFactory)databaseConfig.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+        int maxOpenStatements = Math.max(1, ((Integer)databaseConfig.getProperty(
+                DatabaseConfig.PROPERTY_MAX_OPEN_STATEMENTS)).intValue());
 
         // for each table
         ITableIterator iterator = iterator(dataSet);
@@ -138,79 +137,90 @@ public abstract class AbstractBatchOperation extends AbstractOperation
             }
 
             ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
-            BitSet ignoreMapping = null;
-            OperationData operationData = null;
-            IPreparedBatchStatement statement = null;
+            markDirty(connection, metaData.getTableName());
+
+            // Open statements by ignore mapping, least recently used first. With more
+            // than one open statement the rows are no longer executed in table order.
+            Map statements = new LinkedHashMap(16, 0.75f, true);
+            MappingStatement mappingStatement = null;
 
             try
             {
                 // For each row
-                int start = _reverseRowOrder ? table.getRowCount() - 1 : 0;
-                int increment = _reverseRowOrder ? -1 : 1;
-
-                try
+                ITableCursor cursor = _reverseRowOrder
+                        ? new DefaultTableCursor(table, true)
+                        : DefaultTableCursor.getCursor(table);
+                while (cursor.next())
                 {
-                    for (int i = start; ; i = i + increment)
-                    {
-                        int row = i;
+                    int row = cursor.getRow();
 
-                        // If current row have a different ignore value mapping than
-                        // previous one, we generate a new statement
-                        if (ignoreMapping == null || !equalsIgnoreMapping(ignoreMapping, table, row))
+                    // If current row have a different ignore value mapping than
+                    // previous one, we use the statement of the new mapping
+                    if (mappingStatement == null
+                            || !equalsIgnoreMapping(mappingStatement._ignoreMapping, table, row))
+                    {
+                        BitSet ignoreMapping = getIgnoreMapping(table, row);
+                        mappingStatement = (MappingStatement)statements.get(ignoreMapping);
+                        if (mappingStatement == null)
                         {
-                            // Execute and close previous statement
-                            if (statement != null)
+                            // Execute and close least recently used statement
+                            if (statements.size() >= maxOpenStatements)
                             {
-                                statement.executeBatch();
-                                statement.clearBatch();
-                                statement.close();
+                                Iterator it = statements.values().iterator();
+                                MappingStatement eldest = (MappingStatement)it.next();
+                                it.remove();
+                                eldest.executeAndClose();
                             }
 
-                            ignoreMapping = getIgnoreMapping(table, row);
-                            operationData = getOperationData(metaData, ignoreMapping, connection);
-                            statement = factory.createPreparedBatchStatement(
+                            OperationData operationData = getOperationData(metaData, ignoreMapping, connection);
+                            int[] columnIndexes = Columns.getColumnIndexes(
+                                    table.getTableMetaData(), operationData.getColumns());
+                            IPreparedBatchStatement statement = factory.createPreparedBatchStatement(
                                     operationData.getSql(), connection);
+                            mappingStatement = new MappingStatement(ignoreMapping,
+                                    operationData, columnIndexes, statement);
+                            statements.put(ignoreMapping, mappingStatement);
                         }
+                    }
 
-
-                        // for each column
-                        Column[] columns = operationData.getColumns();
-                        for (int j = 0; j < columns.length; j++)
+                    // for each column
+                    BitSet ignoreMapping = mappingStatement._ignoreMapping;
+                    int[] columnIndexes = mappingStatement._columnIndexes;
+                    IPreparedBatchStatement statement = mappingStatement._statement;
+                    Column[] columns = mappingStatement._operationData.getColumns();
+                    for (int j = 0; j < columns.length; j++)
+                    {
+                        // Bind value only if not in ignore mapping
+                        if (!ignoreMapping.get(j))
                         {
-                            // Bind value only if not in ignore mapping
-                            if (!ignoreMapping.get(j))
+                            Column column = columns[j];
+                            try
+                            {
+                                statement.addValue(cursor.getValue(columnIndexes[j]), column.getDataType());
+                            }
+                            catch (TypeCastException e)
                             {
-                                Column column = columns[j];
-                            	try
-								{
-	                                statement.addValue(table.getValue(row, column.getColumnName()), column.getDataType());
-								}
-                                catch (TypeCastException e)
-								{
-				                	throw new TypeCastException("Error casting value for table '" + table.getTableMetaData().getTableName() 
-				                			+"' and column '" + column.getColumnName() + "'", e);
-								}
+                                throw new TypeCastException("Error casting value for table '" + table.getTableMetaData().getTableName() 
+                                        +"' and column '" + column.getColumnName() + "'", e);
                             }
                         }
-                        statement.addBatch();
                     }
+                    statement.addBatch();
                 }
-                catch (RowOutOfBoundsException e)
-                {
-                	// This exception occurs when records are exhausted
-                	// and we reach the end of the table.  Ignore this error
 
-                    // end of table
+                while (!statements.isEmpty())
+                {
+                    Iterator it = statements.values().iterator();
+                    MappingStatement eldest = (MappingStatement)it.next();
+                    it.remove();
+                    eldest.executeAndClose();
                 }
-
-                statement.executeBatch();
-                statement.clearBatch();
             }
             finally
             {
-            	if (statement != null)
+                for (Iterator it = statements.values().iterator(); it.hasNext();)
                 {
-                    statement.close();
+                    ((MappingStatement)it.next())._statement.close();
                 }
             }
         }
@@ -226,4 +236,38 @@ public abstract class AbstractBatchOperation extends AbstractOperation
     	return sb.toString();
     }
     
+
+
+    /**
+     * Prepared statement for the rows having the same ignore mapping.
+     */
+    private static class MappingStatement
+    {
+        private final BitSet _ignoreMapping;
+        private final OperationData _operationData;
+        private final int[] _columnIndexes;
+        private final IPreparedBatchStatement _statement;
+
+        public MappingStatement(BitSet ignoreMapping, OperationData operationData,
+                int[] columnIndexes, IPreparedBatchStatement statement)
+        {
+            _ignoreMapping = ignoreMapping;
+            _operationData = operationData;
+            _columnIndexes = columnIndexes;
+            _statement = statement;
+        }
+
+        public void executeAndClose() throws SQLException
+        {
+            try
+            {
+                _statement.executeBatch();
+                _statement.clearBatch();
+            }
+            finally
+            {
+                _statement.close();
+            }
+        }
+    }
 }
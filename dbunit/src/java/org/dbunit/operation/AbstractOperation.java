@@ -26,6 +26,8 @@ import java.util.List;
 
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DirtyTableRegistry;
+import org.dbunit.database.FixtureRegistry;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DefaultTableMetaData;
@@ -96,4 +98,27 @@ public abstract class AbstractOperation extends DatabaseOperation
                 (Column[])columnList.toArray(new Column[0]),
                 tableMetaData.getPrimaryKeys());
     }
+
+    /**
+     * Registers that rows are written into the given table, if the connection is
+     * configured with a {@link DirtyTableRegistry} or a {@link FixtureRegistry}.
+     *
+     * @param connection the database connection
+     * @param tableName the name of the table
+     */
+    static void markDirty(IDatabaseConnection connection, String tableName)
+    {
+        DirtyTableRegistry registry = (DirtyTableRegistry)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_DIRTY_TABLE_REGISTRY);
+        if (registry != null)
+        {
+            registry.markDirty(tableName);
+        }
+        FixtureRegistry fixtureRegistry = (FixtureRegistry)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_FIXTURE_REGISTRY);
+        if (fixtureRegistry != null)
+        {
+            fixtureRegistry.markChanged(tableName);
+        }
+    }
 }
@@ -65,6 +65,15 @@ public class CompositeOperation extends DatabaseOperation
         _actions = actions;
     }
 
+    /**
+     * @return The operations combined by this composite
+     * @since 2.4.8
+     */
+    DatabaseOperation[] getActions()
+    {
+        return _actions;
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // DatabaseOperation class
 
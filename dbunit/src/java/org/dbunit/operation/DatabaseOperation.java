@@ -45,12 +45,25 @@ public abstract class DatabaseOperation
     public static final DatabaseOperation TRUNCATE_TABLE = new TruncateTableOperation();
     public static final DatabaseOperation CLEAN_INSERT = new CompositeOperation(
             DELETE_ALL, INSERT);    
+    public static final DatabaseOperation SYNC = new SyncOperation();
     public static final DatabaseOperation TRANSACTION(DatabaseOperation operation) {
       return new TransactionOperation(operation);
     }
     public static final DatabaseOperation CLOSE_CONNECTION(DatabaseOperation operation) {
       return new CloseConnectionOperation(operation);
     }
+    public static final DatabaseOperation PARALLEL(DatabaseOperation operation, IDatabaseConnection[] connections) {
+      return new ParallelOperation(operation, connections);
+    }
+    public static final DatabaseOperation PIPELINED(DatabaseOperation operation) {
+      return new PipelinedOperation(operation);
+    }
+    public static final DatabaseOperation FAST_CLEAN(DatabaseOperation operation, boolean probeEmptyTables) {
+      return new FastCleanOperation(operation, probeEmptyTables);
+    }
+    public static final DatabaseOperation FINGERPRINT(DatabaseOperation operation, boolean compareContent) {
+      return new FingerprintOperation(operation, compareContent);
+    }
 
     /**
      * Executes this operation on the specified database using the specified
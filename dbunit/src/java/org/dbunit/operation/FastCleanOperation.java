@@ -0,0 +1,202 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DirtyTableRegistry;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorates a clean operation like {@link DeleteAllOperation} or
+ * {@link TruncateTableOperation} so that it only cleans the tables of the dataset
+ * that might hold rows. A table is skipped when
+ * <ul>
+ * <li>the {@link DirtyTableRegistry} configured with the property
+ * {@link DatabaseConfig#PROPERTY_DIRTY_TABLE_REGISTRY} knows it to be empty, i.e.
+ * it has been cleaned before and no dbunit operation has written into it since,
+ * or</li>
+ * <li>the emptiness probe is enabled and a select limited to one row does not find
+ * any row in the table.</li>
+ * </ul>
+ * The cleaned and the probed empty tables are registered as empty in the registry.
+ * On databases where deleting from an empty table still costs a lock and a log
+ * flush this saves most of the work of a clean insert when the tests only insert
+ * into a few of the tables of a large dataset.
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ * @see DirtyTableRegistry
+ */
+public class FastCleanOperation extends AbstractOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FastCleanOperation.class);
+
+    private final DatabaseOperation _operation;
+    private final boolean _probeEmptyTables;
+
+    /**
+     * Creates a FastCleanOperation that decorates the specified clean operation.
+     * @param operation The operation that cleans the tables, e.g. {@link DatabaseOperation#DELETE_ALL}
+     * @param probeEmptyTables Whether or not the tables which are not known to be empty are
+     * probed for rows before they are cleaned
+     */
+    public FastCleanOperation(DatabaseOperation operation, boolean probeEmptyTables)
+    {
+        if (operation == null) {
+            throw new NullPointerException(
+                    "The parameter 'operation' must not be null");
+        }
+        _operation = operation;
+        _probeEmptyTables = probeEmptyTables;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        IDataSet databaseDataSet = connection.createDataSet();
+        DirtyTableRegistry registry = (DirtyTableRegistry)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_DIRTY_TABLE_REGISTRY);
+
+        // Names of the tables to be cleaned in the dataset and in the database
+        List tableNames = new ArrayList();
+        List databaseTableNames = new ArrayList();
+        Set tablesSeen = new HashSet();
+        Statement statement = null;
+        try
+        {
+            ITableIterator iterator = dataSet.iterator();
+            while (iterator.next())
+            {
+                String tableName = iterator.getTableMetaData().getTableName();
+                if (!tablesSeen.add(tableName))
+                {
+                    continue;
+                }
+
+                // Use database table name. Required to support case sensitive database.
+                String databaseTableName = databaseDataSet.getTableMetaData(tableName).getTableName();
+                if (registry != null && registry.isClean(databaseTableName))
+                {
+                    logger.debug("Skipping table '{}' known to be empty", databaseTableName);
+                    continue;
+                }
+                if (_probeEmptyTables)
+                {
+                    if (statement == null)
+                    {
+                        statement = connection.getConnection().createStatement();
+                        statement.setMaxRows(1);
+                    }
+                    if (isEmpty(statement, connection, databaseTableName))
+                    {
+                        logger.debug("Skipping empty table '{}'", databaseTableName);
+                        if (registry != null)
+                        {
+                            registry.markClean(databaseTableName);
+                        }
+                        continue;
+                    }
+                }
+                tableNames.add(tableName);
+                databaseTableNames.add(databaseTableName);
+            }
+        }
+        finally
+        {
+            if (statement != null)
+            {
+                statement.close();
+            }
+        }
+
+        if (tableNames.isEmpty())
+        {
+            return;
+        }
+
+        _operation.execute(connection, new FilteredDataSet(
+                (String[])tableNames.toArray(new String[0]), dataSet));
+
+        if (registry != null)
+        {
+            for (int i = 0; i < databaseTableNames.size(); i++)
+            {
+                registry.markClean((String)databaseTableNames.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the given table does not hold any row. The statement
+     * is limited to one row so that the database can stop at the first row found.
+     */
+    private boolean isEmpty(Statement statement, IDatabaseConnection connection,
+            String tableName) throws SQLException
+    {
+        String sql = "select 1 from " + getQualifiedName(connection.getSchema(), tableName, connection);
+        logger.debug("Probing table with SQL: {}", sql);
+
+        ResultSet resultSet = statement.executeQuery(sql);
+        try
+        {
+            return !resultSet.next();
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_operation=").append(_operation);
+        sb.append(", _probeEmptyTables=").append(_probeEmptyTables);
+        sb.append("]");
+        return sb.toString();
+    }
+}
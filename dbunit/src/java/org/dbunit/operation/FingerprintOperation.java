@@ -0,0 +1,518 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.FixtureRegistry;
+import org.dbunit.database.ForwardOnlyResultSetTable;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
+import org.dbunit.dataset.DefaultTableCursor;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorates a load operation like {@link DatabaseOperation#CLEAN_INSERT} so that
+ * it is skipped for the tables that still hold the content of the dataset. The
+ * content of every table of the dataset is hashed once per dataset instance. A
+ * table is considered unchanged when
+ * <ul>
+ * <li>the {@link FixtureRegistry} has registered the same fingerprint for it, i.e.
+ * it has been loaded with the same content before and no dbunit operation has
+ * written into it since,</li>
+ * <li>its row count is still the one registered after loading, and</li>
+ * <li>if the content comparison is enabled, the hash of the rows read from the
+ * database matches the fingerprint.</li>
+ * </ul>
+ * If all tables are unchanged the decorated operation is not executed at all.
+ * Otherwise it is executed for the first changed table and all tables following it
+ * in the dataset, so that the tables referencing a reloaded table are reloaded too
+ * when the dataset is ordered by the foreign keys.
+ * <p>
+ * The row count detects rows inserted or deleted by the tests. Updates are only
+ * detected by the content comparison, which reads the tables but is still cheaper
+ * than writing them again. The dataset must support being iterated several times,
+ * i.e. it must not be a streaming dataset, and the decorated operation must leave
+ * exactly the rows of the dataset in the tables for the content comparison to match.
+ * </p>
+ * <p>
+ * The registry configured with the property {@link DatabaseConfig#PROPERTY_FIXTURE_REGISTRY}
+ * is used. If none is configured the operation sets its own registry on the connection,
+ * so that the other dbunit operations writing into the tables can reach it.
+ * </p>
+ * <p>
+ * The columns which are missing or hold {@link ITable#NO_VALUE} in any row of the
+ * dataset table are left out of the fingerprint, since the database keeps whatever
+ * values they have.
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ * @see FixtureRegistry
+ */
+public class FingerprintOperation extends AbstractOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintOperation.class);
+
+    private static final BigInteger TEN = BigInteger.valueOf(10);
+    /**
+     * Doubles of a smaller magnitude fit into a <code>long</code>
+     */
+    private static final double LONG_RANGE = (double)Long.MAX_VALUE;
+
+    private final DatabaseOperation _operation;
+    private final boolean _compareContent;
+    /**
+     * Registry set on the connections which have none configured
+     */
+    private final FixtureRegistry _registry = new FixtureRegistry();
+    /**
+     * The fingerprints of the tables per dataset. The map of every dataset uses the
+     * upper case table names as keys.
+     */
+    private final Map _fingerprints = new WeakHashMap();
+
+    /**
+     * Creates a FingerprintOperation that decorates the specified load operation.
+     * @param operation The operation that loads the tables, e.g. {@link DatabaseOperation#CLEAN_INSERT}
+     * @param compareContent Whether or not the content of the tables is read and
+     * compared with the fingerprint in addition to the row count
+     */
+    public FingerprintOperation(DatabaseOperation operation, boolean compareContent)
+    {
+        if (operation == null) {
+            throw new NullPointerException(
+                    "The parameter 'operation' must not be null");
+        }
+        _operation = operation;
+        _compareContent = compareContent;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        FixtureRegistry registry = (FixtureRegistry)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_FIXTURE_REGISTRY);
+        if (registry == null)
+        {
+            // The operations writing into the tables mark them changed in the registry
+            // of the connection only
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_FIXTURE_REGISTRY, _registry);
+            registry = _registry;
+        }
+        Map fingerprints = getFingerprints(connection, dataSet);
+
+        // Names of the tables in the dataset and in the database, in dataset order
+        List tableNames = new ArrayList();
+        List databaseTableNames = new ArrayList();
+        Set tablesSeen = new HashSet();
+        int firstChanged = -1;
+        IDataSet databaseDataSet = connection.createDataSet();
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            String tableName = iterator.getTableMetaData().getTableName();
+            if (!tablesSeen.add(tableName.toUpperCase(Locale.ENGLISH)))
+            {
+                continue;
+            }
+
+            // Use database table name. Required to support case sensitive database.
+            String databaseTableName = databaseDataSet.getTableMetaData(tableName).getTableName();
+            tableNames.add(tableName);
+            databaseTableNames.add(databaseTableName);
+            if (firstChanged < 0 && isChanged(connection, registry, databaseTableName,
+                    (TableFingerprint)fingerprints.get(tableName.toUpperCase(Locale.ENGLISH))))
+            {
+                firstChanged = tableNames.size() - 1;
+            }
+        }
+
+        if (firstChanged < 0)
+        {
+            logger.debug("Skipping the operation since all tables are unchanged");
+            return;
+        }
+
+        IDataSet reloadDataSet = dataSet;
+        if (firstChanged > 0)
+        {
+            List reloadNames = tableNames.subList(firstChanged, tableNames.size());
+            logger.debug("Reloading the tables {}", reloadNames);
+            reloadDataSet = new FilteredDataSet(
+                    (String[])reloadNames.toArray(new String[0]), dataSet);
+        }
+        _operation.execute(connection, reloadDataSet);
+
+        for (int i = firstChanged; i < tableNames.size(); i++)
+        {
+            TableFingerprint fingerprint = (TableFingerprint)fingerprints.get(
+                    ((String)tableNames.get(i)).toUpperCase(Locale.ENGLISH));
+            String databaseTableName = (String)databaseTableNames.get(i);
+            registry.markLoaded(databaseTableName, fingerprint.hash,
+                    connection.getRowCount(databaseTableName));
+        }
+    }
+
+    private boolean isChanged(IDatabaseConnection connection, FixtureRegistry registry,
+            String databaseTableName, TableFingerprint fingerprint)
+            throws DatabaseUnitException, SQLException
+    {
+        int rowCount = registry.getLoadedRowCount(databaseTableName, fingerprint.hash);
+        if (rowCount < 0)
+        {
+            logger.debug("Table '{}' has not been loaded with the dataset", databaseTableName);
+            return true;
+        }
+        if (rowCount != connection.getRowCount(databaseTableName))
+        {
+            logger.debug("The row count of table '{}' has changed", databaseTableName);
+            return true;
+        }
+        // The content of a table without any hashed column is not read
+        if (_compareContent && fingerprint.metaData.getColumns().length > 0)
+        {
+            ForwardOnlyResultSetTable databaseTable = new ForwardOnlyResultSetTable(
+                    fingerprint.metaData, connection);
+            try
+            {
+                if (hash(databaseTable) != fingerprint.hash)
+                {
+                    logger.debug("The content of table '{}' has changed", databaseTableName);
+                    return true;
+                }
+            }
+            finally
+            {
+                databaseTable.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the fingerprints of the tables of the given dataset, which are computed
+     * on the first invocation for a dataset.
+     */
+    private Map getFingerprints(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        synchronized (_fingerprints)
+        {
+            Map fingerprints = (Map)_fingerprints.get(dataSet);
+            if (fingerprints != null)
+            {
+                return fingerprints;
+            }
+
+            // A table occurring several times is loaded with the rows of all occurrences
+            Map occurrences = new HashMap();
+            ITableIterator iterator = dataSet.iterator();
+            while (iterator.next())
+            {
+                ITable table = iterator.getTable();
+                String key = table.getTableMetaData().getTableName().toUpperCase(Locale.ENGLISH);
+                List tables = (List)occurrences.get(key);
+                if (tables == null)
+                {
+                    tables = new ArrayList();
+                    occurrences.put(key, tables);
+                }
+                tables.add(table);
+            }
+
+            fingerprints = new HashMap();
+            for (Iterator it = occurrences.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry entry = (Map.Entry)it.next();
+                List tables = (List)entry.getValue();
+                ITableMetaData metaData = getHashedMetaData(connection, tables);
+                long hash = 0;
+                for (int i = 0; i < tables.size(); i++)
+                {
+                    hash += hash((ITable)tables.get(i), metaData);
+                }
+                fingerprints.put(entry.getKey(), new TableFingerprint(metaData, hash));
+            }
+            _fingerprints.put(dataSet, fingerprints);
+            return fingerprints;
+        }
+    }
+
+    /**
+     * Returns the columns of the given occurrences of a table which are hashed, i.e. the
+     * columns present in all occurrences without any {@link ITable#NO_VALUE}. The columns
+     * have the types of the database so that the values of the dataset can be compared
+     * with the content read from the database.
+     */
+    private static ITableMetaData getHashedMetaData(IDatabaseConnection connection, List tables)
+            throws DatabaseUnitException, SQLException
+    {
+        ITableMetaData metaData = getOperationMetaData(connection,
+                ((ITable)tables.get(0)).getTableMetaData());
+        Column[] columns = metaData.getColumns();
+        boolean[] hashed = new boolean[columns.length];
+        Arrays.fill(hashed, true);
+
+        for (int i = 0; i < tables.size(); i++)
+        {
+            ITable table = (ITable)tables.get(i);
+            ITableMetaData tableMetaData = table.getTableMetaData();
+            int[] indexes = new int[columns.length];
+            for (int j = 0; j < columns.length; j++)
+            {
+                String columnName = columns[j].getColumnName();
+                if (Columns.getColumn(columnName, tableMetaData.getColumns()) == null)
+                {
+                    hashed[j] = false;
+                    continue;
+                }
+                indexes[j] = tableMetaData.getColumnIndex(columnName);
+            }
+
+            ITableCursor cursor = DefaultTableCursor.getCursor(table);
+            while (cursor.next())
+            {
+                for (int j = 0; j < columns.length; j++)
+                {
+                    if (hashed[j] && cursor.getValue(indexes[j]) == ITable.NO_VALUE)
+                    {
+                        hashed[j] = false;
+                    }
+                }
+            }
+        }
+
+        List hashedColumns = new ArrayList();
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (hashed[i])
+            {
+                hashedColumns.add(columns[i]);
+            }
+            else
+            {
+                logger.debug("Column '{}' of table '{}' is not hashed",
+                        columns[i].getColumnName(), metaData.getTableName());
+            }
+        }
+        return new DefaultTableMetaData(metaData.getTableName(),
+                (Column[])hashedColumns.toArray(new Column[0]), metaData.getPrimaryKeys());
+    }
+
+    /**
+     * Returns the hash of the given columns of the given table. The hash does not depend
+     * on the order of the rows and of the columns of the table.
+     */
+    private static long hash(ITable table, ITableMetaData metaData) throws DatabaseUnitException
+    {
+        Column[] columns = metaData.getColumns();
+        long[] columnHashes = new long[columns.length];
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columnHashes[i] = columns[i].getColumnName().toUpperCase(Locale.ENGLISH).hashCode();
+            indexes[i] = table.getTableMetaData().getColumnIndex(columns[i].getColumnName());
+        }
+
+        long tableHash = 0;
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        while (cursor.next())
+        {
+            long rowHash = 0;
+            for (int i = 0; i < columns.length; i++)
+            {
+                Object value = columns[i].getDataType().typeCast(cursor.getValue(indexes[i]));
+                rowHash += mix(columnHashes[i] * 31 + hashValue(value));
+            }
+            tableHash += mix(rowHash);
+        }
+        return tableHash;
+    }
+
+    private static long hash(ITable table) throws DatabaseUnitException
+    {
+        return hash(table, table.getTableMetaData());
+    }
+
+    static long hashValue(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        if (value instanceof BigDecimal)
+        {
+            // Equal values of different scales, e.g. 1.5 and 1.50, get the same hash
+            BigDecimal decimal = stripTrailingZeros((BigDecimal)value);
+            if (decimal.scale() == 0)
+            {
+                return hashInteger(decimal.unscaledValue());
+            }
+            return 31L * decimal.unscaledValue().hashCode() + decimal.scale();
+        }
+        if (value instanceof BigInteger)
+        {
+            return hashInteger((BigInteger)value);
+        }
+        if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte)
+        {
+            return ((Number)value).longValue();
+        }
+        if (value instanceof Number)
+        {
+            double doubleValue = ((Number)value).doubleValue();
+            if (doubleValue == Math.floor(doubleValue) && Math.abs(doubleValue) < LONG_RANGE)
+            {
+                // Integral values get the same hash as the integer types
+                return (long)doubleValue;
+            }
+            return Double.doubleToLongBits(doubleValue);
+        }
+        if (value instanceof java.util.Date)
+        {
+            return ((java.util.Date)value).getTime();
+        }
+        if (value instanceof byte[])
+        {
+            byte[] bytes = (byte[])value;
+            long hash = 1;
+            for (int i = 0; i < bytes.length; i++)
+            {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash;
+        }
+        return value.toString().hashCode();
+    }
+
+    /**
+     * @return The value of the given integer if it fits into a <code>long</code>, so that
+     * it gets the same hash as the other integer types
+     */
+    private static long hashInteger(BigInteger value)
+    {
+        return value.bitLength() < 64 ? value.longValue() : value.hashCode();
+    }
+
+    /**
+     * Removes the trailing zeros of the fraction of the given decimal, and the negative
+     * scale of an integer. <code>BigDecimal.stripTrailingZeros()</code> is not available
+     * in Java 1.4.
+     */
+    private static BigDecimal stripTrailingZeros(BigDecimal value)
+    {
+        if (value.scale() < 0)
+        {
+            return value.setScale(0);
+        }
+        BigInteger unscaledValue = value.unscaledValue();
+        int scale = value.scale();
+        while (scale > 0)
+        {
+            BigInteger[] quotientAndRemainder = unscaledValue.divideAndRemainder(TEN);
+            if (quotientAndRemainder[1].signum() != 0)
+            {
+                break;
+            }
+            unscaledValue = quotientAndRemainder[0];
+            scale--;
+        }
+        return scale == value.scale() ? value : new BigDecimal(unscaledValue, scale);
+    }
+
+    /**
+     * Spreads the bits of the given hash so that the sums of the row and table hashes
+     * do not cancel each other out.
+     */
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_operation=").append(_operation);
+        sb.append(", _compareContent=").append(_compareContent);
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * The fingerprint of the content of a dataset table
+     */
+    private static class TableFingerprint
+    {
+        /**
+         * The columns of the dataset with the types of the database
+         */
+        private final ITableMetaData metaData;
+        private final long hash;
+
+        private TableFingerprint(ITableMetaData metaData, long hash)
+        {
+            this.metaData = metaData;
+            this.hash = hash;
+        }
+    }
+}
@@ -24,19 +24,41 @@ package org.dbunit.operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.statement.IPreparedBatchStatement;
+import org.dbunit.database.statement.IStatementFactory;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableCursor;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.IIndexedTable;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
+import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.IndexedTableAdapter;
+import org.dbunit.dataset.datatype.TypeCastException;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
 
 /**
  * Inserts the dataset contents into the database. This operation assumes that
  * table data does not exist in the database and fails if this is not the case.
  * To prevent problems with foreign keys, tables must be sequenced appropriately
  * in dataset.
+ * <p>
+ * If the property {@link DatabaseConfig#PROPERTY_MULTI_ROW_INSERT_SIZE} is greater
+ * than 1, several rows are sent with one multi-row
+ * <code>insert into T (..) values (..), (..), ...</code> statement. The number of rows
+ * per statement is reduced so that the number of bind parameters does not exceed
+ * {@link DatabaseConfig#PROPERTY_MAX_STATEMENT_PARAMETERS}.
+ * </p>
  *
  * @author Manuel Laflamme
  * @version $Revision$
@@ -66,6 +88,21 @@ public class InsertOperation extends AbstractBatchOperation
     				new Object[]{ metaData, ignoreMapping, connection });
     	}
 
+        return getOperationData(metaData, ignoreMapping, connection, 1);
+    }
+
+    /**
+     * Creates the insert statement for the given number of rows.
+     * @param metaData The metadata of the table
+     * @param ignoreMapping The columns that are not part of the statement
+     * @param connection The database connection
+     * @param rowCount The number of rows inserted by one execution of the statement
+     * @return The operation data whose SQL contains <code>rowCount</code> value lists
+     * @since 2.4.8
+     */
+    OperationData getOperationData(ITableMetaData metaData,
+            BitSet ignoreMapping, IDatabaseConnection connection, int rowCount) throws DataSetException
+    {
         Column[] columns = metaData.getColumns();
 
         // insert
@@ -91,33 +128,110 @@ public class InsertOperation extends AbstractBatchOperation
         }
 
         // values
-        sqlBuffer.append(") values (");
-        String valueSeparator = "";
-        for (int i = 0; i < columns.length; i++)
+        sqlBuffer.append(") values ");
+        for (int row = 0; row < rowCount; row++)
         {
-            if (!ignoreMapping.get(i))
+            if (row > 0)
             {
-                sqlBuffer.append(valueSeparator);
-                sqlBuffer.append("?");
-                valueSeparator = ", ";
+                sqlBuffer.append(", ");
             }
+            sqlBuffer.append("(");
+            String valueSeparator = "";
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (!ignoreMapping.get(i))
+                {
+                    sqlBuffer.append(valueSeparator);
+                    sqlBuffer.append("?");
+                    valueSeparator = ", ";
+                }
+            }
+            sqlBuffer.append(")");
         }
-        sqlBuffer.append(")");
 
         return new OperationData(sqlBuffer.toString(), columns);
     }
 
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        DatabaseConfig config = connection.getConfig();
+        int rowsPerStatement = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_MULTI_ROW_INSERT_SIZE)).intValue();
+        if (rowsPerStatement <= 1)
+        {
+            super.execute(connection, dataSet);
+            return;
+        }
+
+        IStatementFactory factory = (IStatementFactory)config.getProperty(
+                DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+        int maxParameters = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_MAX_STATEMENT_PARAMETERS)).intValue();
+
+        // for each table
+        ITableIterator iterator = iterator(dataSet);
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+
+            // Do not process empty table
+            if (isEmpty(table))
+            {
+                continue;
+            }
+
+            ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
+            markDirty(connection, metaData.getTableName());
+            MultiRowInsert insert = new MultiRowInsert(connection, factory, metaData,
+                    rowsPerStatement, maxParameters);
+            try
+            {
+                Column[] columns = metaData.getColumns();
+                ITableCursor cursor = DefaultTableCursor.getCursor(table);
+                int[] columnIndexes = Columns.getColumnIndexes(table.getTableMetaData(), columns);
+                while (cursor.next())
+                {
+                    // Read each value once; NO_VALUE marks a column to ignore
+                    Object[] values = new Object[columns.length];
+                    BitSet ignoreMapping = new BitSet();
+                    for (int j = 0; j < columns.length; j++)
+                    {
+                        values[j] = cursor.getValue(columnIndexes[j]);
+                        if (values[j] == ITable.NO_VALUE)
+                        {
+                            ignoreMapping.set(j);
+                        }
+                    }
+                    insert.addRow(values, ignoreMapping);
+                }
+
+                insert.flush();
+            }
+            finally
+            {
+                insert.close();
+            }
+        }
+    }
+
     protected BitSet getIgnoreMapping(ITable table, int row) throws DataSetException
     {
     	if(logger.isDebugEnabled())
     		logger.debug("getIgnoreMapping(table={}, row={}) - start", table, String.valueOf(row));
 
         Column[] columns = table.getTableMetaData().getColumns();
+        IIndexedTable indexedTable = IndexedTableAdapter.getIndexedTable(table);
 
         BitSet ignoreMapping = new BitSet();
         for (int i = 0; i < columns.length; i++)
         {
-            Object value = table.getValue(row, columns[i].getColumnName());
+            Object value = indexedTable.getValue(row, i);
             if (value == ITable.NO_VALUE)
             {
                 ignoreMapping.set(i);
@@ -136,11 +250,12 @@ public class InsertOperation extends AbstractBatchOperation
     	}
 
         Column[] columns = table.getTableMetaData().getColumns();
+        IIndexedTable indexedTable = IndexedTableAdapter.getIndexedTable(table);
 
         for (int i = 0; i < columns.length; i++)
         {
             boolean bit = ignoreMapping.get(i);
-            Object value = table.getValue(row, columns[i].getColumnName());
+            Object value = indexedTable.getValue(row, i);
             if ((bit && value != ITable.NO_VALUE) || (!bit && value == ITable.NO_VALUE))
             {
                 return false;
@@ -149,4 +264,141 @@ public class InsertOperation extends AbstractBatchOperation
 
         return true;
     }
+
+
+    /**
+     * Collects the rows of one table and sends them with multi-row insert statements.
+     * Rows are sent in dataset order. Whenever the ignore mapping of a row differs
+     * from the previous one, the pending rows are flushed with a statement sized
+     * for the remaining rows (tail chunk).
+     */
+    private class MultiRowInsert
+    {
+        private final IDatabaseConnection _connection;
+        private final IStatementFactory _factory;
+        private final ITableMetaData _metaData;
+        private final int _rowsPerStatement;
+        private final int _maxParameters;
+
+        private BitSet _ignoreMapping;
+        private int _chunkSize;
+        private List _pendingRows = new ArrayList();
+        private IPreparedBatchStatement _chunkStatement;
+        private Column[] _columns;
+
+        public MultiRowInsert(IDatabaseConnection connection, IStatementFactory factory,
+                ITableMetaData metaData, int rowsPerStatement, int maxParameters)
+        {
+            _connection = connection;
+            _factory = factory;
+            _metaData = metaData;
+            _rowsPerStatement = rowsPerStatement;
+            _maxParameters = maxParameters;
+        }
+
+        public void addRow(Object[] values, BitSet ignoreMapping) throws DataSetException, SQLException
+        {
+            if (_ignoreMapping == null || !_ignoreMapping.equals(ignoreMapping))
+            {
+                flush();
+                closeChunkStatement();
+                _ignoreMapping = ignoreMapping;
+
+                int parametersPerRow = _metaData.getColumns().length - ignoreMapping.cardinality();
+                _chunkSize = _rowsPerStatement;
+                if (parametersPerRow > 0)
+                {
+                    _chunkSize = Math.max(1, Math.min(_rowsPerStatement, _maxParameters / parametersPerRow));
+                }
+            }
+
+            _pendingRows.add(values);
+            if (_pendingRows.size() == _chunkSize)
+            {
+                if (_chunkStatement == null)
+                {
+                    _chunkStatement = createStatement(_chunkSize);
+                }
+                bindPendingRows(_chunkStatement);
+            }
+        }
+
+        /**
+         * Sends the pending rows that do not fill up a whole chunk.
+         */
+        public void flush() throws DataSetException, SQLException
+        {
+            if (_chunkStatement != null)
+            {
+                _chunkStatement.executeBatch();
+                _chunkStatement.clearBatch();
+            }
+
+            if (!_pendingRows.isEmpty())
+            {
+                IPreparedBatchStatement statement = createStatement(_pendingRows.size());
+                try
+                {
+                    bindPendingRows(statement);
+                    statement.executeBatch();
+                    statement.clearBatch();
+                }
+                finally
+                {
+                    statement.close();
+                }
+            }
+        }
+
+        public void close() throws SQLException
+        {
+            closeChunkStatement();
+        }
+
+        private void closeChunkStatement() throws SQLException
+        {
+            if (_chunkStatement != null)
+            {
+                _chunkStatement.close();
+                _chunkStatement = null;
+            }
+        }
+
+        private IPreparedBatchStatement createStatement(int rowCount)
+                throws DataSetException, SQLException
+        {
+            OperationData operationData = getOperationData(_metaData, _ignoreMapping,
+                    _connection, rowCount);
+            _columns = operationData.getColumns();
+            return _factory.createPreparedBatchStatement(operationData.getSql(), _connection);
+        }
+
+        private void bindPendingRows(IPreparedBatchStatement statement)
+                throws DataSetException, SQLException
+        {
+            for (int i = 0; i < _pendingRows.size(); i++)
+            {
+                Object[] values = (Object[])_pendingRows.get(i);
+                for (int j = 0; j < _columns.length; j++)
+                {
+                    // Bind value only if not in ignore mapping
+                    if (!_ignoreMapping.get(j))
+                    {
+                        Column column = _columns[j];
+                        try
+                        {
+                            statement.addValue(values[j], column.getDataType());
+                        }
+                        catch (TypeCastException e)
+                        {
+                            throw new TypeCastException("Error casting value for table '" + _metaData.getTableName()
+                                    +"' and column '" + column.getColumnName() + "'", e);
+                        }
+                    }
+                }
+            }
+            statement.addBatch();
+            _pendingRows.clear();
+        }
+    }
 }
@@ -0,0 +1,672 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.CyclicTablesDependencyException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseDataSourceConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.search.ForeignKeyGraph;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.ForwardOnlyDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.stream.StreamingDataSet;
+import org.dbunit.util.concurrent.LinkedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator that executes another operation concurrently over a pool of database
+ * connections. The tables of the dataset are grouped into levels using the foreign
+ * key dependencies of the database: a table only depends on tables of a lower level.
+ * All tables of one level are processed in parallel, each one on a single connection
+ * of the pool, and the next level is only started once the current one has completed
+ * (barrier).
+ * <p>
+ * Because the rows written on one connection are only visible to the other connections
+ * of the pool after a commit, every level is committed on all connections at the barrier.
+ * If one table of a level fails, the level is rolled back on all connections and the
+ * exception is rethrown. Levels that have already passed the barrier are not undone.
+ * </p>
+ * <p>
+ * Delete operations ({@link DeleteAllOperation}, {@link DeleteOperation} and
+ * {@link TruncateTableOperation}) process the levels in reverse order. A
+ * {@link CompositeOperation} like {@link DatabaseOperation#CLEAN_INSERT} is executed
+ * as a sequence of parallel phases, one per decorated operation.
+ * </p>
+ * <p>
+ * The decorated operation must not manage transactions itself, i.e. it must not be a
+ * {@link TransactionOperation}.
+ * </p>
+ * <p>
+ * The worker connections may be configured without the {@link DatabaseConfig#PROPERTY_DIRTY_TABLE_REGISTRY}
+ * or {@link DatabaseConfig#PROPERTY_FIXTURE_REGISTRY} of the connection passed to
+ * {@link #execute(IDatabaseConnection, IDataSet)}. The tables written by a phase are
+ * therefore also marked on the registries of that connection before the phase starts.
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ParallelOperation extends DatabaseOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParallelOperation.class);
+
+    private final DatabaseOperation _operation;
+    private final IDatabaseConnection[] _connections;
+    private final DataSource _dataSource;
+    private final int _poolSize;
+
+    /**
+     * Creates a parallel operation that uses the given connections as pool.
+     * The connections are neither closed nor reconfigured by this operation.
+     * @param operation The operation to be executed in parallel
+     * @param connections The connections to be used by the worker threads. Each
+     * connection is used by one single thread at a time.
+     */
+    public ParallelOperation(DatabaseOperation operation, IDatabaseConnection[] connections)
+    {
+        if (operation == null) {
+            throw new NullPointerException(
+                    "The parameter 'operation' must not be null");
+        }
+        if (connections == null || connections.length == 0) {
+            throw new IllegalArgumentException(
+                    "The parameter 'connections' must not be null or empty");
+        }
+        _operation = operation;
+        _connections = connections;
+        _dataSource = null;
+        _poolSize = connections.length;
+    }
+
+    /**
+     * Creates a parallel operation that opens <code>poolSize</code> connections
+     * from the given data source for every execution. The connections get the same
+     * schema and {@link DatabaseConfig} properties as the connection passed to
+     * {@link #execute(IDatabaseConnection, IDataSet)} and are closed afterwards.
+     * @param operation The operation to be executed in parallel
+     * @param dataSource The data source providing the worker connections
+     * @param poolSize The number of worker connections
+     */
+    public ParallelOperation(DatabaseOperation operation, DataSource dataSource, int poolSize)
+    {
+        if (operation == null) {
+            throw new NullPointerException(
+                    "The parameter 'operation' must not be null");
+        }
+        if (dataSource == null) {
+            throw new NullPointerException(
+                    "The parameter 'dataSource' must not be null");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The parameter 'poolSize' must be greater than 0 but is " + poolSize);
+        }
+        _operation = operation;
+        _connections = null;
+        _dataSource = dataSource;
+        _poolSize = poolSize;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        // Parallel access to the tables requires a dataset that can be read more than once
+        if (dataSet instanceof ForwardOnlyDataSet || dataSet instanceof StreamingDataSet)
+        {
+            dataSet = new CachedDataSet(dataSet);
+        }
+
+        Map tablesByName = getTablesByName(dataSet);
+        String[] tableNames = (String[])tablesByName.keySet().toArray(new String[0]);
+        String[][] levels = groupByLevel(tableNames,
+                getDirectDependsOnTables(connection, tablesByName, dataSet.isCaseSensitiveTableNames()));
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Table levels: {}", toString(levels));
+        }
+
+        IDatabaseConnection[] pool = openPool(connection);
+        try
+        {
+            DatabaseOperation[] phases = getPhases(_operation);
+            for (int i = 0; i < phases.length; i++)
+            {
+                executePhase(phases[i], levels, tablesByName, connection, pool);
+            }
+        }
+        finally
+        {
+            closePool(pool);
+        }
+    }
+
+    private void executePhase(DatabaseOperation operation, String[][] levels, Map tablesByName,
+            IDatabaseConnection connection, IDatabaseConnection[] pool) 
+    throws DatabaseUnitException, SQLException
+    {
+        logger.debug("executePhase(operation={}) - start", operation);
+
+        boolean reverse = isReverseOrder(operation);
+        if (!reverse && !(operation instanceof FastCleanOperation) && operation != DatabaseOperation.NONE)
+        {
+            // The registries of the worker connections might not be the ones of the caller
+            for (Iterator iterator = tablesByName.values().iterator(); iterator.hasNext();)
+            {
+                ITable[] tables = (ITable[])iterator.next();
+                AbstractOperation.markDirty(connection, tables[0].getTableMetaData().getTableName());
+            }
+        }
+        boolean[] autoCommit = new boolean[pool.length];
+        for (int i = 0; i < pool.length; i++)
+        {
+            Connection jdbcConnection = pool[i].getConnection();
+            autoCommit[i] = jdbcConnection.getAutoCommit();
+            jdbcConnection.setAutoCommit(false);
+        }
+
+        try
+        {
+            for (int i = 0; i < levels.length; i++)
+            {
+                String[] level = levels[reverse ? levels.length - 1 - i : i];
+                List tasks = new ArrayList(level.length);
+                for (int j = 0; j < level.length; j++)
+                {
+                    tasks.add(tablesByName.get(level[j]));
+                }
+
+                try
+                {
+                    executeLevel(operation, tasks, pool);
+                }
+                catch (DatabaseUnitException e)
+                {
+                    rollback(pool);
+                    throw e;
+                }
+                catch (SQLException e)
+                {
+                    rollback(pool);
+                    throw e;
+                }
+                catch (RuntimeException e)
+                {
+                    rollback(pool);
+                    throw e;
+                }
+
+                // Barrier reached: make the level visible to all connections
+                for (int j = 0; j < pool.length; j++)
+                {
+                    pool[j].getConnection().commit();
+                }
+            }
+        }
+        finally
+        {
+            for (int i = 0; i < pool.length; i++)
+            {
+                pool[i].getConnection().setAutoCommit(autoCommit[i]);
+            }
+        }
+    }
+
+    /**
+     * Executes all tasks of one level and returns when all of them have completed.
+     * @param operation The operation to be executed for every table
+     * @param tasks List of <code>ITable[]</code>. All tables of a task have the
+     * same name and are processed in sequence on one connection.
+     * @param pool The worker connections
+     */
+    private void executeLevel(DatabaseOperation operation, List tasks,
+            IDatabaseConnection[] pool) throws DatabaseUnitException, SQLException
+    {
+        LinkedQueue queue = new LinkedQueue();
+        for (Iterator iterator = tasks.iterator(); iterator.hasNext();)
+        {
+            putUninterruptibly(queue, iterator.next());
+        }
+
+        int workerCount = Math.min(pool.length, tasks.size());
+        Worker[] workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers[i] = new Worker(operation, queue, pool[i]);
+        }
+
+        if (workerCount == 1)
+        {
+            // No need to pay for a thread
+            workers[0].run();
+        }
+        else
+        {
+            Thread[] threads = new Thread[workerCount];
+            for (int i = 0; i < workerCount; i++)
+            {
+                threads[i] = new Thread(workers[i], "ParallelOperation-" + i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+            // The caller rolls back and resets the connections of the workers, so all
+            // of them must have finished before this method returns, even if interrupted
+            InterruptedException interruption = null;
+            for (int i = 0; i < workerCount; i++)
+            {
+                while (threads[i].isAlive())
+                {
+                    try
+                    {
+                        threads[i].join();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        if (interruption == null)
+                        {
+                            interruption = e;
+                            // The workers stop after their current table
+                            drain(queue);
+                        }
+                    }
+                }
+            }
+            if (interruption != null)
+            {
+                Thread.currentThread().interrupt();
+                throw new DatabaseUnitException("Interrupted while waiting for the worker threads", interruption);
+            }
+        }
+
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers[i].rethrow();
+        }
+    }
+
+    private static void putUninterruptibly(LinkedQueue queue, Object item)
+    {
+        // LinkedQueue is unbounded and therefore never blocks on put
+        try
+        {
+            queue.put(item);
+        }
+        catch (InterruptedException e)
+        {
+            throw new IllegalStateException("Unexpected interruption on unbounded queue: " + e);
+        }
+    }
+
+    /**
+     * Removes all tasks from the queue, so that the workers stop after their current task.
+     */
+    private static void drain(LinkedQueue queue)
+    {
+        try
+        {
+            while (queue.poll(0) != null)
+                ;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rollback(IDatabaseConnection[] pool)
+    {
+        for (int i = 0; i < pool.length; i++)
+        {
+            try
+            {
+                pool[i].getConnection().rollback();
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Rollback failed on connection " + pool[i], e);
+            }
+        }
+    }
+
+    private IDatabaseConnection[] openPool(IDatabaseConnection connection) throws SQLException
+    {
+        if (_connections != null)
+        {
+            return _connections;
+        }
+
+        IDatabaseConnection[] pool = new IDatabaseConnection[_poolSize];
+        DatabaseConfig config = connection.getConfig();
+        for (int i = 0; i < pool.length; i++)
+        {
+            pool[i] = new DatabaseDataSourceConnection(_dataSource, connection.getSchema());
+            DatabaseConfig poolConfig = pool[i].getConfig();
+            for (int j = 0; j < DatabaseConfig.ALL_PROPERTIES.length; j++)
+            {
+                String property = DatabaseConfig.ALL_PROPERTIES[j].getProperty();
+                poolConfig.setProperty(property, config.getProperty(property));
+            }
+        }
+        return pool;
+    }
+
+    private void closePool(IDatabaseConnection[] pool)
+    {
+        if (_connections != null)
+        {
+            // Not owned by this operation
+            return;
+        }
+
+        for (int i = 0; i < pool.length; i++)
+        {
+            try
+            {
+                pool[i].close();
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Could not close connection " + pool[i], e);
+            }
+        }
+    }
+
+    /**
+     * @return the tables of the dataset as map of table name to <code>ITable[]</code>.
+     * Tables occurring more than once in the dataset are processed in sequence.
+     */
+    static Map getTablesByName(IDataSet dataSet) throws DataSetException
+    {
+        boolean caseSensitive = dataSet.isCaseSensitiveTableNames();
+        Map tableLists = new LinkedHashMap();
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            String key = getKey(table.getTableMetaData().getTableName(), caseSensitive);
+            List tables = (List)tableLists.get(key);
+            if (tables == null)
+            {
+                tables = new ArrayList(1);
+                tableLists.put(key, tables);
+            }
+            tables.add(table);
+        }
+
+        Map tablesByName = new LinkedHashMap();
+        for (Iterator iterator2 = tableLists.entrySet().iterator(); iterator2.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)iterator2.next();
+            List tables = (List)entry.getValue();
+            tablesByName.put(entry.getKey(), tables.toArray(new ITable[0]));
+        }
+        return tablesByName;
+    }
+
+    /**
+     * @return Map of table name key to the {@link Set} of table name keys whose primary
+     * key is referenced by a foreign key of that table.
+     */
+    static Map getDirectDependsOnTables(IDatabaseConnection connection,
+            Map tablesByName, boolean caseSensitive) throws DataSetException, SQLException
+    {
+        ForeignKeyGraph graph = ForeignKeyGraph.getGraph(connection);
+        Map dependsOn = new HashMap();
+        for (Iterator iterator = tablesByName.entrySet().iterator(); iterator.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)iterator.next();
+            ITable[] tables = (ITable[])entry.getValue();
+            String tableName = tables[0].getTableMetaData().getTableName();
+
+            String[] referencedTables = graph.getReferencedTables(tableName);
+            Set keys = new HashSet();
+            for (int i = 0; i < referencedTables.length; i++)
+            {
+                keys.add(getKey(referencedTables[i], caseSensitive));
+            }
+            dependsOn.put(entry.getKey(), keys);
+        }
+        return dependsOn;
+    }
+
+    private static String getKey(String tableName, boolean caseSensitive)
+    {
+        return caseSensitive ? tableName : tableName.toUpperCase();
+    }
+
+    /**
+     * Groups the given tables into levels so that a table only depends on tables of a
+     * lower level. Dependencies to tables which are not in <code>tableNames</code> and
+     * self references are ignored. Within one level the tables keep the order given
+     * by <code>tableNames</code>.
+     * @param tableNames The tables to be grouped
+     * @param dependsOn Map of table name to the {@link Set} of table names it directly
+     * depends on
+     * @return The levels, starting with the tables that do not depend on any other table
+     * @throws CyclicTablesDependencyException if the tables cannot be ordered
+     */
+    static String[][] groupByLevel(String[] tableNames, Map dependsOn)
+            throws CyclicTablesDependencyException
+    {
+        logger.debug("groupByLevel(tableNames={}, dependsOn={}) - start", tableNames, dependsOn);
+
+        Set allTables = new HashSet();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            allTables.add(tableNames[i]);
+        }
+
+        List levels = new ArrayList();
+        Set placed = new HashSet();
+        List remaining = new ArrayList();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            remaining.add(tableNames[i]);
+        }
+
+        while (!remaining.isEmpty())
+        {
+            List level = new ArrayList();
+            for (Iterator iterator = remaining.iterator(); iterator.hasNext();)
+            {
+                String tableName = (String)iterator.next();
+                if (isResolved(tableName, dependsOn, allTables, placed))
+                {
+                    level.add(tableName);
+                    iterator.remove();
+                }
+            }
+
+            if (level.isEmpty())
+            {
+                String tableName = (String)remaining.get(0);
+                throw new CyclicTablesDependencyException(tableName, new HashSet(remaining));
+            }
+
+            placed.addAll(level);
+            levels.add(level.toArray(new String[0]));
+        }
+
+        return (String[][])levels.toArray(new String[0][]);
+    }
+
+    private static boolean isResolved(String tableName, Map dependsOn, Set allTables, Set placed)
+    {
+        Set dependencies = (Set)dependsOn.get(tableName);
+        if (dependencies == null)
+        {
+            return true;
+        }
+        for (Iterator iterator = dependencies.iterator(); iterator.hasNext();)
+        {
+            String dependency = (String)iterator.next();
+            if (!dependency.equals(tableName) && allTables.contains(dependency)
+                    && !placed.contains(dependency))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DatabaseOperation[] getPhases(DatabaseOperation operation)
+    {
+        if (operation instanceof CompositeOperation)
+        {
+            List phases = new ArrayList();
+            DatabaseOperation[] actions = ((CompositeOperation)operation).getActions();
+            for (int i = 0; i < actions.length; i++)
+            {
+                phases.addAll(Arrays.asList(getPhases(actions[i])));
+            }
+            return (DatabaseOperation[])phases.toArray(new DatabaseOperation[0]);
+        }
+        return new DatabaseOperation[] {operation};
+    }
+
+    private static boolean isReverseOrder(DatabaseOperation operation)
+    {
+        return operation instanceof DeleteAllOperation || operation instanceof DeleteOperation;
+    }
+
+    private static String toString(String[][] levels)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < levels.length; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(i).append("=").append(Arrays.asList(levels[i]));
+        }
+        return sb.toString();
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_operation=").append(_operation);
+        sb.append(", _poolSize=").append(_poolSize);
+        sb.append(", _dataSource=").append(_dataSource);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+
+    /**
+     * Takes tables from the shared queue and executes the operation on them using
+     * one single connection until the queue is empty.
+     */
+    private static class Worker implements Runnable
+    {
+        private final DatabaseOperation _operation;
+        private final LinkedQueue _queue;
+        private final IDatabaseConnection _connection;
+        private Throwable _failure;
+
+        public Worker(DatabaseOperation operation, LinkedQueue queue, IDatabaseConnection connection)
+        {
+            _operation = operation;
+            _queue = queue;
+            _connection = connection;
+        }
+
+        public void run()
+        {
+            try
+            {
+                ITable[] tables;
+                while ((tables = (ITable[])_queue.poll(0)) != null)
+                {
+                    for (int i = 0; i < tables.length; i++)
+                    {
+                        _operation.execute(_connection, new DefaultDataSet(tables[i]));
+                    }
+                }
+            }
+            catch (Throwable e)
+            {
+                _failure = e;
+                // Stop the other workers as soon as possible
+                drain(_queue);
+            }
+        }
+
+        void rethrow() throws DatabaseUnitException, SQLException
+        {
+            if (_failure == null)
+            {
+                return;
+            }
+            if (_failure instanceof DatabaseUnitException)
+            {
+                throw (DatabaseUnitException)_failure;
+            }
+            if (_failure instanceof SQLException)
+            {
+                throw (SQLException)_failure;
+            }
+            if (_failure instanceof RuntimeException)
+            {
+                throw (RuntimeException)_failure;
+            }
+            if (_failure instanceof Error)
+            {
+                throw (Error)_failure;
+            }
+            throw new DatabaseUnitException(_failure);
+        }
+    }
+}
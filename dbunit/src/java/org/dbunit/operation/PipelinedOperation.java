@@ -0,0 +1,530 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTableCursor;
+import org.dbunit.dataset.ICursorTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchColumnException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.dataset.stream.IDataSetProducer;
+import org.dbunit.dataset.stream.StreamingDataSet;
+import org.dbunit.util.concurrent.BoundedBuffer;
+import org.dbunit.util.concurrent.Channel;
+import org.dbunit.util.concurrent.Puttable;
+import org.dbunit.util.concurrent.Takable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator that executes another operation as a pipeline of three stages running
+ * on separate threads:
+ * <ol>
+ * <li>the dataset produces the rows, e.g. a {@link StreamingDataSet} parses its
+ * input on its own thread,</li>
+ * <li>a conversion thread casts the values of every row to the {@link DataType}s
+ * of the columns of the database table,</li>
+ * <li>the calling thread executes the decorated operation which then only binds
+ * the converted values and executes the statements.</li>
+ * </ol>
+ * The stages are joined by bounded buffers, a stage blocks when the next one
+ * cannot keep up. Parsing and conversion therefore overlap with the database
+ * round trips.
+ * <p>
+ * Only {@link DatabaseOperation#INSERT}, {@link DatabaseOperation#UPDATE} and
+ * {@link DatabaseOperation#REFRESH} are pipelined, since they read the rows of each
+ * table once and in forward order. A composite operation like
+ * {@link DatabaseOperation#CLEAN_INSERT} is split into its phases, the same way
+ * {@link ParallelOperation} does. The phases that cannot be pipelined, like
+ * {@link DatabaseOperation#DELETE_ALL} or {@link DatabaseOperation#DELETE}, are
+ * executed unchanged on the whole dataset, so that they keep processing the tables
+ * in reverse order. Such phases require a dataset that can be iterated more than
+ * once and in reverse order, just like the plain operation does.
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class PipelinedOperation extends DatabaseOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedOperation.class);
+
+    private static final Object END_OF_TABLE = new Object();
+
+    /**
+     * Number of rows passed at once from the conversion to the execution stage
+     */
+    private static final int CHUNK_SIZE = 50;
+
+    /**
+     * Default number of rows buffered between the conversion and the execution stage
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final DatabaseOperation _operation;
+    private final int _capacity;
+
+    /**
+     * @param operation The operation executing the converted rows
+     */
+    public PipelinedOperation(DatabaseOperation operation)
+    {
+        this(operation, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param operation The operation executing the converted rows
+     * @param capacity The number of rows that can be buffered between the conversion
+     * and the execution stage
+     */
+    public PipelinedOperation(DatabaseOperation operation, int capacity)
+    {
+        if (operation == null) {
+            throw new NullPointerException(
+                    "The parameter 'operation' must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "The parameter 'capacity' must be greater than 0 but is " + capacity);
+        }
+        _operation = operation;
+        _capacity = capacity;
+    }
+
+    /**
+     * Executes this operation with the rows of the given producer. The producer
+     * runs on its own thread.
+     * @param connection the database connection.
+     * @param producer the producer of the rows.
+     */
+    public void execute(IDatabaseConnection connection, IDataSetProducer producer)
+            throws DatabaseUnitException, SQLException
+    {
+        execute(connection, new StreamingDataSet(producer));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        DatabaseOperation[] phases = getPhases(_operation);
+        for (int i = 0; i < phases.length; i++)
+        {
+            if (isPipelined(phases[i]))
+            {
+                executePipelined(phases[i], connection, dataSet);
+            }
+            else
+            {
+                phases[i].execute(connection, dataSet);
+            }
+        }
+    }
+
+    /**
+     * Executes the given operation table by table, each table fed by its own
+     * conversion thread.
+     */
+    private void executePipelined(DatabaseOperation operation, IDatabaseConnection connection,
+            IDataSet dataSet) throws DatabaseUnitException, SQLException
+    {
+        logger.debug("executePipelined(operation={}) - start", operation);
+
+        IDataSet databaseDataSet = connection.createDataSet();
+        int chunkCapacity = Math.max(1, _capacity / CHUNK_SIZE);
+
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            ITableMetaData metaData = table.getTableMetaData();
+            ITableMetaData databaseMetaData = databaseDataSet.getTableMetaData(
+                    metaData.getTableName());
+
+            Channel channel = new BoundedBuffer(chunkCapacity);
+            Converter converter = new Converter(table, databaseMetaData, channel);
+            Thread thread = new Thread(converter, "PipelinedOperation-" + metaData.getTableName());
+            thread.setDaemon(true);
+            thread.start();
+            try
+            {
+                operation.execute(connection,
+                        new DefaultDataSet(new PipedTable(metaData, channel)));
+            }
+            finally
+            {
+                // Stops the conversion if the operation did not read all rows
+                thread.interrupt();
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new DatabaseUnitException("Interrupted while waiting for the conversion thread " + thread, e);
+                }
+            }
+        }
+    }
+
+    private static DatabaseOperation[] getPhases(DatabaseOperation operation)
+    {
+        if (operation instanceof CompositeOperation)
+        {
+            List phases = new ArrayList();
+            DatabaseOperation[] actions = ((CompositeOperation)operation).getActions();
+            for (int i = 0; i < actions.length; i++)
+            {
+                phases.addAll(Arrays.asList(getPhases(actions[i])));
+            }
+            return (DatabaseOperation[])phases.toArray(new DatabaseOperation[0]);
+        }
+        return new DatabaseOperation[] {operation};
+    }
+
+    /**
+     * @return <code>true</code> if the operation reads the rows of each table once
+     * and in forward order, independent of the other tables of the dataset
+     */
+    private static boolean isPipelined(DatabaseOperation operation)
+    {
+        return operation instanceof InsertOperation || operation instanceof UpdateOperation
+                || operation instanceof RefreshOperation;
+    }
+
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(getClass().getName()).append("[");
+        sb.append("_operation=").append(_operation);
+        sb.append(", _capacity=").append(_capacity);
+        sb.append("]");
+        return sb.toString();
+    }
+
+
+    /**
+     * Conversion stage: reads the rows of a table and puts them as chunks of
+     * converted rows into the channel, followed by {@link PipelinedOperation#END_OF_TABLE}
+     * or the exception or error that occurred.
+     */
+    private static class Converter implements Runnable
+    {
+        private final ITable _table;
+        private final ITableMetaData _databaseMetaData;
+        private final Puttable _channel;
+
+        public Converter(ITable table, ITableMetaData databaseMetaData, Puttable channel)
+        {
+            _table = table;
+            _databaseMetaData = databaseMetaData;
+            _channel = channel;
+        }
+
+        public void run()
+        {
+            logger.debug("run() - start");
+
+            try
+            {
+                try
+                {
+                    convert();
+                    _channel.put(END_OF_TABLE);
+                }
+                catch (DataSetException e)
+                {
+                    _channel.put(e);
+                }
+                catch (RuntimeException e)
+                {
+                    _channel.put(e);
+                }
+                catch (Error e)
+                {
+                    // Must end the table as well, otherwise the execution stage waits forever
+                    _channel.put(e);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // The execution stage does not take any more rows
+                logger.debug("Conversion of table {} interrupted", _table.getTableMetaData().getTableName());
+            }
+        }
+
+        private void convert() throws DataSetException, InterruptedException
+        {
+            ITableMetaData metaData = _table.getTableMetaData();
+            Column[] columns = metaData.getColumns();
+            DataType[] dataTypes = getDataTypes(columns);
+
+            ITableCursor cursor = DefaultTableCursor.getCursor(_table);
+            List chunk = new ArrayList(CHUNK_SIZE);
+            while (cursor.next())
+            {
+                Object[] values = new Object[columns.length];
+                for (int j = 0; j < columns.length; j++)
+                {
+                    Object value = cursor.getValue(j);
+                    if (dataTypes[j] != null && value != null && value != ITable.NO_VALUE)
+                    {
+                        try
+                        {
+                            value = dataTypes[j].typeCast(value);
+                        }
+                        catch (TypeCastException e)
+                        {
+                            throw new TypeCastException("Error casting value for table '" + metaData.getTableName()
+                                    + "' and column '" + columns[j].getColumnName() + "'", e);
+                        }
+                    }
+                    values[j] = value;
+                }
+                chunk.add(values);
+
+                if (chunk.size() == CHUNK_SIZE)
+                {
+                    _channel.put(chunk);
+                    chunk = new ArrayList(CHUNK_SIZE);
+                }
+            }
+
+            if (!chunk.isEmpty())
+            {
+                _channel.put(chunk);
+            }
+        }
+
+        /**
+         * @return The data types of the database columns, <code>null</code> for
+         * the columns that are unknown to the database. The operation reports them.
+         */
+        private DataType[] getDataTypes(Column[] columns) throws DataSetException
+        {
+            Column[] databaseColumns = _databaseMetaData.getColumns();
+            DataType[] dataTypes = new DataType[columns.length];
+            for (int i = 0; i < columns.length; i++)
+            {
+                try
+                {
+                    int index = _databaseMetaData.getColumnIndex(columns[i].getColumnName());
+                    dataTypes[i] = databaseColumns[index].getDataType();
+                }
+                catch (NoSuchColumnException e)
+                {
+                    dataTypes[i] = null;
+                }
+            }
+            return dataTypes;
+        }
+    }
+
+
+    /**
+     * Execution stage: forward only table taking the converted rows from the channel.
+     */
+    private static class PipedTable extends AbstractTable implements ICursorTable
+    {
+        private final ITableMetaData _metaData;
+        private final Takable _channel;
+        private List _chunk = null;
+        private int _chunkIndex = 0;
+        private Object[] _rowValues;
+        private int _lastRow = -1;
+        private boolean _eot = false;
+
+        public PipedTable(ITableMetaData metaData, Takable channel)
+        {
+            _metaData = metaData;
+            _channel = channel;
+        }
+
+        /**
+         * Takes the next row from the channel.
+         * @return <code>false</code> at the end of the table
+         */
+        private boolean next() throws DataSetException
+        {
+            if (_eot)
+            {
+                return false;
+            }
+
+            if (_chunk == null || _chunkIndex == _chunk.size())
+            {
+                Object taken;
+                try
+                {
+                    taken = _channel.take();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new DataSetException("Interrupted while waiting for the rows of table "
+                            + _metaData.getTableName(), e);
+                }
+
+                if (taken == END_OF_TABLE)
+                {
+                    _eot = true;
+                    return false;
+                }
+                if (taken instanceof DataSetException)
+                {
+                    _eot = true;
+                    throw (DataSetException)taken;
+                }
+                if (taken instanceof RuntimeException)
+                {
+                    _eot = true;
+                    throw (RuntimeException)taken;
+                }
+                if (taken instanceof Error)
+                {
+                    _eot = true;
+                    throw (Error)taken;
+                }
+                _chunk = (List)taken;
+                _chunkIndex = 0;
+            }
+
+            _rowValues = (Object[])_chunk.get(_chunkIndex++);
+            _lastRow++;
+            return true;
+        }
+
+        /**
+         * @return <code>false</code> if the specified row is after the last row
+         */
+        private boolean moveTo(int row) throws DataSetException
+        {
+            while (!_eot && row > _lastRow)
+            {
+                next();
+            }
+
+            if (row < _lastRow)
+            {
+                throw new UnsupportedOperationException("Cannot go backward!");
+            }
+
+            return !_eot && row <= _lastRow;
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // ITable interface
+
+        public ITableMetaData getTableMetaData()
+        {
+            return _metaData;
+        }
+
+        public int getRowCount()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public Object getValue(int row, String columnName) throws DataSetException
+        {
+            return getValue(row, getColumnIndex(columnName));
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // IIndexedTable interface
+
+        public Object getValue(int row, int columnIndex) throws DataSetException
+        {
+            if (!moveTo(row))
+            {
+                throw new RowOutOfBoundsException(row + " > " + _lastRow);
+            }
+
+            return _rowValues[columnIndex];
+        }
+
+        ////////////////////////////////////////////////////////////////////////
+        // ICursorTable interface
+
+        public ITableCursor createCursor()
+        {
+            return new PipedCursor();
+        }
+
+        /**
+         * Cursor sharing the position of the table with all other cursors.
+         */
+        private class PipedCursor implements ITableCursor
+        {
+            private int _row = -1;
+
+            public boolean next() throws DataSetException
+            {
+                if (!moveTo(_row + 1))
+                {
+                    return false;
+                }
+                _row++;
+                return true;
+            }
+
+            public int getRow()
+            {
+                return _row;
+            }
+
+            public Object getValue(int column) throws DataSetException
+            {
+                if (_row != _lastRow || _eot)
+                {
+                    throw new RowOutOfBoundsException(_row + " is not the current row");
+                }
+                return _rowValues[column];
+            }
+        }
+    }
+}
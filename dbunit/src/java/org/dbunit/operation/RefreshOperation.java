@@ -25,29 +25,65 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.dbunit.DatabaseUnitException;
+import org.dbunit.DatabaseUnitRuntimeException;
+import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.statement.IPreparedBatchStatement;
+import org.dbunit.database.statement.IStatementFactory;
 import org.dbunit.database.statement.SimplePreparedStatement;
 import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableCursor;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
 import org.dbunit.dataset.ITableIterator;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.NoPrimaryKeyException;
-import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.BigIntegerDataType;
 import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.IntegerDataType;
+import org.dbunit.dataset.datatype.LongDataType;
+import org.dbunit.dataset.datatype.NumberDataType;
+import org.dbunit.dataset.datatype.NumberTolerantDataType;
+import org.dbunit.dataset.datatype.TypeCastException;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This operation literally refreshes dataset contents into the database. This
  * means that data of existing rows is updated and non-existing row get
  * inserted. Any rows which exist in the database but not in dataset stay
  * unaffected.
+ * <p>
+ * The rows of a table are processed in chunks of
+ * {@link DatabaseConfig#PROPERTY_REFRESH_CHUNK_SIZE} rows. The primary keys of
+ * a chunk that already exist in the database are retrieved with a single
+ * select statement. The existing rows are then updated and the missing rows
+ * inserted using batched statements.
+ * </p>
+ * <p>
+ * Deciding which rows exist requires comparing the dataset keys with the
+ * selected keys in Java. This is only done for primary keys of integral and
+ * decimal types. For other keys, e.g. CHAR keys padded by the database or
+ * keys using a case insensitive collation, the database could regard keys as
+ * equal that differ in Java. The rows of such tables are therefore refreshed
+ * one at a time by an update, followed by an insert if no row was updated.
+ * </p>
+ * <p>
+ * If an {@link org.dbunit.database.IUpsertDialect} is configured using
+ * {@link DatabaseConfig#PROPERTY_UPSERT_DIALECT} the rows are instead sent with
+ * one batched native upsert statement per table.
+ * </p>
  *
  * @author Manuel Laflamme
  * @version $Revision$
@@ -63,11 +99,13 @@ public class RefreshOperation extends AbstractOperation
 
     private final InsertOperation _insertOperation;
     private final UpdateOperation _updateOperation;
+    private final UpsertOperation _upsertOperation;
 
     RefreshOperation()
     {
         _insertOperation = (InsertOperation)DatabaseOperation.INSERT;
         _updateOperation = (UpdateOperation)DatabaseOperation.UPDATE;
+        _upsertOperation = new UpsertOperation(_insertOperation);
     }
 
     private boolean isEmpty(ITable table) throws DataSetException
@@ -75,6 +113,44 @@ public class RefreshOperation extends AbstractOperation
         return AbstractBatchOperation.isEmpty(table);
     }
 
+    /**
+     * Returns the number of rows looked up with one select statement. The
+     * chunk size is limited so that the select statement does not exceed
+     * the maximum number of statement parameters.
+     */
+    private int getChunkSize(DatabaseConfig config, int primaryKeyCount)
+    {
+        int chunkSize = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_REFRESH_CHUNK_SIZE)).intValue();
+        int maxParameters = ((Integer)config.getProperty(
+                DatabaseConfig.PROPERTY_MAX_STATEMENT_PARAMETERS)).intValue();
+        return Math.max(1, Math.min(chunkSize, maxParameters / primaryKeyCount));
+    }
+
+    /**
+     * Returns <code>true</code> if the database and {@link DataType#compare}
+     * agree on the equality of values of all specified key columns. This holds
+     * for integral and decimal numbers, but not for character strings which
+     * the database may compare blank padded or case insensitive.
+     */
+    static boolean isExactKey(Column[] primaryKeys)
+    {
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            DataType dataType = primaryKeys[i].getDataType();
+            boolean exact = dataType instanceof IntegerDataType
+                    || dataType instanceof LongDataType
+                    || dataType instanceof BigIntegerDataType
+                    || (dataType instanceof NumberDataType
+                            && !(dataType instanceof NumberTolerantDataType));
+            if (!exact)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // DatabaseOperation class
 
@@ -82,7 +158,14 @@ public class RefreshOperation extends AbstractOperation
             throws DatabaseUnitException, SQLException
     {
         logger.debug("execute(connection={}, dataSet) - start", connection);
-        
+
+        // Let the database decide between insert and update if it can
+        if (connection.getConfig().getProperty(DatabaseConfig.PROPERTY_UPSERT_DIALECT) != null)
+        {
+            _upsertOperation.execute(connection, dataSet);
+            return;
+        }
+
         // for each table
         ITableIterator iterator = dataSet.iterator();
         while (iterator.next())
@@ -97,274 +180,515 @@ public class RefreshOperation extends AbstractOperation
 
             ITableMetaData metaData = getOperationMetaData(connection,
                     table.getTableMetaData());
-            RowOperation updateRowOperation = createUpdateOperation(connection,
-                    metaData);
-            RowOperation insertRowOperation = new InsertRowOperation(connection,
-                    metaData);
 
+            // cannot lookup existing rows if no primary key
+            if (metaData.getPrimaryKeys().length == 0)
+            {
+                throw new NoPrimaryKeyException(metaData.getTableName());
+            }
+            markDirty(connection, metaData.getTableName());
+
+            TableRefresh tableRefresh = new TableRefresh(connection, metaData);
             try
             {
-                // refresh all rows
-                for (int i = 0; ; i++)
+                Column[] columns = metaData.getColumns();
+                ITableCursor cursor = DefaultTableCursor.getCursor(table);
+                int[] columnIndexes = Columns.getColumnIndexes(table.getTableMetaData(), columns);
+                List chunk = new ArrayList();
+
+                while (cursor.next())
                 {
-                    if (!updateRowOperation.execute(table, i))
+                    Object[] values = new Object[columns.length];
+                    for (int j = 0; j < columns.length; j++)
+                    {
+                        values[j] = cursor.getValue(columnIndexes[j]);
+                    }
+                    chunk.add(values);
+
+                    if (chunk.size() == tableRefresh.getChunkSize())
                     {
-                        insertRowOperation.execute(table, i);
+                        tableRefresh.execute(chunk);
+                        chunk.clear();
                     }
                 }
-            }
-            catch (RowOutOfBoundsException e)
-            {
-            	// This exception occurs when records are exhausted
-            	// and we reach the end of the table.  Ignore this error.
 
-                // end of table
+                if (chunk.size() > 0)
+                {
+                    tableRefresh.execute(chunk);
+                }
             }
             finally
             {
                 // cleanup
-                updateRowOperation.close();
-                insertRowOperation.close();
+                tableRefresh.close();
             }
         }
 
     }
 
-    private RowOperation createUpdateOperation(IDatabaseConnection connection,
-            ITableMetaData metaData)
-            throws DataSetException, SQLException
-    {
-        logger.debug("createUpdateOperation(connection={}, metaData={}) - start", connection, metaData);
-
-        // update only if columns are not all primary keys
-        if (metaData.getColumns().length > metaData.getPrimaryKeys().length)
-        {
-            return new UpdateRowOperation(connection, metaData);
-        }
-
-        // otherwise, operation only verify if row exist
-        return new RowExistOperation(connection,  metaData);
-    }
-
     /**
-     * This class represents a operation executed on a single table row.
+     * Refreshes the rows of a single table, one chunk of rows at a time. The
+     * rows are given as arrays of values in the order of the operation
+     * metadata columns.
      */
-    class RowOperation
+    private class TableRefresh
     {
 
         /**
          * Logger for this class
          */
-        private final Logger logger = LoggerFactory.getLogger(RowOperation.class);
+        private final Logger logger = LoggerFactory.getLogger(TableRefresh.class);
 
-        protected IPreparedBatchStatement _statement;
-        protected OperationData _operationData;
-        protected BitSet _ignoreMapping;
+        private final IDatabaseConnection _connection;
+        private final ITableMetaData _metaData;
+        private final IStatementFactory _statementFactory;
+        private final int _chunkSize;
 
-        /**
-         * Execute this operation on the sepcified table row.
-         * @return <code>true</code> if operation have been executed on the row.
-         */
-        public boolean execute(ITable table, int row)
-                throws DataSetException, SQLException
+        private final Column[] _primaryKeys;
+        private final int[] _primaryKeyIndexes;
+        private final boolean _exactKeys;
+
+        private final OperationData _updateData;
+        private final int[] _updateIndexes;
+        private IPreparedBatchStatement _updateStatement;
+
+        /** Non batched update statement returning the updated row count */
+        private IPreparedBatchStatement _rowUpdateStatement;
+
+        private OperationData _insertData;
+        private BitSet _insertIgnoreMapping;
+        private IPreparedBatchStatement _insertStatement;
+
+        /** Select statement sized for a full chunk, reused for all full chunks */
+        private PreparedStatement _selectStatement;
+
+        public TableRefresh(IDatabaseConnection connection, ITableMetaData metaData)
+                throws DataSetException
         {
-            logger.debug("execute(table={}, row={}) - start", table, String.valueOf(row));
+            _connection = connection;
+            _metaData = metaData;
+
+            DatabaseConfig config = connection.getConfig();
+            _statementFactory = (IStatementFactory)config.getProperty(
+                    DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+
+            _primaryKeys = metaData.getPrimaryKeys();
+            _primaryKeyIndexes = getColumnIndexes(_primaryKeys);
+            _exactKeys = isExactKey(_primaryKeys);
+            // Rows with inexact keys are refreshed one at a time
+            _chunkSize = _exactKeys ? RefreshOperation.this.getChunkSize(
+                    config, _primaryKeys.length) : 1;
+
+            // update only if columns are not all primary keys
+            if (metaData.getColumns().length > _primaryKeys.length)
+            {
+                _updateData = _updateOperation.getOperationData(metaData, null, connection);
+                _updateIndexes = getColumnIndexes(_updateData.getColumns());
+            }
+            else
+            {
+                _updateData = null;
+                _updateIndexes = null;
+            }
+        }
 
-            Column[] columns = _operationData.getColumns();
+        private int[] getColumnIndexes(Column[] columns) throws DataSetException
+        {
+            int[] indexes = new int[columns.length];
             for (int i = 0; i < columns.length; i++)
             {
-                // Bind value only if not in ignore mapping
-                if (_ignoreMapping == null || !_ignoreMapping.get(i))
-                {
-                    Object value = table.getValue(row, columns[i].getColumnName());
-                    _statement.addValue(value, columns[i].getDataType());
-                }
+                indexes[i] = _metaData.getColumnIndex(columns[i].getColumnName());
             }
-            _statement.addBatch();
-            int result = _statement.executeBatch();
-            _statement.clearBatch();
+            return indexes;
+        }
 
-            return result == 1;
+        public int getChunkSize()
+        {
+            return _chunkSize;
         }
 
         /**
-         * Cleanup this operation state.
+         * Refreshes the specified chunk of rows.
+         * @param rows list of <code>Object[]</code> row values
          */
-        public void close() throws SQLException
+        public void execute(List rows) throws DataSetException, SQLException
         {
-            logger.debug("close() - start");
+            logger.debug("execute(rows={}) - start", String.valueOf(rows.size()));
 
-            if (_statement != null)
+            if (!_exactKeys)
             {
-                _statement.close();
+                executeRowByRow(rows);
+                return;
             }
-        }
-    }
 
-    /**
-     * Insert row operation.
-     */
-    private class InsertRowOperation extends RowOperation
-    {
+            Set existingKeys = selectExistingKeys(rows);
+            // Keys of the inserts not executed yet
+            Set pendingKeys = new TreeSet(new KeyComparator(_primaryKeys));
+            try
+            {
+                for (int i = 0; i < rows.size(); i++)
+                {
+                    Object[] values = (Object[])rows.get(i);
+                    Object[] key = getKey(values);
 
-        /**
-         * Logger for this class
-         */
-        private final Logger logger = LoggerFactory.getLogger(InsertRowOperation.class);
+                    if (existingKeys.contains(key))
+                    {
+                        // The update batch executes itself when it is full, so the
+                        // inserted row must exist before its update is added
+                        if (_updateData != null && pendingKeys.contains(key))
+                        {
+                            _insertStatement.executeBatch();
+                            _insertStatement.clearBatch();
+                            pendingKeys.clear();
+                        }
+                        addUpdate(values);
+                    }
+                    else
+                    {
+                        addInsert(values);
 
-        private IDatabaseConnection _connection;
-        private ITableMetaData _metaData;
+                        // Subsequent rows with the same key must update the inserted row
+                        existingKeys.add(key);
+                        pendingKeys.add(key);
+                    }
+                }
+            }
+            catch (DatabaseUnitRuntimeException e)
+            {
+                // Thrown by the KeyComparator
+                if (e.getCause() instanceof TypeCastException)
+                {
+                    throw (TypeCastException)e.getCause();
+                }
+                throw e;
+            }
 
-        public InsertRowOperation(IDatabaseConnection connection,
-                ITableMetaData metaData)
-                throws DataSetException, SQLException
-        {
-            _connection = connection;
-            _metaData = metaData;
+            // Inserts first so that the updates never run before an insert of their key
+            if (_insertStatement != null)
+            {
+                _insertStatement.executeBatch();
+                _insertStatement.clearBatch();
+            }
+            if (_updateStatement != null)
+            {
+                _updateStatement.executeBatch();
+                _updateStatement.clearBatch();
+            }
         }
 
-        public boolean execute(ITable table, int row)
-                throws DataSetException, SQLException
+        /**
+         * Refreshes the specified rows one at a time, leaving the key
+         * comparison to the database.
+         */
+        private void executeRowByRow(List rows) throws DataSetException, SQLException
         {
-            logger.debug("execute(table={}, row={}) - start", table, String.valueOf(row));
-
-            // If current row has a different ignore value mapping than
-            // previous one, we generate a new statement
-            if (_ignoreMapping == null ||
-                    !_insertOperation.equalsIgnoreMapping(_ignoreMapping, table, row))
+            for (int i = 0; i < rows.size(); i++)
             {
-                // Execute and close previous statement
-                if (_statement != null)
+                Object[] values = (Object[])rows.get(i);
+
+                boolean exists;
+                if (_updateData != null)
+                {
+                    if (_rowUpdateStatement == null)
+                    {
+                        _rowUpdateStatement = new SimplePreparedStatement(
+                                _updateData.getSql(), _connection.getConnection());
+                    }
+
+                    Column[] columns = _updateData.getColumns();
+                    for (int j = 0; j < columns.length; j++)
+                    {
+                        _rowUpdateStatement.addValue(values[_updateIndexes[j]],
+                                columns[j].getDataType());
+                    }
+                    _rowUpdateStatement.addBatch();
+                    exists = _rowUpdateStatement.executeBatch() > 0;
+                    _rowUpdateStatement.clearBatch();
+                }
+                else
                 {
-                    _statement.close();
+                    // nothing to update if all columns are primary keys
+                    List row = new ArrayList(1);
+                    row.add(values);
+                    exists = !selectExistingKeys(row).isEmpty();
                 }
 
-                _ignoreMapping = _insertOperation.getIgnoreMapping(table, row);
-                _operationData = _insertOperation.getOperationData(_metaData,
-                        _ignoreMapping, _connection);
-                _statement = new SimplePreparedStatement(_operationData.getSql(),
-                        _connection.getConnection());
+                if (!exists)
+                {
+                    // Insert right away so that subsequent rows with the same key update it
+                    addInsert(values);
+                    _insertStatement.executeBatch();
+                    _insertStatement.clearBatch();
+                }
             }
+        }
 
-            return super.execute(table, row);
+        private Object[] getKey(Object[] values)
+        {
+            Object[] key = new Object[_primaryKeyIndexes.length];
+            for (int i = 0; i < _primaryKeyIndexes.length; i++)
+            {
+                key[i] = values[_primaryKeyIndexes[i]];
+            }
+            return key;
         }
 
-    }
+        /**
+         * Returns the keys of the specified rows that already exist in the
+         * database, sorted using the primary key data types.
+         */
+        private Set selectExistingKeys(List rows) throws DataSetException, SQLException
+        {
+            PreparedStatement statement;
+            if (rows.size() == _chunkSize)
+            {
+                if (_selectStatement == null)
+                {
+                    _selectStatement = _connection.getConnection().prepareStatement(
+                            getSelectKeysSql(_chunkSize));
+                }
+                statement = _selectStatement;
+            }
+            else
+            {
+                statement = _connection.getConnection().prepareStatement(
+                        getSelectKeysSql(rows.size()));
+            }
 
-    /**
-     * Update row operation.
-     */
-    private class UpdateRowOperation extends RowOperation
-    {
-        PreparedStatement _countStatement;
+            try
+            {
+                int parameterIndex = 1;
+                for (int i = 0; i < rows.size(); i++)
+                {
+                    Object[] values = (Object[])rows.get(i);
+                    for (int j = 0; j < _primaryKeys.length; j++)
+                    {
+                        DataType dataType = _primaryKeys[j].getDataType();
+                        dataType.setSqlValue(values[_primaryKeyIndexes[j]],
+                                parameterIndex++, statement);
+                    }
+                }
 
-        public UpdateRowOperation(IDatabaseConnection connection,
-                ITableMetaData metaData)
-                throws DataSetException, SQLException
-        {
-            // setup update statement
-            _operationData = _updateOperation.getOperationData(
-                    metaData, null, connection);
-            _statement = new SimplePreparedStatement(_operationData.getSql(),
-                    connection.getConnection());
+                Set existingKeys = new TreeSet(new KeyComparator(_primaryKeys));
+                ResultSet resultSet = statement.executeQuery();
+                try
+                {
+                    while (resultSet.next())
+                    {
+                        Object[] key = new Object[_primaryKeys.length];
+                        for (int i = 0; i < _primaryKeys.length; i++)
+                        {
+                            DataType dataType = _primaryKeys[i].getDataType();
+                            key[i] = dataType.getSqlValue(i + 1, resultSet);
+                        }
+                        existingKeys.add(key);
+                    }
+                }
+                finally
+                {
+                    resultSet.close();
+                }
+                return existingKeys;
+            }
+            finally
+            {
+                if (statement != _selectStatement)
+                {
+                    statement.close();
+                }
+            }
         }
-    }
-
-    /**
-     * This operation verify if a row exists in the database.
-     */
-    private class RowExistOperation extends RowOperation
-    {
 
         /**
-         * Logger for this class
+         * Returns the select statement retrieving the primary keys of the
+         * specified number of rows. A single column key uses an
+         * <code>in (...)</code> list, a composite key a disjunction of
+         * conjunctions which is supported by all databases.
          */
-        private final Logger logger = LoggerFactory.getLogger(RowExistOperation.class);
+        String getSelectKeysSql(int rowCount) throws DataSetException
+        {
+            StringBuffer sqlBuffer = new StringBuffer(128);
+            sqlBuffer.append("select ");
+            for (int i = 0; i < _primaryKeys.length; i++)
+            {
+                if (i > 0)
+                {
+                    sqlBuffer.append(", ");
+                }
+                sqlBuffer.append(getQualifiedName(null,
+                        _primaryKeys[i].getColumnName(), _connection));
+            }
+            sqlBuffer.append(" from ");
+            sqlBuffer.append(getQualifiedName(_connection.getSchema(),
+                    _metaData.getTableName(), _connection));
+            sqlBuffer.append(" where ");
 
-        PreparedStatement _countStatement;
+            if (_primaryKeys.length == 1)
+            {
+                sqlBuffer.append(getQualifiedName(null,
+                        _primaryKeys[0].getColumnName(), _connection));
+                sqlBuffer.append(" in (");
+                for (int i = 0; i < rowCount; i++)
+                {
+                    if (i > 0)
+                    {
+                        sqlBuffer.append(", ");
+                    }
+                    sqlBuffer.append("?");
+                }
+                sqlBuffer.append(")");
+            }
+            else
+            {
+                for (int i = 0; i < rowCount; i++)
+                {
+                    if (i > 0)
+                    {
+                        sqlBuffer.append(" or ");
+                    }
+                    sqlBuffer.append("(");
+                    for (int j = 0; j < _primaryKeys.length; j++)
+                    {
+                        if (j > 0)
+                        {
+                            sqlBuffer.append(" and ");
+                        }
+                        sqlBuffer.append(getQualifiedName(null,
+                                _primaryKeys[j].getColumnName(), _connection));
+                        sqlBuffer.append(" = ?");
+                    }
+                    sqlBuffer.append(")");
+                }
+            }
 
-        public RowExistOperation(IDatabaseConnection connection,
-                ITableMetaData metaData)
-                throws DataSetException, SQLException
-        {
-            // setup select count statement
-            _operationData = getSelectCountData(metaData, connection);
-            _countStatement = connection.getConnection().prepareStatement(
-                    _operationData.getSql());
+            return sqlBuffer.toString();
         }
 
-        private OperationData getSelectCountData(
-                ITableMetaData metaData, IDatabaseConnection connection) throws DataSetException
+        private void addUpdate(Object[] values) throws DataSetException, SQLException
         {
-            logger.debug("getSelectCountData(metaData={}, connection={}) - start", metaData, connection);
-
-            Column[] primaryKeys = metaData.getPrimaryKeys();
+            // nothing to update if all columns are primary keys
+            if (_updateData == null)
+            {
+                return;
+            }
 
-            // cannot construct where clause if no primary key
-            if (primaryKeys.length == 0)
+            if (_updateStatement == null)
             {
-                throw new NoPrimaryKeyException(metaData.getTableName());
+                _updateStatement = _statementFactory.createPreparedBatchStatement(
+                        _updateData.getSql(), _connection);
             }
 
-            // select count
-            StringBuffer sqlBuffer = new StringBuffer(128);
-            sqlBuffer.append("select COUNT(*) from ");
-            sqlBuffer.append(getQualifiedName(connection.getSchema(), metaData.getTableName(), connection));
+            Column[] columns = _updateData.getColumns();
+            for (int i = 0; i < columns.length; i++)
+            {
+                _updateStatement.addValue(values[_updateIndexes[i]],
+                        columns[i].getDataType());
+            }
+            _updateStatement.addBatch();
+        }
 
-            // where
-            sqlBuffer.append(" where ");
-            for (int i = 0; i < primaryKeys.length; i++)
+        private void addInsert(Object[] values) throws DataSetException, SQLException
+        {
+            BitSet ignoreMapping = new BitSet();
+            for (int i = 0; i < values.length; i++)
             {
-                Column column = primaryKeys[i];
+                if (values[i] == ITable.NO_VALUE)
+                {
+                    ignoreMapping.set(i);
+                }
+            }
 
-                if (i > 0)
+            // If current row has a different ignore value mapping than
+            // previous one, we generate a new statement
+            if (_insertStatement == null || !ignoreMapping.equals(_insertIgnoreMapping))
+            {
+                // Execute and close previous statement
+                if (_insertStatement != null)
                 {
-                    sqlBuffer.append(" and ");
+                    _insertStatement.executeBatch();
+                    _insertStatement.clearBatch();
+                    _insertStatement.close();
                 }
-                sqlBuffer.append(getQualifiedName(null, column.getColumnName(), connection));
-                sqlBuffer.append(" = ?");
+
+                _insertIgnoreMapping = ignoreMapping;
+                _insertData = _insertOperation.getOperationData(_metaData,
+                        ignoreMapping, _connection);
+                _insertStatement = _statementFactory.createPreparedBatchStatement(
+                        _insertData.getSql(), _connection);
             }
 
-            return new OperationData(sqlBuffer.toString(), primaryKeys);
+            Column[] columns = _metaData.getColumns();
+            for (int i = 0; i < columns.length; i++)
+            {
+                // Bind value only if not in ignore mapping
+                if (!ignoreMapping.get(i))
+                {
+                    _insertStatement.addValue(values[i], columns[i].getDataType());
+                }
+            }
+            _insertStatement.addBatch();
         }
 
-        ////////////////////////////////////////////////////////////////////////
-        // RowOperation class
-
         /**
-         * Verify if the specified table row exists in the database.
-         * @return <code>true</code> if row exists.
+         * Cleanup this operation state.
          */
-        public boolean execute(ITable table, int row)
-                throws DataSetException, SQLException
+        public void close() throws SQLException
         {
-            logger.debug("execute(table={}, row={}) - start", table, String.valueOf(row));
+            logger.debug("close() - start");
 
-            Column[] columns = _operationData.getColumns();
-            for (int i = 0; i < columns.length; i++)
+            if (_selectStatement != null)
             {
-                Object value = table.getValue(row, columns[i].getColumnName());
-                DataType dataType = columns[i].getDataType();
-                dataType.setSqlValue(value, i + 1, _countStatement);
+                _selectStatement.close();
             }
-
-            ResultSet resultSet = _countStatement.executeQuery();
-            try
+            if (_insertStatement != null)
             {
-                resultSet.next();
-                return resultSet.getInt(1) > 0;
+                _insertStatement.close();
             }
-            finally
+            if (_updateStatement != null)
             {
-                resultSet.close();
+                _updateStatement.close();
+            }
+            if (_rowUpdateStatement != null)
+            {
+                _rowUpdateStatement.close();
             }
         }
+    }
 
-        public void close() throws SQLException
+    /**
+     * Compares primary key values using the primary key column data types.
+     */
+    static class KeyComparator implements Comparator
+    {
+        private final Column[] _primaryKeys;
+
+        public KeyComparator(Column[] primaryKeys)
         {
-            logger.debug("close() - start");
+            _primaryKeys = primaryKeys;
+        }
 
-            _countStatement.close();
+        public int compare(Object o1, Object o2)
+        {
+            Object[] key1 = (Object[])o1;
+            Object[] key2 = (Object[])o2;
+
+            try
+            {
+                for (int i = 0; i < _primaryKeys.length; i++)
+                {
+                    DataType dataType = _primaryKeys[i].getDataType();
+                    int result = dataType.compare(key1[i], key2[i]);
+                    if (result != 0)
+                    {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+            catch (TypeCastException e)
+            {
+                throw new DatabaseUnitRuntimeException(e);
+            }
         }
     }
 
@@ -0,0 +1,388 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.ForwardOnlyResultSetTable;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableCursor;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.IIndexedTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.IndexedTableAdapter;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.datatype.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes the tables of the dataset hold the rows of the dataset, like a
+ * {@link DatabaseOperation#CLEAN_INSERT}, but only executes the statements needed
+ * for the rows that differ. The rows of each table are read from the database and
+ * joined with the dataset rows by primary key:
+ * <ul>
+ * <li>database rows missing in the dataset are deleted,</li>
+ * <li>dataset rows whose values differ from the database row are updated,</li>
+ * <li>dataset rows missing in the database are inserted.</li>
+ * </ul>
+ * All tables are compared first. Then the inserts and the updates are executed in the
+ * order of the dataset tables, followed by the deletes in reverse table order, all of
+ * them as batches of the {@link InsertOperation}, {@link UpdateOperation} and
+ * {@link DeleteOperation}. When the dataset is ordered by the foreign keys, the new
+ * parent rows therefore exist before the child rows refer to them, and the child rows
+ * are moved or deleted before their old parent rows are deleted. The cost of a setup
+ * depends on the size of the change rather than on the size of the dataset when the
+ * tests only modify a few rows.
+ * <p>
+ * All tables of the dataset must have a primary key. Only the columns of the dataset
+ * are compared and written. Unlike with a CLEAN_INSERT, the columns of an existing row
+ * that are not part of the dataset or have no value in it ({@link ITable#NO_VALUE})
+ * keep their current value instead of getting their default value. Rows of tables
+ * that are not part of the dataset are not affected.
+ * </p>
+ * <p>
+ * Since the deletes come last, a new row must not take the value of a unique key
+ * held by a row that is deleted by the same operation. Such datasets need a
+ * CLEAN_INSERT.
+ * </p>
+ *
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SyncOperation extends AbstractOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SyncOperation.class);
+
+    SyncOperation()
+    {
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // DatabaseOperation class
+
+    public void execute(IDatabaseConnection connection, IDataSet dataSet)
+            throws DatabaseUnitException, SQLException
+    {
+        logger.debug("execute(connection={}, dataSet={}) - start", connection, dataSet);
+
+        List tableSyncs = new ArrayList();
+
+        // Compare all tables before writing any of them
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next())
+        {
+            ITable table = iterator.getTable();
+            ITableMetaData metaData = getOperationMetaData(connection, table.getTableMetaData());
+
+            // cannot match rows if no primary key
+            if (metaData.getPrimaryKeys().length == 0)
+            {
+                throw new NoPrimaryKeyException(metaData.getTableName());
+            }
+
+            TableSync tableSync = new TableSync(table, metaData);
+            tableSync.compare(connection);
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Table '{}': {} inserts, {} updates, {} deletes", new Object[] {
+                        metaData.getTableName(),
+                        new Integer(tableSync._insertTable.getRowCount()),
+                        new Integer(tableSync._updateTable.getRowCount()),
+                        new Integer(tableSync._deleteTable.getRowCount())});
+            }
+
+            tableSyncs.add(tableSync);
+        }
+
+        // Parent rows are inserted before the child rows moved to them
+        List deleteTables = new ArrayList();
+        for (Iterator it = tableSyncs.iterator(); it.hasNext();)
+        {
+            TableSync tableSync = (TableSync)it.next();
+            if (tableSync._insertTable.getRowCount() > 0)
+            {
+                DatabaseOperation.INSERT.execute(connection,
+                        new DefaultDataSet(tableSync._insertTable));
+            }
+            if (tableSync._updateTable.getRowCount() > 0)
+            {
+                DatabaseOperation.UPDATE.execute(connection,
+                        new DefaultDataSet(tableSync._updateTable));
+            }
+            if (tableSync._deleteTable.getRowCount() > 0)
+            {
+                deleteTables.add(tableSync._deleteTable);
+            }
+        }
+
+        // The child rows no longer refer to the deleted parent rows. The delete
+        // operation processes the tables in reverse order.
+        if (!deleteTables.isEmpty())
+        {
+            DatabaseOperation.DELETE.execute(connection, new DefaultDataSet(
+                    (ITable[])deleteTables.toArray(new ITable[0])));
+        }
+    }
+
+    /**
+     * Compares the rows of one dataset table with the rows of the database table
+     * and collects the rows to insert, update and delete.
+     */
+    private static class TableSync
+    {
+        private final ITable _table;
+        private final ITableMetaData _metaData;
+        private final DefaultTable _insertTable;
+        private final DefaultTable _updateTable;
+        private final DefaultTable _deleteTable;
+
+        public TableSync(ITable table, ITableMetaData metaData) throws DataSetException
+        {
+            _table = table;
+            _metaData = metaData;
+            _insertTable = new DefaultTable(table.getTableMetaData());
+            _updateTable = new DefaultTable(table.getTableMetaData());
+            _deleteTable = new DefaultTable(new DefaultTableMetaData(
+                    metaData.getTableName(), metaData.getPrimaryKeys(), metaData.getPrimaryKeys()));
+        }
+
+        public void compare(IDatabaseConnection connection)
+                throws DataSetException, SQLException
+        {
+            Column[] columns = _metaData.getColumns();
+            Column[] primaryKeys = _metaData.getPrimaryKeys();
+            ITableMetaData tableMetaData = _table.getTableMetaData();
+            int[] columnIndexes = Columns.getColumnIndexes(tableMetaData, columns);
+            IIndexedTable table = IndexedTableAdapter.getIndexedTable(_table);
+
+            // Index the dataset rows by primary key
+            Map rowsByKey = new HashMap();
+            int rowCount = 0;
+            if (columns.length > 0)
+            {
+                int[] keyIndexes = Columns.getColumnIndexes(tableMetaData, primaryKeys);
+                ITableCursor cursor = DefaultTableCursor.getCursor(_table);
+                while (cursor.next())
+                {
+                    Object[] values = new Object[primaryKeys.length];
+                    for (int i = 0; i < primaryKeys.length; i++)
+                    {
+                        values[i] = primaryKeys[i].getDataType().typeCast(
+                                cursor.getValue(keyIndexes[i]));
+                    }
+                    rowsByKey.put(new RowKey(values), new Integer(cursor.getRow()));
+                    rowCount++;
+                }
+            }
+
+            // The database rows are read with the columns of the dataset and the primary keys
+            List readColumns = new ArrayList();
+            for (int i = 0; i < columns.length; i++)
+            {
+                readColumns.add(columns[i]);
+            }
+            for (int i = 0; i < primaryKeys.length; i++)
+            {
+                if (Columns.getColumn(primaryKeys[i].getColumnName(), columns) == null)
+                {
+                    readColumns.add(primaryKeys[i]);
+                }
+            }
+            ITableMetaData readMetaData = new DefaultTableMetaData(_metaData.getTableName(),
+                    (Column[])readColumns.toArray(new Column[0]), primaryKeys);
+            int[] readKeyIndexes = Columns.getColumnIndexes(readMetaData, primaryKeys);
+
+            BitSet matchedRows = new BitSet(rowCount);
+            ForwardOnlyResultSetTable databaseTable = new ForwardOnlyResultSetTable(readMetaData, connection);
+            try
+            {
+                ITableCursor cursor = DefaultTableCursor.getCursor(databaseTable);
+                while (cursor.next())
+                {
+                    Object[] values = new Object[primaryKeys.length];
+                    for (int i = 0; i < primaryKeys.length; i++)
+                    {
+                        values[i] = primaryKeys[i].getDataType().typeCast(
+                                cursor.getValue(readKeyIndexes[i]));
+                    }
+                    Integer row = (Integer)rowsByKey.get(new RowKey(values));
+                    if (row == null)
+                    {
+                        _deleteTable.addRow(values);
+                        continue;
+                    }
+
+                    int rowIndex = row.intValue();
+                    matchedRows.set(rowIndex);
+                    addUpdate(table, rowIndex, cursor, columns, columnIndexes);
+                }
+            }
+            finally
+            {
+                databaseTable.close();
+            }
+
+            for (int i = 0; i < rowCount; i++)
+            {
+                if (!matchedRows.get(i))
+                {
+                    _insertTable.addRow(getRow(table, i));
+                }
+            }
+        }
+
+        /**
+         * Adds the given dataset row to the updated rows if one of its values
+         * differs from the current database row.
+         */
+        private void addUpdate(IIndexedTable table, int row, ITableCursor cursor,
+                Column[] columns, int[] columnIndexes) throws DataSetException
+        {
+            Object[] values = null;
+            for (int j = 0; j < columns.length; j++)
+            {
+                Object value = table.getValue(row, columnIndexes[j]);
+                if (value == ITable.NO_VALUE)
+                {
+                    continue;
+                }
+                DataType dataType = columns[j].getDataType();
+                if (dataType.compare(cursor.getValue(j), value) != 0)
+                {
+                    values = getRow(table, row);
+                    break;
+                }
+            }
+            if (values == null)
+            {
+                return;
+            }
+
+            // Columns without value are updated with their current value
+            for (int j = 0; j < columns.length; j++)
+            {
+                if (values[columnIndexes[j]] == ITable.NO_VALUE)
+                {
+                    values[columnIndexes[j]] = cursor.getValue(j);
+                }
+            }
+            _updateTable.addRow(values);
+        }
+
+        private Object[] getRow(IIndexedTable table, int row) throws DataSetException
+        {
+            Object[] values = new Object[_table.getTableMetaData().getColumns().length];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = table.getValue(row, i);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Primary key values of a row. Numbers are compared by value regardless of
+     * their scale.
+     */
+    private static class RowKey
+    {
+        private final Object[] _values;
+        private final int _hashCode;
+
+        public RowKey(Object[] values)
+        {
+            _values = values;
+
+            int hashCode = 1;
+            for (int i = 0; i < values.length; i++)
+            {
+                Object value = values[i];
+                int valueHashCode = 0;
+                if (value instanceof BigDecimal)
+                {
+                    valueHashCode = new Double(((BigDecimal)value).doubleValue()).hashCode();
+                }
+                else if (value != null)
+                {
+                    valueHashCode = value.hashCode();
+                }
+                hashCode = 31 * hashCode + valueHashCode;
+            }
+            _hashCode = hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof RowKey))
+            {
+                return false;
+            }
+            Object[] values = ((RowKey)o)._values;
+            for (int i = 0; i < _values.length; i++)
+            {
+                Object value1 = _values[i];
+                Object value2 = values[i];
+                if (value1 instanceof BigDecimal && value2 instanceof BigDecimal)
+                {
+                    if (((BigDecimal)value1).compareTo((BigDecimal)value2) != 0)
+                    {
+                        return false;
+                    }
+                }
+                else if (value1 == null ? value2 != null : !value1.equals(value2))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int hashCode()
+        {
+            return _hashCode;
+        }
+    }
+}
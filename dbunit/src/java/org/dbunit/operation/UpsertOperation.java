@@ -0,0 +1,131 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.IUpsertDialect;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inserts or updates the dataset rows with the native upsert statement of the
+ * {@link IUpsertDialect} configured via {@link DatabaseConfig#PROPERTY_UPSERT_DIALECT}.
+ * Used by the {@link RefreshOperation}. Columns without value are neither inserted
+ * nor updated. All primary key columns must have a value since they identify the
+ * existing row.
+ * 
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+class UpsertOperation extends AbstractBatchOperation
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger logger = LoggerFactory.getLogger(UpsertOperation.class);
+
+    private final InsertOperation _insertOperation;
+
+    UpsertOperation(InsertOperation insertOperation)
+    {
+        _insertOperation = insertOperation;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // AbstractBatchOperation class
+
+    BitSet getIgnoreMapping(ITable table, int row) throws DataSetException
+    {
+        return _insertOperation.getIgnoreMapping(table, row);
+    }
+
+    boolean equalsIgnoreMapping(BitSet ignoreMapping, ITable table, int row)
+            throws DataSetException
+    {
+        return _insertOperation.equalsIgnoreMapping(ignoreMapping, table, row);
+    }
+
+    OperationData getOperationData(ITableMetaData metaData, BitSet ignoreMapping,
+            IDatabaseConnection connection) throws DataSetException
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("getOperationData(metaData={}, ignoreMapping={}, connection={}) - start",
+                    new Object[]{ metaData, ignoreMapping, connection });
+        }
+
+        Column[] columns = metaData.getColumns();
+        Column[] primaryKeys = metaData.getPrimaryKeys();
+
+        // cannot construct upsert statement if no primary key
+        if (primaryKeys.length == 0)
+        {
+            throw new NoPrimaryKeyException(metaData.getTableName());
+        }
+
+        List columnNames = new ArrayList();
+        List parameterColumns = new ArrayList();
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (!ignoreMapping.get(i))
+            {
+                columnNames.add(getQualifiedName(null, columns[i].getColumnName(), connection));
+                parameterColumns.add(columns[i]);
+            }
+        }
+
+        String[] primaryKeyNames = new String[primaryKeys.length];
+        for (int i = 0; i < primaryKeys.length; i++)
+        {
+            // The dialects expect the primary keys to be part of the columns
+            if (ignoreMapping.get(metaData.getColumnIndex(primaryKeys[i].getColumnName())))
+            {
+                throw new DataSetException("The primary key column '"
+                        + primaryKeys[i].getColumnName() + "' of table '" + metaData.getTableName()
+                        + "' has no value in a row of the dataset. The upsert requires a value"
+                        + " for every primary key column.");
+            }
+            primaryKeyNames[i] = getQualifiedName(null, primaryKeys[i].getColumnName(), connection);
+        }
+
+        IUpsertDialect dialect = (IUpsertDialect)connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_UPSERT_DIALECT);
+        String sql = dialect.getUpsertSql(
+                getQualifiedName(connection.getSchema(), metaData.getTableName(), connection),
+                (String[])columnNames.toArray(new String[0]),
+                (Column[])parameterColumns.toArray(new Column[0]), primaryKeyNames);
+        return new OperationData(sql, columns);
+    }
+
+}
@@ -21,8 +21,10 @@
 
 package org.dbunit.util.search;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -174,14 +176,54 @@ public class DepthFirstSearch implements ISearchAlgorithm {
   }
 
   /**
-   * This is the real depth first search algorithm, which is called recursively.
+   * This is the real depth first search algorithm. It uses an explicit stack
+   * instead of recursion, so that very deep graphs do not exhaust the call stack.
    * 
    * @param node node where the search starts
-   * @param currentSearchDepth the search depth in the recursion
+   * @param currentSearchDepth the search depth of the start node
    * @return true if the node has been already searched before
    * @throws Exception if an exception occurs while getting the edges
    */
   private boolean search(Object node, int currentSearchDepth) throws SearchException {
+    if (!pushSearch(node)) {
+      return true;
+    }
+
+    LinkedList stack = new LinkedList();
+    stack.addLast(new SearchFrame(node, currentSearchDepth, getEdges(node, currentSearchDepth)));
+    while (!stack.isEmpty()) {
+      SearchFrame frame = (SearchFrame) stack.getLast();
+      if (frame.edges.hasNext()) {
+        // first, search the nodes the node depends on
+        IEdge edge = (IEdge) frame.edges.next();
+        Object toNode = edge.getTo();
+        if (pushSearch(toNode)) {
+          int depth = frame.depth + 1;
+          stack.addLast(new SearchFrame(toNode, depth, getEdges(toNode, depth)));
+        }
+        continue;
+      }
+
+      stack.removeLast();
+      // finally, add the node to the result
+      if ( this.logger.isDebugEnabled() ) {
+        this.logger.debug( "Adding node " + frame.node + " to the final result" );
+      }
+      // notify the callback a node was added
+      this.callback.nodeAdded(frame.node);
+      result.add(frame.node);
+    }
+    
+    return false;
+  }
+
+  /**
+   * Marks the given node as scanned by the search.
+   * @param node node to be searched
+   * @return false if the node has been already searched before or the callback
+   * blocked the search for it
+   */
+  private boolean pushSearch(Object node) throws SearchException {
     if ( this.logger.isDebugEnabled() ) {
       this.logger.debug( "search:" + node );
     }
@@ -189,54 +231,69 @@ public class DepthFirstSearch implements ISearchAlgorithm {
       if ( this.logger.isDebugEnabled() ) {
         this.logger.debug( "already searched; returning true" );
       }
-      return true;
+      return false;
     }
     if (!this.callback.searchNode(node)) {
       if ( this.logger.isDebugEnabled() ) {
         this.logger.debug( "Callback handler blocked search for node " + node );
       }
-      return true;
+      return false;
     }
     
     if ( this.logger.isDebugEnabled() ) {
       this.logger.debug("Pushing " + node);      
     }
     this.scannedNodes.add(node);
-
-    if(currentSearchDepth < this.searchDepth) {
-        // first, search the nodes the node depends on
-        SortedSet edges = this.callback.getEdges(node);
-        if (edges != null) {
-            Iterator iterator = edges.iterator();
-            while (iterator.hasNext()) {
-              // and recursively search these nodes
-              IEdge edge = (IEdge) iterator.next();
-              Object toNode = edge.getTo();
-              search(toNode, currentSearchDepth++);
-            }
-          }
-    }
-
-    // finally, add the node to the result
-    if ( this.logger.isDebugEnabled() ) {
-      this.logger.debug( "Adding node " + node + " to the final result" );
-    }
-    // notify the callback a node was added
-    this.callback.nodeAdded(node);
-    result.add(node);
-    
-    return false;
+    return true;
   }
 
   /**
    * Do a reverse search (i.e, searching the other way of the edges) in order
-   * to adjust the input before the real search.
+   * to adjust the input before the real search. Like {@link #search(Object, int)}
+   * it uses an explicit stack instead of recursion.
    * @param node node where the search starts
-   * @param currentSearchDepth the search depth in the recursion
+   * @param currentSearchDepth the search depth of the start node
    * @return true if the node has been already reverse-searched before
    * @throws Exception if an exception occurs while getting the edges
    */
   private boolean reverseSearch(Object node, int currentSearchDepth) throws SearchException {
+    if (!pushReverseSearch(node)) {
+      return true;
+    }
+
+    LinkedList stack = new LinkedList();
+    stack.addLast(new SearchFrame(node, currentSearchDepth, getEdges(node, currentSearchDepth)));
+    while (!stack.isEmpty()) {
+      SearchFrame frame = (SearchFrame) stack.getLast();
+      if (frame.edges.hasNext()) {
+        // search the nodes that point to this node if we find a match
+        IEdge edge = (IEdge) frame.edges.next();
+        Object toNode = edge.getTo();
+        if ( toNode.equals(frame.node) ) {
+          Object fromNode = edge.getFrom();
+          if (pushReverseSearch(fromNode)) {
+            int depth = frame.depth + 1;
+            stack.addLast(new SearchFrame(fromNode, depth, getEdges(fromNode, depth)));
+          }
+        }
+        continue;
+      }
+
+      stack.removeLast();
+      // finally, add the node to the input
+      this.nodesFrom.add(frame.node);
+    }
+
+    return false;
+  }
+
+  /**
+   * Marks the given node as scanned by the reverse search.
+   * @param node node to be reverse-searched
+   * @return false if the node has been already reverse-searched before or the
+   * callback blocked the search for it
+   */
+  private boolean pushReverseSearch(Object node) throws SearchException {
     if ( this.logger.isDebugEnabled() ) {
       this.logger.debug( "reverseSearch:" + node );
     }
@@ -244,44 +301,52 @@ public class DepthFirstSearch implements ISearchAlgorithm {
       if ( this.logger.isDebugEnabled() ) {
         this.logger.debug( "already searched; returning true" );
       }
-      return true;
+      return false;
     }
     
     if (!this.callback.searchNode(node)) {
       if ( this.logger.isDebugEnabled() ) {
         this.logger.debug( "callback handler blocked reverse search for node " + node );
       }
-      return true;
+      return false;
     }
     
     if ( this.logger.isDebugEnabled() ) {
       this.logger.debug("Pushing (reverse) " + node);      
     }
     this.reverseScannedNodes.add(node);
+    return true;
+  }
 
-    if(currentSearchDepth < this.searchDepth) {
-        // first, search the nodes the node depends on
-        SortedSet edges = this.callback.getEdges(node);    
-        if (edges != null) {
-          Iterator iterator = edges.iterator();
-          while (iterator.hasNext()) {
-            // and recursively search these nodes if we find a match
-            IEdge edge = (IEdge) iterator.next();
-            Object toNode = edge.getTo();
-            if ( toNode.equals(node) ) {
-              Object fromNode = edge.getFrom();
-              reverseSearch(fromNode, currentSearchDepth++);
-            }
-          }
-        }
+  /**
+   * @param node node whose edges are requested
+   * @param currentSearchDepth the search depth of the node
+   * @return the edges of the node or an empty iterator if the maximum
+   * search depth has been reached
+   */
+  private Iterator getEdges(Object node, int currentSearchDepth) throws SearchException {
+    if (currentSearchDepth < this.searchDepth) {
+      SortedSet edges = this.callback.getEdges(node);
+      if (edges != null) {
+        return edges.iterator();
+      }
     }
-    
-    // finally, add the node to the input
-    this.nodesFrom.add(node);
+    return Collections.EMPTY_LIST.iterator();
+  }
 
-    return false;
+  /**
+   * A node on the stack of the search together with its remaining edges.
+   */
+  private static class SearchFrame {
+    private final Object node;
+    private final int depth;
+    private final Iterator edges;
 
+    private SearchFrame(Object node, int depth, Iterator edges) {
+      this.node = node;
+      this.depth = depth;
+      this.edges = edges;
+    }
   }
   
-  
 }
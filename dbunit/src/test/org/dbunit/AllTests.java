@@ -37,6 +37,7 @@ public class AllTests extends TestSuite
         suite.addTest(org.dbunit.assertion.AllTests.suite());
         suite.addTest(org.dbunit.database.AllTests.suite());
         suite.addTest(org.dbunit.database.search.AllTests.suite());
+        suite.addTest(org.dbunit.database.subset.AllTests.suite());
         suite.addTest(org.dbunit.dataset.AllTests.suite());
         suite.addTest(org.dbunit.ext.AllTests.suite());
         suite.addTest(org.dbunit.operation.AllTests.suite());
@@ -46,6 +47,8 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(DatabaseProfileTest.class));
         suite.addTest(new TestSuite(DatabaseTestCaseIT.class));
         suite.addTest(new TestSuite(DBTestCaseIT.class));
+        suite.addTest(new TestSuite(RollbackDatabaseTesterTest.class));
+        suite.addTest(new TestSuite(SnapshotDatabaseTesterTest.class));
         return suite;
     }
 
@@ -0,0 +1,176 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.operation.DatabaseOperation;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class RollbackDatabaseTesterTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private RollbackDatabaseTester _tester;
+    private int _setUpCount;
+
+    public RollbackDatabaseTesterTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+
+        _tester = new RollbackDatabaseTester(new DefaultDatabaseTester(
+                new DatabaseConnection(_jdbcConnection)));
+        _tester.setDataSet(createDataSet());
+        _tester.setSetUpOperation(new DatabaseOperation()
+        {
+            public void execute(IDatabaseConnection connection, IDataSet dataSet)
+                    throws DatabaseUnitException, SQLException
+            {
+                _setUpCount++;
+                DatabaseOperation.CLEAN_INSERT.execute(connection, dataSet);
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testChangesAreRolledBack() throws Exception
+    {
+        runTests();
+    }
+
+    public void testChangesAreRolledBackToSavepoint() throws Exception
+    {
+        _tester.setUseSavepoints(true);
+        runTests();
+    }
+
+    public void testCommitIsDetected() throws Exception
+    {
+        _tester.setFailOnCommit(true);
+
+        _tester.onSetup();
+        executeTest(true);
+        try
+        {
+            _tester.onTearDown();
+            fail("Should throw a DatabaseUnitException");
+        }
+        catch (DatabaseUnitException expected)
+        {
+        }
+
+        // The committed row is removed by loading the baseline again
+        _tester.onSetup();
+        assertEquals("setUp count", 2, _setUpCount);
+        assertEquals("row count", 2, _tester.getConnection().getRowCount("D"));
+        _tester.onTearDown();
+    }
+
+    public void testCloseIsIgnored() throws Exception
+    {
+        _tester.onSetup();
+        IDatabaseConnection connection = _tester.getConnection();
+        connection.close();
+        _tester.closeConnection(connection);
+        executeTest(false);
+        _tester.onTearDown();
+
+        assertSame("connection", connection, _tester.getConnection());
+        assertEquals("row count", 2, connection.getRowCount("D"));
+    }
+
+    private void runTests() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            _tester.onSetup();
+            assertEquals("row count before test " + i, 2,
+                    _tester.getConnection().getRowCount("D"));
+            executeTest(false);
+            assertEquals("row count in test " + i, 3,
+                    _tester.getConnection().getRowCount("D"));
+            _tester.onTearDown();
+        }
+        assertEquals("setUp count", 1, _setUpCount);
+        assertEquals("row count", 2, _tester.getConnection().getRowCount("D"));
+    }
+
+    private void executeTest(boolean commit) throws Exception
+    {
+        Connection connection = _tester.getConnection().getConnection();
+        Statement statement = connection.createStatement();
+        try
+        {
+            statement.executeUpdate("insert into D (PKD) values (3)");
+        }
+        finally
+        {
+            statement.close();
+        }
+        if (commit)
+        {
+            connection.commit();
+        }
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        DefaultTable table = new DefaultTable("D", new Column[] {
+                new Column("PKD", DataType.NUMERIC)});
+        table.addRow(new Object[] {"1"});
+        table.addRow(new Object[] {"2"});
+        return new DefaultDataSet(table);
+    }
+}
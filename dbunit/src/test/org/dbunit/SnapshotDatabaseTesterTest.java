@@ -0,0 +1,138 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.DatabaseSequenceFilter;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.ext.hsqldb.HsqldbConnection;
+import org.dbunit.operation.DatabaseOperation;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SnapshotDatabaseTesterTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private SnapshotDatabaseTester _tester;
+
+    public SnapshotDatabaseTesterTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+
+        _tester = new SnapshotDatabaseTester(new DefaultDatabaseTester(
+                new HsqldbConnection(_jdbcConnection, null)));
+        _tester.setDataSet(createDataSet());
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _tester.close();
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testSnapshotTablesAreNotListed() throws Exception
+    {
+        _tester.onSetup();
+        IDatabaseConnection connection = _tester.getConnection();
+
+        String[] tableNames = connection.createDataSet().getTableNames();
+        assertEquals("table names", Arrays.asList(new String[] {"A", "B", "C", "D", "E", "F", "G", "H"}),
+                Arrays.asList(tableNames));
+        String[] sortedNames = new FilteredDataSet(new DatabaseSequenceFilter(connection),
+                connection.createDataSet()).getTableNames();
+        assertEquals("sorted table names", Arrays.asList(new String[] {"D", "A", "F", "C", "G", "E", "H", "B"}),
+                Arrays.asList(sortedNames));
+        _tester.onTearDown();
+
+        // Connections not returned by the tester list the snapshot tables
+        String[] allTableNames = new DatabaseConnection(_jdbcConnection).createDataSet().getTableNames();
+        assertEquals("all table names", 10, allTableNames.length);
+    }
+
+    public void testRestoreAfterDeleteAll() throws Exception
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            _tester.onSetup();
+            IDatabaseConnection connection = _tester.getConnection();
+            assertEquals("row count D before test " + i, 2, connection.getRowCount("D"));
+            assertEquals("row count A before test " + i, 1, connection.getRowCount("A"));
+
+            IDataSet databaseDataSet = new FilteredDataSet(
+                    new DatabaseSequenceFilter(connection), connection.createDataSet());
+            DatabaseOperation.DELETE_ALL.execute(connection, databaseDataSet);
+            assertEquals("row count D in test " + i, 0, connection.getRowCount("D"));
+            assertEquals("row count A in test " + i, 0, connection.getRowCount("A"));
+            _tester.onTearDown();
+        }
+
+        // The snapshot survived the deletes of the whole database
+        _tester.onSetup();
+        IDatabaseConnection connection = _tester.getConnection();
+        assertEquals("row count D", 2, connection.getRowCount("D"));
+        assertEquals("row count A", 1, connection.getRowCount("A"));
+        assertEquals("row count of the first snapshot table", 2,
+                connection.getRowCount(SnapshotDatabaseTester.SNAPSHOT_TABLE_PREFIX + "0"));
+        _tester.onTearDown();
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        DefaultTable d = new DefaultTable("D", new Column[] {
+                new Column("PKD", DataType.NUMERIC)});
+        d.addRow(new Object[] {"1"});
+        d.addRow(new Object[] {"2"});
+        DefaultTable a = new DefaultTable("A", new Column[] {
+                new Column("PKA", DataType.NUMERIC), new Column("FKD", DataType.NUMERIC)});
+        a.addRow(new Object[] {"1", "2"});
+        return new DefaultDataSet(new DefaultTable[] {d, a});
+    }
+}
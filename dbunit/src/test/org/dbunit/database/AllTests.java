@@ -34,6 +34,7 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(org.dbunit.database.statement.AllTests.suite());
+        suite.addTest(new TestSuite(BulkMetadataLookupTest.class));
         suite.addTest(new TestSuite(CachedResultSetTableIT.class));
         suite.addTest(new TestSuite(DatabaseConfigTest.class));
         suite.addTest(new TestSuite(DatabaseConnectionIT.class));
@@ -41,8 +42,12 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(DatabaseSequenceFilterTest.class));
         suite.addTest(new TestSuite(DatabaseTableIteratorTest.class));
         suite.addTest(new TestSuite(DatabaseTableMetaDataIT.class));
+        suite.addTest(new TestSuite(DirtyTableRegistryTest.class));
+        suite.addTest(new TestSuite(FixtureRegistryTest.class));
         suite.addTest(new TestSuite(ForwardOnlyResultSetTableIT.class));
+        suite.addTest(new TestSuite(MetadataCacheTest.class));
         suite.addTest(new TestSuite(QueryDataSetIT.class));
+        suite.addTest(new TestSuite(SchemaSnapshotTest.class));
         suite.addTest(new TestSuite(PrimaryKeyFilteredTableWrapperTest.class));  
         suite.addTest(new TestSuite(JdbcDatabaseTesterConnectionIT.class));
         suite.addTest(new TestSuite(DefaultDatabaseTesterConnectionIT.class));
@@ -0,0 +1,104 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.filter.DefaultColumnFilter;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class BulkMetadataLookupTest extends TestCase
+{
+    private Connection _jdbcConnection;
+
+    public BulkMetadataLookupTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testSameMetaDataAsLookupPerTable() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        IDataSet expectedDataSet = connection.createDataSet();
+
+        IDatabaseConnection bulkConnection = new DatabaseConnection(_jdbcConnection);
+        bulkConnection.getConfig().setFeature(DatabaseConfig.FEATURE_BULK_METADATA_LOOKUP, true);
+        IDataSet actualDataSet = bulkConnection.createDataSet();
+
+        String[] tableNames = expectedDataSet.getTableNames();
+        assertEquals(Arrays.asList(tableNames), Arrays.asList(actualDataSet.getTableNames()));
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITableMetaData expected = expectedDataSet.getTableMetaData(tableNames[i]);
+            ITableMetaData actual = actualDataSet.getTableMetaData(tableNames[i]);
+            assertEquals(tableNames[i], Arrays.asList(expected.getColumns()), 
+                    Arrays.asList(actual.getColumns()));
+            assertEquals(tableNames[i], Arrays.asList(expected.getPrimaryKeys()), 
+                    Arrays.asList(actual.getPrimaryKeys()));
+        }
+    }
+
+    public void testPrimaryKeyFilter() throws Exception
+    {
+        DefaultColumnFilter primaryKeyFilter = new DefaultColumnFilter();
+        primaryKeyFilter.includeColumn("FKD");
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        connection.getConfig().setFeature(DatabaseConfig.FEATURE_BULK_METADATA_LOOKUP, true);
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_PRIMARY_KEY_FILTER,
+                primaryKeyFilter);
+
+        ITableMetaData metaData = connection.createDataSet().getTableMetaData("A");
+        assertEquals(2, metaData.getColumns().length);
+        assertEquals(1, metaData.getPrimaryKeys().length);
+        assertEquals("FKD", metaData.getPrimaryKeys()[0].getColumnName());
+    }
+}
@@ -259,6 +259,16 @@ public class DatabaseDataSetIT extends AbstractDataSetTest
         }
     }
 
+    public void testGetTableMetaDataUsesDatabaseTableName() throws Exception
+    {
+        String tableName = convertString("PK_TABLE");
+
+        // The name as listed by the database is used regardless of the case of the lookup
+        ITableMetaData metaData = _connection.createDataSet().getTableMetaData("Pk_Table");
+        assertEquals("table name", tableName, metaData.getTableName());
+        assertEquals("column count", 5, metaData.getColumns().length);
+    }
+
 //    public void testGetTableNamesAndCaseSensitive() throws Exception
 //    {
 //        DatabaseMetaData metaData = _connection.getConnection().getMetaData();
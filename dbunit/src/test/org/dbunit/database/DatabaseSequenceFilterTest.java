@@ -106,8 +106,9 @@ public class DatabaseSequenceFilterTest extends TestCase
         }
         catch (CyclicTablesDependencyException expected)
         {
-            Set expectedCycle = new HashSet(Arrays.asList(new String[]{"A", "C", "E"}));
-            String expectedMsg = new CyclicTablesDependencyException("D", expectedCycle).getMessage();
+            // The first table of the cycle is reported together with all other tables of the cycle
+            Set expectedCycle = new HashSet(Arrays.asList(new String[]{"C", "D", "E"}));
+            String expectedMsg = new CyclicTablesDependencyException("A", expectedCycle).getMessage();
             assertEquals(expectedMsg, expected.getMessage());
         }
     }
@@ -0,0 +1,78 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import junit.framework.TestCase;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class DirtyTableRegistryTest extends TestCase
+{
+
+    public DirtyTableRegistryTest(String s)
+    {
+        super(s);
+    }
+
+    public void testMarkCleanAndDirty() throws Exception
+    {
+        DirtyTableRegistry registry = new DirtyTableRegistry();
+        assertFalse(registry.isClean("A"));
+
+        registry.markClean("A");
+        assertTrue(registry.isClean("A"));
+        assertFalse(registry.isClean("B"));
+
+        registry.markDirty("A");
+        assertFalse(registry.isClean("A"));
+    }
+
+    public void testCaseInsensitive() throws Exception
+    {
+        DirtyTableRegistry registry = new DirtyTableRegistry();
+        registry.markClean("Table");
+        assertTrue(registry.isClean("TABLE"));
+        registry.markDirty("table");
+        assertFalse(registry.isClean("Table"));
+    }
+
+    public void testCaseSensitive() throws Exception
+    {
+        DirtyTableRegistry registry = new DirtyTableRegistry(true);
+        registry.markClean("Table");
+        assertTrue(registry.isClean("Table"));
+        assertFalse(registry.isClean("TABLE"));
+    }
+
+    public void testClear() throws Exception
+    {
+        DirtyTableRegistry registry = new DirtyTableRegistry();
+        registry.markClean("A");
+        registry.markClean("B");
+        registry.clear();
+        assertFalse(registry.isClean("A"));
+        assertFalse(registry.isClean("B"));
+    }
+}
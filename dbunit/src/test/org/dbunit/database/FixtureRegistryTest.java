@@ -0,0 +1,79 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import junit.framework.TestCase;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class FixtureRegistryTest extends TestCase
+{
+
+    public FixtureRegistryTest(String s)
+    {
+        super(s);
+    }
+
+    public void testMarkLoadedAndChanged() throws Exception
+    {
+        FixtureRegistry registry = new FixtureRegistry();
+        assertEquals(-1, registry.getLoadedRowCount("A", 42));
+
+        registry.markLoaded("A", 42, 3);
+        assertEquals(3, registry.getLoadedRowCount("A", 42));
+        assertEquals(-1, registry.getLoadedRowCount("A", 43));
+        assertEquals(-1, registry.getLoadedRowCount("B", 42));
+
+        registry.markChanged("A");
+        assertEquals(-1, registry.getLoadedRowCount("A", 42));
+    }
+
+    public void testCaseInsensitive() throws Exception
+    {
+        FixtureRegistry registry = new FixtureRegistry();
+        registry.markLoaded("Table", 1, 0);
+        assertEquals(0, registry.getLoadedRowCount("TABLE", 1));
+        registry.markChanged("table");
+        assertEquals(-1, registry.getLoadedRowCount("Table", 1));
+    }
+
+    public void testCaseSensitive() throws Exception
+    {
+        FixtureRegistry registry = new FixtureRegistry(true);
+        registry.markLoaded("Table", 1, 0);
+        assertEquals(0, registry.getLoadedRowCount("Table", 1));
+        assertEquals(-1, registry.getLoadedRowCount("TABLE", 1));
+    }
+
+    public void testClear() throws Exception
+    {
+        FixtureRegistry registry = new FixtureRegistry();
+        registry.markLoaded("A", 1, 1);
+        registry.markLoaded("B", 2, 2);
+        registry.clear();
+        assertEquals(-1, registry.getLoadedRowCount("A", 1));
+        assertEquals(-1, registry.getLoadedRowCount("B", 2));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.io.File;
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.ext.hsqldb.HsqldbDataTypeFactory;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class MetadataCacheTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private Connection _jdbcConnection2;
+
+    public MetadataCacheTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        _jdbcConnection2 = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+        _jdbcConnection2.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testSharedAcrossConnections() throws Exception
+    {
+        MetadataCache cache = new MetadataCache();
+
+        IDataSet dataSet1 = createConnection(_jdbcConnection, cache).createDataSet();
+        ITableMetaData metaData1 = dataSet1.getTableMetaData("A");
+        assertEquals(8, dataSet1.getTableNames().length);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        IDataSet dataSet2 = createConnection(_jdbcConnection2, cache).createDataSet();
+        ITableMetaData metaData2 = dataSet2.getTableMetaData("A");
+        assertEquals(8, dataSet2.getTableNames().length);
+        // Both connections share the cached columns
+        assertSame(metaData1.getColumns()[0], metaData2.getColumns()[0]);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        assertEquals(2, metaData2.getColumns().length);
+        assertEquals("PKA", metaData2.getPrimaryKeys()[0].getColumnName());
+    }
+
+    public void testInvalidate() throws Exception
+    {
+        MetadataCache cache = new MetadataCache();
+        IDatabaseConnection connection = createConnection(_jdbcConnection, cache);
+        ITableMetaData metaData1 = connection.createDataSet().getTableMetaData("A");
+
+        cache.invalidate(connection, "a");
+        ITableMetaData metaData2 = createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+        assertNotSame(metaData1.getColumns()[0], metaData2.getColumns()[0]);
+
+        cache.invalidate();
+        cache.resetStatistics();
+        createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testTimeToLive() throws Exception
+    {
+        MetadataCache cache = new MetadataCache(1);
+        ITableMetaData metaData1 = createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+        Thread.sleep(10);
+        ITableMetaData metaData2 = createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+        assertNotSame(metaData1.getColumns()[0], metaData2.getColumns()[0]);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    public void testNotSharedAcrossConfigurations() throws Exception
+    {
+        MetadataCache cache = new MetadataCache();
+        ITableMetaData metaData1 = createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+
+        IDatabaseConnection connection2 = createConnection(_jdbcConnection2, cache);
+        connection2.getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
+                new HsqldbDataTypeFactory());
+        ITableMetaData metaData2 = connection2.createDataSet().getTableMetaData("A");
+        assertNotSame(metaData1.getColumns()[0], metaData2.getColumns()[0]);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+
+        IDatabaseConnection connection3 = createConnection(_jdbcConnection2, cache);
+        connection3.getConfig().setFeature(DatabaseConfig.FEATURE_CASE_SENSITIVE_TABLE_NAMES, true);
+        connection3.createDataSet().getTableMetaData("A");
+        assertEquals(0, cache.getHitCount());
+    }
+
+    public void testReturnsCopiesOfColumns() throws Exception
+    {
+        MetadataCache cache = new MetadataCache();
+        ITableMetaData metaData1 = createConnection(_jdbcConnection, cache).createDataSet().getTableMetaData("A");
+        Column[] columns = metaData1.getColumns();
+        Column[] primaryKeys = metaData1.getPrimaryKeys();
+        columns[0] = null;
+        primaryKeys[0] = null;
+
+        ITableMetaData metaData2 = createConnection(_jdbcConnection2, cache).createDataSet().getTableMetaData("A");
+        assertEquals("PKA", metaData2.getColumns()[0].getColumnName());
+        assertEquals("PKA", metaData2.getPrimaryKeys()[0].getColumnName());
+        assertEquals(0, metaData2.getColumnIndex("PKA"));
+    }
+
+    private static IDatabaseConnection createConnection(Connection jdbcConnection,
+            MetadataCache cache) throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_METADATA_CACHE, cache);
+        return connection;
+    }
+}
@@ -65,4 +65,57 @@ public class ResultSetTableMetaDataIT extends AbstractDatabaseIT
         }
     }
 
+    public void testGetColumnsForColumnsOfSeveralTables() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+
+        try {
+            String[] columnNames = {"PKA", "FKD", "PKD", "PKA"};
+    
+            String sql = "select A.PKA, A.FKD, D.PKD, A.PKA from A, D where A.FKD = D.PKD";
+            ForwardOnlyResultSetTable resultSetTable = new ForwardOnlyResultSetTable("AD", sql, connection);
+            Column[] columns = resultSetTable.getTableMetaData().getColumns();
+    
+            assertEquals("column count", columnNames.length, columns.length);
+            for (int i = 0; i < columnNames.length; i++)
+            {
+                assertEquals(columnNames[i], columnNames[i], columns[i].getColumnName());
+            }
+        }
+        finally {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+            HypersonicEnvironment.deleteFiles("tempdb");
+        }
+    }
+
+    public void testGetColumnsUsesLoadedDataSetMetaData() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+
+        try {
+            Column[] expected = connection.createDataSet().getTableMetaData("B").getColumns();
+
+            ForwardOnlyResultSetTable resultSetTable = new ForwardOnlyResultSetTable("B", "select * from B", connection);
+            Column[] columns = resultSetTable.getTableMetaData().getColumns();
+
+            assertEquals("column count", expected.length, columns.length);
+            for (int i = 0; i < expected.length; i++)
+            {
+                assertEquals(expected[i].getColumnName(), expected[i], columns[i]);
+            }
+        }
+        finally {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+            HypersonicEnvironment.deleteFiles("tempdb");
+        }
+    }
+
 }
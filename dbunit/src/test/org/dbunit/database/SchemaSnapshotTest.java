@@ -0,0 +1,202 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SchemaSnapshotTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private File _file;
+
+    public SchemaSnapshotTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        _file = File.createTempFile("schema", ".snapshot");
+        _file.delete();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        _file.delete();
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testSameMetaDataAsDatabase() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        IDataSet expectedDataSet = connection.createDataSet();
+
+        IDatabaseConnection snapshotConnection = new DatabaseConnection(_jdbcConnection);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(_file, snapshotConnection);
+        assertTrue(_file.exists());
+        snapshotConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT, snapshot);
+        IDataSet actualDataSet = snapshotConnection.createDataSet();
+
+        String[] tableNames = expectedDataSet.getTableNames();
+        assertEquals(Arrays.asList(tableNames), Arrays.asList(actualDataSet.getTableNames()));
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITableMetaData expected = expectedDataSet.getTableMetaData(tableNames[i]);
+            ITableMetaData actual = actualDataSet.getTableMetaData(tableNames[i]);
+            assertEquals(tableNames[i], Arrays.asList(expected.getColumns()), 
+                    Arrays.asList(actual.getColumns()));
+            assertEquals(tableNames[i], Arrays.asList(expected.getPrimaryKeys()), 
+                    Arrays.asList(actual.getPrimaryKeys()));
+        }
+    }
+
+    public void testImportedKeys() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        SchemaSnapshot snapshot = SchemaSnapshot.create(connection, null);
+
+        String[] table = (String[])snapshot.getTables().get(0);
+        String[][] importedKeys = snapshot.getImportedKeys(table[0], "A");
+        assertEquals(1, importedKeys.length);
+        assertEquals("D", importedKeys[0][1]);
+        assertEquals("PKD", importedKeys[0][2]);
+        assertEquals("FKD", importedKeys[0][3]);
+        assertNull(snapshot.getImportedKeys(table[0], "UNKNOWN"));
+    }
+
+    public void testReadWrittenSnapshot() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        CountingMetadataHandler metadataHandler = new CountingMetadataHandler();
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER, metadataHandler);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(_file, connection);
+        assertEquals(1, metadataHandler.primaryKeyLookups);
+
+        // The primary keys are only looked up when the snapshot is created
+        SchemaSnapshot snapshot2 = SchemaSnapshot.load(_file, connection);
+        assertEquals(1, metadataHandler.primaryKeyLookups);
+        assertNotSame(snapshot, snapshot2);
+        assertEquals(snapshot.getFingerprint(), snapshot2.getFingerprint());
+        assertEquals(snapshot.getTables().size(), snapshot2.getTables().size());
+    }
+
+    public void testStaleSnapshotIsRebuilt() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(_file, connection);
+        assertEquals(8, snapshot.getTables().size());
+
+        HypersonicEnvironment.executeSql(_jdbcConnection, "CREATE TABLE Z (PKZ NUMERIC)");
+        SchemaSnapshot snapshot2 = SchemaSnapshot.load(_file, connection);
+        assertFalse(snapshot.getFingerprint().equals(snapshot2.getFingerprint()));
+        assertEquals(9, snapshot2.getTables().size());
+        assertEquals(snapshot2.getFingerprint(), SchemaSnapshot.read(_file).getFingerprint());
+    }
+
+    public void testTableTypes() throws Exception
+    {
+        HypersonicEnvironment.executeSql(_jdbcConnection, "CREATE VIEW VA AS SELECT * FROM A");
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(_file, connection);
+        assertEquals(Arrays.asList(new String[] {"TABLE"}), Arrays.asList(snapshot.getTableTypes()));
+        assertTrue(snapshot.matchesTableTypes(new String[] {"TABLE"}));
+        assertFalse(snapshot.matchesTableTypes(new String[] {"TABLE", "VIEW"}));
+
+        // The snapshot does not hide the view from a connection which selects views as well
+        IDatabaseConnection snapshotConnection = new DatabaseConnection(_jdbcConnection);
+        snapshotConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_TABLE_TYPE,
+                new String[] {"VIEW", "TABLE"});
+        snapshotConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT, snapshot);
+        assertTrue(Arrays.asList(snapshotConnection.createDataSet().getTableNames()).contains("VA"));
+
+        // A snapshot file is rebuilt for other table types
+        SchemaSnapshot snapshot2 = SchemaSnapshot.load(_file, snapshotConnection);
+        assertFalse(snapshot.getFingerprint().equals(snapshot2.getFingerprint()));
+        assertTrue(snapshot2.matchesTableTypes(new String[] {"TABLE", "VIEW"}));
+        assertEquals(9, snapshot2.getTables().size());
+    }
+
+    public void testColumnChangeRebuildsSnapshot() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(_file, connection);
+
+        HypersonicEnvironment.executeSql(_jdbcConnection, "ALTER TABLE A ADD COLUMN NOTE VARCHAR(20)");
+        SchemaSnapshot snapshot2 = SchemaSnapshot.load(_file, connection);
+        assertFalse(snapshot.getFingerprint().equals(snapshot2.getFingerprint()));
+
+        IDatabaseConnection snapshotConnection = new DatabaseConnection(_jdbcConnection);
+        snapshotConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_SCHEMA_SNAPSHOT, snapshot2);
+        ITableMetaData metaData = snapshotConnection.createDataSet().getTableMetaData("A");
+        assertTrue(metaData.getColumnIndex("NOTE") >= 0);
+    }
+
+    public void testFingerprintQuery() throws Exception
+    {
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        String fingerprint = SchemaSnapshot.computeFingerprint(connection, null);
+        String fingerprint2 = SchemaSnapshot.computeFingerprint(connection, "select count(*) from A");
+        assertEquals(fingerprint + ", 0", fingerprint2);
+    }
+
+    /**
+     * Counts the lookups of the primary keys of the whole schema, which are only done
+     * when a snapshot is created.
+     */
+    private static class CountingMetadataHandler extends DefaultMetadataHandler
+    {
+        private int primaryKeyLookups;
+
+        public ResultSet getAllPrimaryKeys(DatabaseMetaData metaData, String schemaName)
+                throws SQLException
+        {
+            primaryKeyLookups++;
+            return super.getAllPrimaryKeys(metaData, schemaName);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.search;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.CyclicTablesDependencyException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.DefaultMetadataHandler;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.IMetadataHandler;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ForeignKeyGraphTest extends TestCase
+{
+
+    public ForeignKeyGraphTest(String s)
+    {
+        super(s);
+    }
+
+    public void testSort() throws Exception
+    {
+        // Same graph as in hypersonic_fk.sql
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"D"}));
+        dependsOn.put("B", toSet(new String[] {"C", "E", "H"}));
+        dependsOn.put("C", toSet(new String[] {"A", "F"}));
+        dependsOn.put("E", toSet(new String[] {"A", "G"}));
+        dependsOn.put("F", toSet(new String[] {"D"}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, false);
+
+        String[] tableNames = {"A", "B", "C", "D", "E", "F", "G", "H"};
+        String[] expected = {"D", "A", "F", "C", "G", "E", "H", "B"};
+        assertEquals(Arrays.asList(expected), Arrays.asList(graph.sort(tableNames)));
+        // Second call is answered from the cache
+        assertEquals(Arrays.asList(expected), Arrays.asList(graph.sort(tableNames)));
+    }
+
+    public void testSortSubsetKeepsTransitiveDependencies() throws Exception
+    {
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"B"}));
+        dependsOn.put("B", toSet(new String[] {"C"}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, false);
+
+        // B is not requested but A still depends on C via B
+        String[] sorted = graph.sort(new String[] {"A", "C"});
+        assertEquals(Arrays.asList(new String[] {"C", "A"}), Arrays.asList(sorted));
+    }
+
+    public void testSortIgnoresUnknownTablesAndSelfReferences() throws Exception
+    {
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"A"}));
+        dependsOn.put("B", toSet(new String[] {"A"}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, false);
+
+        String[] sorted = graph.sort(new String[] {"UNKNOWN", "b", "a"});
+        assertEquals(Arrays.asList(new String[] {"UNKNOWN", "a", "b"}), Arrays.asList(sorted));
+    }
+
+    public void testSortCaseSensitive() throws Exception
+    {
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"B"}));
+        dependsOn.put("a", toSet(new String[] {}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, true);
+
+        String[] sorted = graph.sort(new String[] {"A", "a", "B"});
+        assertEquals(Arrays.asList(new String[] {"a", "B", "A"}), Arrays.asList(sorted));
+    }
+
+    public void testSortCyclic() throws Exception
+    {
+        // Same graph as in hypersonic_cyclic.sql
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"C", "D"}));
+        dependsOn.put("B", toSet(new String[] {}));
+        dependsOn.put("C", toSet(new String[] {"B", "E"}));
+        dependsOn.put("D", toSet(new String[] {"C"}));
+        dependsOn.put("E", toSet(new String[] {"A"}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, false);
+
+        // Tables outside the cycle can still be ordered
+        assertEquals(Arrays.asList(new String[] {"B"}),
+                Arrays.asList(graph.sort(new String[] {"B"})));
+
+        try
+        {
+            graph.sort(new String[] {"B", "D", "A"});
+            fail("Should not be here!");
+        }
+        catch (CyclicTablesDependencyException expected)
+        {
+            String expectedMsg = new CyclicTablesDependencyException("D",
+                    toSet(new String[] {"A", "C", "E"})).getMessage();
+            assertEquals(expectedMsg, expected.getMessage());
+        }
+    }
+
+    public void testAdjacency() throws Exception
+    {
+        Map dependsOn = new LinkedHashMap();
+        dependsOn.put("A", toSet(new String[] {"D"}));
+        dependsOn.put("C", toSet(new String[] {"A", "D"}));
+        ForeignKeyGraph graph = new ForeignKeyGraph(dependsOn, false);
+
+        assertEquals(Arrays.asList(new String[] {"A", "D", "C"}), Arrays.asList(graph.getTableNames()));
+        assertEquals(Arrays.asList(new String[] {"D"}), Arrays.asList(graph.getReferencedTables("a")));
+        assertEquals(0, graph.getReferencedTables("UNKNOWN").length);
+
+        int a = graph.indexOf("A");
+        int c = graph.indexOf("C");
+        int d = graph.indexOf("D");
+        assertTrue(graph.isLoaded(a));
+        assertTrue(graph.isLoaded(c));
+        // D is only known as the target of a foreign key
+        assertFalse(graph.isLoaded(d));
+        assertEquals(2, graph.getDependents(d).length);
+        assertEquals(a, graph.getDependents(d)[0]);
+        assertEquals(c, graph.getDependents(d)[1]);
+        assertEquals(1, graph.getDependents(a).length);
+        assertEquals(c, graph.getDependents(a)[0]);
+        assertEquals(0, graph.getDependents(c).length);
+    }
+
+    public void testComputeComponents() throws Exception
+    {
+        int[][] edges = {
+                {1},    // 0 -> 1
+                {2},    // 1 -> 2
+                {0, 3}, // 2 -> 0, 3
+                {},     // 3
+                {4},    // 4 -> 4
+        };
+        int[] components = ForeignKeyGraph.computeComponents(edges);
+        assertEquals(components[0], components[1]);
+        assertEquals(components[0], components[2]);
+        assertTrue(components[0] != components[3]);
+        assertTrue(components[0] != components[4]);
+        assertTrue(components[3] != components[4]);
+    }
+
+    public void testGetGraphWithOneImportedKeysLookup() throws Exception
+    {
+        CountingMetadataHandler metadataHandler = new CountingMetadataHandler(false);
+        ForeignKeyGraph graph = getGraph(metadataHandler);
+        assertEquals(1, metadataHandler.importedKeysLookups);
+        assertGraph(graph);
+    }
+
+    public void testGetGraphFallsBackToLookupPerTable() throws Exception
+    {
+        CountingMetadataHandler metadataHandler = new CountingMetadataHandler(true);
+        ForeignKeyGraph graph = getGraph(metadataHandler);
+        assertEquals(1, metadataHandler.importedKeysLookups);
+        assertGraph(graph);
+    }
+
+    public void testGetGraphWithoutBulkMetadataHandler() throws Exception
+    {
+        ForeignKeyGraph graph = getGraph(new PlainMetadataHandler());
+        assertGraph(graph);
+    }
+
+    private ForeignKeyGraph getGraph(IMetadataHandler metadataHandler) throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("mem:tempdb");
+        try
+        {
+            HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"), jdbcConnection);
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_METADATA_HANDLER, metadataHandler);
+            return ForeignKeyGraph.getGraph(connection);
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    private void assertGraph(ForeignKeyGraph graph) throws Exception
+    {
+        assertEquals(toSet(new String[] {"C", "E", "H"}), toSet(graph.getReferencedTables("B")));
+        assertEquals(toSet(new String[] {"A", "F"}), toSet(graph.getReferencedTables("C")));
+        assertEquals(0, graph.getReferencedTables("D").length);
+
+        String[] tableNames = {"A", "B", "C", "D", "E", "F", "G", "H"};
+        String[] expected = {"D", "A", "F", "C", "G", "E", "H", "B"};
+        assertEquals(Arrays.asList(expected), Arrays.asList(graph.sort(tableNames)));
+    }
+
+    private static Set toSet(String[] values)
+    {
+        return new HashSet(Arrays.asList(values));
+    }
+
+    /**
+     * Counts the lookups of the imported keys of the whole schema, optionally failing
+     * them like a driver that requires a table name.
+     */
+    private static class CountingMetadataHandler extends DefaultMetadataHandler
+    {
+        private final boolean _fail;
+        private int importedKeysLookups;
+
+        public CountingMetadataHandler(boolean fail)
+        {
+            _fail = fail;
+        }
+
+        public ResultSet getAllImportedKeys(DatabaseMetaData metaData, String schemaName)
+                throws SQLException
+        {
+            importedKeysLookups++;
+            if (_fail)
+            {
+                throw new SQLException("Table name required");
+            }
+            return super.getAllImportedKeys(metaData, schemaName);
+        }
+    }
+
+    /**
+     * Metadata handler of a third party which only implements the lookups per table.
+     */
+    private static class PlainMetadataHandler implements IMetadataHandler
+    {
+        private final IMetadataHandler _delegate = new DefaultMetadataHandler();
+
+        public ResultSet getColumns(DatabaseMetaData databaseMetaData, String schemaName,
+                String tableName) throws SQLException
+        {
+            return _delegate.getColumns(databaseMetaData, schemaName, tableName);
+        }
+
+        public boolean matches(ResultSet resultSet, String schema, String table,
+                boolean caseSensitive) throws SQLException
+        {
+            return _delegate.matches(resultSet, schema, table, caseSensitive);
+        }
+
+        public boolean matches(ResultSet resultSet, String catalog, String schema,
+                String table, String column, boolean caseSensitive) throws SQLException
+        {
+            return _delegate.matches(resultSet, catalog, schema, table, column, caseSensitive);
+        }
+
+        public String getSchema(ResultSet resultSet) throws SQLException
+        {
+            return _delegate.getSchema(resultSet);
+        }
+
+        public boolean tableExists(DatabaseMetaData databaseMetaData, String schemaName,
+                String tableName) throws SQLException
+        {
+            return _delegate.tableExists(databaseMetaData, schemaName, tableName);
+        }
+
+        public ResultSet getTables(DatabaseMetaData databaseMetaData, String schemaName,
+                String[] tableTypes) throws SQLException
+        {
+            return _delegate.getTables(databaseMetaData, schemaName, tableTypes);
+        }
+
+        public ResultSet getPrimaryKeys(DatabaseMetaData databaseMetaData, String schemaName,
+                String tableName) throws SQLException
+        {
+            return _delegate.getPrimaryKeys(databaseMetaData, schemaName, tableName);
+        }
+    }
+}
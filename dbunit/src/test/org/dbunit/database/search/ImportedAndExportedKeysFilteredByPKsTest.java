@@ -1,9 +1,14 @@
 package org.dbunit.database.search;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 import org.dbunit.database.AbstractImportedAndExportedKeysFilteredByPKsTestCase;
+import org.dbunit.database.DatabaseConfig;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.ext.hsqldb.HsqldbTemporaryTableDialect;
 
 import org.dbunit.util.search.SearchException;
 
@@ -60,6 +65,26 @@ public class ImportedAndExportedKeysFilteredByPKsTest extends AbstractImportedAn
     doIt();
   }  
   
+  public void testBWithAllInChunks() throws DataSetException, SQLException, SearchException {
+    getConnection().getConfig().setProperty( DatabaseConfig.PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE, new Integer(3) );
+    addInput( B, new String[] { B1, B2, B3, B4, B5, B6, B7, B8 } );
+    addAllOutput();
+    doIt();
+  }  
+  
+  public void testBWithAllInTemporaryTables() throws DataSetException, SQLException, SearchException {
+    RecordingTemporaryTableDialect dialect = new RecordingTemporaryTableDialect();
+    getConnection().getConfig().setProperty( DatabaseConfig.PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE, new Integer(3) );
+    getConnection().getConfig().setProperty( DatabaseConfig.PROPERTY_TEMPORARY_TABLE_DIALECT, dialect );
+    addInput( B, new String[] { B1, B2, B3, B4, B5, B6, B7, B8 } );
+    addAllOutput();
+    doIt();
+    // B, C and E have more ids than fit into one chunk
+    assertTrue( dialect.created.size() >= 3 );
+    assertEquals( dialect.created.size(), new HashSet( dialect.created ).size() );
+    assertEquals( dialect.created, dialect.dropped );
+  }  
+  
   public void testDWithOne() throws DataSetException, SQLException, SearchException {
     addInput( D, new String[] { D1 } );
     addInput( B, new String[] { B1 } );
@@ -86,4 +111,22 @@ public class ImportedAndExportedKeysFilteredByPKsTest extends AbstractImportedAn
     doIt();
   }
 
+  /**
+   * Records the names of the temporary tables.
+   */
+  private static class RecordingTemporaryTableDialect extends HsqldbTemporaryTableDialect {
+    private final List created = new ArrayList();
+    private final List dropped = new ArrayList();
+
+    public String getCreateTableSql(String tableName, String selectSql) {
+      created.add( tableName );
+      return super.getCreateTableSql( tableName, selectSql );
+    }
+
+    public String getDropTableSql(String tableName) {
+      dropped.add( tableName );
+      return super.getDropTableSql( tableName );
+    }
+  }
+
 }
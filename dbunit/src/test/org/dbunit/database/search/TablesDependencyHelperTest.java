@@ -22,6 +22,7 @@ package org.dbunit.database.search;
 
 import java.io.File;
 import java.sql.Connection;
+import java.sql.Statement;
 import java.util.HashSet;
 import java.util.TreeSet;
 
@@ -110,6 +111,28 @@ public class TablesDependencyHelperTest extends TestCase {
         }           
     }
 
+    public void testGetDependentTablesAfterRefresh() throws Exception {
+        setUp( "hypersonic_fk.sql" );
+        String[] expectedBefore = { "D", "A" };
+        String[] actualBefore = TablesDependencyHelper.getDependentTables( this.connection, "A" );
+        ArrayAssert.assertEquals( "before refresh", expectedBefore, actualBefore );
+
+        Statement statement = this.jdbcConnection.createStatement();
+        statement.execute( "CREATE TABLE Z (PKZ NUMERIC, PRIMARY KEY (PKZ))" );
+        statement.execute( "ALTER TABLE A ADD COLUMN FKZ NUMERIC" );
+        statement.execute( "ALTER TABLE A ADD CONSTRAINT AZ FOREIGN KEY (FKZ) REFERENCES Z (PKZ)" );
+        statement.close();
+
+        // The cached graph does not know the new foreign key yet
+        actualBefore = TablesDependencyHelper.getDependentTables( this.connection, "A" );
+        ArrayAssert.assertEquals( "cached", expectedBefore, actualBefore );
+
+        ForeignKeyGraph.refresh( this.connection );
+        String[] expectedAfter = { "D", "Z", "A" };
+        String[] actualAfter = TablesDependencyHelper.getDependentTables( this.connection, "A" );
+        ArrayAssert.assertEquals( "after refresh", expectedAfter, actualAfter );
+    }
+
     public void testGetAllDependentTablesFromOneTable() throws Exception {    
         setUp( ImportAndExportKeysSearchCallbackOwnFileTest.SQL_FILE );    
         String[][] allInput = ImportAndExportKeysSearchCallbackOwnFileTest.SINGLE_INPUT;
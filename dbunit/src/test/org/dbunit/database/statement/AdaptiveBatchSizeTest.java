@@ -0,0 +1,138 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.statement;
+
+import junit.framework.TestCase;
+
+import org.dbunit.database.MockDatabaseConnection;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class AdaptiveBatchSizeTest extends TestCase
+{
+
+    public void testIncreaseWhileThroughputHolds() throws Exception
+    {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 1000);
+        assertEquals(100, batchSize.getBatchSize());
+
+        batchSize.batchExecuted(100, 10);
+        assertEquals(110, batchSize.getBatchSize());
+        batchSize.batchExecuted(110, 11);
+        assertEquals(120, batchSize.getBatchSize());
+        // Small loss is tolerated
+        batchSize.batchExecuted(120, 13);
+        assertEquals(130, batchSize.getBatchSize());
+    }
+
+    public void testDecreaseWhenThroughputDrops() throws Exception
+    {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 1000);
+
+        batchSize.batchExecuted(100, 10);
+        assertEquals(110, batchSize.getBatchSize());
+        batchSize.batchExecuted(110, 22);
+        assertEquals(55, batchSize.getBatchSize());
+    }
+
+    public void testBounds() throws Exception
+    {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(5000, 10, 1000);
+        assertEquals(1000, batchSize.getBatchSize());
+        batchSize.batchExecuted(1000, 1);
+        assertEquals(1000, batchSize.getBatchSize());
+
+        batchSize = new AdaptiveBatchSize(15, 10, 1000);
+        batchSize.batchExecuted(15, 1);
+        batchSize.batchExecuted(16, 100);
+        assertEquals(10, batchSize.getBatchSize());
+    }
+
+    public void testInvalidBounds() throws Exception
+    {
+        try
+        {
+            new AdaptiveBatchSize(100, 10, 5);
+            fail("Should not be able to create batch size with max < min");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    public void testNanoTime() throws Exception
+    {
+        long start = AdaptiveBatchSize.nanoTime();
+        Thread.sleep(5);
+        assertTrue(AdaptiveBatchSize.nanoTime() - start >= 4000000);
+    }
+
+    public void testStatementKey() throws Exception
+    {
+        assertEquals("insert into S.T", PreparedStatementFactory.getStatementKey(
+                "insert into S.T (A, B) values (?, ?)"));
+        assertEquals("insert into S.T", PreparedStatementFactory.getStatementKey(
+                "INSERT INTO S.T(A) values (?)"));
+        assertEquals("update T", PreparedStatementFactory.getStatementKey(
+                "update T set B = ? where A = ?"));
+        assertEquals("delete from T", PreparedStatementFactory.getStatementKey(
+                "delete from T where A = ?"));
+        assertEquals("commit", PreparedStatementFactory.getStatementKey("commit"));
+    }
+
+    public void testBatchSizeSharedByStatementShapes() throws Exception
+    {
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        PreparedStatementFactory factory = new PreparedStatementFactory();
+
+        AdaptiveBatchSize batchSize = factory.getAdaptiveBatchSize(
+                "insert into T (A, B) values (?, ?)", connection);
+        assertSame(batchSize, factory.getAdaptiveBatchSize(
+                "insert into T (A) values (?)", connection));
+        assertNotSame(batchSize, factory.getAdaptiveBatchSize(
+                "insert into U (A) values (?)", connection));
+        assertNotSame(batchSize, factory.getAdaptiveBatchSize(
+                "update T set A = ? where B = ?", connection));
+    }
+
+    public void testAutomaticStatementFollowsBatchSize() throws Exception
+    {
+        MockBatchStatement mockStatement = new MockBatchStatement();
+        mockStatement.setExpectedExecuteBatchCalls(3);
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(2, 1, 3);
+        IPreparedBatchStatement statement = new AutomaticPreparedBatchStatement(
+                new BatchStatementDecorator("insert into T values (1)", mockStatement), batchSize);
+
+        // 2 rows, then 3 rows (size increased), then the remaining row
+        for (int i = 0; i < 6; i++)
+        {
+            statement.addBatch();
+        }
+        statement.executeBatch();
+
+        assertEquals(3, batchSize.getBatchSize());
+        mockStatement.verify();
+    }
+}
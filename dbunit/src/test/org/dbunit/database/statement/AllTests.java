@@ -34,6 +34,8 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(BatchStatementDecoratorTest.class));
+        suite.addTest(new TestSuite(AdaptiveBatchSizeTest.class));
+        suite.addTest(new TestSuite(CachedPreparedStatementFactoryTest.class));
 
         return suite;
     }
@@ -0,0 +1,191 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.statement;
+
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class CachedPreparedStatementFactoryTest extends TestCase
+{
+    private static final String INSERT_SQL = "insert into TEST_TABLE (ID) values (?)";
+    private static final String DELETE_SQL = "delete from TEST_TABLE where ID = ?";
+
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+    private CachedPreparedStatementFactory _factory;
+
+    public CachedPreparedStatementFactoryTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeSql(_jdbcConnection, "create table TEST_TABLE (ID integer)");
+
+        _factory = new CachedPreparedStatementFactory();
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, _factory);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        if (_jdbcConnection.isClosed())
+        {
+            _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        }
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testReuseStatement() throws Exception
+    {
+        insert(1);
+        insert(2);
+        insert(3);
+
+        assertEquals("hits", 2, _factory.getHitCount());
+        assertEquals("misses", 1, _factory.getMissCount());
+        assertEquals("cached", 1, _factory.getCachedStatementCount(_connection));
+        assertEquals("rows", 3, _connection.getRowCount("TEST_TABLE"));
+    }
+
+    public void testStatementInUse() throws Exception
+    {
+        IPreparedBatchStatement statement1 = _factory.createPreparedBatchStatement(INSERT_SQL, _connection);
+        IPreparedBatchStatement statement2 = _factory.createPreparedBatchStatement(INSERT_SQL, _connection);
+        assertNotSame(statement1, statement2);
+        statement2.close();
+        statement1.close();
+
+        assertEquals("hits", 0, _factory.getHitCount());
+        assertEquals("misses", 2, _factory.getMissCount());
+        assertEquals("cached", 1, _factory.getCachedStatementCount(_connection));
+
+        insert(1);
+        assertEquals("hits", 1, _factory.getHitCount());
+        assertEquals("rows", 1, _connection.getRowCount("TEST_TABLE"));
+    }
+
+    public void testEviction() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_CACHE_SIZE, new Integer(1));
+
+        insert(1);
+        delete(1);
+        insert(2);
+
+        assertEquals("hits", 0, _factory.getHitCount());
+        assertEquals("misses", 3, _factory.getMissCount());
+        assertEquals("cached", 1, _factory.getCachedStatementCount(_connection));
+        assertEquals("rows", 1, _connection.getRowCount("TEST_TABLE"));
+    }
+
+    public void testCacheDisabled() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_CACHE_SIZE, new Integer(0));
+
+        insert(1);
+        insert(2);
+
+        assertEquals("hits", 0, _factory.getHitCount());
+        assertEquals("misses", 0, _factory.getMissCount());
+        assertEquals("cached", 0, _factory.getCachedStatementCount(_connection));
+        assertEquals("rows", 2, _connection.getRowCount("TEST_TABLE"));
+    }
+
+    public void testInvalidateOnClose() throws Exception
+    {
+        insert(1);
+        assertEquals("cached", 1, _factory.getCachedStatementCount(_connection));
+
+        _connection.close();
+        assertEquals("cached", 0, _factory.getCachedStatementCount(_connection));
+    }
+
+    public void testCachePerConnection() throws Exception
+    {
+        insert(1);
+
+        IDatabaseConnection connection = new DatabaseConnection(
+                HypersonicEnvironment.createJdbcConnection("tempdb"));
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY, _factory);
+        try
+        {
+            IPreparedBatchStatement statement = _factory.createPreparedBatchStatement(INSERT_SQL, connection);
+            statement.close();
+
+            assertEquals("hits", 0, _factory.getHitCount());
+            assertEquals("misses", 2, _factory.getMissCount());
+            assertEquals("cached", 1, _factory.getCachedStatementCount(connection));
+        }
+        finally
+        {
+            connection.close();
+        }
+    }
+
+    private void insert(int id) throws Exception
+    {
+        execute(INSERT_SQL, id);
+    }
+
+    private void delete(int id) throws Exception
+    {
+        execute(DELETE_SQL, id);
+    }
+
+    private void execute(String sql, int id) throws Exception
+    {
+        IPreparedBatchStatement statement = _factory.createPreparedBatchStatement(sql, _connection);
+        try
+        {
+            statement.addValue(new Integer(id), DataType.INTEGER);
+            statement.addBatch();
+            statement.executeBatch();
+            statement.clearBatch();
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class LongKeySetTest extends TestCase
+{
+
+    public LongKeySetTest(String s)
+    {
+        super(s);
+    }
+
+    public void testAdd() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet();
+        assertTrue(keySet.add(3));
+        assertTrue(keySet.add(0));
+        assertTrue(keySet.add(-7));
+        assertFalse(keySet.add(3));
+        assertFalse(keySet.add(0));
+
+        assertEquals(3, keySet.size());
+        assertTrue(keySet.contains(-7));
+        assertFalse(keySet.contains(4));
+    }
+
+    public void testInsertionOrder() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet(2);
+        long[] values = {42, 17, Long.MAX_VALUE, Long.MIN_VALUE, 0};
+        for (int i = 0; i < values.length; i++)
+        {
+            keySet.add(values[i]);
+        }
+
+        for (int i = 0; i < values.length; i++)
+        {
+            assertEquals(values[i], keySet.getLong(i));
+            assertEquals(new Long(values[i]), keySet.get(i));
+        }
+    }
+
+    public void testGrowth() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet();
+        int count = 100000;
+        for (int i = 0; i < count; i++)
+        {
+            assertTrue(keySet.add(i * 1024L));
+        }
+        for (int i = 0; i < count; i++)
+        {
+            assertFalse(keySet.add(i * 1024L));
+        }
+
+        assertEquals(count, keySet.size());
+        assertTrue(keySet.contains((count - 1) * 1024L));
+        assertFalse(keySet.contains(1));
+    }
+
+    public void testObjectKeys() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet();
+        assertTrue(keySet.add(new Integer(5)));
+        assertFalse(keySet.add(new Long(5)));
+        assertFalse(keySet.add(new BigDecimal("5")));
+        assertFalse(keySet.add("5"));
+        assertTrue(keySet.contains("5"));
+        assertEquals(1, keySet.size());
+    }
+
+    public void testIntegralObjectKeys() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet();
+        assertTrue(keySet.add(new BigDecimal("7.00")));
+        assertTrue(keySet.contains(new Double(7)));
+        assertTrue(keySet.contains(new BigInteger("7")));
+        assertTrue(keySet.add(new BigInteger(String.valueOf(Long.MIN_VALUE))));
+        assertEquals(2, keySet.size());
+    }
+
+    public void testNonIntegralKeysRejected() throws Exception
+    {
+        Object[] keys = {
+                new BigDecimal("1.5"),
+                new Double(1.5),
+                new Float(Float.NaN),
+                "1.5",
+                "X",
+                new BigInteger("9223372036854775808"),
+                new BigDecimal("1E19"),
+        };
+        LongKeySet keySet = new LongKeySet();
+        for (int i = 0; i < keys.length; i++)
+        {
+            try
+            {
+                keySet.add(keys[i]);
+                fail("Should not be able to add " + keys[i]);
+            }
+            catch (TypeCastException expected)
+            {
+            }
+        }
+        assertEquals(0, keySet.size());
+    }
+
+    public void testGetOutOfBounds() throws Exception
+    {
+        LongKeySet keySet = new LongKeySet();
+        keySet.add(1);
+        try
+        {
+            keySet.getLong(1);
+            fail("Should not be able to get a key beyond the size");
+        }
+        catch (IndexOutOfBoundsException expected)
+        {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ObjectKeySetTest extends TestCase
+{
+
+    public ObjectKeySetTest(String s)
+    {
+        super(s);
+    }
+
+    public void testSingleColumn() throws Exception
+    {
+        ObjectKeySet keySet = new ObjectKeySet(new DataType[] {DataType.VARCHAR});
+        assertTrue(keySet.add("B1"));
+        assertTrue(keySet.add("A1"));
+        assertFalse(keySet.add("B1"));
+
+        assertEquals(2, keySet.size());
+        assertEquals("B1", keySet.get(0));
+        assertEquals("A1", keySet.get(1));
+        assertTrue(keySet.contains("A1"));
+        assertFalse(keySet.contains("C1"));
+    }
+
+    public void testNumericScale() throws Exception
+    {
+        ObjectKeySet keySet = new ObjectKeySet(new DataType[] {DataType.NUMERIC});
+        assertTrue(keySet.add(new BigDecimal("1.0")));
+        assertFalse(keySet.add(new BigDecimal("1")));
+        assertFalse(keySet.add(new Integer(1)));
+        assertFalse(keySet.add("1"));
+        assertTrue(keySet.add(new BigDecimal("1.5")));
+
+        assertEquals(2, keySet.size());
+    }
+
+    public void testCompositeKey() throws Exception
+    {
+        ObjectKeySet keySet = new ObjectKeySet(new DataType[] {DataType.INTEGER, DataType.VARCHAR});
+        assertTrue(keySet.add(new Object[] {new Integer(1), "A"}));
+        assertTrue(keySet.add(new Object[] {new Integer(1), "B"}));
+        assertFalse(keySet.add(new Object[] {"1", "A"}));
+        assertTrue(keySet.contains(new Object[] {new Long(1), "B"}));
+        assertFalse(keySet.contains(new Object[] {new Integer(2), "A"}));
+
+        assertEquals(2, keySet.size());
+        assertEquals(Arrays.asList(new Object[] {new Integer(1), "B"}), 
+                Arrays.asList((Object[])keySet.get(1)));
+    }
+
+    public void testCompositeKeyWithWrongLength() throws Exception
+    {
+        ObjectKeySet keySet = new ObjectKeySet(new DataType[] {DataType.INTEGER, DataType.VARCHAR});
+        try
+        {
+            keySet.add(new Integer(1));
+            fail("Should not accept a single value for a composite key");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.database.subset;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dbunit.AbstractHSQLTestCase;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.NoSuchTableException;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SubsetExtractorTest extends AbstractHSQLTestCase
+{
+
+    public SubsetExtractorTest(String testName)
+    {
+        super(testName, "hypersonic_dataset.sql");
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        // Use several chunks even for the small test tables
+        getConnection().getConfig().setProperty(
+                DatabaseConfig.PROPERTY_PRIMARY_KEY_SCAN_CHUNK_SIZE, new Integer(3));
+    }
+
+    public void testImportedKeys() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot(B, new Object[] {B1});
+        IDataSet dataSet = extract(extractor);
+
+        assertEquals(8, dataSet.getTableNames().length);
+        assertKeys(dataSet, A, new String[] {A1});
+        assertKeys(dataSet, B, new String[] {B1});
+        assertKeys(dataSet, C, new String[] {C1});
+        assertKeys(dataSet, D, new String[] {D1});
+        assertKeys(dataSet, E, new String[] {E1});
+        assertKeys(dataSet, F, new String[] {F1});
+        assertKeys(dataSet, G, new String[] {G1});
+        assertKeys(dataSet, H, new String[] {H1});
+    }
+
+    public void testTablesInDependencyOrder() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot(B, new Object[] {B1});
+        List tableNames = Arrays.asList(extract(extractor).getTableNames());
+
+        assertTrue(tableNames.indexOf(D) < tableNames.indexOf(A));
+        assertTrue(tableNames.indexOf(A) < tableNames.indexOf(C));
+        assertTrue(tableNames.indexOf(G) < tableNames.indexOf(E));
+        assertTrue(tableNames.indexOf(C) < tableNames.indexOf(B));
+        assertTrue(tableNames.indexOf(E) < tableNames.indexOf(B));
+    }
+
+    public void testReverseDependency() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.setReverseDependency(true);
+        extractor.addRoot(D, new Object[] {D1});
+        IDataSet dataSet = extract(extractor);
+
+        assertKeys(dataSet, A, new String[] {A1, A2});
+        assertKeys(dataSet, B, new String[] {B1, B2, B3, B4, B5, B6, B7, B8});
+        assertKeys(dataSet, C, new String[] {C1, C2, C3, C4});
+        assertKeys(dataSet, D, new String[] {D1, D2});
+        assertKeys(dataSet, E, new String[] {E1, E2, E3, E4});
+        assertKeys(dataSet, F, new String[] {F1, F2});
+        assertKeys(dataSet, G, new String[] {G1, G2});
+        assertKeys(dataSet, H, new String[] {H1, H2});
+    }
+
+    public void testWhereClause() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot(B, "PKB = 'B8'", 0);
+        IDataSet dataSet = extract(extractor);
+
+        assertKeys(dataSet, A, new String[] {A1, A2});
+        assertKeys(dataSet, B, new String[] {B8});
+        assertKeys(dataSet, C, new String[] {C2});
+        assertKeys(dataSet, D, new String[] {D1, D2});
+        assertKeys(dataSet, E, new String[] {E2});
+        assertKeys(dataSet, F, new String[] {F2});
+        assertKeys(dataSet, G, new String[] {G2});
+        assertKeys(dataSet, H, new String[] {H2});
+    }
+
+    public void testRowLimit() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot(B, "FKC = 'C1'", 2);
+        IDataSet dataSet = extract(extractor);
+
+        assertEquals(2, dataSet.getTable(B).getRowCount());
+        assertEquals(2, extractor.getKeys(B).size());
+        assertKeys(dataSet, C, new String[] {C1});
+    }
+
+    public void testParallelScan() throws Exception
+    {
+        Connection jdbcConnection1 = HypersonicEnvironment.createJdbcConnection("mem:tempdb");
+        Connection jdbcConnection2 = HypersonicEnvironment.createJdbcConnection("mem:tempdb");
+        try
+        {
+            IDatabaseConnection connection = getConnection();
+            SubsetExtractor extractor = new SubsetExtractor(connection);
+            extractor.setConnections(new IDatabaseConnection[] {connection, 
+                    new DatabaseConnection(jdbcConnection1), new DatabaseConnection(jdbcConnection2)});
+            extractor.setReverseDependency(true);
+            extractor.addRoot(H, new Object[] {H2});
+            IDataSet dataSet = extract(extractor);
+
+            assertKeys(dataSet, B, new String[] {B1, B2, B3, B4, B5, B6, B7, B8});
+            assertKeys(dataSet, D, new String[] {D1, D2});
+        }
+        finally
+        {
+            jdbcConnection1.close();
+            jdbcConnection2.close();
+        }
+    }
+
+    public void testNumericKeys() throws Exception
+    {
+        createOrderTables();
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.setReverseDependency(true);
+        extractor.addRoot("ORDERS", new Object[] {new Long(1)});
+        IDataSet dataSet = extract(extractor);
+
+        assertEquals(1, dataSet.getTable("ORDERS").getRowCount());
+        assertEquals(2, dataSet.getTable("ORDER_LINE").getRowCount());
+        assertEquals(2, dataSet.getTable("SHIPMENT").getRowCount());
+
+        IKeySet orderKeys = extractor.getKeys("ORDERS");
+        assertTrue(orderKeys instanceof LongKeySet);
+        assertTrue(orderKeys.contains("1"));
+        IKeySet shipmentKeys = extractor.getKeys("SHIPMENT");
+        assertTrue(shipmentKeys instanceof LongKeySet);
+        assertEquals(2, shipmentKeys.size());
+        assertTrue(shipmentKeys.contains(new Integer(10)));
+        assertTrue(shipmentKeys.contains(new Integer(12)));
+        assertFalse(shipmentKeys.contains(new Integer(11)));
+    }
+
+    public void testCompositeKeys() throws Exception
+    {
+        createOrderTables();
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot("SHIPMENT", new Object[] {new Integer(11)});
+        extractor.addRoot("ORDER_LINE", new Object[] {new Object[] {"3", "1"}});
+        IDataSet dataSet = extract(extractor);
+
+        assertEquals(1, dataSet.getTable("SHIPMENT").getRowCount());
+        assertEquals(2, dataSet.getTable("ORDERS").getRowCount());
+        IKeySet lineKeys = extractor.getKeys("ORDER_LINE");
+        assertTrue(lineKeys instanceof ObjectKeySet);
+        assertEquals(2, lineKeys.size());
+        assertTrue(lineKeys.contains(new Object[] {new Long(2), new Integer(1)}));
+        assertTrue(lineKeys.contains(new Object[] {new Long(3), new Integer(1)}));
+        assertFalse(lineKeys.contains(new Object[] {new Long(1), new Integer(1)}));
+        assertEquals(2, dataSet.getTable("ORDER_LINE").getRowCount());
+        assertTrue(extractor.getKeys("ORDERS").contains(new Long(2)));
+        assertTrue(extractor.getKeys("ORDERS").contains(new Long(3)));
+    }
+
+    public void testTableWithoutPrimaryKey() throws Exception
+    {
+        createOrderTables();
+        HypersonicEnvironment.executeSql(getConnection().getConnection(), 
+                "CREATE TABLE ORDER_NOTE (ORDER_ID BIGINT, NOTE VARCHAR(20), " 
+                + "FOREIGN KEY (ORDER_ID) REFERENCES ORDERS (ID))");
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.setReverseDependency(true);
+        extractor.addRoot("ORDERS", new Object[] {new Long(1)});
+        try
+        {
+            extractor.search();
+            fail("Should not be able to leave out the rows of a table without primary key");
+        }
+        catch (NoPrimaryKeyException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().indexOf("ORDER_NOTE") >= 0);
+        }
+    }
+
+    public void testUnknownRootTable() throws Exception
+    {
+        SubsetExtractor extractor = new SubsetExtractor(getConnection());
+        extractor.addRoot("UNKNOWN", new Object[] {A1});
+        try
+        {
+            extractor.search();
+            fail("Should not be able to start from an unknown table");
+        }
+        catch (NoPrimaryKeyException e)
+        {
+            fail("Should report the unknown table instead");
+        }
+        catch (NoSuchTableException expected)
+        {
+        }
+    }
+
+    /**
+     * Creates tables with numeric keys and a composite primary and foreign key
+     */
+    private void createOrderTables() throws Exception
+    {
+        String[] sql = {
+                "CREATE TABLE ORDERS (ID BIGINT PRIMARY KEY, NAME VARCHAR(20))",
+                "CREATE TABLE ORDER_LINE (ORDER_ID BIGINT, LINE_NO INTEGER, PRODUCT VARCHAR(20), " 
+                + "PRIMARY KEY (ORDER_ID, LINE_NO), FOREIGN KEY (ORDER_ID) REFERENCES ORDERS (ID))",
+                "CREATE TABLE SHIPMENT (ID INTEGER PRIMARY KEY, ORDER_ID BIGINT, LINE_NO INTEGER, " 
+                + "FOREIGN KEY (ORDER_ID, LINE_NO) REFERENCES ORDER_LINE (ORDER_ID, LINE_NO))",
+                "INSERT INTO ORDERS VALUES (1, 'first')",
+                "INSERT INTO ORDERS VALUES (2, 'second')",
+                "INSERT INTO ORDERS VALUES (3, 'third')",
+                "INSERT INTO ORDER_LINE VALUES (1, 1, 'apple')",
+                "INSERT INTO ORDER_LINE VALUES (1, 2, 'pear')",
+                "INSERT INTO ORDER_LINE VALUES (2, 1, 'apple')",
+                "INSERT INTO ORDER_LINE VALUES (3, 1, 'plum')",
+                "INSERT INTO SHIPMENT VALUES (10, 1, 2)",
+                "INSERT INTO SHIPMENT VALUES (11, 2, 1)",
+                "INSERT INTO SHIPMENT VALUES (12, 1, 1)",
+        };
+        for (int i = 0; i < sql.length; i++)
+        {
+            HypersonicEnvironment.executeSql(getConnection().getConnection(), sql[i]);
+        }
+    }
+
+    private static IDataSet extract(SubsetExtractor extractor) throws Exception
+    {
+        CachedDataSet dataSet = new CachedDataSet();
+        extractor.extract(dataSet);
+        return dataSet;
+    }
+
+    private static void assertKeys(IDataSet dataSet, String tableName, String[] expectedKeys) 
+    throws Exception
+    {
+        ITable table = dataSet.getTable(tableName);
+        Set actualKeys = new HashSet();
+        List rows = new ArrayList();
+        for (int i = 0; i < table.getRowCount(); i++)
+        {
+            String key = (String)table.getValue(i, "PK" + tableName);
+            actualKeys.add(key);
+            rows.add(key);
+        }
+        assertEquals("rows of " + tableName + ": " + rows, expectedKeys.length, table.getRowCount());
+        assertEquals("keys of " + tableName, new HashSet(Arrays.asList(expectedKeys)), actualKeys);
+    }
+}
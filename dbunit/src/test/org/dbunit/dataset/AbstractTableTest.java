@@ -99,6 +99,44 @@ public abstract class AbstractTableTest extends TestCase
         }
     }
 
+    public void testGetValueByIndex() throws Exception
+    {
+        ITable table = createTable();
+        IIndexedTable indexedTable = IndexedTableAdapter.getIndexedTable(table);
+        ITableMetaData metaData = table.getTableMetaData();
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            for (int j = 0; j < COLUMN_COUNT; j++)
+            {
+                int columnIndex = metaData.getColumnIndex("COLUMN" + j);
+                String expected = "row " + i + " col " + j;
+                Object value = indexedTable.getValue(i, columnIndex);
+                assertEquals("value", expected, value);
+            }
+        }
+    }
+
+    public void testCursor() throws Exception
+    {
+        ITable table = createTable();
+        ITableMetaData metaData = table.getTableMetaData();
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        int rowCount = 0;
+        while (cursor.next())
+        {
+            assertEquals("row", rowCount, cursor.getRow());
+            for (int j = 0; j < COLUMN_COUNT; j++)
+            {
+                int columnIndex = metaData.getColumnIndex("COLUMN" + j);
+                String expected = "row " + rowCount + " col " + j;
+                assertEquals("value", expected, cursor.getValue(columnIndex));
+            }
+            rowCount++;
+        }
+        assertEquals("row count", ROW_COUNT, rowCount);
+        assertEquals("next after end", false, cursor.next());
+    }
+
     public void testGetValueCaseInsensitive() throws Exception
     {
         ITable table = createTable();
@@ -22,6 +22,7 @@ package org.dbunit.dataset;
 
 import java.io.FileReader;
 
+import org.dbunit.Assertion;
 import org.dbunit.dataset.xml.FlatXmlDataSetTest;
 import org.dbunit.dataset.xml.FlatXmlProducer;
 import org.xml.sax.InputSource;
@@ -45,6 +46,26 @@ public class CachedDataSetTest extends AbstractDataSetDecoratorTest
         return new CachedDataSet(new FlatXmlProducer(new InputSource(reader)));
     }
 
+    public void testColumnarTables() throws Exception
+    {
+        FileReader reader = new FileReader(FlatXmlDataSetTest.DATASET_FILE);
+        IDataSet expected = createDataSet();
+        IDataSet dataSet = new CachedDataSet(new FlatXmlProducer(new InputSource(reader)), false, true);
+
+        String[] tableNames = dataSet.getTableNames();
+        assertEquals("table count", expected.getTableNames().length, tableNames.length);
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            ITable table = dataSet.getTable(tableNames[i]);
+            assertTrue("columnar", table instanceof ColumnarTable);
+            Assertion.assertEquals(expected.getTable(tableNames[i]), table);
+        }
+
+        IDataSet copy = new CachedDataSet(expected, true);
+        assertTrue("columnar", copy.getTable(tableNames[0]) instanceof ColumnarTable);
+        Assertion.assertEquals(expected, copy);
+    }
+
     public void testGetTable() throws Exception
     {
         super.testGetTable();
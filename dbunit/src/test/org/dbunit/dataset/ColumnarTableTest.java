@@ -0,0 +1,185 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.dataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ColumnarTableTest extends AbstractTableTest
+{
+    public ColumnarTableTest(String s)
+    {
+        super(s);
+    }
+
+    protected ITable createTable() throws Exception
+    {
+        Column[] columns = new Column[COLUMN_COUNT];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = new Column("COLUMN" + i, DataType.UNKNOWN);
+        }
+        ColumnarTable table = new ColumnarTable(new DefaultTableMetaData("myTable", columns));
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            Object[] rowValues = new Object[COLUMN_COUNT];
+            for (int j = 0; j < rowValues.length; j++)
+            {
+                rowValues[j] = "row " + i + " col " + j;
+            }
+            table.addRow(rowValues);
+        }
+        return table;
+    }
+
+    public void testGetMissingValue() throws Exception
+    {
+        ColumnarTable table = new ColumnarTable(new DefaultTableMetaData("myTable", new Column[] {
+                new Column("COLUMN0", DataType.UNKNOWN),
+                new Column("COLUMN1", DataType.INTEGER)}));
+        table.addRow(new Object[] {ITable.NO_VALUE, ITable.NO_VALUE});
+
+        assertEquals("no value", ITable.NO_VALUE, table.getValue(0, "COLUMN0"));
+        assertEquals("no value", ITable.NO_VALUE, table.getValue(0, "COLUMN1"));
+    }
+
+    public void testTypedValues() throws Exception
+    {
+        Timestamp timestamp = Timestamp.valueOf("2008-05-01 12:30:45.123456789");
+        Object[][] rows = new Object[][] {
+            {new Integer(-7), new Long(Long.MIN_VALUE), BigInteger.valueOf(Long.MAX_VALUE),
+                new Double(1.5), new BigDecimal("-123.4500"), timestamp,
+                java.sql.Date.valueOf("2008-05-01"), Time.valueOf("12:30:45"), "a", Boolean.TRUE},
+            {null, null, null, null, null, null, null, null, null, null},
+            {new Integer(3), new Long(4), BigInteger.ONE, new Double(-0.25), new BigDecimal("1E+3"),
+                new Timestamp(0), java.sql.Date.valueOf("1970-01-01"), Time.valueOf("00:00:00"),
+                "a", Boolean.FALSE},
+        };
+        ColumnarTable table = createTypedTable(rows);
+
+        assertRows(rows, table);
+        assertEquals("nanos", timestamp.getNanos(), ((Timestamp)table.getValue(0, 5)).getNanos());
+        assertEquals("scale", 4, ((BigDecimal)table.getValue(0, 4)).scale());
+    }
+
+    public void testValuesNotFittingThePrimitiveStorage() throws Exception
+    {
+        Object[][] rows = new Object[][] {
+            {new Integer(1), new Long(1), BigInteger.valueOf(1), new Double(1), new BigDecimal("1"),
+                new Timestamp(1), java.sql.Date.valueOf("2008-05-01"), Time.valueOf("12:30:45"),
+                "a", Boolean.TRUE},
+            {"2", "2", new BigInteger("123456789012345678901234567890"), new Float(2),
+                new BigDecimal("123456789012345678901234567890.5"), "2008-05-01 12:30:45",
+                new java.util.Date(0), new Integer(3), new Integer(4), "true"},
+        };
+        ColumnarTable table = createTypedTable(rows);
+
+        assertRows(rows, table);
+    }
+
+    public void testSetValue() throws Exception
+    {
+        Object[][] rows = new Object[][] {
+            {new Integer(1), new Long(1), BigInteger.valueOf(1), new Double(1), new BigDecimal("1"),
+                new Timestamp(1), java.sql.Date.valueOf("2008-05-01"), Time.valueOf("12:30:45"),
+                "a", Boolean.TRUE},
+        };
+        ColumnarTable table = createTypedTable(rows);
+
+        assertEquals("old value", new Integer(1), table.setValue(0, "C0", new Integer(2)));
+        assertEquals(new Integer(2), table.getValue(0, "C0"));
+        assertEquals("old value", "a", table.setValue(0, "C8", null));
+        assertNull(table.getValue(0, "C8"));
+        assertEquals("old value", new Long(1), table.setValue(0, "C1", "x"));
+        assertEquals("x", table.getValue(0, "C1"));
+    }
+
+    public void testManyDistinctStrings() throws Exception
+    {
+        ColumnarTable table = new ColumnarTable(new DefaultTableMetaData("myTable", new Column[] {
+                new Column("C0", DataType.VARCHAR)}));
+        for (int i = 0; i < 10000; i++)
+        {
+            table.addRow(new Object[] {"value " + (i % 5000)});
+        }
+        assertEquals(10000, table.getRowCount());
+        assertEquals("value 4999", table.getValue(4999, "C0"));
+        assertEquals("value 0", table.getValue(5000, "C0"));
+        assertEquals("value 4999", table.getValue(9999, "C0"));
+    }
+
+    public void testCopyTable() throws Exception
+    {
+        ITable table = createTable();
+        ITable copy = new ColumnarTable(table);
+        assertEquals("row count", ROW_COUNT, copy.getRowCount());
+        assertEquals("value", "row 5 col 3", copy.getValue(5, "COLUMN3"));
+    }
+
+    private ColumnarTable createTypedTable(Object[][] rows) throws Exception
+    {
+        DataType[] dataTypes = new DataType[] {DataType.INTEGER, DataType.BIGINT_AUX_LONG,
+                DataType.BIGINT, DataType.DOUBLE, DataType.NUMERIC, DataType.TIMESTAMP,
+                DataType.DATE, DataType.TIME, DataType.VARCHAR, DataType.BOOLEAN};
+        Column[] columns = new Column[dataTypes.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = new Column("C" + i, dataTypes[i]);
+        }
+        ColumnarTable table = new ColumnarTable(new DefaultTableMetaData("myTable", columns));
+        for (int i = 0; i < rows.length; i++)
+        {
+            table.addRow(rows[i]);
+        }
+        return table;
+    }
+
+    private void assertRows(Object[][] rows, ITable table) throws Exception
+    {
+        assertEquals("row count", rows.length, table.getRowCount());
+        ITableCursor cursor = DefaultTableCursor.getCursor(table);
+        for (int i = 0; i < rows.length; i++)
+        {
+            assertTrue("next", cursor.next());
+            for (int j = 0; j < rows[i].length; j++)
+            {
+                Object expected = rows[i][j];
+                Object actual = cursor.getValue(j);
+                assertEquals("row " + i + " column " + j, expected, actual);
+                if (expected != null)
+                {
+                    assertEquals("class " + i + " column " + j, expected.getClass(), actual.getClass());
+                }
+            }
+        }
+        assertFalse("next", cursor.next());
+    }
+}
@@ -32,6 +32,9 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(H2DataTypeFactoryTest.class));
+        suite.addTest(new TestSuite(H2UpsertDialectTest.class));
+        suite.addTest(new TestSuite(H2SnapshotDialectTest.class));
+        suite.addTest(new TestSuite(H2TemporaryTableDialectTest.class));
         return suite;
     }
 }
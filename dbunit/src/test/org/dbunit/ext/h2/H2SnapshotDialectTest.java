@@ -0,0 +1,109 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.h2;
+
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.DefaultDatabaseTester;
+import org.dbunit.H2Environment;
+import org.dbunit.IOperationListener;
+import org.dbunit.SnapshotDatabaseTester;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class H2SnapshotDialectTest extends TestCase
+{
+    public H2SnapshotDialectTest(String s)
+    {
+        super(s);
+    }
+
+    public void testGetSnapshotSql() throws Exception
+    {
+        H2SnapshotDialect dialect = new H2SnapshotDialect();
+        assertEquals("create table S as select * from T", dialect.getCreateSnapshotSql("T", "S"));
+        assertEquals("drop table if exists S", dialect.getDropSnapshotSql("S"));
+    }
+
+    public void testRestoreSnapshot() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("snapshot");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection,
+                    "create table PARENT (ID integer primary key)");
+            H2Environment.executeSql(jdbcConnection,
+                    "create table CHILD (ID integer primary key, PARENT_ID integer,"
+                    + " foreign key (PARENT_ID) references PARENT (ID))");
+
+            IDatabaseConnection connection = new H2Connection(jdbcConnection, null);
+            SnapshotDatabaseTester tester = new SnapshotDatabaseTester(
+                    new DefaultDatabaseTester(connection));
+            tester.setOperationListener(IOperationListener.NO_OP_OPERATION_LISTENER);
+            tester.setDataSet(createDataSet());
+
+            for (int i = 0; i < 3; i++)
+            {
+                tester.onSetup();
+                assertEquals("parent rows before test " + i, 2, connection.getRowCount("PARENT"));
+                assertEquals("child rows before test " + i, 1, connection.getRowCount("CHILD"));
+
+                H2Environment.executeSql(jdbcConnection, "delete from CHILD");
+                H2Environment.executeSql(jdbcConnection, "insert into PARENT values (" + (i + 3) + ")");
+                tester.onTearDown();
+            }
+
+            tester.close();
+            assertEquals("snapshot tables", 2, connection.createDataSet().getTableNames().length);
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        DefaultTable parent = new DefaultTable("PARENT", new Column[] {
+                new Column("ID", DataType.INTEGER)});
+        parent.addRow(new Object[] {new Integer(1)});
+        parent.addRow(new Object[] {new Integer(2)});
+        DefaultTable child = new DefaultTable("CHILD", new Column[] {
+                new Column("ID", DataType.INTEGER),
+                new Column("PARENT_ID", DataType.INTEGER)});
+        child.addRow(new Object[] {new Integer(1), new Integer(2)});
+        return new DefaultDataSet(parent, child);
+    }
+
+}
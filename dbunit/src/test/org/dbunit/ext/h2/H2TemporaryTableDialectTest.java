@@ -0,0 +1,80 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.h2;
+
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.H2Environment;
+import org.dbunit.database.IDatabaseConnection;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class H2TemporaryTableDialectTest extends TestCase
+{
+    public H2TemporaryTableDialectTest(String s)
+    {
+        super(s);
+    }
+
+    public void testGetTemporaryTableSql() throws Exception
+    {
+        H2TemporaryTableDialect dialect = new H2TemporaryTableDialect();
+        assertEquals("create local temporary table K as SELECT ID AS KEY0 FROM T WHERE 1 = 0",
+                dialect.getCreateTableSql("K", "SELECT ID AS KEY0 FROM T WHERE 1 = 0"));
+        assertEquals("drop table K", dialect.getDropTableSql("K"));
+    }
+
+    public void testTemporaryTable() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("temporarytable");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection, "create table T (ID integer primary key)");
+            H2Environment.executeSql(jdbcConnection, "insert into T values (1)");
+            H2Environment.executeSql(jdbcConnection, "insert into T values (2)");
+            H2Environment.executeSql(jdbcConnection, "insert into T values (3)");
+
+            H2TemporaryTableDialect dialect = new H2TemporaryTableDialect();
+            H2Environment.executeSql(jdbcConnection,
+                    dialect.getCreateTableSql("K", "SELECT ID AS KEY0 FROM T WHERE 1 = 0"));
+            H2Environment.executeSql(jdbcConnection, "insert into K (KEY0) values (1)");
+            H2Environment.executeSql(jdbcConnection, "insert into K (KEY0) values (3)");
+
+            IDatabaseConnection connection = new H2Connection(jdbcConnection, null);
+            assertEquals(2, connection.getRowCount("T", "where ID in (select KEY0 from K)"));
+
+            H2Environment.executeSql(jdbcConnection, dialect.getDropTableSql("K"));
+            assertEquals(1, connection.createDataSet().getTableNames().length);
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.h2;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.H2Environment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.operation.DatabaseOperation;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class H2UpsertDialectTest extends TestCase
+{
+    public H2UpsertDialectTest(String s)
+    {
+        super(s);
+    }
+
+    public void testGetUpsertSql() throws Exception
+    {
+        String sql = new H2UpsertDialect().getUpsertSql("T",
+                new String[] {"A", "B", "C"},
+                new Column[] {new Column("A", DataType.INTEGER),
+                        new Column("B", DataType.VARCHAR), new Column("C", DataType.DECIMAL)},
+                new String[] {"A", "B"});
+        assertEquals("merge into T (A, B, C) key (A, B) values (?, ?, ?)", sql);
+    }
+
+    public void testRefresh() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("upsert");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection,
+                    "create table UPSERT_TABLE (ID integer primary key, NAME varchar(20))");
+            H2Environment.executeSql(jdbcConnection,
+                    "insert into UPSERT_TABLE values (1, 'old')");
+
+            IDatabaseConnection connection = new H2Connection(jdbcConnection, null);
+            // Not enabled by default
+            assertNull(connection.getConfig().getProperty(DatabaseConfig.PROPERTY_UPSERT_DIALECT));
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_UPSERT_DIALECT,
+                    new H2UpsertDialect());
+
+            DefaultTable table = new DefaultTable("UPSERT_TABLE", new Column[] {
+                    new Column("ID", DataType.INTEGER),
+                    new Column("NAME", DataType.VARCHAR)});
+            table.addRow(new Object[] {new Integer(1), "new"});
+            table.addRow(new Object[] {new Integer(2), "added"});
+
+            DatabaseOperation.REFRESH.execute(connection, new DefaultDataSet(table));
+
+            ITable actual = connection.createQueryTable("UPSERT_TABLE",
+                    "select * from UPSERT_TABLE order by ID");
+            assertEquals(2, actual.getRowCount());
+            assertEquals("new", actual.getValue(0, "NAME"));
+            assertEquals("added", actual.getValue(1, "NAME"));
+            assertEquals(new BigDecimal(2), new BigDecimal(actual.getValue(1, "ID").toString()));
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    public void testRefreshWithoutPrimaryKeyValue() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("upsert");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection,
+                    "create table UPSERT_TABLE (ID integer primary key, NAME varchar(20))");
+
+            IDatabaseConnection connection = new H2Connection(jdbcConnection, null);
+            connection.getConfig().setProperty(DatabaseConfig.PROPERTY_UPSERT_DIALECT,
+                    new H2UpsertDialect());
+
+            DefaultTable table = new DefaultTable("UPSERT_TABLE", new Column[] {
+                    new Column("ID", DataType.INTEGER),
+                    new Column("NAME", DataType.VARCHAR)});
+            table.addRow(new Object[] {ITable.NO_VALUE, "new"});
+
+            try
+            {
+                DatabaseOperation.REFRESH.execute(connection, new DefaultDataSet(table));
+                fail("Should not be able to upsert a row without primary key value");
+            }
+            catch (DataSetException expected)
+            {
+                assertTrue(expected.getMessage(), expected.getMessage().indexOf("'ID'") >= 0);
+            }
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+}
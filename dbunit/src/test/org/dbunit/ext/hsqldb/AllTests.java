@@ -32,6 +32,9 @@ public class AllTests extends TestSuite
     {
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(HsqldbDataTypeFactoryTest.class));
+        suite.addTest(new TestSuite(HsqldbUpsertDialectTest.class));
+        suite.addTest(new TestSuite(HsqldbSnapshotDialectTest.class));
+        suite.addTest(new TestSuite(HsqldbTemporaryTableDialectTest.class));
         return suite;
     }
 }
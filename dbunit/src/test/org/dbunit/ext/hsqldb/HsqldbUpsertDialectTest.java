@@ -0,0 +1,81 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.hsqldb;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class HsqldbUpsertDialectTest extends TestCase
+{
+    public HsqldbUpsertDialectTest(String s)
+    {
+        super(s);
+    }
+
+    public void testGetUpsertSql() throws Exception
+    {
+        String sql = new HsqldbUpsertDialect().getUpsertSql("T",
+                new String[] {"A", "B", "C"},
+                new Column[] {new Column("A", DataType.INTEGER),
+                        new Column("B", DataType.VARCHAR), new Column("C", DataType.DECIMAL)},
+                new String[] {"A"});
+        assertEquals("merge into T as dbunit_target"
+                + " using (values (cast(? as bigint), cast(? as varchar(16777216)),"
+                + " cast(? as decimal(128, 32)))) as dbunit_vals (A, B, C)"
+                + " on dbunit_target.A = dbunit_vals.A"
+                + " when matched then update set B = dbunit_vals.B, C = dbunit_vals.C"
+                + " when not matched then insert (A, B, C)"
+                + " values dbunit_vals.A, dbunit_vals.B, dbunit_vals.C", sql);
+    }
+
+    public void testGetUpsertSqlOnlyPrimaryKeys() throws Exception
+    {
+        String sql = new HsqldbUpsertDialect().getUpsertSql("T",
+                new String[] {"A"},
+                new Column[] {new Column("A", DataType.INTEGER)},
+                new String[] {"A"});
+        assertEquals("merge into T as dbunit_target"
+                + " using (values (cast(? as bigint))) as dbunit_vals (A)"
+                + " on dbunit_target.A = dbunit_vals.A"
+                + " when not matched then insert (A) values dbunit_vals.A", sql);
+    }
+
+    public void testGetCastType() throws Exception
+    {
+        assertEquals("timestamp(9)", HsqldbUpsertDialect.getCastType(
+                new Column("A", DataType.TIMESTAMP)));
+        assertEquals("double", HsqldbUpsertDialect.getCastType(
+                new Column("A", DataType.DOUBLE)));
+        assertEquals("boolean", HsqldbUpsertDialect.getCastType(
+                new Column("A", DataType.BOOLEAN)));
+        // Unknown types are not cast
+        assertNull(HsqldbUpsertDialect.getCastType(new Column("A", DataType.UNKNOWN)));
+    }
+
+}
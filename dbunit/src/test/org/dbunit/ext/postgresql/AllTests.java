@@ -35,6 +35,8 @@ public class AllTests extends TestSuite
         TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(PostgresqlDataTypeFactoryTest.class));
         suite.addTest(new TestSuite(SQLHelperDomainPostgreSQLIT.class));
+        suite.addTest(new TestSuite(PostgresqlUpsertDialectTest.class));
+        suite.addTest(new TestSuite(PostgresqlTemporaryTableDialectTest.class));
         return suite;
     }
 }
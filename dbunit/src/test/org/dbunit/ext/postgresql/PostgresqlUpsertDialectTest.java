@@ -0,0 +1,61 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.ext.postgresql;
+
+import junit.framework.TestCase;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class PostgresqlUpsertDialectTest extends TestCase
+{
+    public PostgresqlUpsertDialectTest(String s)
+    {
+        super(s);
+    }
+
+    public void testGetUpsertSql() throws Exception
+    {
+        String sql = new PostgresqlUpsertDialect().getUpsertSql("T",
+                new String[] {"A", "B", "C"},
+                new Column[] {new Column("A", DataType.INTEGER),
+                        new Column("B", DataType.VARCHAR), new Column("C", DataType.DECIMAL)},
+                new String[] {"A", "B"});
+        assertEquals("insert into T (A, B, C) values (?, ?, ?)"
+                + " on conflict (A, B) do update set C = excluded.C", sql);
+    }
+
+    public void testGetUpsertSqlOnlyPrimaryKeys() throws Exception
+    {
+        String sql = new PostgresqlUpsertDialect().getUpsertSql("T",
+                new String[] {"A"},
+                new Column[] {new Column("A", DataType.INTEGER)},
+                new String[] {"A"});
+        assertEquals("insert into T (A) values (?) on conflict (A) do nothing", sql);
+    }
+
+}
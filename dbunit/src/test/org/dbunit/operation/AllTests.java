@@ -40,8 +40,13 @@ public class AllTests extends TestSuite
         suite.addTest(new TestSuite(CompositeOperationIT.class));
         suite.addTest(new TestSuite(DeleteAllOperationIT.class));
         suite.addTest(new TestSuite(DeleteOperationIT.class));
+        suite.addTest(new TestSuite(FastCleanOperationTest.class));
+        suite.addTest(new TestSuite(FingerprintOperationTest.class));
         suite.addTest(new TestSuite(InsertOperationIT.class));
+        suite.addTest(new TestSuite(ParallelOperationTest.class));
+        suite.addTest(new TestSuite(PipelinedOperationTest.class));
         suite.addTest(new TestSuite(RefreshOperationIT.class));
+        suite.addTest(new TestSuite(SyncOperationTest.class));
         suite.addTest(new TestSuite(TransactionOperationIT.class));
         suite.addTest(new TestSuite(TruncateTableOperationIT.class));
         suite.addTest(new TestSuite(UpdateOperationIT.class));
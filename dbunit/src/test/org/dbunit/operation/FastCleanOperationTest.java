@@ -0,0 +1,192 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.DirtyTableRegistry;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class FastCleanOperationTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+    private DirtyTableRegistry _registry;
+
+    public FastCleanOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        _connection = new DatabaseConnection(_jdbcConnection);
+        _registry = new DirtyTableRegistry();
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_DIRTY_TABLE_REGISTRY, _registry);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testInsertMarksTablesDirty() throws Exception
+    {
+        _registry.markClean("D");
+        _registry.markClean("G");
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createTable("D", 1)));
+
+        assertFalse(_registry.isClean("D"));
+        assertTrue(_registry.isClean("G"));
+    }
+
+    public void testMultiRowInsertMarksTablesDirty() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MULTI_ROW_INSERT_SIZE, new Integer(10));
+        _registry.markClean("D");
+        _registry.markClean("G");
+
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createTable("D", 1)));
+
+        assertFalse(_registry.isClean("D"));
+        assertTrue(_registry.isClean("G"));
+    }
+
+    public void testParallelInsertMarksTablesDirty() throws Exception
+    {
+        // The worker connection is not configured with the registry
+        Connection workerJdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        try
+        {
+            IDatabaseConnection worker = new DatabaseConnection(workerJdbcConnection);
+            _registry.markClean("D");
+            _registry.markClean("G");
+
+            new ParallelOperation(DatabaseOperation.INSERT, new IDatabaseConnection[] {worker})
+                    .execute(_connection, new DefaultDataSet(createTable("D", 1)));
+
+            assertFalse(_registry.isClean("D"));
+            assertTrue(_registry.isClean("G"));
+        }
+        finally
+        {
+            workerJdbcConnection.close();
+        }
+    }
+
+    public void testCleanTablesAreSkipped() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation.INSERT.execute(_connection, dataSet);
+        // Pretends that D has been cleaned although it holds a row
+        _registry.markClean("D");
+
+        DatabaseOperation.FAST_CLEAN(DatabaseOperation.DELETE_ALL, false).execute(
+                _connection, dataSet);
+
+        assertEquals(1, _connection.getRowCount("D"));
+        assertEquals(0, _connection.getRowCount("G"));
+        assertEquals(0, _connection.getRowCount("H"));
+        assertTrue(_registry.isClean("G"));
+        assertTrue(_registry.isClean("H"));
+    }
+
+    public void testProbeEmptyTables() throws Exception
+    {
+        DatabaseOperation.INSERT.execute(_connection, new DefaultDataSet(createTable("G", 1)));
+
+        DatabaseOperation.FAST_CLEAN(DatabaseOperation.DELETE_ALL, true).execute(
+                _connection, createDataSet());
+
+        assertEquals(0, _connection.getRowCount("G"));
+        assertTrue(_registry.isClean("D"));
+        assertTrue(_registry.isClean("G"));
+        assertTrue(_registry.isClean("H"));
+    }
+
+    public void testCleanInsertTwice() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = new CompositeOperation(
+                DatabaseOperation.FAST_CLEAN(DatabaseOperation.DELETE_ALL, true),
+                DatabaseOperation.INSERT);
+        operation.execute(_connection, dataSet);
+        operation.execute(_connection, dataSet);
+
+        assertEquals(1, _connection.getRowCount("D"));
+        assertEquals(1, _connection.getRowCount("G"));
+        assertEquals(1, _connection.getRowCount("H"));
+        assertFalse(_registry.isClean("D"));
+    }
+
+    public void testCleanInsertTwiceWithMultiRowInsert() throws Exception
+    {
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MULTI_ROW_INSERT_SIZE, new Integer(10));
+        testCleanInsertTwice();
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        return new DefaultDataSet(new ITable[] {
+                createTable("D", 1),
+                createTable("G", 1),
+                createTable("H", 1),
+        });
+    }
+
+    private static DefaultTable createTable(String tableName, int value) throws Exception
+    {
+        DefaultTable table = new DefaultTable(tableName, new Column[] {
+                new Column("PK" + tableName, DataType.NUMERIC)});
+        table.addRow(new Object[] {new BigDecimal(value)});
+        return table;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.FixtureRegistry;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class FingerprintOperationTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+    /**
+     * The tables loaded by the last execution, <code>null</code> if nothing was loaded
+     */
+    private List _loadedTables;
+    private DatabaseOperation _loadOperation = new DatabaseOperation()
+    {
+        public void execute(IDatabaseConnection connection, IDataSet dataSet)
+                throws DatabaseUnitException, SQLException
+        {
+            _loadedTables = Arrays.asList(dataSet.getTableNames());
+            DatabaseOperation.CLEAN_INSERT.execute(connection, dataSet);
+        }
+    };
+
+    public FingerprintOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        _connection = new DatabaseConnection(_jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testUnchangedTablesAreSkipped() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+
+        operation.execute(_connection, dataSet);
+        assertEquals(Arrays.asList(new String[] {"D", "A"}), _loadedTables);
+
+        _loadedTables = null;
+        operation.execute(_connection, dataSet);
+        assertNull("not loaded again", _loadedTables);
+
+        // An equal dataset has the same fingerprint
+        operation.execute(_connection, createDataSet());
+        assertNull("not loaded again", _loadedTables);
+    }
+
+    public void testChangedTableIsReloaded() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+        operation.execute(_connection, dataSet);
+
+        HypersonicEnvironment.executeSql(_jdbcConnection, "insert into A (PKA, FKD) values (3, 1)");
+        operation.execute(_connection, dataSet);
+
+        assertEquals(Arrays.asList(new String[] {"A"}), _loadedTables);
+        assertEquals(2, _connection.getRowCount("A"));
+    }
+
+    public void testFollowingTablesAreReloaded() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+        operation.execute(_connection, dataSet);
+
+        HypersonicEnvironment.executeSql(_jdbcConnection, "delete from A");
+        HypersonicEnvironment.executeSql(_jdbcConnection, "delete from D where PKD = 2");
+        operation.execute(_connection, dataSet);
+
+        assertEquals(Arrays.asList(new String[] {"D", "A"}), _loadedTables);
+        assertEquals(2, _connection.getRowCount("D"));
+        assertEquals(2, _connection.getRowCount("A"));
+    }
+
+    public void testChangedDataSetIsLoaded() throws Exception
+    {
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+        operation.execute(_connection, createDataSet());
+
+        DefaultTable table = createTable("A");
+        table.addRow(new Object[] {new BigDecimal(1), new BigDecimal(1)});
+        table.addRow(new Object[] {new BigDecimal(2), new BigDecimal(1)});
+        operation.execute(_connection, new DefaultDataSet(new ITable[] {createDTable(), table}));
+
+        assertEquals(Arrays.asList(new String[] {"A"}), _loadedTables);
+    }
+
+    public void testUpdateDetectedByContentComparison() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+        operation.execute(_connection, dataSet);
+
+        // The row count does not change
+        HypersonicEnvironment.executeSql(_jdbcConnection, "update A set FKD = 1");
+        _loadedTables = null;
+        operation.execute(_connection, dataSet);
+        assertNull("update not detected", _loadedTables);
+
+        operation = DatabaseOperation.FINGERPRINT(_loadOperation, true);
+        operation.execute(_connection, dataSet);
+        assertEquals(Arrays.asList(new String[] {"D", "A"}), _loadedTables);
+
+        _loadedTables = null;
+        operation.execute(_connection, dataSet);
+        assertNull("not loaded again", _loadedTables);
+    }
+
+    public void testOperationForgetsTable() throws Exception
+    {
+        FixtureRegistry registry = new FixtureRegistry();
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_FIXTURE_REGISTRY, registry);
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation.FINGERPRINT(_loadOperation, false).execute(_connection, dataSet);
+
+        DefaultTable table = createTable("A");
+        table.addRow(new Object[] {new BigDecimal(1), new BigDecimal(1)});
+        DatabaseOperation.UPDATE.execute(_connection, new DefaultDataSet(table));
+
+        // A new operation instance uses the registry of the connection
+        DatabaseOperation.FINGERPRINT(_loadOperation, false).execute(_connection, dataSet);
+        assertEquals(Arrays.asList(new String[] {"A"}), _loadedTables);
+    }
+
+    public void testOperationReachesOwnRegistry() throws Exception
+    {
+        IDataSet dataSet = createDataSet();
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, false);
+        operation.execute(_connection, dataSet);
+        assertNotNull("registry set on the connection", _connection.getConfig().getProperty(
+                DatabaseConfig.PROPERTY_FIXTURE_REGISTRY));
+
+        // The update does not change the row count
+        DefaultTable table = createTable("A");
+        table.addRow(new Object[] {new BigDecimal(1), new BigDecimal(2)});
+        DatabaseOperation.UPDATE.execute(_connection, new DefaultDataSet(table));
+
+        operation.execute(_connection, dataSet);
+        assertEquals(Arrays.asList(new String[] {"A"}), _loadedTables);
+    }
+
+    public void testHashValue() throws Exception
+    {
+        long one = FingerprintOperation.hashValue(new Integer(1));
+        assertEquals(one, FingerprintOperation.hashValue(new Long(1)));
+        assertEquals(one, FingerprintOperation.hashValue(new BigDecimal("1.00")));
+        assertEquals(one, FingerprintOperation.hashValue(new Double(1)));
+        assertEquals(FingerprintOperation.hashValue(new BigDecimal("1.5")),
+                FingerprintOperation.hashValue(new BigDecimal("1.50")));
+        assertEquals(FingerprintOperation.hashValue(new Integer(100)),
+                FingerprintOperation.hashValue(new BigDecimal(BigInteger.ONE, -2)));
+        assertFalse(FingerprintOperation.hashValue(new BigDecimal("1.5"))
+                == FingerprintOperation.hashValue(new BigDecimal("15")));
+
+        // Not distinguishable as double
+        assertFalse(FingerprintOperation.hashValue(new Long(Long.MAX_VALUE))
+                == FingerprintOperation.hashValue(new Long(Long.MAX_VALUE - 1)));
+        BigDecimal large = new BigDecimal("12345678901234567890.123456789");
+        assertFalse(FingerprintOperation.hashValue(large)
+                == FingerprintOperation.hashValue(large.add(new BigDecimal("0.000000001"))));
+    }
+
+    public void testNoValueColumnIsNotHashed() throws Exception
+    {
+        DefaultTable table = createTable("A");
+        table.addRow(new Object[] {"1", ITable.NO_VALUE});
+        table.addRow(new Object[] {"2", "2"});
+        IDataSet dataSet = new DefaultDataSet(new ITable[] {createDTable(), table});
+        DatabaseOperation operation = DatabaseOperation.FINGERPRINT(_loadOperation, true);
+        operation.execute(_connection, dataSet);
+
+        // The database keeps any value of the column left out by the dataset
+        HypersonicEnvironment.executeSql(_jdbcConnection, "update A set FKD = 1");
+        _loadedTables = null;
+        operation.execute(_connection, dataSet);
+        assertNull("not loaded again", _loadedTables);
+
+        HypersonicEnvironment.executeSql(_jdbcConnection, "update A set PKA = 3 where PKA = 2");
+        operation.execute(_connection, dataSet);
+        assertEquals(Arrays.asList(new String[] {"A"}), _loadedTables);
+    }
+
+    private IDataSet createDataSet() throws Exception
+    {
+        DefaultTable table = createTable("A");
+        table.addRow(new Object[] {"1", "1"});
+        table.addRow(new Object[] {"2", "2"});
+        return new DefaultDataSet(new ITable[] {createDTable(), table});
+    }
+
+    private static DefaultTable createDTable() throws Exception
+    {
+        DefaultTable table = new DefaultTable("D", new Column[] {
+                new Column("PKD", DataType.NUMERIC)});
+        table.addRow(new Object[] {"1"});
+        table.addRow(new Object[] {"2"});
+        return table;
+    }
+
+    private static DefaultTable createTable(String tableName) throws Exception
+    {
+        return new DefaultTable(tableName, new Column[] {
+                new Column("PK" + tableName, DataType.NUMERIC),
+                new Column("FKD", DataType.NUMERIC)});
+    }
+}
@@ -105,6 +105,159 @@ public class InsertOperationIT extends AbstractDatabaseIT
         connection.verify();
     }
 
+    public void testMockExecuteGroupedByIgnoreMapping() throws Exception
+    {
+        String schemaName = "schema";
+        String tableName = "table";
+        String[] expected = {
+            "insert into schema.table (c1, c2, c3) values ('a', 1, 'x')",
+            "insert into schema.table (c1) values ('b')",
+            "insert into schema.table (c1, c2, c3) values ('c', 3, 'z')",
+            "insert into schema.table (c1) values ('d')",
+            "insert into schema.table (c1, c3) values ('e', 'v')",
+            "insert into schema.table (c1, c2, c3) values ('f', 6, 'u')",
+        };
+
+        // setup table
+        Column[] columns = new Column[]{
+            new Column("c1", DataType.VARCHAR),
+            new Column("c2", DataType.NUMERIC),
+            new Column("c3", DataType.VARCHAR),
+        };
+        DefaultTable table = new DefaultTable(tableName, columns);
+        table.addRow(new Object[]{"a", "1", "x"});
+        table.addRow(new Object[]{"b", ITable.NO_VALUE, ITable.NO_VALUE});
+        table.addRow(new Object[]{"c", "3", "z"});
+        table.addRow(new Object[]{"d", ITable.NO_VALUE, ITable.NO_VALUE});
+        table.addRow(new Object[]{"e", ITable.NO_VALUE, "v"});
+        table.addRow(new Object[]{"f", "6", "u"});
+        IDataSet dataSet = new DefaultDataSet(table);
+
+        // setup mock objects: the third mapping closes the least recently
+        // used statement (all columns) which is reopened for the last row
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings(expected);
+        statement.setExpectedExecuteBatchCalls(4);
+        statement.setExpectedClearBatchCalls(4);
+        statement.setExpectedCloseCalls(4);
+
+        MockStatementFactory factory = new MockStatementFactory();
+        factory.setExpectedCreatePreparedStatementCalls(4);
+        factory.setupStatement(statement);
+
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        connection.setupDataSet(dataSet);
+        connection.setupSchema(schemaName);
+        connection.setupStatementFactory(factory);
+        connection.setExpectedCloseCalls(0);
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MAX_OPEN_STATEMENTS, new Integer(2));
+
+        // execute operation
+        new InsertOperation().execute(connection, dataSet);
+
+        statement.verify();
+        factory.verify();
+        connection.verify();
+    }
+
+    public void testMockExecuteMultiRow() throws Exception
+    {
+        String schemaName = "schema";
+        String tableName = "table";
+        String[] expected = {
+            "insert into schema.table (c1, c2) values ('a', 1), ('b', 2)",
+            "insert into schema.table (c1, c2) values ('c', 3)",
+            "insert into schema.table (c1) values ('d')",
+            "insert into schema.table (c1, c2) values ('e', 5)",
+        };
+
+        // setup table
+        Column[] columns = new Column[]{
+            new Column("c1", DataType.VARCHAR),
+            new Column("c2", DataType.NUMERIC),
+        };
+        DefaultTable table = new DefaultTable(tableName, columns);
+        table.addRow(new Object[]{"a", "1"});
+        table.addRow(new Object[]{"b", "2"});
+        table.addRow(new Object[]{"c", "3"});
+        table.addRow(new Object[]{"d", ITable.NO_VALUE});
+        table.addRow(new Object[]{"e", "5"});
+        IDataSet dataSet = new DefaultDataSet(table);
+
+        // setup mock objects
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings(expected);
+        statement.setExpectedExecuteBatchCalls(4);
+        statement.setExpectedClearBatchCalls(4);
+        statement.setExpectedCloseCalls(4);
+
+        MockStatementFactory factory = new MockStatementFactory();
+        factory.setExpectedCreatePreparedStatementCalls(4);
+        factory.setupStatement(statement);
+
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        connection.setupDataSet(dataSet);
+        connection.setupSchema(schemaName);
+        connection.setupStatementFactory(factory);
+        connection.setExpectedCloseCalls(0);
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MULTI_ROW_INSERT_SIZE, new Integer(2));
+
+        // execute operation
+        new InsertOperation().execute(connection, dataSet);
+
+        statement.verify();
+        factory.verify();
+        connection.verify();
+    }
+
+    public void testMockExecuteMultiRowParameterLimit() throws Exception
+    {
+        String schemaName = "schema";
+        String tableName = "table";
+        String[] expected = {
+            "insert into schema.table (c1, c2) values ('a', 1), ('b', 2)",
+            "insert into schema.table (c1, c2) values ('c', 3)",
+        };
+
+        // setup table
+        Column[] columns = new Column[]{
+            new Column("c1", DataType.VARCHAR),
+            new Column("c2", DataType.NUMERIC),
+        };
+        DefaultTable table = new DefaultTable(tableName, columns);
+        table.addRow(new Object[]{"a", "1"});
+        table.addRow(new Object[]{"b", "2"});
+        table.addRow(new Object[]{"c", "3"});
+        IDataSet dataSet = new DefaultDataSet(table);
+
+        // setup mock objects
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings(expected);
+        statement.setExpectedExecuteBatchCalls(2);
+        statement.setExpectedClearBatchCalls(2);
+        statement.setExpectedCloseCalls(2);
+
+        MockStatementFactory factory = new MockStatementFactory();
+        factory.setExpectedCreatePreparedStatementCalls(2);
+        factory.setupStatement(statement);
+
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        connection.setupDataSet(dataSet);
+        connection.setupSchema(schemaName);
+        connection.setupStatementFactory(factory);
+        connection.setExpectedCloseCalls(0);
+        // Only 5 parameters allowed: 2 rows of 2 columns per statement
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MULTI_ROW_INSERT_SIZE, new Integer(100));
+        connection.getConfig().setProperty(DatabaseConfig.PROPERTY_MAX_STATEMENT_PARAMETERS, new Integer(5));
+
+        // execute operation
+        new InsertOperation().execute(connection, dataSet);
+
+        statement.verify();
+        factory.verify();
+        connection.verify();
+    }
+
     public void testExecuteUnknownColumn() throws Exception
     {
         String tableName = "table";
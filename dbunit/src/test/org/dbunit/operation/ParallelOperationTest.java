@@ -0,0 +1,299 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.CyclicTablesDependencyException;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class ParallelOperationTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private Connection _jdbcConnection2;
+
+    public ParallelOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        _jdbcConnection2 = HypersonicEnvironment.createJdbcConnection("tempdb");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+        _jdbcConnection2.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testGroupByLevel() throws Exception
+    {
+        // Same graph as in hypersonic_fk.sql
+        Map dependsOn = new HashMap();
+        dependsOn.put("A", toSet(new String[] {"D"}));
+        dependsOn.put("B", toSet(new String[] {"C", "E", "H"}));
+        dependsOn.put("C", toSet(new String[] {"A", "F"}));
+        dependsOn.put("E", toSet(new String[] {"A", "G"}));
+        dependsOn.put("F", toSet(new String[] {"D"}));
+
+        String[] tableNames = {"A", "B", "C", "D", "E", "F", "G", "H"};
+        String[][] levels = ParallelOperation.groupByLevel(tableNames, dependsOn);
+
+        assertEquals(4, levels.length);
+        assertEquals(Arrays.asList(new String[] {"D", "G", "H"}), Arrays.asList(levels[0]));
+        assertEquals(Arrays.asList(new String[] {"A", "F"}), Arrays.asList(levels[1]));
+        assertEquals(Arrays.asList(new String[] {"C", "E"}), Arrays.asList(levels[2]));
+        assertEquals(Arrays.asList(new String[] {"B"}), Arrays.asList(levels[3]));
+    }
+
+    public void testGroupByLevelIgnoresUnknownTablesAndSelfReferences() throws Exception
+    {
+        Map dependsOn = new HashMap();
+        dependsOn.put("A", toSet(new String[] {"A", "UNKNOWN"}));
+        dependsOn.put("B", toSet(new String[] {"A"}));
+
+        String[][] levels = ParallelOperation.groupByLevel(new String[] {"B", "A"}, dependsOn);
+
+        assertEquals(2, levels.length);
+        assertEquals(Arrays.asList(new String[] {"A"}), Arrays.asList(levels[0]));
+        assertEquals(Arrays.asList(new String[] {"B"}), Arrays.asList(levels[1]));
+    }
+
+    public void testGroupByLevelCyclic() throws Exception
+    {
+        Map dependsOn = new HashMap();
+        dependsOn.put("A", toSet(new String[] {"B"}));
+        dependsOn.put("B", toSet(new String[] {"A"}));
+
+        try
+        {
+            ParallelOperation.groupByLevel(new String[] {"A", "B", "C"}, dependsOn);
+            fail("Should not be here!");
+        }
+        catch (CyclicTablesDependencyException expected)
+        {
+            String expectedMsg = new CyclicTablesDependencyException("A",
+                    toSet(new String[] {"A", "B"})).getMessage();
+            assertEquals(expectedMsg, expected.getMessage());
+        }
+    }
+
+    public void testGetDirectDependsOnTables() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+
+        IDataSet dataSet = new DefaultDataSet(new ITable[] {
+                createTable("B", new String[] {"PKB", "FKC", "FKE", "FKH"}),
+                createTable("C", new String[] {"PKC", "FKA", "FKF"}),
+                createTable("A", new String[] {"PKA", "FKD"}),
+                createTable("D", new String[] {"PKD"}),
+        });
+        Map dependsOn = ParallelOperation.getDirectDependsOnTables(connection,
+                ParallelOperation.getTablesByName(dataSet), false);
+
+        // Each table must map to the tables it references, not to the tables referencing it
+        assertTrue(((Set)dependsOn.get("B")).containsAll(toSet(new String[] {"C", "E", "H"})));
+        Set actualD = new HashSet((Set)dependsOn.get("D"));
+        actualD.remove("D");
+        assertEquals(new HashSet(), actualD);
+
+        String[][] levels = ParallelOperation.groupByLevel(new String[] {"B", "C", "A", "D"}, dependsOn);
+        assertEquals(4, levels.length);
+        assertEquals(Arrays.asList(new String[] {"D"}), Arrays.asList(levels[0]));
+        assertEquals(Arrays.asList(new String[] {"A"}), Arrays.asList(levels[1]));
+        assertEquals(Arrays.asList(new String[] {"C"}), Arrays.asList(levels[2]));
+        assertEquals(Arrays.asList(new String[] {"B"}), Arrays.asList(levels[3]));
+    }
+
+    public void testExecuteCleanInsert() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        IDatabaseConnection connection2 = new DatabaseConnection(_jdbcConnection2);
+
+        // Tables deliberately in the wrong order for a sequential insert
+        IDataSet dataSet = new DefaultDataSet(new ITable[] {
+                createTable("B", new String[] {"PKB", "FKC", "FKE", "FKH"}),
+                createTable("C", new String[] {"PKC", "FKA", "FKF"}),
+                createTable("E", new String[] {"PKE", "FKA", "FKG"}),
+                createTable("A", new String[] {"PKA", "FKD"}),
+                createTable("F", new String[] {"PKF", "FKD"}),
+                createTable("D", new String[] {"PKD"}),
+                createTable("G", new String[] {"PKG"}),
+                createTable("H", new String[] {"PKH"}),
+        });
+
+        DatabaseOperation operation = DatabaseOperation.PARALLEL(DatabaseOperation.CLEAN_INSERT,
+                new IDatabaseConnection[] {connection, connection2});
+        operation.execute(connection, dataSet);
+        // Executing twice requires the delete phase to respect the dependencies as well
+        operation.execute(connection, dataSet);
+
+        String[] tableNames = dataSet.getTableNames();
+        for (int i = 0; i < tableNames.length; i++)
+        {
+            assertEquals(tableNames[i], 1, connection.getRowCount(tableNames[i]));
+        }
+        assertTrue(_jdbcConnection.getAutoCommit());
+        assertTrue(_jdbcConnection2.getAutoCommit());
+    }
+
+    public void testExecuteInterruptedWaitsForWorkers() throws Exception
+    {
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        IDatabaseConnection connection = new DatabaseConnection(_jdbcConnection);
+        IDatabaseConnection connection2 = new DatabaseConnection(_jdbcConnection2);
+
+        // Three independent tables for two workers
+        IDataSet dataSet = new DefaultDataSet(new ITable[] {
+                createTable("D", new String[] {"PKD"}),
+                createTable("G", new String[] {"PKG"}),
+                createTable("H", new String[] {"PKH"}),
+        });
+        SlowOperation slowOperation = new SlowOperation();
+        DatabaseOperation operation = DatabaseOperation.PARALLEL(slowOperation,
+                new IDatabaseConnection[] {connection, connection2});
+
+        final Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                caller.interrupt();
+            }
+        };
+        interrupter.start();
+        try
+        {
+            operation.execute(connection, dataSet);
+            fail("Should have been interrupted");
+        }
+        catch (DatabaseUnitException expected)
+        {
+            assertTrue(Thread.interrupted());
+        }
+        finally
+        {
+            interrupter.join();
+        }
+
+        // The two running tables completed, the third one was not started
+        assertEquals(0, slowOperation.running);
+        assertEquals(2, slowOperation.finished);
+        assertTrue(_jdbcConnection.getAutoCommit());
+        assertTrue(_jdbcConnection2.getAutoCommit());
+    }
+
+    private static DefaultTable createTable(String tableName, String[] columnNames) throws Exception
+    {
+        Column[] columns = new Column[columnNames.length];
+        Object[] values = new Object[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            columns[i] = new Column(columnNames[i], DataType.NUMERIC);
+            values[i] = new BigDecimal(1);
+        }
+        DefaultTable table = new DefaultTable(tableName, columns);
+        table.addRow(values);
+        return table;
+    }
+
+    private static Set toSet(String[] values)
+    {
+        return new HashSet(Arrays.asList(values));
+    }
+
+    /**
+     * Operation that takes a while for every table and counts the running ones.
+     */
+    private static class SlowOperation extends DatabaseOperation
+    {
+        private int running;
+        private int finished;
+
+        public void execute(IDatabaseConnection connection, IDataSet dataSet)
+        {
+            synchronized (this)
+            {
+                running++;
+            }
+            try
+            {
+                Thread.sleep(500);
+            }
+            catch (InterruptedException e)
+            {
+                throw new IllegalStateException("The workers must not be interrupted");
+            }
+            synchronized (this)
+            {
+                running--;
+                finished++;
+            }
+        }
+    }
+}
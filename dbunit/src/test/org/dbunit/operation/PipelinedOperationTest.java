@@ -0,0 +1,301 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.MockDatabaseConnection;
+import org.dbunit.database.statement.MockBatchStatement;
+import org.dbunit.database.statement.MockStatementFactory;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableCursor;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.dataset.stream.DataSetProducerAdapter;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class PipelinedOperationTest extends TestCase
+{
+
+    public PipelinedOperationTest(String s)
+    {
+        super(s);
+    }
+
+    public void testExecuteConvertsToDatabaseTypes() throws Exception
+    {
+        String[] expected = {
+            "insert into schema.table (c1, c2) values ('toto', 1234)",
+            "insert into schema.table (c1) values ('qwerty')",
+        };
+
+        // dataset without type information
+        DefaultTable table = new DefaultTable("table", new Column[]{
+            new Column("c1", DataType.UNKNOWN),
+            new Column("c2", DataType.UNKNOWN),
+        });
+        table.addRow(new Object[]{"toto", "1234"});
+        table.addRow(new Object[]{"qwerty", ITable.NO_VALUE});
+
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings(expected);
+        statement.setExpectedExecuteBatchCalls(2);
+        statement.setExpectedClearBatchCalls(2);
+        statement.setExpectedCloseCalls(2);
+
+        MockDatabaseConnection connection = createConnection(statement, 2);
+
+        new PipelinedOperation(DatabaseOperation.INSERT).execute(connection,
+                new DefaultDataSet(table));
+
+        statement.verify();
+        connection.verify();
+    }
+
+    public void testExecuteProducer() throws Exception
+    {
+        // More rows than the buffer capacity
+        int rowCount = 500;
+        List expected = new ArrayList();
+        DefaultTable table = new DefaultTable("table", new Column[]{
+            new Column("c1", DataType.UNKNOWN),
+            new Column("c2", DataType.UNKNOWN),
+        });
+        for (int i = 0; i < rowCount; i++)
+        {
+            table.addRow(new Object[]{"row" + i, String.valueOf(i)});
+            expected.add("insert into schema.table (c1, c2) values ('row" + i + "', " + i + ")");
+        }
+
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings((String[])expected.toArray(new String[0]));
+        statement.setExpectedExecuteBatchCalls(1);
+        statement.setExpectedClearBatchCalls(1);
+        statement.setExpectedCloseCalls(1);
+
+        MockDatabaseConnection connection = createConnection(statement, 1);
+
+        new PipelinedOperation(DatabaseOperation.INSERT, 100).execute(connection,
+                new DataSetProducerAdapter(new DefaultDataSet(table)));
+
+        statement.verify();
+        connection.verify();
+    }
+
+    public void testExecuteConversionError() throws Exception
+    {
+        DefaultTable table = new DefaultTable("table", new Column[]{
+            new Column("c1", DataType.UNKNOWN),
+            new Column("c2", DataType.UNKNOWN),
+        });
+        table.addRow(new Object[]{"toto", "not a number"});
+
+        MockBatchStatement statement = new MockBatchStatement();
+        MockDatabaseConnection connection = createConnection(statement, 0);
+
+        try
+        {
+            new PipelinedOperation(DatabaseOperation.INSERT).execute(connection,
+                    new DefaultDataSet(table));
+            fail("Should not be able to convert the value");
+        }
+        catch (TypeCastException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage().indexOf("'c2'") >= 0);
+        }
+    }
+
+    public void testExecuteConversionThreadError() throws Exception
+    {
+        DefaultTable table = new DefaultTable("table", new Column[]{
+            new Column("c1", DataType.UNKNOWN),
+        })
+        {
+            public ITableCursor createCursor()
+            {
+                throw new Error("Out of resources");
+            }
+        };
+        table.addRow(new Object[]{"toto"});
+
+        MockBatchStatement statement = new MockBatchStatement();
+        MockDatabaseConnection connection = createConnection(statement, 0);
+
+        // Without the error the execution stage would wait forever for the end of the table
+        Error error = null;
+        try
+        {
+            new PipelinedOperation(DatabaseOperation.INSERT).execute(connection,
+                    new DefaultDataSet(table));
+        }
+        catch (Error e)
+        {
+            error = e;
+        }
+        assertNotNull("Should pass the error of the conversion thread on", error);
+        assertEquals("Out of resources", error.getMessage());
+    }
+
+    public void testExecuteCleanInsertDeletesBeforeInserting() throws Exception
+    {
+        String[] expected = {
+            "delete from schema.child",
+            "delete from schema.parent",
+            "insert into schema.parent (id) values (1)",
+            "insert into schema.child (id, parent_id) values (2, 1)",
+        };
+
+        DefaultTable parent = new DefaultTable("parent", new Column[]{
+            new Column("id", DataType.UNKNOWN),
+        });
+        parent.addRow(new Object[]{"1"});
+        DefaultTable child = new DefaultTable("child", new Column[]{
+            new Column("id", DataType.UNKNOWN),
+            new Column("parent_id", DataType.UNKNOWN),
+        });
+        child.addRow(new Object[]{"2", "1"});
+
+        MockBatchStatement statement = new MockBatchStatement();
+        statement.addExpectedBatchStrings(expected);
+        statement.setExpectedExecuteBatchCalls(3);
+        statement.setExpectedClearBatchCalls(3);
+        statement.setExpectedCloseCalls(3);
+
+        MockStatementFactory factory = new MockStatementFactory();
+        factory.setExpectedCreateStatementCalls(1);
+        factory.setExpectedCreatePreparedStatementCalls(2);
+        factory.setupStatement(statement);
+
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        connection.setupDataSet(new DefaultDataSet(new ITable[] {
+            new DefaultTable("parent", new Column[]{
+                new Column("id", DataType.NUMERIC),
+            }),
+            new DefaultTable("child", new Column[]{
+                new Column("id", DataType.NUMERIC),
+                new Column("parent_id", DataType.NUMERIC),
+            }),
+        }));
+        connection.setupSchema("schema");
+        connection.setupStatementFactory(factory);
+        connection.setExpectedCloseCalls(0);
+
+        new PipelinedOperation(DatabaseOperation.CLEAN_INSERT).execute(connection,
+                new DefaultDataSet(new ITable[] {parent, child}));
+
+        statement.verify();
+        factory.verify();
+        connection.verify();
+    }
+
+    public void testExecuteCleanInsertWithForeignKeys() throws Exception
+    {
+        Connection jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        try
+        {
+            HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                    jdbcConnection);
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+
+            // Tables in insert order, the deletes must process them in reverse
+            IDataSet dataSet = new DefaultDataSet(new ITable[] {
+                    createFkTable("D", new String[] {"PKD"}),
+                    createFkTable("A", new String[] {"PKA", "FKD"}),
+                    createFkTable("F", new String[] {"PKF", "FKD"}),
+                    createFkTable("C", new String[] {"PKC", "FKA", "FKF"}),
+                    createFkTable("G", new String[] {"PKG"}),
+                    createFkTable("E", new String[] {"PKE", "FKA", "FKG"}),
+                    createFkTable("H", new String[] {"PKH"}),
+                    createFkTable("B", new String[] {"PKB", "FKC", "FKE", "FKH"}),
+            });
+
+            DatabaseOperation operation = DatabaseOperation.PIPELINED(DatabaseOperation.CLEAN_INSERT);
+            operation.execute(connection, dataSet);
+            // The second execution deletes the rows inserted by the first one
+            operation.execute(connection, dataSet);
+
+            String[] tableNames = dataSet.getTableNames();
+            for (int i = 0; i < tableNames.length; i++)
+            {
+                assertEquals(tableNames[i], 1, connection.getRowCount(tableNames[i]));
+            }
+        }
+        finally
+        {
+            HypersonicEnvironment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+            HypersonicEnvironment.deleteFiles("tempdb");
+        }
+    }
+
+    private static DefaultTable createFkTable(String tableName, String[] columnNames) throws Exception
+    {
+        Column[] columns = new Column[columnNames.length];
+        Object[] values = new Object[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            columns[i] = new Column(columnNames[i], DataType.NUMERIC);
+            values[i] = new BigDecimal(1);
+        }
+        DefaultTable table = new DefaultTable(tableName, columns);
+        table.addRow(values);
+        return table;
+    }
+
+    private MockDatabaseConnection createConnection(MockBatchStatement statement,
+            int expectedStatementCalls) throws Exception
+    {
+        // database table with type information
+        DefaultTable databaseTable = new DefaultTable("table", new Column[]{
+            new Column("c1", DataType.VARCHAR),
+            new Column("c2", DataType.NUMERIC),
+        });
+
+        MockStatementFactory factory = new MockStatementFactory();
+        factory.setExpectedCreatePreparedStatementCalls(expectedStatementCalls);
+        factory.setupStatement(statement);
+
+        MockDatabaseConnection connection = new MockDatabaseConnection();
+        connection.setupDataSet(new DefaultDataSet(databaseTable));
+        connection.setupSchema("schema");
+        connection.setupStatementFactory(factory);
+        connection.setExpectedCloseCalls(0);
+        return connection;
+    }
+}
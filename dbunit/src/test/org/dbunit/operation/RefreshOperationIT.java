@@ -23,9 +23,14 @@ package org.dbunit.operation;
 
 import java.io.FileReader;
 import java.io.Reader;
+import java.sql.Connection;
 
 import org.dbunit.AbstractDatabaseIT;
 import org.dbunit.Assertion;
+import org.dbunit.H2Environment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.database.MockDatabaseConnection;
 import org.dbunit.database.statement.MockBatchStatement;
 import org.dbunit.database.statement.MockStatementFactory;
@@ -78,6 +83,24 @@ public class RefreshOperationIT extends AbstractDatabaseIT
         testExecute(new ForwardOnlyDataSet(dataSet));
     }
 
+    public void testExecuteSmallChunks() throws Exception
+    {
+        Reader reader = new FileReader("src/xml/refreshOperationTest.xml");
+        IDataSet dataSet = new FlatXmlDataSetBuilder().build(reader);
+
+        DatabaseConfig config = _connection.getConfig();
+        Object chunkSize = config.getProperty(DatabaseConfig.PROPERTY_REFRESH_CHUNK_SIZE);
+        config.setProperty(DatabaseConfig.PROPERTY_REFRESH_CHUNK_SIZE, new Integer(2));
+        try
+        {
+            testExecute(dataSet);
+        }
+        finally
+        {
+            config.setProperty(DatabaseConfig.PROPERTY_REFRESH_CHUNK_SIZE, chunkSize);
+        }
+    }
+
     private void testExecute(IDataSet dataSet) throws Exception
     {
         String[] tableNames = {"PK_TABLE", "ONLY_PK_TABLE"};
@@ -106,6 +129,92 @@ public class RefreshOperationIT extends AbstractDatabaseIT
         }
     }
 
+    public void testIsExactKey() throws Exception
+    {
+        assertTrue(RefreshOperation.isExactKey(new Column[] {
+                new Column("c1", DataType.INTEGER), new Column("c2", DataType.NUMERIC)}));
+        assertFalse(RefreshOperation.isExactKey(new Column[] {
+                new Column("c1", DataType.INTEGER), new Column("c2", DataType.CHAR)}));
+        assertFalse(RefreshOperation.isExactKey(new Column[] {
+                new Column("c1", DataType.VARCHAR)}));
+    }
+
+    public void testExecuteCharPrimaryKey() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("refreshchar");
+        try
+        {
+            // H2 removes the trailing blanks of CHAR values
+            H2Environment.executeSql(jdbcConnection,
+                    "create table CHAR_PK_TABLE (PK0 char(5) primary key, NORMAL0 varchar(20))");
+            H2Environment.executeSql(jdbcConnection,
+                    "insert into CHAR_PK_TABLE values ('A', 'old')");
+
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+
+            Column[] columns = new Column[] {
+                    new Column("PK0", DataType.CHAR),
+                    new Column("NORMAL0", DataType.VARCHAR)};
+            DefaultTable table = new DefaultTable(new DefaultTableMetaData(
+                    "CHAR_PK_TABLE", columns, new Column[] {columns[0]}));
+            // Equal to the existing key for the database, but not for DataType.compare
+            table.addRow(new Object[] {"A    ", "new"});
+            table.addRow(new Object[] {"B", "added"});
+
+            DatabaseOperation.REFRESH.execute(connection, new DefaultDataSet(table));
+
+            ITable actual = connection.createQueryTable("CHAR_PK_TABLE",
+                    "select * from CHAR_PK_TABLE order by PK0");
+            assertEquals(2, actual.getRowCount());
+            assertEquals("new", actual.getValue(0, "NORMAL0"));
+            assertEquals("added", actual.getValue(1, "NORMAL0"));
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
+    public void testExecuteDuplicateKeysMoreThanBatchSize() throws Exception
+    {
+        Connection jdbcConnection = H2Environment.createJdbcConnection("refreshbatch");
+        try
+        {
+            H2Environment.executeSql(jdbcConnection,
+                    "create table BATCH_TABLE (PK0 integer primary key, NORMAL0 varchar(20))");
+
+            IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+            connection.getConfig().setProperty(
+                    DatabaseConfig.PROPERTY_BATCH_SIZE, new Integer(3));
+
+            Column[] columns = new Column[] {
+                    new Column("PK0", DataType.INTEGER),
+                    new Column("NORMAL0", DataType.VARCHAR)};
+            DefaultTable table = new DefaultTable(new DefaultTableMetaData(
+                    "BATCH_TABLE", columns, new Column[] {columns[0]}));
+            // The three updates fill the update batch while both inserts are pending
+            table.addRow(new Object[] {new Integer(1), "a"});
+            table.addRow(new Object[] {new Integer(2), "b"});
+            table.addRow(new Object[] {new Integer(1), "c"});
+            table.addRow(new Object[] {new Integer(2), "d"});
+            table.addRow(new Object[] {new Integer(1), "e"});
+
+            DatabaseOperation.REFRESH.execute(connection, new DefaultDataSet(table));
+
+            ITable actual = connection.createQueryTable("BATCH_TABLE",
+                    "select * from BATCH_TABLE order by PK0");
+            assertEquals(2, actual.getRowCount());
+            assertEquals("e", actual.getValue(0, "NORMAL0"));
+            assertEquals("d", actual.getValue(1, "NORMAL0"));
+        }
+        finally
+        {
+            H2Environment.shutdown(jdbcConnection);
+            jdbcConnection.close();
+        }
+    }
+
     public void testExecuteAndNoPrimaryKeys() throws Exception
     {
         String tableName = "TEST_TABLE";
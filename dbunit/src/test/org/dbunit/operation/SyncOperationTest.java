@@ -0,0 +1,229 @@
+/*
+ *
+ * The DbUnit Database Testing Framework
+ * Copyright (C)2002-2009, DbUnit.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package org.dbunit.operation;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dbunit.HypersonicEnvironment;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.DirtyTableRegistry;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.NoPrimaryKeyException;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * @author agent (agent AT local)
+ * @author Last changed by: $Author$
+ * @version $Revision$ $Date$
+ * @since 2.4.8
+ */
+public class SyncOperationTest extends TestCase
+{
+    private Connection _jdbcConnection;
+    private IDatabaseConnection _connection;
+
+    public SyncOperationTest(String s)
+    {
+        super(s);
+    }
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _jdbcConnection = HypersonicEnvironment.createJdbcConnection("tempdb");
+        HypersonicEnvironment.executeDdlFile(new File("src/sql/hypersonic_fk.sql"),
+                _jdbcConnection);
+        _connection = new DatabaseConnection(_jdbcConnection);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+
+        HypersonicEnvironment.shutdown(_jdbcConnection);
+        _jdbcConnection.close();
+
+        HypersonicEnvironment.deleteFiles("tempdb");
+    }
+
+    public void testExecute() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(
+                new String[] {"1", "2", "3"},
+                new String[][] {{"1", "1"}, {"2", "2"}}));
+
+        DatabaseOperation.SYNC.execute(_connection, createDataSet(
+                new String[] {"1", "2", "4"},
+                new String[][] {{"1", "4"}, {"3", "1"}}));
+
+        assertEquals(Arrays.asList(new String[] {"1", "2", "4"}), getRows("D", "PKD"));
+        assertEquals(Arrays.asList(new String[] {"1 4", "3 1"}), getRows("A", "PKA, FKD"));
+    }
+
+    public void testExecuteEmptyTable() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(
+                new String[] {"1", "2"},
+                new String[][] {{"1", "1"}}));
+
+        DatabaseOperation.SYNC.execute(_connection, createDataSet(
+                new String[] {"1"},
+                new String[0][]));
+
+        assertEquals(Arrays.asList(new String[] {"1"}), getRows("D", "PKD"));
+        assertEquals(0, _connection.getRowCount("A"));
+    }
+
+    public void testUnchangedRowsAreNotWritten() throws Exception
+    {
+        IDataSet dataSet = createDataSet(
+                new String[] {"1", "2"},
+                new String[][] {{"1", "1"}, {"2", "1"}});
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, dataSet);
+
+        // Every statement executed by the operation would mark its table dirty
+        DirtyTableRegistry registry = new DirtyTableRegistry();
+        registry.markClean("A");
+        registry.markClean("D");
+        _connection.getConfig().setProperty(DatabaseConfig.PROPERTY_DIRTY_TABLE_REGISTRY, registry);
+
+        DatabaseOperation.SYNC.execute(_connection, dataSet);
+
+        assertTrue(registry.isClean("A"));
+        assertTrue(registry.isClean("D"));
+    }
+
+    public void testChildMovedToSurvivingParent() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(
+                new String[] {"1", "2"},
+                new String[][] {{"1", "2"}}));
+
+        // Deleting parent 2 before updating the child would violate the foreign key
+        DatabaseOperation.SYNC.execute(_connection, createDataSet(
+                new String[] {"1"},
+                new String[][] {{"1", "1"}}));
+
+        assertEquals(Arrays.asList(new String[] {"1"}), getRows("D", "PKD"));
+        assertEquals(Arrays.asList(new String[] {"1 1"}), getRows("A", "PKA, FKD"));
+    }
+
+    public void testChildMovedToNewParent() throws Exception
+    {
+        DatabaseOperation.CLEAN_INSERT.execute(_connection, createDataSet(
+                new String[] {"1", "2"},
+                new String[][] {{"1", "2"}, {"2", "2"}}));
+
+        DatabaseOperation.SYNC.execute(_connection, createDataSet(
+                new String[] {"1", "3"},
+                new String[][] {{"1", "3"}, {"3", "1"}}));
+
+        assertEquals(Arrays.asList(new String[] {"1", "3"}), getRows("D", "PKD"));
+        assertEquals(Arrays.asList(new String[] {"1 3", "3 1"}), getRows("A", "PKA, FKD"));
+    }
+
+    public void testColumnsNotInDataSetAreKept() throws Exception
+    {
+        HypersonicEnvironment.executeSql(_jdbcConnection, 
+                "CREATE TABLE U (ID NUMERIC PRIMARY KEY, NAME VARCHAR(10), NOTE VARCHAR(10))");
+        HypersonicEnvironment.executeSql(_jdbcConnection, "INSERT INTO U VALUES (1, 'a', 'x')");
+        HypersonicEnvironment.executeSql(_jdbcConnection, "INSERT INTO U VALUES (3, 'c', 'x')");
+
+        DefaultTable table = new DefaultTable("U", new Column[] {
+                new Column("ID", DataType.UNKNOWN),
+                new Column("NAME", DataType.UNKNOWN)});
+        table.addRow(new Object[] {"2", "b"});
+        table.addRow(new Object[] {"3", "d"});
+        DatabaseOperation.SYNC.execute(_connection, new DefaultDataSet(table));
+
+        // NOTE is not part of the dataset and keeps its value in the updated row
+        assertEquals(Arrays.asList(new String[] {"2 b null", "3 d x"}), getRows("U", "ID, NAME, NOTE"));
+    }
+
+    public void testExecuteWithoutPrimaryKey() throws Exception
+    {
+        HypersonicEnvironment.executeSql(_jdbcConnection, "CREATE TABLE NOPK (ID NUMERIC)");
+        DefaultTable table = new DefaultTable("NOPK", new Column[] {
+                new Column("ID", DataType.UNKNOWN)});
+
+        try
+        {
+            DatabaseOperation.SYNC.execute(_connection, new DefaultDataSet(table));
+            fail("Should not be able to match rows without primary key");
+        }
+        catch (NoPrimaryKeyException expected)
+        {
+        }
+    }
+
+    private List getRows(String tableName, String columns) throws Exception
+    {
+        ITable table = _connection.createQueryTable(tableName,
+                "select " + columns + " from " + tableName + " order by 1");
+        Column[] tableColumns = table.getTableMetaData().getColumns();
+        List rows = new ArrayList();
+        for (int i = 0; i < table.getRowCount(); i++)
+        {
+            StringBuffer row = new StringBuffer();
+            for (int j = 0; j < tableColumns.length; j++)
+            {
+                if (j > 0)
+                {
+                    row.append(" ");
+                }
+                row.append(table.getValue(i, tableColumns[j].getColumnName()));
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private static IDataSet createDataSet(String[] dKeys, String[][] aRows) throws Exception
+    {
+        DefaultTable d = new DefaultTable("D", new Column[] {
+                new Column("PKD", DataType.UNKNOWN)});
+        for (int i = 0; i < dKeys.length; i++)
+        {
+            d.addRow(new Object[] {dKeys[i]});
+        }
+        DefaultTable a = new DefaultTable("A", new Column[] {
+                new Column("PKA", DataType.UNKNOWN),
+                new Column("FKD", DataType.UNKNOWN)});
+        for (int i = 0; i < aRows.length; i++)
+        {
+            a.addRow(aRows[i]);
+        }
+        return new DefaultDataSet(new ITable[] {d, a});
+    }
+}
@@ -21,6 +21,9 @@
 
 package org.dbunit.util.search;
 
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.SortedSet;
 
 
 /**
@@ -177,4 +180,45 @@ public class DepthFirstSearchTest extends AbstractSearchTestCase {
     doIt();
   }
 
+  public void testSearchDepth() throws Exception {
+    setInput(new String[] { A });
+    addEdges(A, new String[] { B, C });
+    addEdges(B, new String[] { D });
+    addEdges(C, new String[] { E });
+    setOutput(new String[] { B, C, A });
+    Set actualOutput = new DepthFirstSearch(1).search(this.fInput, getCallback());
+    assertEquals(new ArrayList(this.fExpectedOutput), new ArrayList(actualOutput));
+  }
+
+  public void testDeepGraph() throws Exception {
+    // deep enough to overflow the stack of a recursive search
+    int depth = 100000;
+    String[] nodes = new String[depth];
+    for (int i = 0; i < depth; i++) {
+      nodes[i] = "N" + i;
+    }
+    for (int i = 0; i < depth - 1; i++) {
+      addEdges(nodes[i], new String[] { nodes[i + 1] });
+    }
+    setInput(new String[] { nodes[0] });
+    for (int i = depth - 1; i >= 0; i--) {
+      this.fExpectedOutput.add(nodes[i]);
+    }
+    // only the outgoing edges, the bidirectional lookup of the sub-class is too slow here
+    ISearchCallback callback = new ISearchCallback() {
+      public SortedSet getEdges(Object fromNode) {
+        return getEdgesFromNode(fromNode);
+      };
+
+      public void nodeAdded(Object fromNode) {
+      }
+
+      public boolean searchNode(Object node) {
+        return true;
+      }
+    };
+    Set actualOutput = new DepthFirstSearch().search(this.fInput, callback);
+    assertEquals(new ArrayList(this.fExpectedOutput), new ArrayList(actualOutput));
+  }
+
 }